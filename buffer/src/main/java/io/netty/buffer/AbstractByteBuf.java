@@ -949,16 +949,8 @@ public abstract class AbstractByteBuf extends ByteBuf {
             return "";
         }
 
-        ByteBuffer nioBuffer;
-        if (nioBufferCount() == 1) {
-            nioBuffer = nioBuffer(index, length);
-        } else {
-            nioBuffer = ByteBuffer.allocate(length);
-            getBytes(index, nioBuffer);
-            nioBuffer.flip();
-        }
-
-        return ByteBufUtil.decodeString(nioBuffer, charset);
+        checkIndex(index, length);
+        return ByteBufUtil.decodeString(this, index, length, charset);
     }
 
     @Override
@@ -1009,6 +1001,21 @@ public abstract class AbstractByteBuf extends ByteBuf {
         }
 
         final int endIndex = index + length;
+
+        // The processors which only look for a byte value are answered with a word-at-a-time search.
+        if (processor == ByteBufProcessor.FIND_LF) {
+            return ByteBufUtil.firstIndexOf(this, index, endIndex, (byte) '\n', (byte) '\n');
+        }
+        if (processor == ByteBufProcessor.FIND_CRLF) {
+            return ByteBufUtil.firstIndexOf(this, index, endIndex, (byte) '\r', (byte) '\n');
+        }
+        if (processor == ByteBufProcessor.FIND_CR) {
+            return ByteBufUtil.firstIndexOf(this, index, endIndex, (byte) '\r', (byte) '\r');
+        }
+        if (processor == ByteBufProcessor.FIND_NUL) {
+            return ByteBufUtil.firstIndexOf(this, index, endIndex, (byte) 0, (byte) 0);
+        }
+
         int i = index;
         try {
             do {
@@ -28,6 +28,14 @@ public abstract class AbstractByteBufAllocator implements ByteBufAllocator {
     private static final int DEFAULT_INITIAL_CAPACITY = 256;
     private static final int DEFAULT_MAX_COMPONENTS = 16;
 
+    /**
+     * Returns the {@link ResourceLeakDetector} which tracks the buffers created by all allocators, to read its
+     * statistics or to change its sampling interval at runtime.
+     */
+    public static ResourceLeakDetector<ByteBuf> leakDetector() {
+        return AbstractByteBuf.leakDetector;
+    }
+
     protected static ByteBuf toLeakAwareBuffer(ByteBuf buf) {
         ResourceLeak leak;
         switch (ResourceLeakDetector.getLevel()) {
@@ -16,6 +16,7 @@
 package io.netty.buffer;
 
 import io.netty.util.CharsetUtil;
+import io.netty.util.internal.PlatformDependent;
 import io.netty.util.internal.SystemPropertyUtil;
 import io.netty.util.internal.logging.InternalLogger;
 import io.netty.util.internal.logging.InternalLoggerFactory;
@@ -25,7 +26,6 @@ import java.nio.ByteOrder;
 import java.nio.CharBuffer;
 import java.nio.charset.CharacterCodingException;
 import java.nio.charset.Charset;
-import java.nio.charset.CharsetDecoder;
 import java.nio.charset.CharsetEncoder;
 import java.nio.charset.CoderResult;
 import java.util.Locale;
@@ -39,6 +39,10 @@ public final class ByteBufUtil {
 
     private static final char[] HEXDUMP_TABLE = new char[256 * 4];
 
+    private static final boolean BIG_ENDIAN_NATIVE_ORDER = ByteOrder.nativeOrder() == ByteOrder.BIG_ENDIAN;
+    private static final long BYTE_PATTERN = 0x0101010101010101L;
+    private static final long LOW_BITS = 0x7F7F7F7F7F7F7F7FL;
+
     static final ByteBufAllocator DEFAULT_ALLOCATOR;
 
     static {
@@ -136,11 +140,23 @@ public final class ByteBufUtil {
      */
     public static int hashCode(ByteBuf buffer) {
         final int aLen = buffer.readableBytes();
-        final int intCount = aLen >>> 2;
-        final int byteCount = aLen & 3;
 
         int hashCode = 1;
         int arrayIndex = buffer.readerIndex();
+        if (aLen >= 8 && hasUnsafeAccess(buffer)) {
+            // Hash two big-endian ints per long read.
+            final byte[] array = unsafeArray(buffer);
+            final long base = unsafeBase(buffer, array);
+            for (int i = aLen >>> 3; i > 0; i --) {
+                long value = getLongBigEndian(array, base, arrayIndex);
+                hashCode = 31 * (31 * hashCode + (int) (value >>> 32)) + (int) value;
+                arrayIndex += 8;
+            }
+        }
+
+        final int remaining = aLen - (arrayIndex - buffer.readerIndex());
+        final int intCount = remaining >>> 2;
+        final int byteCount = remaining & 3;
         if (buffer.order() == ByteOrder.BIG_ENDIAN) {
             for (int i = intCount; i > 0; i --) {
                 hashCode = 31 * hashCode + buffer.getInt(arrayIndex);
@@ -181,7 +197,20 @@ public final class ByteBufUtil {
         int aIndex = bufferA.readerIndex();
         int bIndex = bufferB.readerIndex();
 
-        if (bufferA.order() == bufferB.order()) {
+        if (longCount > 0 && hasUnsafeAccess(bufferA) && hasUnsafeAccess(bufferB)) {
+            // The bytes are equal if and only if the native order longs are, whatever the order of the buffers.
+            final byte[] aArray = unsafeArray(bufferA);
+            final long aBase = unsafeBase(bufferA, aArray);
+            final byte[] bArray = unsafeArray(bufferB);
+            final long bBase = unsafeBase(bufferB, bArray);
+            for (int i = longCount; i > 0; i --) {
+                if (getLongNative(aArray, aBase, aIndex) != getLongNative(bArray, bBase, bIndex)) {
+                    return false;
+                }
+                aIndex += 8;
+                bIndex += 8;
+            }
+        } else if (bufferA.order() == bufferB.order()) {
             for (int i = longCount; i > 0; i --) {
                 if (bufferA.getLong(aIndex) != bufferB.getLong(bIndex)) {
                     return false;
@@ -218,12 +247,33 @@ public final class ByteBufUtil {
         final int aLen = bufferA.readableBytes();
         final int bLen = bufferB.readableBytes();
         final int minLength = Math.min(aLen, bLen);
-        final int uintCount = minLength >>> 2;
-        final int byteCount = minLength & 3;
 
         int aIndex = bufferA.readerIndex();
         int bIndex = bufferB.readerIndex();
 
+        if (minLength >= 8 && hasUnsafeAccess(bufferA) && hasUnsafeAccess(bufferB)) {
+            final byte[] aArray = unsafeArray(bufferA);
+            final long aBase = unsafeBase(bufferA, aArray);
+            final byte[] bArray = unsafeArray(bufferB);
+            final long bBase = unsafeBase(bufferB, bArray);
+            final boolean bigEndian = bufferA.order() == ByteOrder.BIG_ENDIAN;
+            for (int i = minLength >>> 3; i > 0; i --) {
+                long va = getLongNative(aArray, aBase, aIndex);
+                long vb = getLongNative(bArray, bBase, bIndex);
+                if (va != vb) {
+                    // Compare the two unsigned ints of each long in the order of bufferA, like the loop below.
+                    va = compareKey(va, bigEndian);
+                    vb = compareKey(vb, bigEndian);
+                    return (va ^ Long.MIN_VALUE) > (vb ^ Long.MIN_VALUE) ? 1 : -1;
+                }
+                aIndex += 8;
+                bIndex += 8;
+            }
+        }
+
+        final int remaining = minLength - (aIndex - bufferA.readerIndex());
+        final int uintCount = remaining >>> 2;
+        final int byteCount = remaining & 3;
         if (bufferA.order() == bufferB.order()) {
             for (int i = uintCount; i > 0; i --) {
                 long va = bufferA.getUnsignedInt(aIndex);
@@ -268,6 +318,48 @@ public final class ByteBufUtil {
         return aLen - bLen;
     }
 
+    /**
+     * Returns {@code true} if the bytes of the specified buffer can be read with {@code sun.misc.Unsafe} through its
+     * memory address or its backing array.
+     */
+    private static boolean hasUnsafeAccess(ByteBuf buffer) {
+        // Check the reference count first, as the memory of a released buffer may have been freed already.
+        return PlatformDependent.hasUnsafe() && buffer.refCnt() != 0 &&
+                (buffer.hasMemoryAddress() || buffer.hasArray());
+    }
+
+    private static byte[] unsafeArray(ByteBuf buffer) {
+        return buffer.hasArray() ? buffer.array() : null;
+    }
+
+    private static long unsafeBase(ByteBuf buffer, byte[] array) {
+        return array != null ? buffer.arrayOffset() : buffer.memoryAddress();
+    }
+
+    private static long getLongNative(byte[] array, long base, int index) {
+        if (array != null) {
+            return PlatformDependent.getLong(array, (int) base + index);
+        }
+        return PlatformDependent.getLong(base + index);
+    }
+
+    private static long getLongBigEndian(byte[] array, long base, int index) {
+        long value = getLongNative(array, base, index);
+        return BIG_ENDIAN_NATIVE_ORDER ? value : Long.reverseBytes(value);
+    }
+
+    /**
+     * Converts a native order long into one whose unsigned order is the order of its two unsigned ints, read
+     * in the specified byte order, one after the other.
+     */
+    private static long compareKey(long value, boolean bigEndian) {
+        if (bigEndian) {
+            return BIG_ENDIAN_NATIVE_ORDER ? value : Long.reverseBytes(value);
+        }
+        // As a little-endian long, the first int is in the lower half.
+        return Long.rotateLeft(BIG_ENDIAN_NATIVE_ORDER ? Long.reverseBytes(value) : value, 32);
+    }
+
     /**
      * The default implementation of {@link ByteBuf#indexOf(int, int, byte)}.
      * This method is useful when implementing a new buffer type.
@@ -280,6 +372,45 @@ public final class ByteBufUtil {
         }
     }
 
+    /**
+     * Returns the index of the first occurrence of the readable bytes of {@code needle} within the readable bytes of
+     * {@code haystack}, or {@code -1} if {@code needle} does not occur in {@code haystack}.
+     */
+    public static int indexOf(ByteBuf needle, ByteBuf haystack) {
+        if (needle == null) {
+            throw new NullPointerException("needle");
+        }
+        if (haystack == null) {
+            throw new NullPointerException("haystack");
+        }
+
+        final int needleIndex = needle.readerIndex();
+        final int needleLength = needle.readableBytes();
+        if (needleLength == 0) {
+            return haystack.readerIndex();
+        }
+
+        // Find the candidates with the word-at-a-time search for the first byte and only compare the rest there.
+        final byte first = needle.getByte(needleIndex);
+        final int lastStart = haystack.writerIndex() - needleLength;
+        int i = haystack.readerIndex();
+        while (i <= lastStart) {
+            i = haystack.indexOf(i, lastStart + 1, first);
+            if (i < 0) {
+                break;
+            }
+            int j = 1;
+            while (j < needleLength && haystack.getByte(i + j) == needle.getByte(needleIndex + j)) {
+                j ++;
+            }
+            if (j == needleLength) {
+                return i;
+            }
+            i ++;
+        }
+        return -1;
+    }
+
     /**
      * Toggles the endianness of the specified 16-bit short integer.
      */
@@ -335,6 +466,12 @@ public final class ByteBufUtil {
             return -1;
         }
 
+        if (buffer instanceof AbstractByteBuf && toIndex <= buffer.capacity()) {
+            AbstractByteBuf buf = (AbstractByteBuf) buffer;
+            buf.checkIndex(fromIndex, toIndex - fromIndex);
+            return firstIndexOf(buf, fromIndex, toIndex, value, value);
+        }
+
         for (int i = fromIndex; i < toIndex; i ++) {
             if (buffer.getByte(i) == value) {
                 return i;
@@ -344,6 +481,78 @@ public final class ByteBufUtil {
         return -1;
     }
 
+    /**
+     * Returns the index of the first byte in {@code [fromIndex, toIndex)} which is either {@code value1} or
+     * {@code value2}, or {@code -1} if there is none.  The range is not checked.
+     * <p>
+     * The bytes are compared 8 at a time: each word is XOR'ed with the value repeated in every byte, and the bytes
+     * which became zero are found with a carry-free SWAR (SIMD within a register) test.  Buffers with a memory address
+     * or, if {@code sun.misc.Unsafe} is available, a backing array are read in the native byte order with a single
+     * load per word; all others are read through {@link AbstractByteBuf#_getLong(int)}.
+     */
+    static int firstIndexOf(AbstractByteBuf buffer, int fromIndex, int toIndex, byte value1, byte value2) {
+        final long pattern1 = (value1 & 0xFFL) * BYTE_PATTERN;
+        final long pattern2 = (value2 & 0xFFL) * BYTE_PATTERN;
+        final int wordEnd = toIndex - 7;
+        int i = fromIndex;
+
+        if (buffer.hasMemoryAddress()) {
+            final long address = buffer.memoryAddress();
+            for (; i < wordEnd; i += 8) {
+                long matches = matches(PlatformDependent.getLong(address + i), pattern1, pattern2);
+                if (matches != 0) {
+                    return i + firstMatch(matches, BIG_ENDIAN_NATIVE_ORDER);
+                }
+            }
+        } else if (buffer.hasArray() && PlatformDependent.hasUnsafe()) {
+            final byte[] array = buffer.array();
+            final int offset = buffer.arrayOffset();
+            for (; i < wordEnd; i += 8) {
+                long matches = matches(PlatformDependent.getLong(array, offset + i), pattern1, pattern2);
+                if (matches != 0) {
+                    return i + firstMatch(matches, BIG_ENDIAN_NATIVE_ORDER);
+                }
+            }
+        } else {
+            for (; i < wordEnd; i += 8) {
+                long matches = matches(buffer._getLong(i), pattern1, pattern2);
+                if (matches != 0) {
+                    return i + firstMatch(matches, true);
+                }
+            }
+        }
+
+        for (; i < toIndex; i ++) {
+            byte b = buffer._getByte(i);
+            if (b == value1 || b == value2) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns a word whose bytes have their high bit set where the byte of {@code word} equals the byte of
+     * {@code pattern1} or {@code pattern2}, and are zero elsewhere.
+     */
+    private static long matches(long word, long pattern1, long pattern2) {
+        long matches = zeroBytes(word ^ pattern1);
+        if (pattern1 != pattern2) {
+            matches |= zeroBytes(word ^ pattern2);
+        }
+        return matches;
+    }
+
+    private static long zeroBytes(long word) {
+        // Adding 0x7F to the low 7 bits of a byte sets its high bit unless they are all zero, and never carries into
+        // the next byte; OR'ing in the word itself then covers the high bit.
+        return ~((word & LOW_BITS) + LOW_BITS | word | LOW_BITS);
+    }
+
+    private static int firstMatch(long matches, boolean bigEndian) {
+        return (bigEndian ? Long.numberOfLeadingZeros(matches) : Long.numberOfTrailingZeros(matches)) >>> 3;
+    }
+
     private static int lastIndexOf(ByteBuf buffer, int fromIndex, int toIndex, byte value) {
         fromIndex = Math.min(fromIndex, buffer.capacity());
         if (fromIndex < 0 || buffer.capacity() == 0) {
@@ -359,11 +568,162 @@ public final class ByteBufUtil {
         return -1;
     }
 
+    /**
+     * Encodes the specified {@link CharSequence} in UTF-8 and writes it to the specified buffer, increasing its
+     * {@code writerIndex}.  An unpaired surrogate is written as {@code '?'}.
+     *
+     * @return the number of bytes written
+     */
+    public static int writeUtf8(ByteBuf buf, CharSequence seq) {
+        if (buf == null) {
+            throw new NullPointerException("buf");
+        }
+        if (seq == null) {
+            throw new NullPointerException("seq");
+        }
+
+        final int len = seq.length();
+        // A char never takes more than 3 bytes, as a 4 bytes sequence is always encoded from 2 chars.  Only if the
+        // buffer may have to grow, the exact length is calculated, so that it does not grow more than needed.
+        if ((long) len * 3 > buf.writableBytes()) {
+            buf.ensureWritable(utf8Length(seq, len));
+        }
+        return writeUtf8Reserved(buf, seq, len);
+    }
+
+    /**
+     * Same as {@link #writeUtf8(ByteBuf, CharSequence)}, except that the caller has ensured already that the
+     * buffer is writable for the encoded bytes.
+     */
+    private static int writeUtf8Reserved(ByteBuf buf, CharSequence seq, int len) {
+        AbstractByteBuf buffer = unwrapForWrite(buf);
+        if (buffer != null) {
+            // _setByte(...) does not check if the buffer was released, and ensureWritable(...) does not either if
+            // the buffer has enough room already.
+            buffer.ensureAccessible();
+            final int writerIndex = buffer.writerIndex();
+            final int newWriterIndex = setUtf8(buffer, writerIndex, seq, len);
+            buffer.writerIndex(newWriterIndex);
+            return newWriterIndex - writerIndex;
+        }
+
+        byte[] bytes = seq.toString().getBytes(CharsetUtil.UTF_8);
+        buf.writeBytes(bytes);
+        return bytes.length;
+    }
+
+    private static int setUtf8(AbstractByteBuf buffer, int writerIndex, CharSequence seq, int len) {
+        for (int i = 0; i < len; i ++) {
+            char c = seq.charAt(i);
+            if (c < 0x80) {
+                buffer._setByte(writerIndex ++, c);
+            } else if (c < 0x800) {
+                buffer._setByte(writerIndex ++, 0xc0 | c >> 6);
+                buffer._setByte(writerIndex ++, 0x80 | c & 0x3f);
+            } else if (c < Character.MIN_SURROGATE || c > Character.MAX_SURROGATE) {
+                buffer._setByte(writerIndex ++, 0xe0 | c >> 12);
+                buffer._setByte(writerIndex ++, 0x80 | c >> 6 & 0x3f);
+                buffer._setByte(writerIndex ++, 0x80 | c & 0x3f);
+            } else if (Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(seq.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, seq.charAt(++ i));
+                buffer._setByte(writerIndex ++, 0xf0 | codePoint >> 18);
+                buffer._setByte(writerIndex ++, 0x80 | codePoint >> 12 & 0x3f);
+                buffer._setByte(writerIndex ++, 0x80 | codePoint >> 6 & 0x3f);
+                buffer._setByte(writerIndex ++, 0x80 | codePoint & 0x3f);
+            } else {
+                buffer._setByte(writerIndex ++, '?');
+            }
+        }
+        return writerIndex;
+    }
+
+    /**
+     * Returns the exact number of bytes {@link #writeUtf8(ByteBuf, CharSequence)} writes for the specified
+     * {@link CharSequence}.
+     */
+    private static int utf8Length(CharSequence seq, int len) {
+        int length = 0;
+        for (int i = 0; i < len; i ++) {
+            char c = seq.charAt(i);
+            if (c < 0x80) {
+                length ++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (c < Character.MIN_SURROGATE || c > Character.MAX_SURROGATE) {
+                length += 3;
+            } else if (Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(seq.charAt(i + 1))) {
+                length += 4;
+                i ++;
+            } else {
+                length ++;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Writes the specified {@link CharSequence} to the specified buffer with one byte per char, increasing its
+     * {@code writerIndex}.  This is the same as encoding it in ISO-8859-1, and so in US-ASCII if the
+     * {@link CharSequence} contains only US-ASCII characters.  A char which is not in ISO-8859-1 is written as
+     * {@code '?'}.
+     *
+     * @return the number of bytes written
+     */
+    public static int writeAscii(ByteBuf buf, CharSequence seq) {
+        if (buf == null) {
+            throw new NullPointerException("buf");
+        }
+        if (seq == null) {
+            throw new NullPointerException("seq");
+        }
+
+        final int len = seq.length();
+        buf.ensureWritable(len);
+
+        AbstractByteBuf buffer = unwrapForWrite(buf);
+        if (buffer != null) {
+            buffer.ensureAccessible();
+            int writerIndex = buffer.writerIndex();
+            for (int i = 0; i < len; i ++) {
+                char c = seq.charAt(i);
+                buffer._setByte(writerIndex ++, c > 0xff ? '?' : c);
+            }
+            buffer.writerIndex(writerIndex);
+        } else {
+            buf.writeBytes(seq.toString().getBytes(CharsetUtil.ISO_8859_1));
+        }
+        return len;
+    }
+
+    /**
+     * Returns the {@link AbstractByteBuf} the bytes written to the specified buffer end up in, so that they can be
+     * set without the bounds checks and the indirections of the public methods, or {@code null} if there is none.
+     * The leak-aware wrappers are skipped, and so is a {@link SwappedByteBuf}, as the byte order does not matter
+     * when writing single bytes.
+     */
+    private static AbstractByteBuf unwrapForWrite(ByteBuf buf) {
+        for (;;) {
+            if (buf instanceof AbstractByteBuf) {
+                return (AbstractByteBuf) buf;
+            }
+            if (buf instanceof SimpleLeakAwareByteBuf || buf instanceof AdvancedLeakAwareByteBuf ||
+                buf instanceof UnreleasableByteBuf || buf instanceof SwappedByteBuf) {
+                buf = buf.unwrap();
+            } else {
+                return null;
+            }
+        }
+    }
+
     /**
      * Encode the given {@link CharBuffer} using the given {@link Charset} into a new {@link ByteBuf} which
      * is allocated via the {@link ByteBufAllocator}.
      */
     public static ByteBuf encodeString(ByteBufAllocator alloc, CharBuffer src, Charset charset) {
+        if (CharsetUtil.UTF_8.equals(charset)) {
+            return encodeUtf8(alloc, src);
+        }
+
         final CharsetEncoder encoder = CharsetUtil.getEncoder(charset);
         int length = (int) ((double) src.remaining() * encoder.maxBytesPerChar());
         boolean release = true;
@@ -391,23 +751,47 @@ public final class ByteBufUtil {
         }
     }
 
-    static String decodeString(ByteBuffer src, Charset charset) {
-        final CharsetDecoder decoder = CharsetUtil.getDecoder(charset);
-        final CharBuffer dst = CharBuffer.allocate(
-                (int) ((double) src.remaining() * decoder.maxCharsPerByte()));
+    /**
+     * Encodes the given {@link CharBuffer} in UTF-8 without a {@link CharsetEncoder}, into a new {@link ByteBuf} of
+     * the exact length.
+     */
+    private static ByteBuf encodeUtf8(ByteBufAllocator alloc, CharBuffer src) {
+        boolean release = true;
+        final int len = src.remaining();
+        final ByteBuf dst = alloc.buffer(utf8Length(src, len));
         try {
-            CoderResult cr = decoder.decode(src, dst, true);
-            if (!cr.isUnderflow()) {
-                cr.throwException();
-            }
-            cr = decoder.flush(dst);
-            if (!cr.isUnderflow()) {
-                cr.throwException();
+            writeUtf8Reserved(dst, src, len);
+            // Consume the source like a CharsetEncoder does.
+            src.position(src.limit());
+            release = false;
+            return dst;
+        } finally {
+            if (release) {
+                dst.release();
             }
-        } catch (CharacterCodingException x) {
-            throw new IllegalStateException(x);
         }
-        return dst.flip().toString();
+    }
+
+    /**
+     * Decodes the specified region of the specified buffer.  The bytes are decoded by {@link String} itself, without
+     * an intermediate {@link CharBuffer}, and directly from the backing array if the buffer has one.
+     */
+    static String decodeString(ByteBuf src, int index, int length, Charset charset) {
+        if (length == 0) {
+            return "";
+        }
+
+        final byte[] array;
+        final int offset;
+        if (src.hasArray()) {
+            array = src.array();
+            offset = src.arrayOffset() + index;
+        } else {
+            array = new byte[length];
+            src.getBytes(index, array, 0, length);
+            offset = 0;
+        }
+        return new String(array, offset, length, charset);
     }
 
     private ByteBufUtil() { }
@@ -44,11 +44,25 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf {
     private final boolean direct;
     private final List<Component> components = new ArrayList<Component>();
     private final int maxNumComponents;
+    private final boolean consolidateSmallestRange;
     private static final ByteBuffer FULL_BYTEBUFFER = (ByteBuffer) ByteBuffer.allocate(1).position(1);
 
     private boolean freed;
 
     public CompositeByteBuf(ByteBufAllocator alloc, boolean direct, int maxNumComponents) {
+        this(alloc, direct, maxNumComponents, false);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param consolidateSmallestRange if {@code true}, only the range of adjacent components with the fewest bytes is
+     *                                 merged once there are more than {@code maxNumComponents} components, so that
+     *                                 half of the maximum number of components remain.  Otherwise all components
+     *                                 are merged into a single buffer.
+     */
+    public CompositeByteBuf(
+            ByteBufAllocator alloc, boolean direct, int maxNumComponents, boolean consolidateSmallestRange) {
         super(Integer.MAX_VALUE);
         if (alloc == null) {
             throw new NullPointerException("alloc");
@@ -56,6 +70,7 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf {
         this.alloc = alloc;
         this.direct = direct;
         this.maxNumComponents = maxNumComponents;
+        this.consolidateSmallestRange = consolidateSmallestRange;
         leak = leakDetector.open(this);
     }
 
@@ -72,6 +87,7 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf {
         this.alloc = alloc;
         this.direct = direct;
         this.maxNumComponents = maxNumComponents;
+        consolidateSmallestRange = false;
 
         addComponents0(0, buffers);
         consolidateIfNeeded();
@@ -93,6 +109,7 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf {
         this.alloc = alloc;
         this.direct = direct;
         this.maxNumComponents = maxNumComponents;
+        consolidateSmallestRange = false;
         addComponents0(0, buffers);
         consolidateIfNeeded();
         setIndex(0, capacity());
@@ -221,21 +238,22 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf {
         }
 
         // No need for consolidation
+        List<Component> added = new ArrayList<Component>(buffers.length);
         for (ByteBuf b: buffers) {
             if (b == null) {
                 break;
             }
             if (b.isReadable()) {
-                cIndex = addComponent0(cIndex, b) + 1;
-                int size = components.size();
-                if (cIndex > size) {
-                    cIndex = size;
-                }
+                added.add(new Component(b.order(ByteOrder.BIG_ENDIAN).slice()));
             } else {
                 b.release();
             }
         }
-        return cIndex;
+
+        // Update the offsets only once, so that adding many buffers in front of many components is not quadratic.
+        components.addAll(cIndex, added);
+        updateComponentOffsets(cIndex);
+        return cIndex + added.size();
     }
 
     /**
@@ -284,6 +302,11 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf {
         // operation.
         final int numComponents = components.size();
         if (numComponents > maxNumComponents) {
+            if (consolidateSmallestRange) {
+                consolidateSmallestRange(numComponents);
+                return;
+            }
+
             final int capacity = components.get(numComponents - 1).endOffset;
 
             ByteBuf consolidated = allocBuffer(capacity);
@@ -303,6 +326,24 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf {
         }
     }
 
+    /**
+     * Merges the range of adjacent components with the fewest bytes, so that only half of the maximum number of
+     * components remain.  Unlike a full consolidation, only the bytes of that range are copied.
+     */
+    private void consolidateSmallestRange(int numComponents) {
+        final int rangeLength = numComponents - Math.max(1, maxNumComponents >>> 1) + 1;
+        int rangeIndex = 0;
+        int rangeBytes = components.get(rangeLength - 1).endOffset;
+        for (int i = 1; i + rangeLength <= numComponents; i ++) {
+            int bytes = components.get(i + rangeLength - 1).endOffset - components.get(i).offset;
+            if (bytes < rangeBytes) {
+                rangeIndex = i;
+                rangeBytes = bytes;
+            }
+        }
+        consolidate(rangeIndex, rangeLength);
+    }
+
     private void checkComponentIndex(int cIndex) {
         assert !freed;
         if (cIndex < 0 || cIndex > components.size()) {
@@ -572,7 +613,7 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf {
         assert !freed;
         checkIndex(offset);
 
-        for (int low = 0, high = components.size(); low <= high;) {
+        for (int low = 0, high = components.size() - 1; low <= high;) {
             int mid = low + high >>> 1;
             Component c = components.get(mid);
             if (offset >= c.endOffset) {
@@ -1078,7 +1119,7 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf {
         assert !freed;
         checkIndex(offset);
 
-        for (int low = 0, high = components.size(); low <= high;) {
+        for (int low = 0, high = components.size() - 1; low <= high;) {
             int mid = low + high >>> 1;
             Component c = components.get(mid);
             if (offset >= c.endOffset) {
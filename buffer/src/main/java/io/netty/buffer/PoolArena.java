@@ -16,20 +16,32 @@
 
 package io.netty.buffer;
 
+import io.netty.util.internal.LongCounter;
 import io.netty.util.internal.PlatformDependent;
 import io.netty.util.internal.StringUtil;
 
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
-abstract class PoolArena<T> {
+abstract class PoolArena<T> implements PoolArenaMetric {
+
+    static final int numTinySubpagePools = 512 >>> 4;
+
+    // The number of chunk frees after which unused chunks are looked for.
+    private static final int TRIM_CHECK_INTERVAL = 256;
 
     final PooledByteBufAllocator parent;
 
-    private final int pageSize;
     private final int maxOrder;
-    private final int pageShifts;
-    private final int chunkSize;
-    private final int subpageOverflowMask;
+    final int pageSize;
+    final int pageShifts;
+    final int chunkSize;
+    final int subpageOverflowMask;
+    final int numSmallSubpagePools;
 
     private final PoolSubpage<T>[] tinySubpagePools;
     private final PoolSubpage<T>[] smallSubpagePools;
@@ -41,10 +53,40 @@ abstract class PoolArena<T> {
     private final PoolChunkList<T> q075;
     private final PoolChunkList<T> q100;
 
+    private final List<PoolChunkListMetric> chunkListMetrics;
+
+    private final PoolHugeChunkCache<T> hugeChunkCache;
+
+    private final long chunkIdleTimeoutNanos;
+    // Only updated while holding the arena lock.
+    private int numFreesSinceTrimCheck;
+
+    // Metrics, which are updated without acquiring any lock so that allocations served by the thread caches stay
+    // lock-free.
+    private final LongCounter allocationsTiny = PlatformDependent.newLongCounter();
+    private final LongCounter allocationsSmall = PlatformDependent.newLongCounter();
+    private final LongCounter allocationsNormal = PlatformDependent.newLongCounter();
+    private final LongCounter allocationsHuge = PlatformDependent.newLongCounter();
+    private final LongCounter deallocationsTiny = PlatformDependent.newLongCounter();
+    private final LongCounter deallocationsSmall = PlatformDependent.newLongCounter();
+    private final LongCounter deallocationsNormal = PlatformDependent.newLongCounter();
+    private final LongCounter deallocationsHuge = PlatformDependent.newLongCounter();
+    private final LongCounter activeBytes = PlatformDependent.newLongCounter();
+    private final LongCounter threadCacheHits = PlatformDependent.newLongCounter();
+    private final LongCounter reclaimedBytes = PlatformDependent.newLongCounter();
+
+    // Number of thread caches bound to this arena.
+    final AtomicInteger numThreadCaches = new AtomicInteger();
+
+    // The chunk lists and the memory maps of their chunks are guarded by the monitor of the arena itself, while the
+    // subpages of each size class are guarded by the monitor of the head of their pool. The head locks are always
+    // acquired after the arena lock, never before.
+
     // TODO: Test if adding padding helps under contention
     //private long pad0, pad1, pad2, pad3, pad4, pad5, pad6, pad7;
 
-    protected PoolArena(PooledByteBufAllocator parent, int pageSize, int maxOrder, int pageShifts, int chunkSize) {
+    protected PoolArena(PooledByteBufAllocator parent, int pageSize, int maxOrder, int pageShifts, int chunkSize,
+                        long hugeCacheMaxBytes, long hugeCacheIdleTimeoutMillis, long chunkIdleTimeoutMillis) {
         this.parent = parent;
         this.pageSize = pageSize;
         this.maxOrder = maxOrder;
@@ -52,12 +94,13 @@ abstract class PoolArena<T> {
         this.chunkSize = chunkSize;
         subpageOverflowMask = ~(pageSize - 1);
 
-        tinySubpagePools = newSubpagePoolArray(512 >>> 4);
+        tinySubpagePools = newSubpagePoolArray(numTinySubpagePools);
         for (int i = 0; i < tinySubpagePools.length; i ++) {
             tinySubpagePools[i] = newSubpagePoolHead(pageSize);
         }
 
-        smallSubpagePools = newSubpagePoolArray(pageShifts - 9);
+        numSmallSubpagePools = pageShifts - 9;
+        smallSubpagePools = newSubpagePoolArray(numSmallSubpagePools);
         for (int i = 0; i < smallSubpagePools.length; i ++) {
             smallSubpagePools[i] = newSubpagePoolHead(pageSize);
         }
@@ -75,6 +118,24 @@ abstract class PoolArena<T> {
         q025.prevList = q000;
         q000.prevList = null;
         qInit.prevList = qInit;
+
+        List<PoolChunkListMetric> metrics = new ArrayList<PoolChunkListMetric>(6);
+        metrics.add(qInit);
+        metrics.add(q000);
+        metrics.add(q025);
+        metrics.add(q050);
+        metrics.add(q075);
+        metrics.add(q100);
+        chunkListMetrics = Collections.unmodifiableList(metrics);
+
+        if (hugeCacheMaxBytes > 0) {
+            hugeChunkCache = new PoolHugeChunkCache<T>(
+                    this, hugeCacheMaxBytes, TimeUnit.MILLISECONDS.toNanos(hugeCacheIdleTimeoutMillis));
+        } else {
+            hugeChunkCache = null;
+        }
+
+        chunkIdleTimeoutNanos = chunkIdleTimeoutMillis > 0 ? TimeUnit.MILLISECONDS.toNanos(chunkIdleTimeoutMillis) : 0;
     }
 
     private PoolSubpage<T> newSubpagePoolHead(int pageSize) {
@@ -95,26 +156,60 @@ abstract class PoolArena<T> {
         return buf;
     }
 
+    static int tinyIdx(int normCapacity) {
+        return normCapacity >>> 4;
+    }
+
+    static int smallIdx(int normCapacity) {
+        int tableIdx = 0;
+        int i = normCapacity >>> 10;
+        while (i != 0) {
+            i >>>= 1;
+            tableIdx ++;
+        }
+        return tableIdx;
+    }
+
+    // capacity < pageSize
+    boolean isTinyOrSmall(int normCapacity) {
+        return (normCapacity & subpageOverflowMask) == 0;
+    }
+
+    // normCapacity < 512
+    static boolean isTiny(int normCapacity) {
+        return (normCapacity & 0xFFFFFE00) == 0;
+    }
+
     private void allocate(PoolThreadCache cache, PooledByteBuf<T> buf, final int reqCapacity) {
         final int normCapacity = normalizeCapacity(reqCapacity);
-        if ((normCapacity & subpageOverflowMask) == 0) { // capacity < pageSize
+        if (isTinyOrSmall(normCapacity)) { // capacity < pageSize
             int tableIdx;
             PoolSubpage<T>[] table;
-            if ((normCapacity & 0xFFFFFE00) == 0) { // < 512
-                tableIdx = normCapacity >>> 4;
+            if (isTiny(normCapacity)) { // < 512
+                allocationsTiny.increment();
+                if (cache.allocateTiny(this, buf, reqCapacity, normCapacity)) {
+                    // was able to allocate out of the cache so move on
+                    threadCacheHits.increment();
+                    activeBytes.add(normCapacity);
+                    return;
+                }
+                tableIdx = tinyIdx(normCapacity);
                 table = tinySubpagePools;
             } else {
-                tableIdx = 0;
-                int i = normCapacity >>> 10;
-                while (i != 0) {
-                    i >>>= 1;
-                    tableIdx ++;
+                allocationsSmall.increment();
+                if (cache.allocateSmall(this, buf, reqCapacity, normCapacity)) {
+                    // was able to allocate out of the cache so move on
+                    threadCacheHits.increment();
+                    activeBytes.add(normCapacity);
+                    return;
                 }
+                tableIdx = smallIdx(normCapacity);
                 table = smallSubpagePools;
             }
 
-            synchronized (this) {
-                final PoolSubpage<T> head = table[tableIdx];
+            activeBytes.add(normCapacity);
+            final PoolSubpage<T> head = table[tableIdx];
+            synchronized (head) {
                 final PoolSubpage<T> s = head.next;
                 if (s != head) {
                     assert s.doNotDestroy && s.elemSize == normCapacity;
@@ -124,7 +219,16 @@ abstract class PoolArena<T> {
                     return;
                 }
             }
-        } else if (normCapacity > chunkSize) {
+        } else if (normCapacity <= chunkSize) {
+            allocationsNormal.increment();
+            activeBytes.add(normCapacity);
+            if (cache.allocateNormal(this, buf, reqCapacity, normCapacity)) {
+                // was able to allocate out of the cache so move on
+                threadCacheHits.increment();
+                return;
+            }
+        } else {
+            allocationsHuge.increment();
             allocateHuge(buf, reqCapacity);
             return;
         }
@@ -148,38 +252,241 @@ abstract class PoolArena<T> {
     }
 
     private void allocateHuge(PooledByteBuf<T> buf, int reqCapacity) {
-        buf.initUnpooled(newUnpooledChunk(reqCapacity), reqCapacity);
+        PoolHugeChunkCache<T> hugeChunkCache = this.hugeChunkCache;
+        if (hugeChunkCache == null) {
+            activeBytes.add(reqCapacity);
+            buf.initUnpooled(newUnpooledChunk(reqCapacity), reqCapacity);
+            return;
+        }
+
+        int normCapacity = hugeChunkCache.normalizeCapacity(reqCapacity);
+        PoolChunk<T> chunk = hugeChunkCache.allocate(normCapacity);
+        if (chunk == null) {
+            chunk = newUnpooledChunk(normCapacity);
+        }
+        activeBytes.add(normCapacity);
+        buf.initUnpooled(chunk, reqCapacity);
     }
 
-     void free(PoolChunk<T> chunk, long handle) {
+    void free(PoolChunk<T> chunk, long handle, int normCapacity) {
         if (chunk.unpooled) {
-            destroyChunk(chunk);
+            deallocationsHuge.increment();
+            activeBytes.add(-chunk.chunkSize());
+            if (hugeChunkCache != null) {
+                hugeChunkCache.add(chunk);
+            } else {
+                destroyChunk(chunk);
+            }
         } else {
-            synchronized (this) {
-                chunk.parent.free(chunk, handle);
+            if (isTinyOrSmall(normCapacity)) {
+                if (isTiny(normCapacity)) {
+                    deallocationsTiny.increment();
+                } else {
+                    deallocationsSmall.increment();
+                }
+            } else {
+                deallocationsNormal.increment();
             }
+            activeBytes.add(-normCapacity);
+
+            PoolThreadCache cache = parent.threadCache.get();
+            if (cache.add(this, chunk, handle, normCapacity)) {
+                // cached so not free it.
+                return;
+            }
+            freeChunk(chunk, handle);
+        }
+    }
+
+    void freeChunk(PoolChunk<T> chunk, long handle) {
+        boolean trimHugeChunkCache;
+        synchronized (this) {
+            chunk.parent.free(chunk, handle);
+            trimHugeChunkCache = trimIfNeeded();
+        }
+        if (trimHugeChunkCache) {
+            // Expire the cached huge chunks outside of the arena lock, so that an arena which only serves smaller
+            // allocations releases them as well.
+            hugeChunkCache.trim();
+        }
+    }
+
+    /**
+     * Looks for unused chunks once every {@link #TRIM_CHECK_INTERVAL} chunk frees of this arena; there is no timer.
+     * A check marks the chunks it finds unused, and a later check destroys them once they stayed unused for the
+     * chunk idle timeout.  So an unused chunk may be kept much longer than that timeout, and is kept until
+     * {@link #trim()} is called if this arena does not free chunks anymore.  Must be called while holding the arena
+     * lock.
+     *
+     * @return {@code true} if the expired chunks of the huge chunk cache should be destroyed as well
+     */
+    private boolean trimIfNeeded() {
+        if (++ numFreesSinceTrimCheck < TRIM_CHECK_INTERVAL) {
+            return false;
+        }
+        numFreesSinceTrimCheck = 0;
+        if (chunkIdleTimeoutNanos != 0) {
+            trimUnused(System.nanoTime(), chunkIdleTimeoutNanos);
+        }
+        return hugeChunkCache != null;
+    }
+
+    private long trimUnused(long currentTime, long idleTimeoutNanos) {
+        // Without trimming, a chunk is only destroyed by q000 when it becomes unused there.  Chunks which never left
+        // qInit or which became unused in the lists of higher usage are kept, as a freed chunk moves down by one list
+        // at a time.
+        return qInit.trimUnused(currentTime, idleTimeoutNanos) +
+               q000.trimUnused(currentTime, idleTimeoutNanos) +
+               q025.trimUnused(currentTime, idleTimeoutNanos) +
+               q050.trimUnused(currentTime, idleTimeoutNanos) +
+               q075.trimUnused(currentTime, idleTimeoutNanos) +
+               q100.trimUnused(currentTime, idleTimeoutNanos);
+    }
+
+    /**
+     * Destroys all chunks which are not used at all, regardless of the chunk idle timeout, and all the chunks kept
+     * for huge allocations.  Memory held by the thread caches is not released.
+     *
+     * @return the number of bytes of the destroyed chunks
+     */
+    long trim() {
+        long reclaimedBytes;
+        synchronized (this) {
+            reclaimedBytes = trimUnused(System.nanoTime(), 0);
+        }
+        if (hugeChunkCache != null) {
+            reclaimedBytes += hugeChunkCache.free();
         }
+        return reclaimedBytes;
+    }
+
+    /**
+     * Destroys the specified chunk, which was kept by this arena but is not used anymore.
+     */
+    void reclaimChunk(PoolChunk<T> chunk) {
+        reclaimedBytes.add(chunk.chunkSize());
+        destroyChunk(chunk);
     }
 
     PoolSubpage<T> findSubpagePoolHead(int elemSize) {
         int tableIdx;
         PoolSubpage<T>[] table;
-        if ((elemSize & 0xFFFFFE00) == 0) { // < 512
-            tableIdx = elemSize >>> 4;
+        if (isTiny(elemSize)) { // < 512
+            tableIdx = tinyIdx(elemSize);
             table = tinySubpagePools;
         } else {
-            tableIdx = 0;
-            elemSize >>>= 10;
-            while (elemSize != 0) {
-                elemSize >>>= 1;
-                tableIdx ++;
-            }
+            tableIdx = smallIdx(elemSize);
             table = smallSubpagePools;
         }
 
         return table[tableIdx];
     }
 
+    @Override
+    public int numThreadCaches() {
+        return numThreadCaches.get();
+    }
+
+    @Override
+    public long numAllocations() {
+        return allocationsTiny.value() + allocationsSmall.value() + allocationsNormal.value() +
+               allocationsHuge.value();
+    }
+
+    @Override
+    public long numTinyAllocations() {
+        return allocationsTiny.value();
+    }
+
+    @Override
+    public long numSmallAllocations() {
+        return allocationsSmall.value();
+    }
+
+    @Override
+    public long numNormalAllocations() {
+        return allocationsNormal.value();
+    }
+
+    @Override
+    public long numHugeAllocations() {
+        return allocationsHuge.value();
+    }
+
+    @Override
+    public long numDeallocations() {
+        return deallocationsTiny.value() + deallocationsSmall.value() + deallocationsNormal.value() +
+               deallocationsHuge.value();
+    }
+
+    @Override
+    public long numTinyDeallocations() {
+        return deallocationsTiny.value();
+    }
+
+    @Override
+    public long numSmallDeallocations() {
+        return deallocationsSmall.value();
+    }
+
+    @Override
+    public long numNormalDeallocations() {
+        return deallocationsNormal.value();
+    }
+
+    @Override
+    public long numHugeDeallocations() {
+        return deallocationsHuge.value();
+    }
+
+    @Override
+    public long numActiveAllocations() {
+        return Math.max(0, numAllocations() - numDeallocations());
+    }
+
+    @Override
+    public long numActiveBytes() {
+        return Math.max(0, activeBytes.value());
+    }
+
+    @Override
+    public long numThreadCacheHits() {
+        return threadCacheHits.value();
+    }
+
+    @Override
+    public double threadCacheHitRatio() {
+        long cacheable = allocationsTiny.value() + allocationsSmall.value() + allocationsNormal.value();
+        if (cacheable == 0) {
+            return 0;
+        }
+        return Math.min(1.0, (double) threadCacheHits.value() / cacheable);
+    }
+
+    @Override
+    public long numReclaimedBytes() {
+        return reclaimedBytes.value();
+    }
+
+    @Override
+    public List<PoolChunkListMetric> chunkLists() {
+        return chunkListMetrics;
+    }
+
+    /**
+     * Returns the number of freed huge chunks that are kept for reuse.
+     */
+    int numCachedHugeChunks() {
+        return hugeChunkCache == null ? 0 : hugeChunkCache.size();
+    }
+
+    /**
+     * Returns the number of bytes of the freed huge chunks that are kept for reuse.
+     */
+    long numCachedHugeBytes() {
+        return hugeChunkCache == null ? 0 : hugeChunkCache.cachedBytes();
+    }
+
     private int normalizeCapacity(int reqCapacity) {
         if (reqCapacity < 0) {
             throw new IllegalArgumentException("capacity: " + reqCapacity + " (expected: 0+)");
@@ -228,6 +535,7 @@ abstract class PoolArena<T> {
         long oldHandle = buf.handle;
         T oldMemory = buf.memory;
         int oldOffset = buf.offset;
+        int oldMaxLength = buf.maxLength;
 
         int readerIndex = buf.readerIndex();
         int writerIndex = buf.writerIndex();
@@ -253,7 +561,7 @@ abstract class PoolArena<T> {
         buf.setIndex(readerIndex, writerIndex);
 
         if (freeOldMemory) {
-            free(oldChunk, oldHandle);
+            free(oldChunk, oldHandle, oldMaxLength);
         }
     }
 
@@ -299,12 +607,14 @@ abstract class PoolArena<T> {
             buf.append(StringUtil.NEWLINE);
             buf.append(i);
             buf.append(": ");
-            PoolSubpage<T> s = head.next;
-            for (;;) {
-                buf.append(s);
-                s = s.next;
-                if (s == head) {
-                    break;
+            synchronized (head) {
+                PoolSubpage<T> s = head.next;
+                for (;;) {
+                    buf.append(s);
+                    s = s.next;
+                    if (s == head) {
+                        break;
+                    }
                 }
             }
         }
@@ -319,12 +629,14 @@ abstract class PoolArena<T> {
             buf.append(StringUtil.NEWLINE);
             buf.append(i);
             buf.append(": ");
-            PoolSubpage<T> s = head.next;
-            for (;;) {
-                buf.append(s);
-                s = s.next;
-                if (s == head) {
-                    break;
+            synchronized (head) {
+                PoolSubpage<T> s = head.next;
+                for (;;) {
+                    buf.append(s);
+                    s = s.next;
+                    if (s == head) {
+                        break;
+                    }
                 }
             }
         }
@@ -335,8 +647,10 @@ abstract class PoolArena<T> {
 
     static final class HeapArena extends PoolArena<byte[]> {
 
-        HeapArena(PooledByteBufAllocator parent, int pageSize, int maxOrder, int pageShifts, int chunkSize) {
-            super(parent, pageSize, maxOrder, pageShifts, chunkSize);
+        HeapArena(PooledByteBufAllocator parent, int pageSize, int maxOrder, int pageShifts, int chunkSize,
+                long hugeCacheMaxBytes, long hugeCacheIdleTimeoutMillis, long chunkIdleTimeoutMillis) {
+            super(parent, pageSize, maxOrder, pageShifts, chunkSize,
+                  hugeCacheMaxBytes, hugeCacheIdleTimeoutMillis, chunkIdleTimeoutMillis);
         }
 
         @Override
@@ -373,8 +687,10 @@ abstract class PoolArena<T> {
 
         private static final boolean HAS_UNSAFE = PlatformDependent.hasUnsafe();
 
-        DirectArena(PooledByteBufAllocator parent, int pageSize, int maxOrder, int pageShifts, int chunkSize) {
-            super(parent, pageSize, maxOrder, pageShifts, chunkSize);
+        DirectArena(PooledByteBufAllocator parent, int pageSize, int maxOrder, int pageShifts, int chunkSize,
+                long hugeCacheMaxBytes, long hugeCacheIdleTimeoutMillis, long chunkIdleTimeoutMillis) {
+            super(parent, pageSize, maxOrder, pageShifts, chunkSize,
+                  hugeCacheMaxBytes, hugeCacheIdleTimeoutMillis, chunkIdleTimeoutMillis);
         }
 
         @Override
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.buffer;
+
+import java.util.List;
+
+/**
+ * Exposes the metrics of an arena of a {@link PooledByteBufAllocator}.  Reading a metric never blocks an allocation,
+ * which means that the returned values are not an atomic snapshot of the arena.
+ * <p>
+ * Tiny allocations are smaller than 512 bytes, small allocations are smaller than the page size, normal allocations
+ * are not larger than the chunk size, and huge allocations are larger than the chunk size.
+ * </p>
+ */
+public interface PoolArenaMetric {
+
+    /**
+     * Returns the number of thread caches which are bound to this arena.
+     */
+    int numThreadCaches();
+
+    /**
+     * Returns the number of allocations done via this arena, including the ones served by the thread caches.
+     */
+    long numAllocations();
+
+    /**
+     * Returns the number of tiny allocations done via this arena.
+     */
+    long numTinyAllocations();
+
+    /**
+     * Returns the number of small allocations done via this arena.
+     */
+    long numSmallAllocations();
+
+    /**
+     * Returns the number of normal allocations done via this arena.
+     */
+    long numNormalAllocations();
+
+    /**
+     * Returns the number of huge allocations done via this arena.
+     */
+    long numHugeAllocations();
+
+    /**
+     * Returns the number of deallocations done via this arena, including the ones that went to the thread caches.
+     */
+    long numDeallocations();
+
+    /**
+     * Returns the number of tiny deallocations done via this arena.
+     */
+    long numTinyDeallocations();
+
+    /**
+     * Returns the number of small deallocations done via this arena.
+     */
+    long numSmallDeallocations();
+
+    /**
+     * Returns the number of normal deallocations done via this arena.
+     */
+    long numNormalDeallocations();
+
+    /**
+     * Returns the number of huge deallocations done via this arena.
+     */
+    long numHugeDeallocations();
+
+    /**
+     * Returns the number of buffers allocated via this arena which were not released yet.
+     */
+    long numActiveAllocations();
+
+    /**
+     * Returns the number of bytes held by the buffers allocated via this arena which were not released yet.
+     * Memory which is kept by the thread caches for reuse is not included.
+     */
+    long numActiveBytes();
+
+    /**
+     * Returns the number of tiny, small and normal allocations which were served by a thread cache without
+     * acquiring any lock of this arena.
+     */
+    long numThreadCacheHits();
+
+    /**
+     * Returns the ratio of the tiny, small and normal allocations which were served by a thread cache,
+     * or {@code 0} if there was no such allocation yet.
+     */
+    double threadCacheHitRatio();
+
+    /**
+     * Returns the number of bytes of the chunks which were destroyed because they were not used anymore, either
+     * by this arena itself or by a trim.
+     */
+    long numReclaimedBytes();
+
+    /**
+     * Returns the metrics of the chunk lists of this arena, ordered by ascending usage.  Together they form a
+     * histogram of the usage of the chunks of this arena.
+     */
+    List<PoolChunkListMetric> chunkLists();
+}
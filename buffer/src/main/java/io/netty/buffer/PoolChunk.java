@@ -44,6 +44,10 @@ final class PoolChunk<T> {
 
     private int freeBytes;
 
+    // Whether this chunk was found unused by the last trim of its arena, and since when.
+    boolean unused;
+    long unusedSince;
+
     PoolChunkList<T> parent;
     PoolChunk<T> prev;
     PoolChunk<T> next;
@@ -97,6 +101,10 @@ final class PoolChunk<T> {
         return new PoolSubpage[size];
     }
 
+    int chunkSize() {
+        return chunkSize;
+    }
+
     int usage() {
         if (freeBytes == 0) {
             return 100;
@@ -114,7 +122,11 @@ final class PoolChunk<T> {
         if ((normCapacity & subpageOverflowMask) != 0) { // >= pageSize
             return allocateRun(normCapacity, 1, firstVal);
         } else {
-            return allocateSubpage(normCapacity, 1, firstVal);
+            // The subpages of this size class may be used by other threads without holding the arena lock.
+            PoolSubpage<T> head = arena.findSubpagePoolHead(normCapacity);
+            synchronized (head) {
+                return allocateSubpage(normCapacity, 1, firstVal);
+            }
         }
     }
 
@@ -248,8 +260,11 @@ final class PoolChunk<T> {
             assert bitmapIdx != 0;
             PoolSubpage<T> subpage = subpages[subpageIdx(memoryMapIdx)];
             assert subpage != null && subpage.doNotDestroy;
-            if (subpage.free(bitmapIdx & 0x3FFFFFFF)) {
-                return;
+            PoolSubpage<T> head = arena.findSubpagePoolHead(subpage.elemSize);
+            synchronized (head) {
+                if (subpage.free(bitmapIdx & 0x3FFFFFFF)) {
+                    return;
+                }
             }
         } else {
             assert state == ST_ALLOCATED : "state: " + state;
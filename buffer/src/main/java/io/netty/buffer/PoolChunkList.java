@@ -18,7 +18,7 @@ package io.netty.buffer;
 
 import io.netty.util.internal.StringUtil;
 
-final class PoolChunkList<T> {
+final class PoolChunkList<T> implements PoolChunkListMetric {
     private final PoolArena<T> arena;
     private final PoolChunkList<T> nextList;
     PoolChunkList<T> prevList;
@@ -27,6 +27,8 @@ final class PoolChunkList<T> {
     private final int maxUsage;
 
     private PoolChunk<T> head;
+    // Only updated while holding the arena lock, but read without it by the metrics.
+    private volatile int numChunks;
 
     // TODO: Test if adding padding helps under contention
     //private long pad0, pad1, pad2, pad3, pad4, pad5, pad6, pad7;
@@ -52,6 +54,7 @@ final class PoolChunkList<T> {
                 }
             } else {
                 cur.initBuf(buf, handle, reqCapacity);
+                cur.unused = false;
                 if (cur.usage() >= maxUsage) {
                     remove(cur);
                     nextList.add(cur);
@@ -67,13 +70,38 @@ final class PoolChunkList<T> {
             remove(chunk);
             if (prevList == null) {
                 assert chunk.usage() == 0;
-                arena.destroyChunk(chunk);
+                arena.reclaimChunk(chunk);
             } else {
                 prevList.add(chunk);
             }
         }
     }
 
+    /**
+     * Destroys the chunks of this list which were not used at all for at least the specified idle timeout.
+     * A chunk which is found unused for the first time is only marked as such, unless the timeout is {@code 0}.
+     *
+     * @return the number of bytes of the destroyed chunks
+     */
+    long trimUnused(long currentTime, long idleTimeoutNanos) {
+        long reclaimedBytes = 0;
+        for (PoolChunk<T> cur = head; cur != null;) {
+            PoolChunk<T> next = cur.next;
+            if (cur.usage() != 0) {
+                cur.unused = false;
+            } else if (idleTimeoutNanos == 0 || cur.unused && currentTime - cur.unusedSince >= idleTimeoutNanos) {
+                remove(cur);
+                arena.reclaimChunk(cur);
+                reclaimedBytes += cur.chunkSize();
+            } else if (!cur.unused) {
+                cur.unused = true;
+                cur.unusedSince = currentTime;
+            }
+            cur = next;
+        }
+        return reclaimedBytes;
+    }
+
     void add(PoolChunk<T> chunk) {
         if (chunk.usage() >= maxUsage) {
             nextList.add(chunk);
@@ -81,6 +109,7 @@ final class PoolChunkList<T> {
         }
 
         chunk.parent = this;
+        numChunks ++;
         if (head == null) {
             head = chunk;
             chunk.prev = null;
@@ -94,6 +123,7 @@ final class PoolChunkList<T> {
     }
 
     private void remove(PoolChunk<T> cur) {
+        numChunks --;
         if (cur == head) {
             head = cur.next;
             if (head != null) {
@@ -108,6 +138,21 @@ final class PoolChunkList<T> {
         }
     }
 
+    @Override
+    public int minUsage() {
+        return Math.max(0, minUsage);
+    }
+
+    @Override
+    public int maxUsage() {
+        return Math.min(100, maxUsage);
+    }
+
+    @Override
+    public int numChunks() {
+        return numChunks;
+    }
+
     @Override
     public String toString() {
         if (head == null) {
@@ -0,0 +1,202 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.buffer;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Keeps recently freed unpooled chunks of a {@link PoolArena}, which serve the allocations that are larger than a
+ * chunk, up to a maximal number of bytes.  Huge allocations are rounded up to a size class so that a freed chunk can
+ * be reused by any later allocation of the same size class.  The size classes are a multiple of the page size and
+ * an eighth of the highest power of two below the capacity, so at most 12.5% of a chunk is wasted.
+ * <p>
+ * A cached chunk that was not reused within the idle timeout is destroyed the next time a huge allocation is made or
+ * freed, or {@link #trim()} is called.
+ */
+final class PoolHugeChunkCache<T> {
+
+    private final PoolArena<T> arena;
+    private final long maxCachedBytes;
+    private final long idleTimeoutNanos;
+
+    // The most recently freed chunk comes first.
+    private final Deque<Entry<T>> entries = new ArrayDeque<Entry<T>>();
+    private long cachedBytes;
+
+    PoolHugeChunkCache(PoolArena<T> arena, long maxCachedBytes, long idleTimeoutNanos) {
+        assert maxCachedBytes > 0;
+        this.arena = arena;
+        this.maxCachedBytes = maxCachedBytes;
+        this.idleTimeoutNanos = idleTimeoutNanos;
+    }
+
+    /**
+     * Rounds the specified huge capacity up to its size class.
+     */
+    int normalizeCapacity(int reqCapacity) {
+        int sizeClass = Math.max(arena.pageSize, Integer.highestOneBit(reqCapacity) >>> 3);
+        int remainder = reqCapacity & sizeClass - 1;
+        if (remainder == 0 || reqCapacity > Integer.MAX_VALUE - sizeClass) {
+            return reqCapacity;
+        }
+        return reqCapacity - remainder + sizeClass;
+    }
+
+    /**
+     * Removes a cached chunk of the specified size class from this cache.
+     *
+     * @return the chunk, or {@code null} if no such chunk is cached
+     */
+    PoolChunk<T> allocate(int normCapacity) {
+        List<PoolChunk<T>> expired;
+        PoolChunk<T> chunk = null;
+        synchronized (this) {
+            expired = expire(System.nanoTime());
+            for (Iterator<Entry<T>> i = entries.iterator(); i.hasNext();) {
+                Entry<T> e = i.next();
+                if (e.chunk.chunkSize() == normCapacity) {
+                    i.remove();
+                    cachedBytes -= normCapacity;
+                    chunk = e.chunk;
+                    break;
+                }
+            }
+        }
+
+        destroy(expired);
+        return chunk;
+    }
+
+    /**
+     * Adds the specified freed chunk to this cache, evicting the least recently freed chunks until the cached chunks
+     * do not exceed the maximal number of bytes.  A chunk which is larger than that is destroyed right away.
+     */
+    void add(PoolChunk<T> chunk) {
+        assert chunk.unpooled;
+
+        int chunkSize = chunk.chunkSize();
+        if (chunkSize > maxCachedBytes) {
+            destroy(expire());
+            arena.reclaimChunk(chunk);
+            return;
+        }
+
+        List<PoolChunk<T>> expired;
+        synchronized (this) {
+            long currentTime = System.nanoTime();
+            expired = expire(currentTime);
+            while (cachedBytes + chunkSize > maxCachedBytes) {
+                if (expired == null) {
+                    expired = new ArrayList<PoolChunk<T>>();
+                }
+                expired.add(removeLast());
+            }
+            entries.addFirst(new Entry<T>(chunk, currentTime));
+            cachedBytes += chunkSize;
+        }
+
+        destroy(expired);
+    }
+
+    /**
+     * Destroys the cached chunks which were not reused within the idle timeout.
+     *
+     * @return the number of bytes of the destroyed chunks
+     */
+    long trim() {
+        return destroy(expire());
+    }
+
+    private List<PoolChunk<T>> expire() {
+        synchronized (this) {
+            return expire(System.nanoTime());
+        }
+    }
+
+    /**
+     * Destroys all cached chunks.
+     *
+     * @return the number of bytes of the destroyed chunks
+     */
+    long free() {
+        List<PoolChunk<T>> chunks;
+        synchronized (this) {
+            chunks = new ArrayList<PoolChunk<T>>(entries.size());
+            for (Entry<T> e: entries) {
+                chunks.add(e.chunk);
+            }
+            entries.clear();
+            cachedBytes = 0;
+        }
+        return destroy(chunks);
+    }
+
+    private List<PoolChunk<T>> expire(long currentTime) {
+        List<PoolChunk<T>> expired = null;
+        for (;;) {
+            Entry<T> e = entries.peekLast();
+            if (e == null || currentTime - e.freedTime < idleTimeoutNanos) {
+                break;
+            }
+            if (expired == null) {
+                expired = new ArrayList<PoolChunk<T>>();
+            }
+            expired.add(removeLast());
+        }
+        return expired;
+    }
+
+    private PoolChunk<T> removeLast() {
+        PoolChunk<T> chunk = entries.removeLast().chunk;
+        cachedBytes -= chunk.chunkSize();
+        return chunk;
+    }
+
+    private long destroy(List<PoolChunk<T>> chunks) {
+        if (chunks == null) {
+            return 0;
+        }
+        long destroyedBytes = 0;
+        for (PoolChunk<T> chunk: chunks) {
+            destroyedBytes += chunk.chunkSize();
+            arena.reclaimChunk(chunk);
+        }
+        return destroyedBytes;
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    synchronized long cachedBytes() {
+        return cachedBytes;
+    }
+
+    private static final class Entry<T> {
+        final PoolChunk<T> chunk;
+        final long freedTime;
+
+        Entry(PoolChunk<T> chunk, long freedTime) {
+            this.chunk = chunk;
+            this.freedTime = freedTime;
+        }
+    }
+}
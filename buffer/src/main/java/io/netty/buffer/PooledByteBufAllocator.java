@@ -22,7 +22,9 @@ import io.netty.util.internal.logging.InternalLogger;
 import io.netty.util.internal.logging.InternalLoggerFactory;
 
 import java.nio.ByteBuffer;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 
 public class PooledByteBufAllocator extends AbstractByteBufAllocator {
 
@@ -33,6 +35,14 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator {
 
     private static final int DEFAULT_PAGE_SIZE;
     private static final int DEFAULT_MAX_ORDER; // 8192 << 11 = 16 MiB per chunk
+    private static final int DEFAULT_TINY_CACHE_SIZE;
+    private static final int DEFAULT_SMALL_CACHE_SIZE;
+    private static final int DEFAULT_NORMAL_CACHE_SIZE;
+    private static final int DEFAULT_MAX_CACHED_BUFFER_CAPACITY;
+    private static final int DEFAULT_CACHE_TRIM_INTERVAL;
+    private static final long DEFAULT_HUGE_CACHE_MAX_BYTES;
+    private static final long DEFAULT_HUGE_CACHE_IDLE_TIMEOUT;
+    private static final long DEFAULT_CHUNK_IDLE_TIMEOUT;
 
     private static final int MIN_PAGE_SIZE = 4096;
     private static final int MAX_CHUNK_SIZE = (int) (((long) Integer.MAX_VALUE + 1) / 2);
@@ -75,6 +85,34 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator {
                                 runtime.availableProcessors(),
                                 PlatformDependent.maxDirectMemory() / defaultChunkSize / 2 / 3)));
 
+        // cache sizes
+        DEFAULT_TINY_CACHE_SIZE = SystemPropertyUtil.getInt("io.netty.allocator.tinyCacheSize", 512);
+        DEFAULT_SMALL_CACHE_SIZE = SystemPropertyUtil.getInt("io.netty.allocator.smallCacheSize", 256);
+        DEFAULT_NORMAL_CACHE_SIZE = SystemPropertyUtil.getInt("io.netty.allocator.normalCacheSize", 64);
+
+        // 32 kb is the default maximum capacity of the cached buffer. Similar to what is explained in
+        // 'Scalable memory allocation using jemalloc'
+        DEFAULT_MAX_CACHED_BUFFER_CAPACITY = SystemPropertyUtil.getInt(
+                "io.netty.allocator.maxCachedBufferCapacity", 32 * 1024);
+
+        // the number of threshold of allocations when cached entries will be freed up if not frequently used
+        DEFAULT_CACHE_TRIM_INTERVAL = SystemPropertyUtil.getInt(
+                "io.netty.allocator.cacheTrimInterval", 8192);
+
+        // the maximal number of bytes of freed chunks per arena that are kept for allocations larger than the chunk
+        // size.  0 disables the reuse of such chunks.
+        DEFAULT_HUGE_CACHE_MAX_BYTES = Math.max(0, SystemPropertyUtil.getLong(
+                "io.netty.allocator.hugeCacheMaxBytes", 0));
+
+        // the number of milliseconds after which a chunk kept for huge allocations is destroyed if not reused
+        DEFAULT_HUGE_CACHE_IDLE_TIMEOUT = Math.max(0, SystemPropertyUtil.getLong(
+                "io.netty.allocator.hugeCacheIdleTimeout", 30000));
+
+        // the number of milliseconds a chunk must stay unused before it is destroyed.  Unused chunks are only looked
+        // for every 256 chunk frees of an arena, not on a timer.  0 keeps such chunks until trim() is called.
+        DEFAULT_CHUNK_IDLE_TIMEOUT = Math.max(0, SystemPropertyUtil.getLong(
+                "io.netty.allocator.chunkIdleTimeout", 0));
+
         if (logger.isDebugEnabled()) {
             logger.debug("-Dio.netty.allocator.numHeapArenas: {}", DEFAULT_NUM_HEAP_ARENA);
             logger.debug("-Dio.netty.allocator.numDirectArenas: {}", DEFAULT_NUM_DIRECT_ARENA);
@@ -89,6 +127,14 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator {
                 logger.debug("-Dio.netty.allocator.maxOrder: {}", DEFAULT_MAX_ORDER, maxOrderFallbackCause);
             }
             logger.debug("-Dio.netty.allocator.chunkSize: {}", DEFAULT_PAGE_SIZE << DEFAULT_MAX_ORDER);
+            logger.debug("-Dio.netty.allocator.tinyCacheSize: {}", DEFAULT_TINY_CACHE_SIZE);
+            logger.debug("-Dio.netty.allocator.smallCacheSize: {}", DEFAULT_SMALL_CACHE_SIZE);
+            logger.debug("-Dio.netty.allocator.normalCacheSize: {}", DEFAULT_NORMAL_CACHE_SIZE);
+            logger.debug("-Dio.netty.allocator.maxCachedBufferCapacity: {}", DEFAULT_MAX_CACHED_BUFFER_CAPACITY);
+            logger.debug("-Dio.netty.allocator.cacheTrimInterval: {}", DEFAULT_CACHE_TRIM_INTERVAL);
+            logger.debug("-Dio.netty.allocator.hugeCacheMaxBytes: {}", DEFAULT_HUGE_CACHE_MAX_BYTES);
+            logger.debug("-Dio.netty.allocator.hugeCacheIdleTimeout: {}", DEFAULT_HUGE_CACHE_IDLE_TIMEOUT);
+            logger.debug("-Dio.netty.allocator.chunkIdleTimeout: {}", DEFAULT_CHUNK_IDLE_TIMEOUT);
         }
     }
 
@@ -97,30 +143,68 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator {
 
     private final PoolArena<byte[]>[] heapArenas;
     private final PoolArena<ByteBuffer>[] directArenas;
+    private final List<PoolArenaMetric> heapArenaMetrics;
+    private final List<PoolArenaMetric> directArenaMetrics;
+    private final int tinyCacheSize;
+    private final int smallCacheSize;
+    private final int normalCacheSize;
+
+    final PoolThreadLocalCache threadCache = new PoolThreadLocalCache();
+
+    final class PoolThreadLocalCache extends ThreadLocal<PoolThreadCache> {
+        private final ThreadLocal<Boolean> initialized = new ThreadLocal<Boolean>();
 
-    final ThreadLocal<PoolThreadCache> threadCache = new ThreadLocal<PoolThreadCache>() {
-        private final AtomicInteger index = new AtomicInteger();
         @Override
         protected PoolThreadCache initialValue() {
-            final int idx = index.getAndIncrement();
-            final PoolArena<byte[]> heapArena;
-            final PoolArena<ByteBuffer> directArena;
+            initialized.set(Boolean.TRUE);
 
-            if (heapArenas != null) {
-                heapArena = heapArenas[Math.abs(idx % heapArenas.length)];
-            } else {
-                heapArena = null;
+            final PoolArena<byte[]> heapArena = leastUsedArena(heapArenas);
+            final PoolArena<ByteBuffer> directArena = leastUsedArena(directArenas);
+
+            return new PoolThreadCache(
+                    heapArena, directArena, tinyCacheSize, smallCacheSize, normalCacheSize,
+                    DEFAULT_MAX_CACHED_BUFFER_CAPACITY, DEFAULT_CACHE_TRIM_INTERVAL);
+        }
+
+        /**
+         * Returns the arena with the fewest live threads bound to it, so that the load is spread evenly even when
+         * threads come and go.  Threads are unbound from their arenas once they die.
+         */
+        private <T> PoolArena<T> leastUsedArena(PoolArena<T>[] arenas) {
+            if (arenas == null || arenas.length == 0) {
+                return null;
             }
 
-            if (directArenas != null) {
-                directArena = directArenas[Math.abs(idx % directArenas.length)];
-            } else {
-                directArena = null;
+            PoolArena<T> minArena = arenas[0];
+            for (int i = 1; i < arenas.length; i ++) {
+                PoolArena<T> arena = arenas[i];
+                if (arena.numThreadCaches.get() < minArena.numThreadCaches.get()) {
+                    minArena = arena;
+                }
             }
+            return minArena;
+        }
 
-            return new PoolThreadCache(heapArena, directArena);
+        /**
+         * Returns {@code true} if the cache of the calling {@link Thread} has been created already.
+         */
+        boolean isSet() {
+            return initialized.get() != null;
         }
-    };
+
+        /**
+         * Gives all cached memory of the calling {@link Thread} back to the arenas and removes its cache.
+         */
+        void free() {
+            if (!isSet()) {
+                return;
+            }
+            PoolThreadCache cache = get();
+            remove();
+            initialized.remove();
+            cache.free();
+        }
+    }
 
     public PooledByteBufAllocator() {
         this(false);
@@ -135,8 +219,55 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator {
     }
 
     public PooledByteBufAllocator(boolean preferDirect, int nHeapArena, int nDirectArena, int pageSize, int maxOrder) {
+        this(preferDirect, nHeapArena, nDirectArena, pageSize, maxOrder,
+                DEFAULT_TINY_CACHE_SIZE, DEFAULT_SMALL_CACHE_SIZE, DEFAULT_NORMAL_CACHE_SIZE);
+    }
+
+    public PooledByteBufAllocator(boolean preferDirect, int nHeapArena, int nDirectArena, int pageSize, int maxOrder,
+                                  int tinyCacheSize, int smallCacheSize, int normalCacheSize) {
+        this(preferDirect, nHeapArena, nDirectArena, pageSize, maxOrder, tinyCacheSize, smallCacheSize, normalCacheSize,
+                DEFAULT_HUGE_CACHE_MAX_BYTES, DEFAULT_HUGE_CACHE_IDLE_TIMEOUT);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param hugeCacheMaxBytes          the maximal number of bytes of freed chunks per arena that are kept for reuse
+     *                                   by allocations larger than the chunk size; {@code 0} disables the reuse of
+     *                                   such chunks
+     * @param hugeCacheIdleTimeoutMillis the number of milliseconds after which a kept chunk that was not reused
+     *                                   is destroyed
+     */
+    public PooledByteBufAllocator(boolean preferDirect, int nHeapArena, int nDirectArena, int pageSize, int maxOrder,
+                                  int tinyCacheSize, int smallCacheSize, int normalCacheSize,
+                                  long hugeCacheMaxBytes, long hugeCacheIdleTimeoutMillis) {
+        this(preferDirect, nHeapArena, nDirectArena, pageSize, maxOrder, tinyCacheSize, smallCacheSize, normalCacheSize,
+                hugeCacheMaxBytes, hugeCacheIdleTimeoutMillis, DEFAULT_CHUNK_IDLE_TIMEOUT);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param hugeCacheMaxBytes          the maximal number of bytes of freed chunks per arena that are kept for reuse
+     *                                   by allocations larger than the chunk size; {@code 0} disables the reuse of
+     *                                   such chunks
+     * @param hugeCacheIdleTimeoutMillis the number of milliseconds after which a kept chunk that was not reused
+     *                                   is destroyed
+     * @param chunkIdleTimeoutMillis     the number of milliseconds a chunk must stay unused before it is destroyed;
+     *                                   unused chunks are only looked for every 256 chunk frees of an arena, so an
+     *                                   arena which frees no more chunks keeps them until {@link #trim()} is called.
+     *                                   {@code 0} keeps such chunks until {@link #trim()} is called
+     */
+    public PooledByteBufAllocator(boolean preferDirect, int nHeapArena, int nDirectArena, int pageSize, int maxOrder,
+                                  int tinyCacheSize, int smallCacheSize, int normalCacheSize,
+                                  long hugeCacheMaxBytes, long hugeCacheIdleTimeoutMillis,
+                                  long chunkIdleTimeoutMillis) {
         super(preferDirect);
 
+        this.tinyCacheSize = tinyCacheSize;
+        this.smallCacheSize = smallCacheSize;
+        this.normalCacheSize = normalCacheSize;
+
         final int chunkSize = validateAndCalculateChunkSize(pageSize, maxOrder);
 
         if (nHeapArena < 0) {
@@ -146,24 +277,44 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator {
             throw new IllegalArgumentException("nDirectArea: " + nDirectArena + " (expected: >= 0)");
         }
 
+        if (hugeCacheMaxBytes < 0) {
+            throw new IllegalArgumentException("hugeCacheMaxBytes: " + hugeCacheMaxBytes + " (expected: >= 0)");
+        }
+        if (hugeCacheIdleTimeoutMillis < 0) {
+            throw new IllegalArgumentException(
+                    "hugeCacheIdleTimeoutMillis: " + hugeCacheIdleTimeoutMillis + " (expected: >= 0)");
+        }
+        if (chunkIdleTimeoutMillis < 0) {
+            throw new IllegalArgumentException(
+                    "chunkIdleTimeoutMillis: " + chunkIdleTimeoutMillis + " (expected: >= 0)");
+        }
+
         int pageShifts = validateAndCalculatePageShifts(pageSize);
 
         if (nHeapArena > 0) {
             heapArenas = newArenaArray(nHeapArena);
             for (int i = 0; i < heapArenas.length; i ++) {
-                heapArenas[i] = new PoolArena.HeapArena(this, pageSize, maxOrder, pageShifts, chunkSize);
+                heapArenas[i] = new PoolArena.HeapArena(
+                        this, pageSize, maxOrder, pageShifts, chunkSize,
+                        hugeCacheMaxBytes, hugeCacheIdleTimeoutMillis, chunkIdleTimeoutMillis);
             }
+            heapArenaMetrics = Collections.<PoolArenaMetric>unmodifiableList(Arrays.asList(heapArenas));
         } else {
             heapArenas = null;
+            heapArenaMetrics = Collections.emptyList();
         }
 
         if (nDirectArena > 0) {
             directArenas = newArenaArray(nDirectArena);
             for (int i = 0; i < directArenas.length; i ++) {
-                directArenas[i] = new PoolArena.DirectArena(this, pageSize, maxOrder, pageShifts, chunkSize);
+                directArenas[i] = new PoolArena.DirectArena(
+                        this, pageSize, maxOrder, pageShifts, chunkSize,
+                        hugeCacheMaxBytes, hugeCacheIdleTimeoutMillis, chunkIdleTimeoutMillis);
             }
+            directArenaMetrics = Collections.<PoolArenaMetric>unmodifiableList(Arrays.asList(directArenas));
         } else {
             directArenas = null;
+            directArenaMetrics = Collections.emptyList();
         }
     }
 
@@ -252,6 +403,57 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator {
         return directArenas != null;
     }
 
+    /**
+     * Returns the metrics of the heap arenas of this allocator.
+     */
+    public List<PoolArenaMetric> heapArenas() {
+        return heapArenaMetrics;
+    }
+
+    /**
+     * Returns the metrics of the direct arenas of this allocator.
+     */
+    public List<PoolArenaMetric> directArenas() {
+        return directArenaMetrics;
+    }
+
+    /**
+     * Returns {@code true} if the calling {@link Thread} has a {@link ThreadLocal} cache for the allocated
+     * buffers.
+     */
+    public boolean hasThreadLocalCache() {
+        return threadCache.isSet();
+    }
+
+    /**
+     * Free all cached buffers for the calling {@link Thread}.
+     */
+    public void freeThreadLocalCache() {
+        threadCache.free();
+    }
+
+    /**
+     * Releases the memory of all chunks which are not used at all and of all chunks kept for the allocations larger
+     * than the chunk size, for example after a load spike.  Buffers cached by the threads are not released; use
+     * {@link #freeThreadLocalCache()} from each thread to release them first.
+     *
+     * @return the number of bytes released by this call
+     */
+    public long trim() {
+        long reclaimedBytes = 0;
+        if (heapArenas != null) {
+            for (PoolArena<byte[]> a: heapArenas) {
+                reclaimedBytes += a.trim();
+            }
+        }
+        if (directArenas != null) {
+            for (PoolArena<ByteBuffer> a: directArenas) {
+                reclaimedBytes += a.trim();
+            }
+        }
+        return reclaimedBytes;
+    }
+
 //    Too noisy at the moment.
 //
 //    public String toString() {
@@ -15,6 +15,7 @@
  */
 package io.netty.buffer;
 
+import io.netty.util.internal.PlatformDependent;
 import io.netty.util.internal.StringUtil;
 
 import java.io.IOException;
@@ -34,9 +35,18 @@ class ReadOnlyByteBufferBuf extends AbstractReferenceCountedByteBuf {
 
     protected final ByteBuffer buffer;
     private final ByteBufAllocator allocator;
+    private final ByteBuffer bufferToFree;
     private ByteBuffer tmpNioBuf;
 
     public ReadOnlyByteBufferBuf(ByteBufAllocator allocator, ByteBuffer buffer) {
+        this(allocator, buffer, false);
+    }
+
+    /**
+     * @param freeOnRelease {@code true} if the specified direct buffer must be freed, or unmapped in case of a
+     *                      {@link java.nio.MappedByteBuffer}, when this buffer is released
+     */
+    ReadOnlyByteBufferBuf(ByteBufAllocator allocator, ByteBuffer buffer, boolean freeOnRelease) {
         super(buffer.remaining());
         if (!buffer.isReadOnly()) {
             throw new IllegalArgumentException("must be a readonly buffer: " + StringUtil.simpleClassName(buffer));
@@ -44,11 +54,17 @@ class ReadOnlyByteBufferBuf extends AbstractReferenceCountedByteBuf {
 
         this.allocator = allocator;
         this.buffer = buffer.slice().order(ByteOrder.BIG_ENDIAN);
+        // Keep the original buffer, as only it can be freed.
+        bufferToFree = freeOnRelease ? buffer : null;
         writerIndex(this.buffer.limit());
     }
 
     @Override
-    protected void deallocate() { }
+    protected void deallocate() {
+        if (bufferToFree != null) {
+            PlatformDependent.freeDirectBuffer(bufferToFree);
+        }
+    }
 
     @Override
     public byte getByte(int index) {
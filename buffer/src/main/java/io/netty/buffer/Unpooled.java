@@ -17,9 +17,14 @@ package io.netty.buffer;
 
 import io.netty.util.internal.PlatformDependent;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.List;
@@ -60,6 +65,11 @@ import java.util.List;
  * you want to create a buffer which is composed of more than one array to
  * reduce the number of memory copy.
  *
+ * <h3>Creating a memory-mapped buffer</h3>
+ *
+ * {@link #mappedBuffer(File)} and {@link #mappedBuffer(FileChannel, long, int)} create a read-only buffer whose
+ * content is a region of a file mapped into memory.  The region is unmapped when the buffer is released.
+ *
  * <h3>Creating a copied buffer</h3>
  *
  * Copied buffer is a deep copy of one or more existing byte arrays, byte
@@ -209,6 +219,61 @@ public final class Unpooled {
         }
     }
 
+    /**
+     * Creates a new read-only buffer which maps the whole content of the specified file into memory.
+     *
+     * @see #mappedBuffer(FileChannel, long, int)
+     */
+    public static ByteBuf mappedBuffer(File file) throws IOException {
+        if (file == null) {
+            throw new NullPointerException("file");
+        }
+
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            long length = raf.length();
+            if (length > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException(
+                        "file: " + file + " (expected: at most " + Integer.MAX_VALUE + " bytes, got: " + length + ')');
+            }
+            return mappedBuffer(raf.getChannel(), 0, (int) length);
+        } finally {
+            // The mapping stays valid after the file is closed.
+            raf.close();
+        }
+    }
+
+    /**
+     * Creates a new read-only buffer which maps the specified region of the file into memory.  Reading from the
+     * returned buffer and writing it to a channel do not copy its content into the Java heap, and the pages stay in
+     * the operating system's page cache, so the buffer can be kept to serve a frequently requested file.
+     * <p>
+     * The region is unmapped as soon as the reference count of the returned buffer reaches {@code 0}.  Neither the
+     * buffer nor any buffer derived from it, such as a {@link ByteBuf#slice() slice}, may be accessed afterwards.
+     * The channel can be closed once this method returns.
+     */
+    public static ByteBuf mappedBuffer(FileChannel channel, long position, int length) throws IOException {
+        if (channel == null) {
+            throw new NullPointerException("channel");
+        }
+        if (position < 0) {
+            throw new IllegalArgumentException("position: " + position + " (expected: >= 0)");
+        }
+        if (length < 0) {
+            throw new IllegalArgumentException("length: " + length + " (expected: >= 0)");
+        }
+        if (length == 0) {
+            return EMPTY_BUFFER;
+        }
+
+        ByteBuffer buffer = channel.map(MapMode.READ_ONLY, position, length);
+        if (PlatformDependent.hasUnsafe()) {
+            return new ReadOnlyUnsafeDirectByteBuf(ALLOC, buffer, true);
+        } else {
+            return new ReadOnlyByteBufferBuf(ALLOC, buffer, true);
+        }
+    }
+
     /**
      * Creates a new buffer which wraps the specified buffer's readable bytes.
      * A modification on the specified buffer's content will be visible to the
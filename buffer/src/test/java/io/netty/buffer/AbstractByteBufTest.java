@@ -1551,6 +1551,50 @@ public abstract class AbstractByteBufTest {
         assertEquals(3, buffer.indexOf(4, 1, (byte) 2));
     }
 
+    @Test
+    public void testIndexOfEveryPosition() {
+        // Cover every offset within and across the 8-byte words of the word-at-a-time search, including a byte which
+        // only differs in its high bit from the one searched for.
+        final byte[] values = { 0, '\n', (byte) 0x80, (byte) 0xff };
+        for (byte value: values) {
+            for (int from = 0; from < 9; from ++) {
+                for (int pos = from; pos < from + 25; pos ++) {
+                    buffer.clear();
+                    for (int i = 0; i < 40; i ++) {
+                        buffer.writeByte(value ^ 0x80);
+                    }
+                    buffer.setByte(pos, value);
+                    buffer.setByte(pos + 1, value);
+                    assertEquals(pos, buffer.indexOf(from, 40, value));
+                    assertEquals(-1, buffer.indexOf(from, pos, value));
+                    assertEquals(pos + 1, buffer.indexOf(pos + 1, 40, value));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testForEachByteFindProcessors() {
+        buffer.clear();
+        for (int i = 0; i < CAPACITY; i ++) {
+            buffer.writeByte('a');
+        }
+        assertEquals(-1, buffer.forEachByte(ByteBufProcessor.FIND_LF));
+        assertEquals(-1, buffer.forEachByte(ByteBufProcessor.FIND_CRLF));
+
+        buffer.setByte(CAPACITY - 1, '\n');
+        buffer.setByte(CAPACITY / 2 + 3, '\r');
+        buffer.setByte(CAPACITY / 4 + 5, 0);
+        buffer.readerIndex(1);
+        assertEquals(CAPACITY - 1, buffer.forEachByte(ByteBufProcessor.FIND_LF));
+        assertEquals(CAPACITY / 2 + 3, buffer.forEachByte(ByteBufProcessor.FIND_CR));
+        assertEquals(CAPACITY / 2 + 3, buffer.forEachByte(ByteBufProcessor.FIND_CRLF));
+        assertEquals(CAPACITY / 4 + 5, buffer.forEachByte(ByteBufProcessor.FIND_NUL));
+        assertEquals(-1, buffer.forEachByte(1, CAPACITY / 4 + 4, ByteBufProcessor.FIND_NUL));
+        assertEquals(CAPACITY - 1, buffer.forEachByte(CAPACITY / 2 + 4, CAPACITY / 2 - 4,
+                ByteBufProcessor.FIND_CRLF));
+    }
+
     @Test
     public void testNioBuffer1() {
         Assume.assumeTrue(buffer.nioBufferCount() == 1);
@@ -227,6 +227,44 @@ public abstract class AbstractCompositeByteBufTest extends AbstractByteBufTest {
         assertEquals(wrappedBuffer(new byte[] { 7, 8, 9, 10 }), buf.component(2));
     }
 
+    @Test
+    public void testSmallestRangeAutoConsolidation() {
+        CompositeByteBuf buf = releaseLater(new CompositeByteBuf(UnpooledByteBufAllocator.DEFAULT, false, 4, true));
+        buf.addComponent(wrappedBuffer(new byte[] { 1, 2, 3, 4, 5, 6 }));
+        buf.addComponent(wrappedBuffer(new byte[] { 7 }));
+        buf.addComponent(wrappedBuffer(new byte[] { 8, 9, 10 }));
+        buf.addComponent(wrappedBuffer(new byte[] { 11, 12 }));
+        assertEquals(4, buf.numComponents());
+
+        // Half of the maximum number of components remain, by merging the smallest range of 4 components.
+        buf.addComponent(wrappedBuffer(new byte[] { 13, 14, 15, 16 }));
+        assertEquals(2, buf.numComponents());
+        assertEquals(wrappedBuffer(new byte[] { 1, 2, 3, 4, 5, 6 }), buf.component(0));
+        assertEquals(wrappedBuffer(new byte[] { 7, 8, 9, 10, 11, 12, 13, 14, 15, 16 }), buf.component(1));
+        assertEquals(6, buf.toByteIndex(1));
+        assertEquals(1, buf.toComponentIndex(15));
+    }
+
+    @Test
+    public void testAddComponentsInTheMiddle() {
+        CompositeByteBuf buf = releaseLater(compositeBuffer(Integer.MAX_VALUE));
+        buf.addComponent(wrappedBuffer(new byte[] { 1 }));
+        buf.addComponent(wrappedBuffer(new byte[] { 6, 7 }));
+        buf.addComponents(1, wrappedBuffer(new byte[] { 2, 3 }), EMPTY_BUFFER, wrappedBuffer(new byte[] { 4, 5 }));
+        buf.writerIndex(buf.capacity());
+
+        assertEquals(4, buf.numComponents());
+        assertEquals(7, buf.capacity());
+        for (int i = 0; i < 7; i ++) {
+            assertEquals(i + 1, buf.getByte(i));
+        }
+        assertEquals(0, buf.toByteIndex(0));
+        assertEquals(1, buf.toByteIndex(1));
+        assertEquals(3, buf.toByteIndex(2));
+        assertEquals(5, buf.toByteIndex(3));
+        assertEquals(3, buf.toComponentIndex(6));
+    }
+
     @Test
     public void testCompositeWrappedBuffer() {
         ByteBuf header = releaseLater(buffer(12)).order(order);
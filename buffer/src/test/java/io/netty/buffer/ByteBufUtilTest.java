@@ -0,0 +1,284 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.buffer;
+
+import io.netty.util.CharsetUtil;
+import io.netty.util.IllegalReferenceCountException;
+import org.junit.Test;
+
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ByteBufUtilTest {
+
+    private static final String[] STRINGS = {
+        "",
+        "Netty",
+        "caf\u00e9 \u00fcber na\u00efve",
+        "\u20ac \u65e5\u672c\u8a9e \uffff",
+        "\ud83d\ude00 surrogate pair",
+        "unpaired high \ud83d surrogate",
+        "unpaired low \ude00 surrogate",
+        "trailing high \ud83d",
+        "\ud83d\ud83d\ude00 two high",
+    };
+
+    @Test
+    public void testWriteUtf8() {
+        for (String s: STRINGS) {
+            for (ByteBuf buf: new ByteBuf[] { Unpooled.buffer(1), Unpooled.directBuffer(1) }) {
+                buf.writeByte('x');
+                byte[] expected = s.getBytes(CharsetUtil.UTF_8);
+                assertEquals(expected.length, ByteBufUtil.writeUtf8(buf, s));
+                assertEquals(expected.length + 1, buf.readableBytes());
+                assertEquals('x', buf.readByte());
+                assertEquals(Unpooled.wrappedBuffer(expected), buf);
+                buf.release();
+            }
+        }
+    }
+
+    @Test
+    public void testWriteUtf8Wrapped() {
+        String s = "\u20ac \ud83d\ude00 caf\u00e9";
+        byte[] expected = s.getBytes(CharsetUtil.UTF_8);
+
+        ByteBuf buf = Unpooled.buffer();
+        ByteBuf leakAware = new SimpleLeakAwareByteBuf(buf, null);
+        assertEquals(expected.length, ByteBufUtil.writeUtf8(leakAware, s));
+        assertEquals(Unpooled.wrappedBuffer(expected), leakAware);
+        buf.release();
+
+        ByteBuf swapped = Unpooled.buffer().order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(expected.length, ByteBufUtil.writeUtf8(swapped, s));
+        assertEquals(Unpooled.wrappedBuffer(expected), swapped.order(ByteOrder.BIG_ENDIAN));
+        swapped.release();
+
+        CompositeByteBuf composite = Unpooled.compositeBuffer();
+        composite.addComponent(Unpooled.wrappedBuffer(new byte[] { 1 }));
+        composite.writerIndex(1);
+        assertEquals(expected.length, ByteBufUtil.writeUtf8(composite, s));
+        assertEquals(1, composite.readByte());
+        assertEquals(Unpooled.wrappedBuffer(expected), composite);
+        composite.release();
+    }
+
+    @Test
+    public void testWriteUtf8GrowsToExactLength() {
+        String s = "\u00e9\u00e9\u00e9\u00e9";
+        ByteBuf buf = Unpooled.buffer(0, 8);
+        assertEquals(8, ByteBufUtil.writeUtf8(buf, s));
+        assertEquals(8, buf.capacity());
+        buf.release();
+    }
+
+    @Test
+    public void testWriteAscii() {
+        String s = "Netty caf\u00e9 \u20ac";
+        ByteBuf buf = Unpooled.buffer(1);
+        assertEquals(s.length(), ByteBufUtil.writeAscii(buf, s));
+        assertEquals(Unpooled.wrappedBuffer(s.getBytes(CharsetUtil.ISO_8859_1)), buf);
+        assertEquals('?', buf.getByte(s.length() - 1));
+        buf.release();
+    }
+
+    @Test
+    public void testWriteUtf8ReleasedBuffer() {
+        for (ByteBuf buf: new ByteBuf[] { Unpooled.buffer(16), Unpooled.directBuffer(16) }) {
+            buf.release();
+            try {
+                ByteBufUtil.writeUtf8(buf, "netty");
+                fail();
+            } catch (IllegalReferenceCountException expected) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void testWriteAsciiReleasedBuffer() {
+        for (ByteBuf buf: new ByteBuf[] { Unpooled.buffer(16), Unpooled.directBuffer(16) }) {
+            buf.release();
+            try {
+                ByteBufUtil.writeAscii(buf, "netty");
+                fail();
+            } catch (IllegalReferenceCountException expected) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void testEncodeString() {
+        for (String s: STRINGS) {
+            for (Charset charset: new Charset[] { CharsetUtil.UTF_8, CharsetUtil.UTF_16 }) {
+                CharBuffer src = CharBuffer.wrap("x" + s).subSequence(1, s.length() + 1);
+                ByteBuf buf = ByteBufUtil.encodeString(UnpooledByteBufAllocator.DEFAULT, src, charset);
+                assertFalse(src.hasRemaining());
+                assertEquals(Unpooled.wrappedBuffer(s.getBytes(charset)), buf);
+                buf.release();
+            }
+        }
+    }
+
+    @Test
+    public void testDecodeString() {
+        for (String s: STRINGS) {
+            for (Charset charset: new Charset[] { CharsetUtil.UTF_8, CharsetUtil.US_ASCII, CharsetUtil.UTF_16 }) {
+                byte[] bytes = s.getBytes(charset);
+                String expected = new String(bytes, charset);
+                ByteBuf heap = Unpooled.buffer().writeByte('x').writeBytes(bytes);
+                ByteBuf direct = Unpooled.directBuffer().writeByte('x').writeBytes(bytes);
+                int split = 1 + bytes.length / 2;
+                ByteBuf composite = Unpooled.wrappedBuffer(
+                        heap.copy(0, split), heap.copy(split, heap.readableBytes() - split));
+                assertEquals(expected, heap.toString(1, bytes.length, charset));
+                assertEquals(expected, direct.toString(1, bytes.length, charset));
+                assertEquals(expected, composite.toString(1, bytes.length, charset));
+                heap.release();
+                direct.release();
+                composite.release();
+            }
+        }
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testDecodeStringOutOfBounds() {
+        ByteBuf buf = Unpooled.wrappedBuffer(new byte[8], 0, 4);
+        buf.toString(2, 4, CharsetUtil.UTF_8);
+    }
+
+    @Test
+    public void testIndexOfNeedle() {
+        ByteBuf haystack = Unpooled.copiedBuffer("--abc--ab--abcab-abc\r\n", CharsetUtil.US_ASCII);
+        ByteBuf needle = Unpooled.copiedBuffer("abcab", CharsetUtil.US_ASCII);
+        assertEquals(11, ByteBufUtil.indexOf(needle, haystack));
+
+        needle.readerIndex(3);
+        assertEquals(2, ByteBufUtil.indexOf(needle, haystack));
+
+        haystack.readerIndex(12);
+        assertEquals(14, ByteBufUtil.indexOf(needle, haystack));
+        assertEquals(12, ByteBufUtil.indexOf(needle.skipBytes(1), haystack));
+
+        haystack.writerIndex(15);
+        assertEquals(-1, ByteBufUtil.indexOf(needle.readerIndex(0), haystack));
+        haystack.writerIndex(16);
+        assertEquals(11, ByteBufUtil.indexOf(needle, haystack.readerIndex(11)));
+        haystack.writerIndex(haystack.capacity());
+
+        haystack.readerIndex(0);
+        assertEquals(20, ByteBufUtil.indexOf(Unpooled.copiedBuffer("\r\n", CharsetUtil.US_ASCII), haystack));
+        assertEquals(-1, ByteBufUtil.indexOf(Unpooled.copiedBuffer("\n\r", CharsetUtil.US_ASCII), haystack));
+        assertEquals(-1, ByteBufUtil.indexOf(Unpooled.copiedBuffer("\r\n\r", CharsetUtil.US_ASCII), haystack));
+    }
+
+    @Test
+    public void testEqualsCompareHashCodeAcrossBufferKinds() {
+        Random random = new Random();
+        for (int length = 0; length < 40; length ++) {
+            byte[] a = new byte[length];
+            random.nextBytes(a);
+            for (int diff = -1; diff < length; diff ++) {
+                byte[] b = a.clone();
+                if (diff >= 0) {
+                    b[diff] = (byte) random.nextInt();
+                }
+                for (ByteBuf bufA: newBuffers(a)) {
+                    for (ByteBuf bufB: newBuffers(b)) {
+                        assertEquals(referenceHashCode(bufA), ByteBufUtil.hashCode(bufA));
+                        assertEquals(Arrays.equals(a, b), ByteBufUtil.equals(bufA, bufB));
+                        assertEquals(referenceCompare(bufA, bufB), ByteBufUtil.compare(bufA, bufB));
+
+                        // Compare with a shorter buffer too.
+                        bufB.writerIndex(bufB.writerIndex() - length / 3);
+                        assertEquals(referenceCompare(bufA, bufB), ByteBufUtil.compare(bufA, bufB));
+                        assertEquals(referenceCompare(bufB, bufA), ByteBufUtil.compare(bufB, bufA));
+                        bufB.release();
+                    }
+                    bufA.release();
+                }
+            }
+        }
+    }
+
+    private static ByteBuf[] newBuffers(byte[] content) {
+        ByteBuf unalignedDirect = Unpooled.directBuffer(content.length + 3).writeZero(3).writeBytes(content);
+        unalignedDirect.readerIndex(3);
+        return new ByteBuf[] {
+            Unpooled.copiedBuffer(content),
+            Unpooled.wrappedBuffer(content.clone()).order(ByteOrder.LITTLE_ENDIAN),
+            Unpooled.directBuffer(content.length).writeBytes(content),
+            unalignedDirect,
+            PooledByteBufAllocator.DEFAULT.heapBuffer(content.length).writeBytes(content),
+            PooledByteBufAllocator.DEFAULT.directBuffer(content.length).writeBytes(content)
+                    .order(ByteOrder.LITTLE_ENDIAN),
+            Unpooled.unmodifiableBuffer(Unpooled.copiedBuffer(content)),
+        };
+    }
+
+    private static int referenceHashCode(ByteBuf buffer) {
+        int hashCode = 1;
+        int index = buffer.readerIndex();
+        for (int i = buffer.readableBytes() >>> 2; i > 0; i --) {
+            hashCode = 31 * hashCode + getInt(buffer, index, true);
+            index += 4;
+        }
+        for (; index < buffer.writerIndex(); index ++) {
+            hashCode = 31 * hashCode + buffer.getByte(index);
+        }
+        return hashCode == 0 ? 1 : hashCode;
+    }
+
+    private static int referenceCompare(ByteBuf bufferA, ByteBuf bufferB) {
+        // Unsigned ints are compared in the byte order of bufferA, the remaining bytes one by one.
+        boolean bigEndian = bufferA.order() == ByteOrder.BIG_ENDIAN;
+        int minLength = Math.min(bufferA.readableBytes(), bufferB.readableBytes());
+        int aIndex = bufferA.readerIndex();
+        int bIndex = bufferB.readerIndex();
+        for (int i = minLength >>> 2; i > 0; i --) {
+            long va = getInt(bufferA, aIndex, bigEndian) & 0xFFFFFFFFL;
+            long vb = getInt(bufferB, bIndex, bigEndian) & 0xFFFFFFFFL;
+            if (va != vb) {
+                return va > vb ? 1 : -1;
+            }
+            aIndex += 4;
+            bIndex += 4;
+        }
+        for (int i = minLength & 3; i > 0; i --) {
+            int va = bufferA.getUnsignedByte(aIndex ++);
+            int vb = bufferB.getUnsignedByte(bIndex ++);
+            if (va != vb) {
+                return va > vb ? 1 : -1;
+            }
+        }
+        return bufferA.readableBytes() - bufferB.readableBytes();
+    }
+
+    private static int getInt(ByteBuf buffer, int index, boolean bigEndian) {
+        int value = 0;
+        for (int i = 0; i < 4; i ++) {
+            int b = buffer.getUnsignedByte(index + (bigEndian ? i : 3 - i));
+            value = value << 8 | b;
+        }
+        return value;
+    }
+}
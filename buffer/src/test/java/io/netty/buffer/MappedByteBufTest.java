@@ -0,0 +1,115 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.buffer;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ReadOnlyBufferException;
+import java.nio.channels.FileChannel;
+
+import static org.junit.Assert.*;
+
+public class MappedByteBufTest {
+
+    private static final byte[] BYTES = new byte[1024 * 64 + 7];
+    private static File file;
+
+    @BeforeClass
+    public static void createFile() throws Exception {
+        for (int i = 0; i < BYTES.length; i ++) {
+            BYTES[i] = (byte) (i * 31);
+        }
+        file = File.createTempFile("netty-mapped-", ".tmp");
+        file.deleteOnExit();
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(BYTES);
+        } finally {
+            out.close();
+        }
+    }
+
+    @AfterClass
+    public static void deleteFile() {
+        file.delete();
+    }
+
+    @Test
+    public void testContent() throws Exception {
+        ByteBuf buf = Unpooled.mappedBuffer(file);
+        try {
+            assertTrue(buf.isDirect());
+            assertEquals(BYTES.length, buf.readableBytes());
+            assertEquals(Unpooled.wrappedBuffer(BYTES), buf);
+
+            byte[] copy = new byte[BYTES.length];
+            buf.getBytes(0, copy);
+            assertArrayEquals(BYTES, copy);
+        } finally {
+            assertTrue(buf.release());
+        }
+    }
+
+    @Test
+    public void testRegion() throws Exception {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = raf.getChannel();
+            ByteBuf buf = Unpooled.mappedBuffer(channel, 100, 1000);
+            assertEquals(Unpooled.wrappedBuffer(BYTES, 100, 1000), buf);
+            buf.release();
+
+            assertSame(Unpooled.EMPTY_BUFFER, Unpooled.mappedBuffer(channel, 0, 0));
+        } finally {
+            raf.close();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeLength() throws Exception {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            Unpooled.mappedBuffer(raf.getChannel(), 0, -1);
+        } finally {
+            raf.close();
+        }
+    }
+
+    @Test(expected = ReadOnlyBufferException.class)
+    public void testReadOnly() throws Exception {
+        ByteBuf buf = Unpooled.mappedBuffer(file);
+        try {
+            buf.setByte(0, 1);
+        } finally {
+            buf.release();
+        }
+    }
+
+    @Test
+    public void testSlicesKeepMapping() throws Exception {
+        ByteBuf buf = Unpooled.mappedBuffer(file);
+        ByteBuf slice = buf.slice(10, 20).retain();
+        assertFalse(buf.release());
+        assertEquals(Unpooled.wrappedBuffer(BYTES, 10, 20), slice);
+        assertTrue(slice.release());
+        assertEquals(0, buf.refCnt());
+    }
+}
@@ -0,0 +1,348 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.buffer;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class PoolArenaTest {
+
+    private static PooledByteBufAllocator newAllocatorWithoutCache() {
+        return new PooledByteBufAllocator(false, 1, 0, 8192, 11, 0, 0, 0);
+    }
+
+    @Test(timeout = 10000)
+    public void testSubpageAllocationDoesNotAcquireArenaLock() throws Exception {
+        final PooledByteBufAllocator allocator = newAllocatorWithoutCache();
+        PoolArena<byte[]> arena = allocator.threadCache.get().heapArena;
+
+        // The first allocation has to create a chunk and a subpage.
+        ByteBuf buf = allocator.heapBuffer(128);
+
+        // The second one is served from the subpage pool, even while another thread holds the arena lock.
+        final AtomicReference<ByteBuf> buf2 = new AtomicReference<ByteBuf>();
+        Thread t = new Thread() {
+            @Override
+            public void run() {
+                buf2.set(allocator.heapBuffer(128));
+            }
+        };
+        synchronized (arena) {
+            t.start();
+            t.join(5000);
+            assertNotNull(buf2.get());
+        }
+
+        assertTrue(buf.release());
+        assertTrue(buf2.get().release());
+    }
+
+    @Test
+    public void testHugeChunkReuse() {
+        // 8 KiB chunks, so anything larger than 8 KiB is a huge allocation.
+        PooledByteBufAllocator allocator = new PooledByteBufAllocator(
+                false, 1, 0, 8192, 0, 0, 0, 0, 16384 + 24576, 60000);
+        PoolArena<byte[]> arena = allocator.threadCache.get().heapArena;
+
+        ByteBuf buf = allocator.heapBuffer(10000);
+        byte[] array = buf.array();
+        assertEquals(16384, array.length);
+        assertEquals(10000, buf.capacity());
+        assertTrue(buf.release());
+        assertEquals(1, arena.numCachedHugeChunks());
+
+        // Another allocation of the same size class reuses the chunk.
+        ByteBuf buf2 = allocator.heapBuffer(16000);
+        assertSame(array, buf2.array());
+        assertEquals(16000, buf2.capacity());
+        assertEquals(0, arena.numCachedHugeChunks());
+
+        // An allocation of a different size class does not.
+        ByteBuf buf3 = allocator.heapBuffer(20000);
+        assertEquals(24576, buf3.array().length);
+
+        assertTrue(buf2.release());
+        assertTrue(buf3.release());
+        assertEquals(2, arena.numCachedHugeChunks());
+        assertEquals(16384 + 24576, arena.numCachedHugeBytes());
+
+        // The cache is bounded by bytes, evicting the least recently freed chunks.
+        ByteBuf buf4 = allocator.heapBuffer(40000);
+        assertEquals(40960, buf4.array().length);
+        assertTrue(buf4.release());
+        assertEquals(1, arena.numCachedHugeChunks());
+        assertEquals(40960, arena.numCachedHugeBytes());
+        assertNotSame(array, allocator.heapBuffer(16000).array());
+    }
+
+    @Test
+    public void testHugeChunkLargerThanCacheIsNotCached() {
+        PooledByteBufAllocator allocator = new PooledByteBufAllocator(false, 1, 0, 8192, 0, 0, 0, 0, 16384, 60000);
+        PoolArena<byte[]> arena = allocator.threadCache.get().heapArena;
+
+        assertTrue(allocator.heapBuffer(10000).release());
+        assertEquals(16384, arena.numCachedHugeBytes());
+
+        // A chunk which does not fit into the cache at all leaves the cached chunks alone.
+        assertTrue(allocator.heapBuffer(20000).release());
+        assertEquals(1, arena.numCachedHugeChunks());
+        assertEquals(16384, arena.numCachedHugeBytes());
+    }
+
+    @Test
+    public void testIdleHugeChunkIsDestroyedByTrimCheck() throws Exception {
+        // 16 KiB chunks of 2 pages.
+        PooledByteBufAllocator allocator = new PooledByteBufAllocator(false, 1, 0, 8192, 1, 0, 0, 0, 65536, 1, 0);
+        PoolArena<byte[]> arena = allocator.threadCache.get().heapArena;
+
+        assertTrue(allocator.heapBuffer(20000).release());
+        assertEquals(1, arena.numCachedHugeChunks());
+        Thread.sleep(10);
+
+        // No huge allocation is made anymore, but the periodic trim check on chunk frees expires the idle chunk.
+        for (int i = 0; i < 256; i ++) {
+            assertTrue(allocator.heapBuffer(8192).release());
+        }
+        assertEquals(0, arena.numCachedHugeChunks());
+        assertEquals(0, arena.numCachedHugeBytes());
+    }
+
+    @Test
+    public void testHugeChunkIdleTimeout() {
+        PooledByteBufAllocator allocator = new PooledByteBufAllocator(false, 1, 0, 8192, 0, 0, 0, 0, 65536, 0);
+        ByteBuf buf = allocator.heapBuffer(10000);
+        byte[] array = buf.array();
+        assertTrue(buf.release());
+
+        // The cached chunk is idle for longer than the timeout already.
+        ByteBuf buf2 = allocator.heapBuffer(10000);
+        assertNotSame(array, buf2.array());
+        assertTrue(buf2.release());
+    }
+
+    @Test
+    public void testHugeChunkCacheDisabled() {
+        PooledByteBufAllocator allocator = new PooledByteBufAllocator(false, 1, 0, 8192, 0, 0, 0, 0, 0, 60000);
+        ByteBuf buf = allocator.heapBuffer(10000);
+        // Without the cache huge allocations are not rounded up.
+        assertEquals(10000, buf.array().length);
+        assertTrue(buf.release());
+        assertEquals(0, allocator.threadCache.get().heapArena.numCachedHugeChunks());
+    }
+
+    @Test
+    public void testMetrics() {
+        PooledByteBufAllocator allocator = new PooledByteBufAllocator(false, 1, 0, 8192, 11);
+        assertEquals(1, allocator.heapArenas().size());
+        assertTrue(allocator.directArenas().isEmpty());
+        PoolArenaMetric metric = allocator.heapArenas().get(0);
+        assertEquals(0, metric.numThreadCaches());
+
+        ByteBuf tiny = allocator.heapBuffer(100);
+        ByteBuf small = allocator.heapBuffer(1000);
+        ByteBuf normal = allocator.heapBuffer(10000);
+        ByteBuf huge = allocator.heapBuffer(17 * 1024 * 1024);
+        assertEquals(1, metric.numThreadCaches());
+        assertEquals(1, metric.numTinyAllocations());
+        assertEquals(1, metric.numSmallAllocations());
+        assertEquals(1, metric.numNormalAllocations());
+        assertEquals(1, metric.numHugeAllocations());
+        assertEquals(4, metric.numAllocations());
+        assertEquals(4, metric.numActiveAllocations());
+        assertEquals(112 + 1024 + 16384 + 17 * 1024 * 1024, metric.numActiveBytes());
+        assertEquals(0, metric.numThreadCacheHits());
+
+        List<PoolChunkListMetric> chunkLists = metric.chunkLists();
+        assertEquals(6, chunkLists.size());
+        assertEquals(0, chunkLists.get(0).minUsage());
+        assertEquals(100, chunkLists.get(5).maxUsage());
+        int numChunks = 0;
+        for (PoolChunkListMetric m: chunkLists) {
+            numChunks += m.numChunks();
+        }
+        assertEquals(1, numChunks);
+
+        assertTrue(tiny.release());
+        assertTrue(small.release());
+        assertTrue(normal.release());
+        assertTrue(huge.release());
+        assertEquals(1, metric.numTinyDeallocations());
+        assertEquals(1, metric.numSmallDeallocations());
+        assertEquals(1, metric.numNormalDeallocations());
+        assertEquals(1, metric.numHugeDeallocations());
+        assertEquals(4, metric.numDeallocations());
+        assertEquals(0, metric.numActiveAllocations());
+        assertEquals(0, metric.numActiveBytes());
+
+        // The released regions were put into the thread cache.
+        assertTrue(allocator.heapBuffer(100).release());
+        assertEquals(1, metric.numThreadCacheHits());
+        assertEquals(0.25, metric.threadCacheHitRatio(), 0.0001);
+
+        allocator.freeThreadLocalCache();
+        assertEquals(0, metric.numThreadCaches());
+    }
+
+    @Test(timeout = 5000)
+    public void testLeastUsedArenaSelection() throws Exception {
+        final PooledByteBufAllocator allocator = new PooledByteBufAllocator(false, 2, 0, 8192, 11);
+        final PoolArenaMetric arena0 = allocator.heapArenas().get(0);
+        final PoolArenaMetric arena1 = allocator.heapArenas().get(1);
+
+        final CountDownLatch bound = new CountDownLatch(1);
+        final CountDownLatch unbind = new CountDownLatch(1);
+        Thread thread = new Thread() {
+            @Override
+            public void run() {
+                allocator.heapBuffer(128).release();
+                bound.countDown();
+                try {
+                    unbind.await();
+                } catch (InterruptedException e) {
+                    // Ignore
+                }
+                allocator.freeThreadLocalCache();
+            }
+        };
+        thread.start();
+        bound.await();
+        assertEquals(1, arena0.numThreadCaches());
+        assertEquals(0, arena1.numThreadCaches());
+
+        // The calling thread is bound to the arena nobody else uses.
+        allocator.heapBuffer(128).release();
+        assertEquals(1, arena0.numThreadCaches());
+        assertEquals(1, arena1.numThreadCaches());
+
+        unbind.countDown();
+        thread.join();
+        assertEquals(0, arena0.numThreadCaches());
+        assertEquals(1, arena1.numThreadCaches());
+
+        // Once unbound, the arena is preferred again.
+        allocator.freeThreadLocalCache();
+        assertEquals(0, arena1.numThreadCaches());
+        allocator.heapBuffer(128).release();
+        assertEquals(1, arena0.numThreadCaches());
+        assertEquals(0, arena1.numThreadCaches());
+    }
+
+    @Test
+    public void testTrim() {
+        // 16 KiB chunks, so anything larger than 16 KiB is a huge allocation.
+        PooledByteBufAllocator allocator = new PooledByteBufAllocator(false, 1, 0, 8192, 1, 0, 0, 0, 65536, 60000, 0);
+        PoolArenaMetric metric = allocator.heapArenas().get(0);
+
+        // A chunk which is still used is kept.
+        ByteBuf buf = allocator.heapBuffer(8000);
+        assertEquals(0, allocator.trim());
+
+        assertTrue(buf.release());
+        ByteBuf huge = allocator.heapBuffer(20000);
+        assertTrue(huge.release());
+        assertEquals(16384 + 24576, allocator.trim());
+        assertEquals(16384 + 24576, metric.numReclaimedBytes());
+        assertEquals(0, allocator.trim());
+    }
+
+    @Test
+    public void testUnusedChunkIsDestroyedAfterIdleTimeout() throws Exception {
+        // 16 KiB chunks of 2 pages.
+        PooledByteBufAllocator allocator = new PooledByteBufAllocator(false, 1, 0, 8192, 1, 0, 0, 0, 0, 0, 1);
+        PoolArenaMetric metric = allocator.heapArenas().get(0);
+
+        ByteBuf half = allocator.heapBuffer(8000);
+        ByteBuf full = allocator.heapBuffer(16384);
+        assertTrue(full.release());
+        assertEquals(0, metric.numReclaimedBytes());
+
+        // Keep using the first chunk only, so that the second one stays unused.
+        for (int i = 0; i < 2; i ++) {
+            Thread.sleep(10);
+            for (int j = 0; j < 256; j ++) {
+                assertTrue(allocator.heapBuffer(8000).release());
+            }
+        }
+        assertEquals(16384, metric.numReclaimedBytes());
+        assertTrue(half.release());
+    }
+
+    @Test
+    public void testUnusedChunkIsKeptWithoutIdleTimeout() {
+        PooledByteBufAllocator allocator = new PooledByteBufAllocator(false, 1, 0, 8192, 1, 0, 0, 0, 0, 0, 0);
+        PoolArenaMetric metric = allocator.heapArenas().get(0);
+
+        ByteBuf half = allocator.heapBuffer(8000);
+        assertTrue(allocator.heapBuffer(16384).release());
+        for (int i = 0; i < 1024; i ++) {
+            assertTrue(allocator.heapBuffer(8000).release());
+        }
+        assertEquals(0, metric.numReclaimedBytes());
+        assertTrue(half.release());
+        assertEquals(16384 * 2, allocator.trim());
+    }
+
+    @Test(timeout = 30000)
+    public void testConcurrentAllocation() throws Throwable {
+        final PooledByteBufAllocator allocator = newAllocatorWithoutCache();
+        final int[] sizes = { 16, 128, 496, 512, 2048, 4096, 8192, 65536 };
+        final CountDownLatch latch = new CountDownLatch(4);
+        final AtomicReference<Throwable> cause = new AtomicReference<Throwable>();
+        for (int i = 0; i < 4; i ++) {
+            final int threadIdx = i;
+            new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        List<ByteBuf> buffers = new ArrayList<ByteBuf>();
+                        for (int j = 0; j < 10000; j ++) {
+                            ByteBuf buf = allocator.heapBuffer(sizes[(j + threadIdx) % sizes.length]);
+                            buf.setByte(0, threadIdx);
+                            buffers.add(buf);
+                            if (buffers.size() == 64) {
+                                for (ByteBuf b: buffers) {
+                                    assertEquals(threadIdx, b.getByte(0));
+                                    assertTrue(b.release());
+                                }
+                                buffers.clear();
+                            }
+                        }
+                        for (ByteBuf b: buffers) {
+                            assertTrue(b.release());
+                        }
+                    } catch (Throwable t) {
+                        cause.compareAndSet(null, t);
+                    } finally {
+                        latch.countDown();
+                    }
+                }
+            }.start();
+        }
+        latch.await();
+
+        Throwable t = cause.get();
+        if (t != null) {
+            throw t;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.buffer;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class PoolThreadCacheTest {
+
+    @Test
+    public void testTinyReuse() {
+        testReuse(128);
+    }
+
+    @Test
+    public void testSmallReuse() {
+        testReuse(1024);
+    }
+
+    @Test
+    public void testNormalReuse() {
+        testReuse(16 * 1024);
+    }
+
+    private static void testReuse(int size) {
+        PooledByteBufAllocator allocator = new PooledByteBufAllocator(false, 1, 0, 8192, 11);
+        ByteBuf buf = allocator.heapBuffer(size);
+        byte[] array = buf.array();
+        int offset = buf.arrayOffset();
+        assertTrue(buf.release());
+
+        // The region must be served from the thread cache.
+        ByteBuf buf2 = allocator.heapBuffer(size);
+        assertSame(array, buf2.array());
+        assertEquals(offset, buf2.arrayOffset());
+        assertTrue(buf2.release());
+    }
+
+    @Test
+    public void testDisabledCache() {
+        PooledByteBufAllocator allocator = new PooledByteBufAllocator(false, 1, 0, 8192, 11, 0, 0, 0);
+        ByteBuf buf = allocator.heapBuffer(128);
+        int offset = buf.arrayOffset();
+        ByteBuf buf2 = allocator.heapBuffer(128);
+        assertTrue(buf.release());
+
+        // The freed region goes back to the arena, which hands out the next available slot.
+        ByteBuf buf3 = allocator.heapBuffer(128);
+        assertNotEquals(offset, buf3.arrayOffset());
+        assertTrue(buf2.release());
+        assertTrue(buf3.release());
+    }
+
+    @Test
+    public void testFreeThreadLocalCache() {
+        PooledByteBufAllocator allocator = new PooledByteBufAllocator(false, 1, 0, 8192, 11);
+        ByteBuf buf = allocator.heapBuffer(128);
+        assertTrue(allocator.hasThreadLocalCache());
+        assertTrue(buf.release());
+
+        allocator.freeThreadLocalCache();
+        assertFalse(allocator.hasThreadLocalCache());
+    }
+}
@@ -16,6 +16,7 @@
 package io.netty.handler.codec.http;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
 
 import java.text.ParseException;
 import java.util.Calendar;
@@ -1250,10 +1251,7 @@ public abstract class HttpHeaders implements Iterable<Map.Entry<String, String>>
     }
 
     static void encodeAscii0(CharSequence seq, ByteBuf buf) {
-        int length = seq.length();
-        for (int i = 0 ; i < length; i++) {
-            buf.writeByte((byte) seq.charAt(i));
-        }
+        ByteBufUtil.writeAscii(buf, seq);
     }
 
     /**
@@ -684,6 +684,18 @@ public abstract class HttpObjectDecoder extends ReplayingDecoder<HttpObjectDecod
         return result;
     }
 
+    /**
+     * Appends the bytes of {@code buffer} in {@code [start, end)} to {@code seq}, skipping every {@code CR}.
+     */
+    private static void appendLine(ByteBuf buffer, int start, int end, AppendableCharSequence seq) {
+        for (int i = start; i < end; i ++) {
+            char c = (char) buffer.getByte(i);
+            if (c != HttpConstants.CR) {
+                seq.append(c);
+            }
+        }
+    }
+
     private final class HeaderParser implements ByteBufProcessor {
         private final AppendableCharSequence seq;
 
@@ -694,7 +706,17 @@ public abstract class HttpObjectDecoder extends ReplayingDecoder<HttpObjectDecod
         public AppendableCharSequence parse(ByteBuf buffer) {
             seq.reset();
             headerSize = 0;
-            int i = buffer.forEachByte(this);
+            // A line which ends within maxHeaderSize bytes can not be too large, so find its end with a
+            // word-at-a-time search and copy it afterwards.  Otherwise process() checks every byte as before.
+            final int readerIndex = buffer.readerIndex();
+            int length = Math.min(maxHeaderSize, buffer.writerIndex() - readerIndex);
+            int i = buffer.forEachByte(readerIndex, length, ByteBufProcessor.FIND_LF);
+            if (i >= 0) {
+                headerSize = i - readerIndex + 1;
+                appendLine(buffer, readerIndex, i, seq);
+            } else {
+                i = buffer.forEachByte(this);
+            }
             buffer.readerIndex(i + 1);
             return seq;
         }
@@ -737,7 +759,20 @@ public abstract class HttpObjectDecoder extends ReplayingDecoder<HttpObjectDecod
         public AppendableCharSequence parse(ByteBuf buffer) {
             seq.reset();
             size = 0;
-            int i = buffer.forEachByte(this);
+            // See HeaderParser.parse(ByteBuf); a line can only be too long if it has more than
+            // maxInitialLineLength bytes before its LF.
+            final int readerIndex = buffer.readerIndex();
+            int length = buffer.writerIndex() - readerIndex;
+            if (length > maxInitialLineLength) {
+                length = maxInitialLineLength + 1;
+            }
+            int i = buffer.forEachByte(readerIndex, length, ByteBufProcessor.FIND_LF);
+            if (i >= 0) {
+                appendLine(buffer, readerIndex, i, seq);
+                size = seq.length();
+            } else {
+                i = buffer.forEachByte(this);
+            }
             buffer.readerIndex(i + 1);
             return seq;
         }
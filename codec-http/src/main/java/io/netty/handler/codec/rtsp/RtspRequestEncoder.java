@@ -16,10 +16,10 @@
 package io.netty.handler.codec.rtsp;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
 import io.netty.handler.codec.http.FullHttpRequest;
 import io.netty.handler.codec.http.HttpHeaders;
 import io.netty.handler.codec.http.HttpRequest;
-import io.netty.util.CharsetUtil;
 
 import static io.netty.handler.codec.http.HttpConstants.*;
 
@@ -41,7 +41,7 @@ public class RtspRequestEncoder extends RtspObjectEncoder<HttpRequest> {
             throws Exception {
         HttpHeaders.encodeAscii(request.getMethod().toString(), buf);
         buf.writeByte(SP);
-        buf.writeBytes(request.getUri().getBytes(CharsetUtil.UTF_8));
+        ByteBufUtil.writeUtf8(buf, request.getUri());
         buf.writeByte(SP);
         HttpHeaders.encodeAscii(request.getProtocolVersion().toString(), buf);
         buf.writeBytes(CRLF);
@@ -16,6 +16,7 @@
 package io.netty.handler.codec.spdy;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
 import io.netty.buffer.Unpooled;
 
 import java.util.Set;
@@ -63,18 +64,17 @@ public class SpdyHeaderBlockRawEncoder extends SpdyHeaderBlockEncoder {
         ByteBuf headerBlock = Unpooled.buffer();
         writeLengthField(headerBlock, numHeaders);
         for (String name: names) {
-            byte[] nameBytes = name.getBytes("UTF-8");
-            writeLengthField(headerBlock, nameBytes.length);
-            headerBlock.writeBytes(nameBytes);
+            int nameIndex = headerBlock.writerIndex();
+            writeLengthField(headerBlock, 0);
+            setLengthField(headerBlock, nameIndex, ByteBufUtil.writeUtf8(headerBlock, name));
             int savedIndex = headerBlock.writerIndex();
             int valueLength = 0;
             writeLengthField(headerBlock, valueLength);
             for (String value: frame.headers().getAll(name)) {
-                byte[] valueBytes = value.getBytes("UTF-8");
-                if (valueBytes.length > 0) {
-                    headerBlock.writeBytes(valueBytes);
+                int valueBytes = ByteBufUtil.writeUtf8(headerBlock, value);
+                if (valueBytes > 0) {
                     headerBlock.writeByte(0);
-                    valueLength += valueBytes.length + 1;
+                    valueLength += valueBytes + 1;
                 }
             }
             if (valueLength == 0) {
@@ -18,6 +18,7 @@ package io.netty.handler.codec.http;
 
 import io.netty.buffer.Unpooled;
 import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.TooLongFrameException;
 import io.netty.util.CharsetUtil;
 import org.junit.Test;
 
@@ -231,4 +232,34 @@ public class HttpRequestDecoderTest {
 
         assertThat(channel.finish(), is(false));
     }
+
+    @Test
+    public void testInitialLineLengthLimit() {
+        // "GET / HTTP/1.1" is 14 bytes long.
+        assertThat(decodeHeaderLimited(14, 8192).getDecoderResult().isSuccess(), is(true));
+        assertThat(decodeHeaderLimited(13, 8192).getDecoderResult().cause(),
+                is(instanceOf(TooLongFrameException.class)));
+    }
+
+    @Test
+    public void testHeaderSizeLimit() {
+        // "Host: localhost" is 15 bytes long; the limit applies to each line including its CR.
+        assertThat(decodeHeaderLimited(4096, 16).getDecoderResult().isSuccess(), is(true));
+        assertThat(decodeHeaderLimited(4096, 15).getDecoderResult().cause(),
+                is(instanceOf(TooLongFrameException.class)));
+    }
+
+    private static HttpRequest decodeHeaderLimited(int maxInitialLineLength, int maxHeaderSize) {
+        EmbeddedChannel channel = new EmbeddedChannel(
+                new HttpRequestDecoder(maxInitialLineLength, maxHeaderSize, 8192));
+        String request = "GET / HTTP/1.1\r\nHost: localhost\r\n\r\n";
+        // Feed the request byte by byte so that the limits are also checked against incomplete lines.
+        for (int i = 0; i < request.length(); i ++) {
+            channel.writeInbound(Unpooled.copiedBuffer(request.substring(i, i + 1), CharsetUtil.US_ASCII));
+        }
+        HttpRequest req = channel.readInbound();
+        assertNotNull(req);
+        channel.finish();
+        return req;
+    }
 }
@@ -16,45 +16,173 @@
 
 package io.netty.util;
 
-import java.util.IdentityHashMap;
+import io.netty.util.internal.SystemPropertyUtil;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+import java.lang.ref.WeakReference;
 import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Light-weight object pool based on a thread-local stack.
+ * <p>
+ * An object recycled by a thread other than the one that created it is handed back to the owning thread through a
+ * per-thread queue, which the owning thread drains lazily once its own stack runs empty.
+ * </p>
  *
  * @param <T> the type of the pooled object
  */
 public abstract class Recycler<T> {
 
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(Recycler.class);
+
+    private static final AtomicInteger ID_GENERATOR = new AtomicInteger(Integer.MIN_VALUE);
+    private static final int OWN_THREAD_ID = ID_GENERATOR.getAndIncrement();
+    private static final int DEFAULT_MAX_CAPACITY_PER_THREAD;
+    private static final int DEFAULT_MAX_SHARED_CAPACITY_PER_THREAD;
+    private static final int DEFAULT_MAX_DELAYED_QUEUES_PER_THREAD;
+    private static final int LINK_CAPACITY = 16;
+
+    static {
+        // The number of objects a single thread keeps in its own stack. Any object recycled beyond this is dropped.
+        // Setting it to 0 disables pooling.
+        int maxCapacityPerThread = SystemPropertyUtil.getInt("io.netty.recycler.maxCapacityPerThread", 262144);
+        if (maxCapacityPerThread < 0) {
+            maxCapacityPerThread = 262144;
+        }
+        DEFAULT_MAX_CAPACITY_PER_THREAD = maxCapacityPerThread;
+
+        // The number of objects that can be handed back to a single owning thread by all other threads.
+        int maxSharedCapacityPerThread = SystemPropertyUtil.getInt("io.netty.recycler.maxSharedCapacityPerThread",
+                16384);
+        if (maxSharedCapacityPerThread < 0) {
+            maxSharedCapacityPerThread = 16384;
+        }
+        DEFAULT_MAX_SHARED_CAPACITY_PER_THREAD = maxSharedCapacityPerThread;
+
+        // The number of owning threads a single thread may hand objects back to.
+        // By default this is twice the number of processors, which matches the default number of event loops.
+        int maxDelayedQueuesPerThread = SystemPropertyUtil.getInt("io.netty.recycler.maxDelayedQueuesPerThread",
+                Runtime.getRuntime().availableProcessors() * 2);
+        if (maxDelayedQueuesPerThread < 0) {
+            maxDelayedQueuesPerThread = Runtime.getRuntime().availableProcessors() * 2;
+        }
+        DEFAULT_MAX_DELAYED_QUEUES_PER_THREAD = maxDelayedQueuesPerThread;
+
+        if (logger.isDebugEnabled()) {
+            logger.debug("-Dio.netty.recycler.maxCapacityPerThread: {}", DEFAULT_MAX_CAPACITY_PER_THREAD);
+            logger.debug("-Dio.netty.recycler.maxSharedCapacityPerThread: {}",
+                    DEFAULT_MAX_SHARED_CAPACITY_PER_THREAD);
+            logger.debug("-Dio.netty.recycler.maxDelayedQueuesPerThread: {}", DEFAULT_MAX_DELAYED_QUEUES_PER_THREAD);
+        }
+    }
+
+    private static final ThreadLocal<Map<Stack<?>, WeakOrderQueue>> DELAYED_RECYCLED =
+            new ThreadLocal<Map<Stack<?>, WeakOrderQueue>>() {
+        @Override
+        protected Map<Stack<?>, WeakOrderQueue> initialValue() {
+            return new WeakHashMap<Stack<?>, WeakOrderQueue>();
+        }
+    };
+
+    private final int maxCapacityPerThread;
+    private final int maxSharedCapacityPerThread;
+    private final int maxDelayedQueuesPerThread;
+
     private final ThreadLocal<Stack<T>> threadLocal = new ThreadLocal<Stack<T>>() {
         @Override
         protected Stack<T> initialValue() {
-            return new Stack<T>(Recycler.this, Thread.currentThread());
+            return new Stack<T>(Recycler.this, Thread.currentThread(), maxCapacityPerThread,
+                    maxSharedCapacityPerThread);
         }
     };
 
+    protected Recycler() {
+        this(DEFAULT_MAX_CAPACITY_PER_THREAD);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param maxCapacityPerThread the maximum number of objects each thread keeps for reuse; {@code 0} disables
+     *                             pooling
+     */
+    protected Recycler(int maxCapacityPerThread) {
+        this(maxCapacityPerThread, DEFAULT_MAX_SHARED_CAPACITY_PER_THREAD, DEFAULT_MAX_DELAYED_QUEUES_PER_THREAD);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param maxCapacityPerThread       the maximum number of objects each thread keeps for reuse; {@code 0}
+     *                                   disables pooling
+     * @param maxSharedCapacityPerThread the maximum number of objects other threads may hand back to a single
+     *                                   owning thread before further objects are dropped
+     * @param maxDelayedQueuesPerThread  the maximum number of owning threads a single thread may hand objects back
+     *                                   to; objects of any further owning thread are dropped
+     */
+    protected Recycler(int maxCapacityPerThread, int maxSharedCapacityPerThread, int maxDelayedQueuesPerThread) {
+        if (maxCapacityPerThread < 0) {
+            throw new IllegalArgumentException(
+                    "maxCapacityPerThread: " + maxCapacityPerThread + " (expected: >= 0)");
+        }
+        if (maxSharedCapacityPerThread < 0) {
+            throw new IllegalArgumentException(
+                    "maxSharedCapacityPerThread: " + maxSharedCapacityPerThread + " (expected: >= 0)");
+        }
+        if (maxDelayedQueuesPerThread < 0) {
+            throw new IllegalArgumentException(
+                    "maxDelayedQueuesPerThread: " + maxDelayedQueuesPerThread + " (expected: >= 0)");
+        }
+        this.maxCapacityPerThread = maxCapacityPerThread;
+        this.maxSharedCapacityPerThread = maxSharedCapacityPerThread;
+        this.maxDelayedQueuesPerThread = maxDelayedQueuesPerThread;
+    }
+
+    @SuppressWarnings("unchecked")
     public final T get() {
+        if (maxCapacityPerThread == 0) {
+            return newObject((Handle<T>) NOOP_HANDLE);
+        }
         Stack<T> stack = threadLocal.get();
-        T o = stack.pop();
-        if (o == null) {
-            o = newObject(stack);
+        DefaultHandle<T> handle = stack.pop();
+        if (handle == null) {
+            handle = stack.newHandle();
+            handle.value = newObject(handle);
         }
-        return o;
+        return handle.value;
     }
 
+    /**
+     * Recycles the specified object.
+     *
+     * @return {@code true} if the object was pooled, either on the stack of the calling thread or in the queue
+     *         towards its owning thread. {@code false} if it was dropped.
+     */
     public final boolean recycle(T o, Handle<T> handle) {
-        @SuppressWarnings("unchecked")
-        Stack<T> stack = (Stack<T>) handle;
-        if (stack.parent != this) {
+        if (handle == NOOP_HANDLE) {
             return false;
         }
 
-        if (Thread.currentThread() != stack.thread) {
+        DefaultHandle<T> h = (DefaultHandle<T>) handle;
+        if (h.stack.parent != this) {
             return false;
         }
+        if (o != h.value) {
+            throw new IllegalArgumentException("o does not belong to handle");
+        }
+
+        return h.stack.push(h);
+    }
 
-        stack.push(o);
-        return true;
+    final int threadLocalCapacity() {
+        return threadLocal.get().elements.length;
+    }
+
+    final int threadLocalSize() {
+        return threadLocal.get().size;
     }
 
     protected abstract T newObject(Handle<T> handle);
@@ -63,60 +191,379 @@ public abstract class Recycler<T> {
         void recycle(T object);
     }
 
-    static final class Stack<T> implements Handle<T> {
+    private static final Handle<Object> NOOP_HANDLE = new Handle<Object>() {
+        @Override
+        public void recycle(Object object) {
+            // NOOP
+        }
+    };
+
+    static final class DefaultHandle<T> implements Handle<T> {
+        // Both ids are 0 while the object is in use. lastRecycledId is stamped by whichever thread recycles the
+        // object, recycleId once the object is back on its owning stack, so a second recycle is detected in O(1)
+        // without tracking the pooled objects in a separate collection.
+        private int lastRecycledId;
+        private int recycleId;
+
+        private final Stack<T> stack;
+        private T value;
+
+        DefaultHandle(Stack<T> stack) {
+            this.stack = stack;
+        }
+
+        @Override
+        public void recycle(T object) {
+            if (object != value) {
+                throw new IllegalArgumentException("object does not belong to handle");
+            }
+            stack.push(this);
+        }
+    }
+
+    /**
+     * A queue that makes only moderate guarantees about visibility: items are seen in the correct order,
+     * but we aren't absolutely guaranteed to ever see anything at all, thereby keeping the queue cheap to maintain.
+     * One instance exists per pair of owning {@link Stack} and recycling thread.
+     */
+    private static final class WeakOrderQueue {
+
+        // Marks a Stack the current thread must not hand objects back to anymore.
+        static final WeakOrderQueue DUMMY = new WeakOrderQueue();
+
+        @SuppressWarnings("serial")
+        private static final class Link extends AtomicInteger {
+            private final DefaultHandle<?>[] elements = new DefaultHandle[LINK_CAPACITY];
+
+            private int readIndex;
+            private volatile Link next;
+        }
+
+        // chain of data items
+        private Link head, tail;
+        // pointer to another queue of delayed items for the same stack
+        private WeakOrderQueue next;
+        private final WeakReference<Thread> owner;
+        private final int id = ID_GENERATOR.getAndIncrement();
+        private final AtomicInteger availableSharedCapacity;
+
+        private WeakOrderQueue() {
+            owner = null;
+            availableSharedCapacity = null;
+        }
+
+        private WeakOrderQueue(Stack<?> stack, Thread thread) {
+            head = tail = new Link();
+            owner = new WeakReference<Thread>(thread);
+            availableSharedCapacity = stack.availableSharedCapacity;
+
+            // The stack itself must not be referenced by this queue, otherwise the WeakHashMap entry of the
+            // recycling thread would keep the stack of a dead owning thread alive.
+            synchronized (stack) {
+                next = stack.head;
+                stack.head = this;
+            }
+        }
+
+        /**
+         * Creates a new queue for the specified {@link Stack}, or returns {@code null} if the stack does not accept
+         * any more objects from other threads.
+         */
+        static WeakOrderQueue allocate(Stack<?> stack, Thread thread) {
+            // We allocated a Link so reserve the space
+            return reserveSpace(stack.availableSharedCapacity, LINK_CAPACITY)
+                    ? new WeakOrderQueue(stack, thread) : null;
+        }
+
+        private static boolean reserveSpace(AtomicInteger availableSharedCapacity, int space) {
+            assert space >= 0;
+            for (;;) {
+                int available = availableSharedCapacity.get();
+                if (available < space) {
+                    return false;
+                }
+                if (availableSharedCapacity.compareAndSet(available, available - space)) {
+                    return true;
+                }
+            }
+        }
+
+        private void reclaimSpace(int space) {
+            assert space >= 0;
+            availableSharedCapacity.addAndGet(space);
+        }
+
+        boolean add(DefaultHandle<?> handle) {
+            handle.lastRecycledId = id;
+
+            Link tail = this.tail;
+            int writeIndex;
+            if ((writeIndex = tail.get()) == LINK_CAPACITY) {
+                if (!reserveSpace(availableSharedCapacity, LINK_CAPACITY)) {
+                    // Drop it.
+                    return false;
+                }
+                this.tail = tail = tail.next = new Link();
+
+                writeIndex = tail.get();
+            }
+            tail.elements[writeIndex] = handle;
+            // we lazy set to guarantee visibility of an element in the queue if we see the index updated
+            tail.lazySet(writeIndex + 1);
+            return true;
+        }
+
+        boolean hasFinalData() {
+            return tail.readIndex != tail.get();
+        }
+
+        /**
+         * Transfers as many items as possible from the head link of this queue to the specified {@link Stack}.
+         *
+         * @return {@code true} if any item was transferred
+         */
+        @SuppressWarnings("unchecked")
+        <T> boolean transfer(Stack<T> dst) {
+            Link head = this.head;
+            if (head.readIndex == LINK_CAPACITY) {
+                if (head.next == null) {
+                    return false;
+                }
+                this.head = head = head.next;
+                reclaimSpace(LINK_CAPACITY);
+            }
+
+            final int srcStart = head.readIndex;
+            final int srcEnd = head.get();
+            if (srcStart == srcEnd) {
+                return false;
+            }
+
+            final DefaultHandle<?>[] srcElems = head.elements;
+            int newDstSize = dst.size;
+            dst.ensureCapacity(newDstSize + srcEnd - srcStart);
+            final int dstCapacity = dst.elements.length;
+            final DefaultHandle<T>[] dstElems = dst.elements;
+            for (int i = srcStart; i < srcEnd; i ++) {
+                DefaultHandle<T> element = (DefaultHandle<T>) srcElems[i];
+                srcElems[i] = null;
+                if (element.recycleId != 0) {
+                    // Recycled twice; the duplicate is dropped rather than raising an exception in the owning
+                    // thread, which is not the one that misbehaved.
+                    continue;
+                }
+                element.recycleId = element.lastRecycledId;
+                if (newDstSize == dstCapacity) {
+                    // The owning stack is full, drop the object.
+                    continue;
+                }
+                dstElems[newDstSize ++] = element;
+            }
+
+            head.readIndex = srcEnd;
+            dst.size = newDstSize;
+            return true;
+        }
+
+        /**
+         * Gives back the space of the remaining links once this queue is not used anymore.
+         */
+        void reclaimAllSpace() {
+            int links = 0;
+            for (Link link = head; link != null; link = link.next) {
+                links ++;
+            }
+            reclaimSpace(links * LINK_CAPACITY);
+        }
+    }
+
+    static final class Stack<T> {
 
         private static final int INITIAL_CAPACITY = 256;
 
         final Recycler<T> parent;
         final Thread thread;
-        private T[] elements;
+        final AtomicInteger availableSharedCapacity;
+        private final int maxCapacity;
+        private DefaultHandle<T>[] elements;
         private int size;
-        private final Map<T, Boolean> map = new IdentityHashMap<T, Boolean>(INITIAL_CAPACITY);
+        // we keep a queue of per-thread queues, which is appended to once only, each time a new thread other
+        // than the stack owner recycles: when we run out of items in our stack we iterate this collection
+        // to scavenge those that can be reused. this permits us to incur minimal thread synchronisation whilst
+        // still recycling all items.
+        private WeakOrderQueue cursor, prev;
+        private volatile WeakOrderQueue head;
 
-        @SuppressWarnings({ "unchecked", "SuspiciousArrayCast" })
-        Stack(Recycler<T> parent, Thread thread) {
+        Stack(Recycler<T> parent, Thread thread, int maxCapacity, int maxSharedCapacity) {
             this.parent = parent;
             this.thread = thread;
-            elements = newArray(INITIAL_CAPACITY);
+            this.maxCapacity = maxCapacity;
+            availableSharedCapacity = new AtomicInteger(maxSharedCapacity);
+            elements = newArray(Math.min(INITIAL_CAPACITY, maxCapacity));
         }
 
-        @Override
-        public void recycle(T object) {
-            parent.recycle(object, this);
-        }
-
-        T pop() {
+        DefaultHandle<T> pop() {
             int size = this.size;
             if (size == 0) {
-                return null;
+                if (!scavenge()) {
+                    return null;
+                }
+                size = this.size;
+                if (size == 0) {
+                    // Only duplicates were transferred.
+                    return null;
+                }
             }
             size --;
-            T ret = elements[size];
+            DefaultHandle<T> ret = elements[size];
             elements[size] = null;
-            map.remove(ret);
+            if (ret.lastRecycledId != ret.recycleId) {
+                throw new IllegalStateException("recycled multiple times");
+            }
+            ret.recycleId = 0;
+            ret.lastRecycledId = 0;
             this.size = size;
             return ret;
         }
 
-        void push(T o) {
-            if (map.put(o, Boolean.TRUE) != null) {
+        private boolean scavenge() {
+            // continue an existing scavenge, if any
+            if (scavengeSome()) {
+                return true;
+            }
+
+            // reset our scavenge cursor
+            prev = null;
+            cursor = head;
+            return false;
+        }
+
+        private boolean scavengeSome() {
+            WeakOrderQueue cursor = this.cursor;
+            if (cursor == null) {
+                cursor = head;
+                if (cursor == null) {
+                    return false;
+                }
+            }
+
+            boolean success = false;
+            WeakOrderQueue prev = this.prev;
+            do {
+                if (cursor.transfer(this)) {
+                    success = true;
+                    break;
+                }
+
+                WeakOrderQueue next = cursor.next;
+                if (cursor.owner.get() == null) {
+                    // If the thread associated with the queue is gone, unlink it, after
+                    // performing a volatile read to confirm there is no data left to collect.
+                    // We never unlink the first queue, as we don't want to synchronize on updating the head.
+                    if (cursor.hasFinalData()) {
+                        for (;;) {
+                            if (cursor.transfer(this)) {
+                                success = true;
+                            } else {
+                                break;
+                            }
+                        }
+                    }
+                    if (prev != null) {
+                        prev.next = next;
+                        cursor.reclaimAllSpace();
+                    }
+                } else {
+                    prev = cursor;
+                }
+
+                cursor = next;
+
+            } while (cursor != null && !success);
+
+            this.prev = prev;
+            this.cursor = cursor;
+            return success;
+        }
+
+        boolean push(DefaultHandle<T> item) {
+            if (thread == Thread.currentThread()) {
+                // The current Thread is the thread that belongs to the Stack, we can try to push the object now.
+                return pushNow(item);
+            } else {
+                // The current Thread is not the one that belongs to the Stack, we need to signal that the push
+                // happens later.
+                return pushLater(item);
+            }
+        }
+
+        private boolean pushNow(DefaultHandle<T> item) {
+            if ((item.recycleId | item.lastRecycledId) != 0) {
                 throw new IllegalStateException("recycled already");
             }
+            item.recycleId = item.lastRecycledId = OWN_THREAD_ID;
 
             int size = this.size;
-            if (size == elements.length) {
-                T[] newElements = newArray(size << 1);
-                System.arraycopy(elements, 0, newElements, 0, size);
-                elements = newElements;
+            if (size == maxCapacity) {
+                // Hit the maximum capacity - drop the possibly youngest object.
+                return false;
             }
-
-            elements[size] = o;
+            ensureCapacity(size + 1);
+            elements[size] = item;
             this.size = size + 1;
+            return true;
         }
 
-        @SuppressWarnings({ "unchecked", "SuspiciousArrayCast" })
-        private static <T> T[] newArray(int length) {
-            return (T[]) new Object[length];
+        private boolean pushLater(DefaultHandle<T> item) {
+            if ((item.recycleId | item.lastRecycledId) != 0) {
+                throw new IllegalStateException("recycled already");
+            }
+
+            Map<Stack<?>, WeakOrderQueue> delayedRecycled = DELAYED_RECYCLED.get();
+            WeakOrderQueue queue = delayedRecycled.get(this);
+            if (queue == null) {
+                if (delayedRecycled.size() >= parent.maxDelayedQueuesPerThread) {
+                    // Add a dummy queue so we know we should drop the object
+                    delayedRecycled.put(this, WeakOrderQueue.DUMMY);
+                    return false;
+                }
+                // Check if the owning thread still accepts objects from other threads at all.
+                if ((queue = WeakOrderQueue.allocate(this, Thread.currentThread())) == null) {
+                    // drop object
+                    return false;
+                }
+                delayedRecycled.put(this, queue);
+            } else if (queue == WeakOrderQueue.DUMMY) {
+                // drop object
+                return false;
+            }
+
+            return queue.add(item);
+        }
+
+        void ensureCapacity(int expectedCapacity) {
+            int newCapacity = elements.length;
+            if (expectedCapacity <= newCapacity || newCapacity == maxCapacity) {
+                return;
+            }
+
+            do {
+                newCapacity <<= 1;
+            } while (newCapacity < expectedCapacity && newCapacity < maxCapacity);
+            newCapacity = Math.min(newCapacity, maxCapacity);
+
+            DefaultHandle<T>[] newElements = newArray(newCapacity);
+            System.arraycopy(elements, 0, newElements, 0, size);
+            elements = newElements;
+        }
+
+        DefaultHandle<T> newHandle() {
+            return new DefaultHandle<T>(this);
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <T> DefaultHandle<T>[] newArray(int length) {
+            return new DefaultHandle[length];
         }
     }
 }
@@ -16,8 +16,10 @@
 
 package io.netty.util;
 
+import io.netty.util.internal.LongCounter;
 import io.netty.util.internal.PlatformDependent;
 import io.netty.util.internal.SystemPropertyUtil;
+import io.netty.util.internal.ThreadLocalRandom;
 import io.netty.util.internal.logging.InternalLogger;
 import io.netty.util.internal.logging.InternalLoggerFactory;
 
@@ -36,6 +38,9 @@ public final class ResourceLeakDetector<T> {
     private static final String PROP_LEVEL = "io.netty.leakDetectionLevel";
     private static final Level DEFAULT_LEVEL = Level.SIMPLE;
 
+    private static final String PROP_SAMPLING_INTERVAL = "io.netty.leakDetection.samplingInterval";
+    private static final String PROP_MAX_RECORDS = "io.netty.leakDetection.maxRecords";
+
     /**
      * Represents the level of resource leak detection.
      */
@@ -46,12 +51,14 @@ public final class ResourceLeakDetector<T> {
         DISABLED,
         /**
          * Enables simplistic sampling resource leak detection which reports there is a leak or not,
-         * at the cost of small overhead (default).
+         * at the cost of small overhead (default).  Together with a large sampling interval, it is cheap enough
+         * to be left enabled in production.
          */
         SIMPLE,
         /**
          * Enables advanced sampling resource leak detection which reports where the leaked object was accessed
-         * recently at the cost of high overhead.
+         * recently at the cost of high overhead.  The overhead only applies to the sampled objects, and the stack
+         * traces recorded for each of them are bounded by {@code -Dio.netty.leakDetection.maxRecords}.
          */
         ADVANCED,
         /**
@@ -80,7 +87,22 @@ public final class ResourceLeakDetector<T> {
         }
     }
 
-    private static final int DEFAULT_SAMPLING_INTERVAL = 113;
+    private static final int DEFAULT_SAMPLING_INTERVAL;
+    private static final int MAX_RECORDS;
+
+    static {
+        int samplingInterval = SystemPropertyUtil.getInt(PROP_SAMPLING_INTERVAL, 113);
+        if (samplingInterval <= 0) {
+            samplingInterval = 113;
+        }
+        DEFAULT_SAMPLING_INTERVAL = samplingInterval;
+        MAX_RECORDS = Math.max(0, SystemPropertyUtil.getInt(PROP_MAX_RECORDS, 4));
+
+        if (logger.isDebugEnabled()) {
+            logger.debug("-D{}: {}", PROP_SAMPLING_INTERVAL, DEFAULT_SAMPLING_INTERVAL);
+            logger.debug("-D{}: {}", PROP_MAX_RECORDS, MAX_RECORDS);
+        }
+    }
 
     /**
      * Sets the resource leak detection level.
@@ -99,20 +121,24 @@ public final class ResourceLeakDetector<T> {
         return level;
     }
 
-    /** the linked list of active resources */
-    private final DefaultResourceLeak head = new DefaultResourceLeak(null);
-    private final DefaultResourceLeak tail = new DefaultResourceLeak(null);
+    /**
+     * The set of active resources, which keeps their {@link DefaultResourceLeak}s reachable until they are either
+     * closed or enqueued.
+     */
+    private final ConcurrentMap<DefaultResourceLeak, Boolean> activeLeaks = PlatformDependent.newConcurrentHashMap();
 
     private final ReferenceQueue<Object> refQueue = new ReferenceQueue<Object>();
     private final ConcurrentMap<String, Boolean> reportedLeaks = PlatformDependent.newConcurrentHashMap();
 
     private final String resourceType;
-    private final int samplingInterval;
+    private volatile int samplingInterval;
     private final long maxActive;
-    private long active;
     private final AtomicBoolean loggedTooManyActive = new AtomicBoolean();
 
-    private long leakCheckCnt;
+    private final LongCounter tracked = PlatformDependent.newLongCounter();
+    private final LongCounter sampled = PlatformDependent.newLongCounter();
+    private final LongCounter active = PlatformDependent.newLongCounter();
+    private final LongCounter leaked = PlatformDependent.newLongCounter();
 
     public ResourceLeakDetector(Class<?> resourceType) {
         this(simpleClassName(resourceType));
@@ -126,6 +152,11 @@ public final class ResourceLeakDetector<T> {
         this(simpleClassName(resourceType), samplingInterval, maxActive);
     }
 
+    /**
+     * Creates a new detector.  The sampling interval can be overridden for the specified resource type with
+     * {@code -Dio.netty.leakDetection.samplingInterval.<resourceType>}, e.g.
+     * {@code -Dio.netty.leakDetection.samplingInterval.ByteBuf=1024}.
+     */
     public ResourceLeakDetector(String resourceType, int samplingInterval, long maxActive) {
         if (resourceType == null) {
             throw new NullPointerException("resourceType");
@@ -137,12 +168,69 @@ public final class ResourceLeakDetector<T> {
             throw new IllegalArgumentException("maxActive: " + maxActive + " (expected: 1+)");
         }
 
+        String samplingIntervalKey = PROP_SAMPLING_INTERVAL + '.' + resourceType;
+        int typeSamplingInterval = SystemPropertyUtil.getInt(samplingIntervalKey, samplingInterval);
+        if (typeSamplingInterval != samplingInterval) {
+            if (typeSamplingInterval > 0) {
+                logger.debug("-D{}: {}", samplingIntervalKey, typeSamplingInterval);
+                samplingInterval = typeSamplingInterval;
+            } else {
+                logger.warn("-D{}: {} (expected: 1+, using: {})",
+                        samplingIntervalKey, typeSamplingInterval, samplingInterval);
+            }
+        }
+
         this.resourceType = resourceType;
         this.samplingInterval = samplingInterval;
         this.maxActive = maxActive;
+    }
 
-        head.next = tail;
-        tail.prev = head;
+    /**
+     * Returns the sampling interval: on average, one in this many resources is sampled unless the level is
+     * {@link Level#PARANOID}.
+     */
+    public int samplingInterval() {
+        return samplingInterval;
+    }
+
+    /**
+     * Sets the sampling interval.  See {@link #samplingInterval()}.
+     */
+    public void setSamplingInterval(int samplingInterval) {
+        if (samplingInterval <= 0) {
+            throw new IllegalArgumentException("samplingInterval: " + samplingInterval + " (expected: 1+)");
+        }
+        this.samplingInterval = samplingInterval;
+    }
+
+    /**
+     * Returns the number of resources passed to {@link #open(Object)} while leak detection was enabled.
+     */
+    public long numTracked() {
+        return tracked.value();
+    }
+
+    /**
+     * Returns the number of resources which were sampled, i.e. for which {@link #open(Object)} returned a
+     * {@link ResourceLeak}.
+     */
+    public long numSampled() {
+        return sampled.value();
+    }
+
+    /**
+     * Returns the number of sampled resources which were neither closed nor garbage-collected yet.
+     */
+    public long numActive() {
+        return active.value();
+    }
+
+    /**
+     * Returns the number of sampled resources which were garbage-collected without being closed.  Each of them is
+     * counted once it has been detected, which happens when a later resource is sampled.
+     */
+    public long numLeaked() {
+        return leaked.value();
     }
 
     /**
@@ -157,17 +245,19 @@ public final class ResourceLeakDetector<T> {
             return null;
         }
 
+        tracked.increment();
         if (level.ordinal() < Level.PARANOID.ordinal()) {
-            if (leakCheckCnt ++ % samplingInterval == 0) {
-                reportLeak(level);
-                return new DefaultResourceLeak(obj);
-            } else {
+            // Sample with a thread-local random number instead of a shared counter, so that allocating threads do
+            // not contend on it.
+            int samplingInterval = this.samplingInterval;
+            if (samplingInterval > 1 && ThreadLocalRandom.current().nextInt(samplingInterval) != 0) {
                 return null;
             }
-        } else {
-            reportLeak(level);
-            return new DefaultResourceLeak(obj);
         }
+
+        reportLeak(level);
+        sampled.increment();
+        return new DefaultResourceLeak(obj);
     }
 
     private void reportLeak(Level level) {
@@ -178,14 +268,16 @@ public final class ResourceLeakDetector<T> {
                 if (ref == null) {
                     break;
                 }
-                ref.close();
+                if (ref.close()) {
+                    leaked.increment();
+                }
             }
             return;
         }
 
         // Report too many instances.
         int samplingInterval = level == Level.PARANOID? 1 : this.samplingInterval;
-        if (active * samplingInterval > maxActive && loggedTooManyActive.compareAndSet(false, true)) {
+        if (active.value() * samplingInterval > maxActive && loggedTooManyActive.compareAndSet(false, true)) {
             logger.error("LEAK: You are creating too many " + resourceType + " instances.  " +
                     resourceType + " is a shared resource that must be reused across the JVM," +
                     "so that only a few instances are created.");
@@ -204,6 +296,7 @@ public final class ResourceLeakDetector<T> {
             if (!ref.close()) {
                 continue;
             }
+            leaked.increment();
 
             String records = ref.toString();
             if (reportedLeaks.putIfAbsent(records, Boolean.TRUE) == null) {
@@ -224,38 +317,23 @@ public final class ResourceLeakDetector<T> {
 
     private final class DefaultResourceLeak extends PhantomReference<Object> implements ResourceLeak {
 
-        private static final int MAX_RECORDS = 4;
-
         private final String creationRecord;
         private final Deque<String> lastRecords = new ArrayDeque<String>();
-        private final AtomicBoolean freed;
-        private DefaultResourceLeak prev;
-        private DefaultResourceLeak next;
+        private final AtomicBoolean freed = new AtomicBoolean();
+        private int recordsAfterMax;
 
         DefaultResourceLeak(Object referent) {
-            super(referent, referent != null? refQueue : null);
-
-            if (referent != null) {
-                Level level = getLevel();
-                if (level.ordinal() >= Level.ADVANCED.ordinal()) {
-                    creationRecord = newRecord(null, 3);
-                } else {
-                    creationRecord = null;
-                }
+            super(referent, refQueue);
 
-                // TODO: Use CAS to update the list.
-                synchronized (head) {
-                    prev = head;
-                    next = head.next;
-                    head.next.prev = this;
-                    head.next = this;
-                    active ++;
-                }
-                freed = new AtomicBoolean();
+            Level level = getLevel();
+            if (level.ordinal() >= Level.ADVANCED.ordinal()) {
+                creationRecord = newRecord(null, 3);
             } else {
                 creationRecord = null;
-                freed = new AtomicBoolean(true);
             }
+
+            activeLeaks.put(this, Boolean.TRUE);
+            active.increment();
         }
 
         @Override
@@ -269,15 +347,27 @@ public final class ResourceLeakDetector<T> {
         }
 
         private void record0(Object hint, int recordsToSkip) {
-            if (creationRecord != null) {
-                String value = newRecord(hint, recordsToSkip);
+            if (creationRecord == null) {
+                return;
+            }
 
-                synchronized (lastRecords) {
-                    int size = lastRecords.size();
-                    if (size == 0 || !lastRecords.getLast().equals(value)) {
-                        lastRecords.add(value);
+            synchronized (lastRecords) {
+                // Once MAX_RECORDS records were kept, keep a new one with a probability which halves with every
+                // record, so that a frequently accessed resource does not take a stack trace on every access.
+                if (lastRecords.size() >= MAX_RECORDS) {
+                    int backOff = Math.min(recordsAfterMax ++, 30);
+                    if (MAX_RECORDS == 0 || ThreadLocalRandom.current().nextInt(1 << backOff) != 0) {
+                        return;
                     }
-                    if (size > MAX_RECORDS) {
+                }
+            }
+
+            String value = newRecord(hint, recordsToSkip);
+            synchronized (lastRecords) {
+                int size = lastRecords.size();
+                if (size == 0 || !lastRecords.getLast().equals(value)) {
+                    lastRecords.add(value);
+                    if (size >= MAX_RECORDS) {
                         lastRecords.removeFirst();
                     }
                 }
@@ -287,13 +377,8 @@ public final class ResourceLeakDetector<T> {
         @Override
         public boolean close() {
             if (freed.compareAndSet(false, true)) {
-                synchronized (head) {
-                    active --;
-                    prev.next = next;
-                    next.prev = prev;
-                    prev = null;
-                    next = null;
-                }
+                activeLeaks.remove(this);
+                active.decrement();
                 return true;
             }
             return false;
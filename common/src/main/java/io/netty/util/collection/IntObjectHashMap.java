@@ -0,0 +1,404 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util.collection;
+
+import java.lang.reflect.Array;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A hash map implementation of {@link IntObjectMap} that uses open addressing with linear probing for keys, so the
+ * keys are stored in a plain {@code int[]} and neither a lookup nor an insert needs to box the key or allocate an
+ * entry object.
+ * <p>
+ * {@code null} values are not allowed, as a {@code null} slot marks a free slot.  Removals shift the following
+ * entries of the probe sequence back instead of leaving a tombstone, so the map never needs to be compacted.
+ * </p>
+ * This class is not thread-safe.
+ *
+ * @param <V> the value type stored in the map.
+ */
+public class IntObjectHashMap<V> implements IntObjectMap<V>, Iterable<IntObjectMap.Entry<V>> {
+
+    /** Default initial capacity.  Used if not specified in the constructor */
+    public static final int DEFAULT_CAPACITY = 8;
+
+    /** Default load factor.  Used if not specified in the constructor */
+    public static final float DEFAULT_LOAD_FACTOR = 0.5f;
+
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    private final float loadFactor;
+    private int[] keys;
+    private V[] values;
+    private int mask;
+    private int maxSize;
+    private int size;
+
+    public IntObjectHashMap() {
+        this(DEFAULT_CAPACITY, DEFAULT_LOAD_FACTOR);
+    }
+
+    public IntObjectHashMap(int initialCapacity) {
+        this(initialCapacity, DEFAULT_LOAD_FACTOR);
+    }
+
+    public IntObjectHashMap(int initialCapacity, float loadFactor) {
+        if (initialCapacity < 1) {
+            throw new IllegalArgumentException("initialCapacity: " + initialCapacity + " (expected: >= 1)");
+        }
+        if (initialCapacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException(
+                    "initialCapacity: " + initialCapacity + " (expected: <= " + MAX_CAPACITY + ')');
+        }
+        // The table must always keep a free slot, otherwise looking up a missing key would never stop probing.
+        if (loadFactor <= 0.0f || loadFactor >= 1.0f) {
+            throw new IllegalArgumentException("loadFactor: " + loadFactor + " (expected: 0 < loadFactor < 1)");
+        }
+        this.loadFactor = loadFactor;
+
+        int capacity = 1;
+        while (capacity < initialCapacity) {
+            capacity <<= 1;
+        }
+        allocate(capacity);
+    }
+
+    @Override
+    public V get(int key) {
+        int index = indexOf(key);
+        return index == -1 ? null : values[index];
+    }
+
+    @Override
+    public V put(int key, V value) {
+        if (value == null) {
+            throw new NullPointerException("value");
+        }
+
+        int index = hashIndex(key);
+        for (;;) {
+            V old = values[index];
+            if (old == null) {
+                // Found a free slot, so the key is not in the map yet.
+                keys[index] = key;
+                values[index] = value;
+                if (++ size > maxSize) {
+                    rehash();
+                }
+                return null;
+            }
+            if (keys[index] == key) {
+                values[index] = value;
+                return old;
+            }
+            index = probeNext(index);
+        }
+    }
+
+    @Override
+    public void putAll(IntObjectMap<V> sourceMap) {
+        if (sourceMap instanceof IntObjectHashMap) {
+            // Fast path: iterate over the arrays directly.
+            IntObjectHashMap<V> source = (IntObjectHashMap<V>) sourceMap;
+            for (int i = 0; i < source.values.length; i ++) {
+                V sourceValue = source.values[i];
+                if (sourceValue != null) {
+                    put(source.keys[i], sourceValue);
+                }
+            }
+            return;
+        }
+
+        for (Entry<V> entry: sourceMap.entries()) {
+            put(entry.key(), entry.value());
+        }
+    }
+
+    @Override
+    public V remove(int key) {
+        int index = indexOf(key);
+        if (index == -1) {
+            return null;
+        }
+
+        V prev = values[index];
+        removeAt(index);
+        return prev;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    @Override
+    public boolean containsKey(int key) {
+        return indexOf(key) != -1;
+    }
+
+    @Override
+    public boolean containsValue(V value) {
+        if (value == null) {
+            return false;
+        }
+        for (V v: values) {
+            if (v != null && v.equals(value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public Iterable<Entry<V>> entries() {
+        return this;
+    }
+
+    @Override
+    public Iterator<Entry<V>> iterator() {
+        return new IteratorImpl();
+    }
+
+    @Override
+    public int[] keys() {
+        int[] outKeys = new int[size];
+        int targetIx = 0;
+        for (int i = 0; i < values.length; i ++) {
+            if (values[i] != null) {
+                outKeys[targetIx ++] = keys[i];
+            }
+        }
+        return outKeys;
+    }
+
+    @Override
+    public V[] values(Class<V> clazz) {
+        @SuppressWarnings("unchecked")
+        V[] outValues = (V[]) Array.newInstance(clazz, size);
+        int targetIx = 0;
+        for (V v: values) {
+            if (v != null) {
+                outValues[targetIx ++] = v;
+            }
+        }
+        return outValues;
+    }
+
+    @Override
+    public int hashCode() {
+        // Sum the hashes of the entries, so the result does not depend on the position of the entries in the table.
+        int hash = size;
+        for (int i = 0; i < values.length; i ++) {
+            V value = values[i];
+            if (value != null) {
+                hash += keys[i] ^ value.hashCode();
+            }
+        }
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof IntObjectMap)) {
+            return false;
+        }
+        @SuppressWarnings("rawtypes")
+        IntObjectMap other = (IntObjectMap) obj;
+        if (size != other.size()) {
+            return false;
+        }
+        for (int i = 0; i < values.length; i ++) {
+            V value = values[i];
+            if (value != null && !value.equals(other.get(keys[i]))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        if (size == 0) {
+            return "{}";
+        }
+        StringBuilder sb = new StringBuilder(4 * size);
+        sb.append('{');
+        boolean first = true;
+        for (int i = 0; i < values.length; i ++) {
+            V value = values[i];
+            if (value == null) {
+                continue;
+            }
+            if (!first) {
+                sb.append(", ");
+            }
+            sb.append(keys[i]).append('=').append(value == this ? "(this Map)" : value);
+            first = false;
+        }
+        return sb.append('}').toString();
+    }
+
+    /**
+     * Returns the index of the slot which holds the given key, or {@code -1} if the map does not contain the key.
+     */
+    private int indexOf(int key) {
+        int index = hashIndex(key);
+        for (;;) {
+            if (values[index] == null) {
+                return -1;
+            }
+            if (keys[index] == key) {
+                return index;
+            }
+            index = probeNext(index);
+        }
+    }
+
+    /**
+     * Returns the slot at which the probing for the given key starts.
+     */
+    private int hashIndex(int key) {
+        // Spread the bits as keys like file descriptors or ids are often sequential and only differ in the low bits.
+        int h = key * 0x9E3779B9;
+        return (h ^ h >>> 16) & mask;
+    }
+
+    private int probeNext(int index) {
+        return index + 1 & mask;
+    }
+
+    /**
+     * Removes the entry at the given slot and moves the entries after it back which would otherwise not be found
+     * anymore because their probe sequence passes the freed slot.
+     */
+    private void removeAt(int index) {
+        -- size;
+        values[index] = null;
+
+        int free = index;
+        for (int i = probeNext(index); values[i] != null; i = probeNext(i)) {
+            int bucket = hashIndex(keys[i]);
+            // The entry can be moved to the free slot if its bucket is not cyclically in (free, i].
+            if (free <= i ? bucket <= free || bucket > i : bucket <= free && bucket > i) {
+                keys[free] = keys[i];
+                values[free] = values[i];
+                values[i] = null;
+                free = i;
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = (V[]) new Object[capacity];
+        mask = capacity - 1;
+        // Keep at least one slot free.
+        maxSize = Math.min(capacity - 1, (int) (capacity * loadFactor));
+    }
+
+    private void rehash() {
+        if (values.length == MAX_CAPACITY) {
+            throw new IllegalStateException("Max capacity reached at size=" + size);
+        }
+
+        int[] oldKeys = keys;
+        V[] oldValues = values;
+        allocate(oldValues.length << 1);
+
+        for (int i = 0; i < oldValues.length; i ++) {
+            V oldValue = oldValues[i];
+            if (oldValue != null) {
+                int index = hashIndex(oldKeys[i]);
+                while (values[index] != null) {
+                    index = probeNext(index);
+                }
+                keys[index] = oldKeys[i];
+                values[index] = oldValue;
+            }
+        }
+    }
+
+    /**
+     * Iterator over the entries of the map, which is the {@link Entry} of the current position itself to not
+     * allocate an object per entry.
+     */
+    private final class IteratorImpl implements Iterator<Entry<V>>, Entry<V> {
+        private int prevIndex = -1;
+        private int nextIndex = -1;
+
+        @Override
+        public boolean hasNext() {
+            if (nextIndex == -1) {
+                nextIndex = prevIndex;
+                do {
+                    nextIndex ++;
+                } while (nextIndex != values.length && values[nextIndex] == null);
+            }
+            return nextIndex != values.length;
+        }
+
+        @Override
+        public Entry<V> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            prevIndex = nextIndex;
+            nextIndex = -1;
+            return this;
+        }
+
+        @Override
+        public void remove() {
+            // Removing shifts entries back, which may move an entry that was not visited yet before the iterator.
+            throw new UnsupportedOperationException("remove");
+        }
+
+        @Override
+        public int key() {
+            return keys[prevIndex];
+        }
+
+        @Override
+        public V value() {
+            return values[prevIndex];
+        }
+
+        @Override
+        public void setValue(V value) {
+            if (value == null) {
+                throw new NullPointerException("value");
+            }
+            values[prevIndex] = value;
+        }
+    }
+}
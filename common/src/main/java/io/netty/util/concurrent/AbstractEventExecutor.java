@@ -15,6 +15,7 @@
  */
 package io.netty.util.concurrent;
 
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Set;
@@ -104,6 +105,28 @@ public abstract class AbstractEventExecutor extends AbstractExecutorService impl
         return new FailedFuture<V>(this, cause);
     }
 
+    /**
+     * Calls {@link #execute(Runnable)} for each of the specified tasks.  Sub-classes may override this method to
+     * submit them at once.
+     */
+    @Override
+    public void executeAll(Collection<? extends Runnable> tasks) {
+        if (tasks == null) {
+            throw new NullPointerException("tasks");
+        }
+        for (Runnable task: tasks) {
+            execute(task);
+        }
+    }
+
+    /**
+     * Calls {@link #execute(Runnable)}.  Sub-classes may override this method to not wake up their thread for the task.
+     */
+    @Override
+    public void lazyExecute(Runnable task) {
+        execute(task);
+    }
+
     @Override
     public Future<?> submit(Runnable task) {
         return (Future<?>) super.submit(task);
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util.concurrent;
+
+import java.util.Queue;
+
+/**
+ * A hashed wheel of {@link ScheduledFutureTask}s which is owned by a single {@link SingleThreadEventExecutor} and
+ * only accessed from its thread.  A task is linked into the bucket of the first tick at or after its deadline, so
+ * adding and removing a task is {@code O(1)}.  In return a task expires up to one tick after its deadline, which is
+ * fine for coarse-grained timeouts such as idle, read and write timeouts that are usually cancelled long before they
+ * expire.
+ * <p>
+ * All times are in the time domain of {@link ScheduledFutureTask#nanoTime()}.
+ */
+final class DelayedTaskWheel {
+
+    private final ScheduledFutureTask<?>[] wheel;
+    private final int mask;
+    private final long tickNanos;
+    // All buckets up to and including this tick were expired.
+    private long processedTick;
+    private int size;
+
+    DelayedTaskWheel(long tickNanos, int ticksPerWheel, long nanoTime) {
+        if (tickNanos <= 0) {
+            throw new IllegalArgumentException("tickNanos: " + tickNanos + " (expected: > 0)");
+        }
+        if (ticksPerWheel <= 0 || (ticksPerWheel & ticksPerWheel - 1) != 0) {
+            throw new IllegalArgumentException("ticksPerWheel: " + ticksPerWheel + " (expected: a power of two)");
+        }
+
+        wheel = new ScheduledFutureTask<?>[ticksPerWheel];
+        mask = ticksPerWheel - 1;
+        this.tickNanos = tickNanos;
+        processedTick = nanoTime / tickNanos;
+    }
+
+    long tickNanos() {
+        return tickNanos;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    void add(ScheduledFutureTask<?> task) {
+        assert task.wheel == null;
+
+        long tick = (task.deadlineNanos() + tickNanos - 1) / tickNanos;
+        if (tick <= processedTick) {
+            tick = processedTick + 1;
+        }
+
+        int index = (int) tick & mask;
+        ScheduledFutureTask<?> head = wheel[index];
+        task.wheel = this;
+        task.wheelIndex = index;
+        task.wheelPrev = null;
+        task.wheelNext = head;
+        if (head != null) {
+            head.wheelPrev = task;
+        }
+        wheel[index] = task;
+        size ++;
+    }
+
+    void remove(ScheduledFutureTask<?> task) {
+        assert task.wheel == this;
+
+        ScheduledFutureTask<?> prev = task.wheelPrev;
+        ScheduledFutureTask<?> next = task.wheelNext;
+        if (prev == null) {
+            wheel[task.wheelIndex] = next;
+        } else {
+            prev.wheelNext = next;
+        }
+        if (next != null) {
+            next.wheelPrev = prev;
+        }
+
+        task.wheel = null;
+        task.wheelPrev = null;
+        task.wheelNext = null;
+        size --;
+    }
+
+    /**
+     * Returns the time when the next tick is due.
+     */
+    long nextTickNanos() {
+        return (processedTick + 1) * tickNanos;
+    }
+
+    /**
+     * Moves all tasks whose deadline passed at the last tick up to {@code nanoTime} to the specified queue, and drops
+     * all visited tasks which were cancelled.
+     */
+    void expire(long nanoTime, Queue<Runnable> taskQueue) {
+        long currentTick = nanoTime / tickNanos;
+        if (currentTick <= processedTick) {
+            return;
+        }
+
+        // Visit every bucket at most once, even if the thread did not advance the wheel for more than a round.
+        long tick = Math.max(processedTick + 1, currentTick - mask);
+        long deadlineNanos = currentTick * tickNanos;
+        for (; tick <= currentTick; tick ++) {
+            ScheduledFutureTask<?> task = wheel[(int) tick & mask];
+            while (task != null) {
+                ScheduledFutureTask<?> next = task.wheelNext;
+                if (task.isCancelled()) {
+                    remove(task);
+                } else if (task.deadlineNanos() <= deadlineNanos) {
+                    remove(task);
+                    taskQueue.add(task);
+                }
+                task = next;
+            }
+        }
+        processedTick = currentTick;
+    }
+
+    /**
+     * Removes all tasks and returns them.
+     */
+    ScheduledFutureTask<?>[] clear() {
+        ScheduledFutureTask<?>[] tasks = new ScheduledFutureTask<?>[size];
+        int i = 0;
+        for (int index = 0; index < wheel.length; index ++) {
+            ScheduledFutureTask<?> task = wheel[index];
+            while (task != null) {
+                ScheduledFutureTask<?> next = task.wheelNext;
+                remove(task);
+                tasks[i ++] = task;
+                task = next;
+            }
+        }
+        return tasks;
+    }
+}
@@ -15,6 +15,7 @@
  */
 package io.netty.util.concurrent;
 
+import java.util.Collection;
 import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.TimeUnit;
@@ -80,6 +81,26 @@ public interface EventExecutor extends EventExecutorGroup {
      */
     <V> Future<V> newFailedFuture(Throwable cause);
 
+    /**
+     * Executes all the specified tasks in their iteration order, as if {@link #execute(Runnable)} was called for each
+     * of them.  An implementation may enqueue them at once and wake up its thread only once for all of them, which is
+     * cheaper than submitting many small tasks one by one.
+     *
+     * @throws java.util.concurrent.RejectedExecutionException if this executor does not accept the tasks
+     */
+    void executeAll(Collection<? extends Runnable> tasks);
+
+    /**
+     * Executes the specified task like {@link #execute(Runnable)} does, but never wakes up the thread of this executor
+     * just to run it.  The task runs when the thread processes its tasks the next time anyway, for example after it
+     * handled I/O or a scheduled task, which saves the cost of a wake-up for tasks that are not urgent such as
+     * releasing resources or flushing statistics.  An implementation which can not delay a wake-up executes the task
+     * just like {@link #execute(Runnable)} does.
+     *
+     * @throws java.util.concurrent.RejectedExecutionException if this executor does not accept the task
+     */
+    void lazyExecute(Runnable task);
+
     @Override
     Future<?> submit(Runnable task);
 
@@ -15,16 +15,17 @@
  */
 package io.netty.util.concurrent;
 
+import io.netty.util.internal.PlatformDependent;
 import io.netty.util.internal.logging.InternalLogger;
 import io.netty.util.internal.logging.InternalLoggerFactory;
 
+import java.util.Collection;
 import java.util.Iterator;
 import java.util.PriorityQueue;
 import java.util.Queue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Callable;
 import java.util.concurrent.Executors;
-import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
@@ -45,7 +46,7 @@ public final class GlobalEventExecutor extends AbstractEventExecutor {
 
     public static final GlobalEventExecutor INSTANCE = new GlobalEventExecutor();
 
-    final Queue<Runnable> taskQueue = new LinkedBlockingQueue<Runnable>();
+    final BlockingQueue<Runnable> taskQueue = PlatformDependent.newMpscBlockingQueue();
     final Queue<ScheduledFutureTask<?>> delayedTaskQueue = new PriorityQueue<ScheduledFutureTask<?>>();
     final ScheduledFutureTask<Void> purgeTask = new ScheduledFutureTask<Void>(
             this, delayedTaskQueue, Executors.<Void>callable(new PurgeTask(), null),
@@ -70,7 +71,6 @@ public final class GlobalEventExecutor extends AbstractEventExecutor {
      * @return {@code null} if the executor thread has been interrupted or waken up.
      */
     Runnable takeTask() {
-        BlockingQueue<Runnable> taskQueue = (BlockingQueue<Runnable>) this.taskQueue;
         for (;;) {
             ScheduledFutureTask<?> delayedTask = delayedTaskQueue.peek();
             if (delayedTask == null) {
@@ -201,6 +201,26 @@ public final class GlobalEventExecutor extends AbstractEventExecutor {
         }
     }
 
+    @Override
+    public void executeAll(Collection<? extends Runnable> tasks) {
+        if (tasks == null) {
+            throw new NullPointerException("tasks");
+        }
+        for (Runnable task: tasks) {
+            if (task == null) {
+                throw new NullPointerException("tasks contains null");
+            }
+        }
+        if (tasks.isEmpty()) {
+            return;
+        }
+
+        taskQueue.addAll(tasks);
+        if (!inEventLoop()) {
+            startThread();
+        }
+    }
+
     // ScheduledExecutorService implementation
 
     @Override
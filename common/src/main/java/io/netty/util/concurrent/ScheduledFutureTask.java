@@ -41,6 +41,12 @@ final class ScheduledFutureTask<V> extends PromiseTask<V> implements ScheduledFu
     /* 0 - no repeat, >0 - repeat at fixed rate, <0 - repeat with fixed delay */
     private final long periodNanos;
 
+    // Only accessed by the DelayedTaskWheel this task is linked into, and only from the event loop.
+    DelayedTaskWheel wheel;
+    int wheelIndex;
+    ScheduledFutureTask<?> wheelPrev;
+    ScheduledFutureTask<?> wheelNext;
+
     ScheduledFutureTask(
             EventExecutor executor, Queue<ScheduledFutureTask<?>> delayedTaskQueue,
             Runnable runnable, V result, long nanoTime) {
@@ -85,7 +91,15 @@ final class ScheduledFutureTask<V> extends PromiseTask<V> implements ScheduledFu
     }
 
     public long delayNanos(long currentTimeNanos) {
-        return Math.max(0, deadlineNanos() - (currentTimeNanos - START_TIME));
+        return delayNanos(currentTimeNanos, deadlineNanos());
+    }
+
+    /**
+     * Returns the time left from {@code currentTimeNanos}, as returned by {@link System#nanoTime()}, until the
+     * specified deadline, as returned by {@link #deadlineNanos(long)}.
+     */
+    static long delayNanos(long currentTimeNanos, long deadlineNanos) {
+        return Math.max(0, deadlineNanos - (currentTimeNanos - START_TIME));
     }
 
     @Override
@@ -114,6 +128,17 @@ final class ScheduledFutureTask<V> extends PromiseTask<V> implements ScheduledFu
         }
     }
 
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        boolean cancelled = super.cancel(mayInterruptIfRunning);
+        // Unlink the task from the wheel right away if possible. Otherwise the wheel drops it once it visits its
+        // bucket the next time.
+        if (cancelled && executor().inEventLoop() && wheel != null) {
+            wheel.remove(this);
+        }
+        return cancelled;
+    }
+
     @Override
     public void run() {
         assert executor().inEventLoop();
@@ -15,10 +15,13 @@
  */
 package io.netty.util.concurrent;
 
+import io.netty.util.internal.PlatformDependent;
+import io.netty.util.internal.SystemPropertyUtil;
 import io.netty.util.internal.logging.InternalLogger;
 import io.netty.util.internal.logging.InternalLoggerFactory;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -29,7 +32,6 @@ import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Callable;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
-import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.ThreadFactory;
@@ -38,6 +40,17 @@ import java.util.concurrent.TimeUnit;
 /**
  * Abstract base class for {@link EventExecutor}'s that execute all its submitted tasks in a single thread.
  *
+ * <h3>Timer wheel</h3>
+ *
+ * Scheduled tasks are kept in a priority queue by default.  If the system property
+ * {@code io.netty.eventExecutor.timerWheel} is {@code true}, every executor also owns a hashed timer wheel, and a
+ * task scheduled by {@link #schedule(Runnable, long, TimeUnit)} or {@link #schedule(Callable, long, TimeUnit)} with a
+ * delay of at least one tick ({@code io.netty.eventExecutor.timerWheel.tickMillis}, {@code 100} by default) is kept in
+ * the wheel instead.  Adding such a task and cancelling it from the executor thread takes constant time, and a
+ * cancelled task is removed right away, but it is run up to one tick after its deadline.  This suits timeouts of
+ * which there are many and which are usually cancelled, such as the ones of {@code IdleStateHandler} or connect
+ * attempts.  The number of ticks per round of the wheel is set by
+ * {@code io.netty.eventExecutor.timerWheel.ticksPerWheel} ({@code 512} by default).
  */
 public abstract class SingleThreadEventExecutor extends AbstractEventExecutor {
 
@@ -50,6 +63,34 @@ public abstract class SingleThreadEventExecutor extends AbstractEventExecutor {
     private static final int ST_SHUTDOWN = 4;
     private static final int ST_TERMINATED = 5;
 
+    private static final boolean TIMER_WHEEL =
+            SystemPropertyUtil.getBoolean("io.netty.eventExecutor.timerWheel", false);
+    private static final long TIMER_WHEEL_TICK_NANOS;
+    private static final int TIMER_WHEEL_TICKS;
+
+    static {
+        long tickMillis = SystemPropertyUtil.getLong("io.netty.eventExecutor.timerWheel.tickMillis", 100);
+        if (tickMillis <= 0) {
+            tickMillis = 100;
+        }
+        TIMER_WHEEL_TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+
+        int ticksPerWheel = SystemPropertyUtil.getInt("io.netty.eventExecutor.timerWheel.ticksPerWheel", 512);
+        int ticks = 1;
+        while (ticks < ticksPerWheel && ticks < 1 << 20) {
+            ticks <<= 1;
+        }
+        TIMER_WHEEL_TICKS = ticks;
+
+        if (logger.isDebugEnabled()) {
+            logger.debug("-Dio.netty.eventExecutor.timerWheel: {}", TIMER_WHEEL);
+            if (TIMER_WHEEL) {
+                logger.debug("-Dio.netty.eventExecutor.timerWheel.tickMillis: {}", tickMillis);
+                logger.debug("-Dio.netty.eventExecutor.timerWheel.ticksPerWheel: {}", TIMER_WHEEL_TICKS);
+            }
+        }
+    }
+
     private static final Runnable WAKEUP_TASK = new Runnable() {
         @Override
         public void run() {
@@ -59,6 +100,7 @@ public abstract class SingleThreadEventExecutor extends AbstractEventExecutor {
 
     private final Queue<Runnable> taskQueue;
     final Queue<ScheduledFutureTask<?>> delayedTaskQueue = new PriorityQueue<ScheduledFutureTask<?>>();
+    private final DelayedTaskWheel delayedTaskWheel;
 
     private volatile Thread thread;
     private final Executor executor;
@@ -98,6 +140,18 @@ public abstract class SingleThreadEventExecutor extends AbstractEventExecutor {
      *                          executor thread
      */
     protected SingleThreadEventExecutor(EventExecutorGroup parent, Executor executor, boolean addTaskWakesUp) {
+        this(parent, executor, addTaskWakesUp, TIMER_WHEEL ?
+                new DelayedTaskWheel(TIMER_WHEEL_TICK_NANOS, TIMER_WHEEL_TICKS, ScheduledFutureTask.nanoTime()) : null);
+    }
+
+    /**
+     * Create a new instance which keeps the scheduled tasks with a delay of at least one tick in the given
+     * {@link DelayedTaskWheel}, regardless of {@code io.netty.eventExecutor.timerWheel}.
+     *
+     * @param delayedTaskWheel  the timer wheel, or {@code null} to keep all scheduled tasks in the delayed task queue
+     */
+    SingleThreadEventExecutor(
+            EventExecutorGroup parent, Executor executor, boolean addTaskWakesUp, DelayedTaskWheel delayedTaskWheel) {
         super(parent);
 
         if (executor == null) {
@@ -106,18 +160,22 @@ public abstract class SingleThreadEventExecutor extends AbstractEventExecutor {
 
         this.addTaskWakesUp = addTaskWakesUp;
         this.executor = executor;
+        this.delayedTaskWheel = delayedTaskWheel;
 
         taskQueue = newTaskQueue();
     }
 
     /**
      * Create a new {@link Queue} which will holds the tasks to execute. This default implementation will return a
-     * {@link LinkedBlockingQueue} but if your sub-class of {@link SingleThreadEventExecutor} will not do any blocking
-     * calls on the this {@link Queue} it may make sense to {@code @Override} this and return some more performant
-     * implementation that does not support blocking operations at all.
+     * lock-free multiple-producer single-consumer {@link BlockingQueue} but if your sub-class of
+     * {@link SingleThreadEventExecutor} will not do any blocking calls on the this {@link Queue} it may make sense to
+     * {@code @Override} this and return {@link PlatformDependent#newMpscQueue()}, which does not support blocking
+     * operations at all.
+     * <p>
+     * The returned {@link Queue} is only ever consumed by the thread of this executor.
      */
     protected Queue<Runnable> newTaskQueue() {
-        return new LinkedBlockingQueue<Runnable>();
+        return PlatformDependent.newMpscBlockingQueue();
     }
 
     /**
@@ -164,7 +222,7 @@ public abstract class SingleThreadEventExecutor extends AbstractEventExecutor {
         BlockingQueue<Runnable> taskQueue = (BlockingQueue<Runnable>) this.taskQueue;
         for (;;) {
             ScheduledFutureTask<?> delayedTask = delayedTaskQueue.peek();
-            if (delayedTask == null) {
+            if (delayedTask == null && (delayedTaskWheel == null || delayedTaskWheel.isEmpty())) {
                 Runnable task = null;
                 try {
                     task = taskQueue.take();
@@ -176,7 +234,7 @@ public abstract class SingleThreadEventExecutor extends AbstractEventExecutor {
                 }
                 return task;
             } else {
-                long delayNanos = delayedTask.delayNanos();
+                long delayNanos = delayNanos(System.nanoTime());
                 Runnable task = null;
                 if (delayNanos > 0) {
                     try {
@@ -203,6 +261,11 @@ public abstract class SingleThreadEventExecutor extends AbstractEventExecutor {
 
     private void fetchFromDelayedQueue() {
         long nanoTime = 0L;
+        if (delayedTaskWheel != null && !delayedTaskWheel.isEmpty()) {
+            nanoTime = ScheduledFutureTask.nanoTime();
+            delayedTaskWheel.expire(nanoTime, taskQueue);
+        }
+
         for (;;) {
             ScheduledFutureTask<?> delayedTask = delayedTaskQueue.peek();
             if (delayedTask == null) {
@@ -262,6 +325,21 @@ public abstract class SingleThreadEventExecutor extends AbstractEventExecutor {
         taskQueue.add(task);
     }
 
+    /**
+     * Add all the specified tasks to the task queue at once, or throws a {@link RejectedExecutionException} if this
+     * instance was shutdown before.  The default task queue claims one range of slots for all of them, so tasks added
+     * by other threads are never interleaved with them.
+     */
+    protected void addTasks(Collection<? extends Runnable> tasks) {
+        if (tasks == null) {
+            throw new NullPointerException("tasks");
+        }
+        if (isShutdown()) {
+            reject();
+        }
+        taskQueue.addAll(tasks);
+    }
+
     /**
      * @see {@link Queue#remove(Object)}
      */
@@ -347,11 +425,12 @@ public abstract class SingleThreadEventExecutor extends AbstractEventExecutor {
      */
     protected long delayNanos(long currentTimeNanos) {
         ScheduledFutureTask<?> delayedTask = delayedTaskQueue.peek();
-        if (delayedTask == null) {
-            return SCHEDULE_PURGE_INTERVAL;
+        long delayNanos = delayedTask == null ? SCHEDULE_PURGE_INTERVAL : delayedTask.delayNanos(currentTimeNanos);
+        if (delayedTaskWheel != null && !delayedTaskWheel.isEmpty()) {
+            delayNanos = Math.min(
+                    delayNanos, ScheduledFutureTask.delayNanos(currentTimeNanos, delayedTaskWheel.nextTickNanos()));
         }
-
-        return delayedTask.delayNanos(currentTimeNanos);
+        return delayNanos;
     }
 
     /**
@@ -610,6 +689,12 @@ public abstract class SingleThreadEventExecutor extends AbstractEventExecutor {
     }
 
     private void cancelDelayedTasks() {
+        if (delayedTaskWheel != null && !delayedTaskWheel.isEmpty()) {
+            for (ScheduledFutureTask<?> task: delayedTaskWheel.clear()) {
+                task.cancel(false);
+            }
+        }
+
         if (delayedTaskQueue.isEmpty()) {
             return;
         }
@@ -643,6 +728,20 @@ public abstract class SingleThreadEventExecutor extends AbstractEventExecutor {
 
     @Override
     public void execute(Runnable task) {
+        execute(task, wakesUpForTask(task));
+    }
+
+    /**
+     * Adds the specified task to the task queue without waking up the executor thread, so that it runs when the thread
+     * processes its tasks the next time.  If {@code addTaskWakesUp} was {@code true} on construction, adding a task
+     * wakes up the thread anyway.
+     */
+    @Override
+    public void lazyExecute(Runnable task) {
+        execute(task, false);
+    }
+
+    private void execute(Runnable task, boolean immediate) {
         if (task == null) {
             throw new NullPointerException("task");
         }
@@ -658,7 +757,53 @@ public abstract class SingleThreadEventExecutor extends AbstractEventExecutor {
             }
         }
 
-        if (!addTaskWakesUp && wakesUpForTask(task)) {
+        if (!addTaskWakesUp && immediate) {
+            wakeup(inEventLoop);
+        }
+    }
+
+    /**
+     * Adds all the specified tasks to the task queue at once and wakes up the executor thread at most once.
+     */
+    @Override
+    public void executeAll(Collection<? extends Runnable> tasks) {
+        if (tasks == null) {
+            throw new NullPointerException("tasks");
+        }
+
+        boolean wakesUp = false;
+        for (Runnable task: tasks) {
+            if (task == null) {
+                throw new NullPointerException("tasks contains null");
+            }
+            if (!wakesUp && wakesUpForTask(task)) {
+                wakesUp = true;
+            }
+        }
+        if (tasks.isEmpty()) {
+            return;
+        }
+
+        boolean inEventLoop = inEventLoop();
+        if (inEventLoop) {
+            addTasks(tasks);
+        } else {
+            startThread();
+            addTasks(tasks);
+            if (isShutdown()) {
+                boolean removed = false;
+                for (Runnable task: tasks) {
+                    if (removeTask(task)) {
+                        removed = true;
+                    }
+                }
+                if (removed) {
+                    reject();
+                }
+            }
+        }
+
+        if (!addTaskWakesUp && wakesUp) {
             wakeup(inEventLoop);
         }
     }
@@ -688,8 +833,10 @@ public abstract class SingleThreadEventExecutor extends AbstractEventExecutor {
             throw new IllegalArgumentException(
                     String.format("delay: %d (expected: >= 0)", delay));
         }
+        long delayNanos = unit.toNanos(delay);
         return schedule(new ScheduledFutureTask<Void>(
-                this, delayedTaskQueue, command, null, ScheduledFutureTask.deadlineNanos(unit.toNanos(delay))));
+                this, delayedTaskQueue, command, null, ScheduledFutureTask.deadlineNanos(delayNanos)),
+                isCoarse(delayNanos));
     }
 
     @Override
@@ -704,8 +851,10 @@ public abstract class SingleThreadEventExecutor extends AbstractEventExecutor {
             throw new IllegalArgumentException(
                     String.format("delay: %d (expected: >= 0)", delay));
         }
+        long delayNanos = unit.toNanos(delay);
         return schedule(new ScheduledFutureTask<V>(
-                this, delayedTaskQueue, callable, ScheduledFutureTask.deadlineNanos(unit.toNanos(delay))));
+                this, delayedTaskQueue, callable, ScheduledFutureTask.deadlineNanos(delayNanos)),
+                isCoarse(delayNanos));
     }
 
     @Override
@@ -727,7 +876,7 @@ public abstract class SingleThreadEventExecutor extends AbstractEventExecutor {
 
         return schedule(new ScheduledFutureTask<Void>(
                 this, delayedTaskQueue, Executors.<Void>callable(command, null),
-                ScheduledFutureTask.deadlineNanos(unit.toNanos(initialDelay)), unit.toNanos(period)));
+                ScheduledFutureTask.deadlineNanos(unit.toNanos(initialDelay)), unit.toNanos(period)), false);
     }
 
     @Override
@@ -749,21 +898,28 @@ public abstract class SingleThreadEventExecutor extends AbstractEventExecutor {
 
         return schedule(new ScheduledFutureTask<Void>(
                 this, delayedTaskQueue, Executors.<Void>callable(command, null),
-                ScheduledFutureTask.deadlineNanos(unit.toNanos(initialDelay)), -unit.toNanos(delay)));
+                ScheduledFutureTask.deadlineNanos(unit.toNanos(initialDelay)), -unit.toNanos(delay)), false);
     }
 
-    private <V> ScheduledFuture<V> schedule(final ScheduledFutureTask<V> task) {
+    /**
+     * Returns {@code true} if a task with the specified delay should be kept in the timer wheel.
+     */
+    private boolean isCoarse(long delayNanos) {
+        return delayedTaskWheel != null && delayNanos >= delayedTaskWheel.tickNanos();
+    }
+
+    private <V> ScheduledFuture<V> schedule(final ScheduledFutureTask<V> task, final boolean coarse) {
         if (task == null) {
             throw new NullPointerException("task");
         }
 
         if (inEventLoop()) {
-            delayedTaskQueue.add(task);
+            addDelayedTask(task, coarse);
         } else {
             execute(new Runnable() {
                 @Override
                 public void run() {
-                    delayedTaskQueue.add(task);
+                    addDelayedTask(task, coarse);
                 }
             });
         }
@@ -771,6 +927,16 @@ public abstract class SingleThreadEventExecutor extends AbstractEventExecutor {
         return task;
     }
 
+    private void addDelayedTask(ScheduledFutureTask<?> task, boolean coarse) {
+        if (coarse) {
+            if (!task.isCancelled()) {
+                delayedTaskWheel.add(task);
+            }
+        } else {
+            delayedTaskQueue.add(task);
+        }
+    }
+
     private void startThread() {
         synchronized (stateLock) {
             if (state == ST_NOT_STARTED) {
@@ -819,6 +985,15 @@ public abstract class SingleThreadEventExecutor extends AbstractEventExecutor {
                                 break;
                             }
                         }
+
+                        // From now on execute() rejects new tasks and removes a task which it added concurrently,
+                        // so run the ones which were added before it noticed the shutdown.
+                        synchronized (stateLock) {
+                            if (state < ST_SHUTDOWN) {
+                                state = ST_SHUTDOWN;
+                            }
+                        }
+                        confirmShutdown();
                     } finally {
                         try {
                             cleanup();
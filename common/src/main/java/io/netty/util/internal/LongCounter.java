@@ -0,0 +1,32 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util.internal;
+
+/**
+ * Counter for long, which may be updated by many threads concurrently.  Use
+ * {@link PlatformDependent#newLongCounter()} to create the fastest implementation for the current platform.
+ */
+public interface LongCounter {
+    void add(long delta);
+    void increment();
+    void decrement();
+
+    /**
+     * Returns the current value.  The returned value is not an atomic snapshot if the counter is updated
+     * concurrently.
+     */
+    long value();
+}
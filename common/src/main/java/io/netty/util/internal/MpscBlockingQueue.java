@@ -0,0 +1,201 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util.internal;
+
+import java.util.AbstractQueue;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A {@link BlockingQueue} which adds blocking retrieval to an unbounded multiple-producer single-consumer
+ * {@link Queue}.  The consumer parks itself only when the queue is empty, and a producer unparks it only if it is
+ * parked, so that neither side takes a lock.
+ * <strong>It is only thread-safe as long as at most one thread at a time consumes from it.</strong>
+ */
+final class MpscBlockingQueue<E> extends AbstractQueue<E> implements BlockingQueue<E> {
+
+    private final Queue<E> queue;
+    // The consumer which is about to park or parked, or null.
+    private volatile Thread waiter;
+
+    MpscBlockingQueue(Queue<E> queue) {
+        if (queue == null) {
+            throw new NullPointerException("queue");
+        }
+        this.queue = queue;
+    }
+
+    @Override
+    public boolean offer(E e) {
+        if (!queue.offer(e)) {
+            return false;
+        }
+
+        // The element was published before waiter is read, and the consumer sets waiter before it checks the queue
+        // again, so either it sees the element or we see the consumer.
+        Thread waiter = this.waiter;
+        if (waiter != null) {
+            LockSupport.unpark(waiter);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends E> c) {
+        if (!queue.addAll(c)) {
+            return false;
+        }
+
+        // Unpark the consumer only once for all the elements.
+        Thread waiter = this.waiter;
+        if (waiter != null) {
+            LockSupport.unpark(waiter);
+        }
+        return true;
+    }
+
+    @Override
+    public void put(E e) {
+        offer(e);
+    }
+
+    @Override
+    public boolean offer(E e, long timeout, TimeUnit unit) {
+        return offer(e);
+    }
+
+    @Override
+    public E take() throws InterruptedException {
+        for (;;) {
+            E e = poll();
+            if (e != null) {
+                return e;
+            }
+
+            waiter = Thread.currentThread();
+            e = poll();
+            if (e != null) {
+                waiter = null;
+                return e;
+            }
+
+            LockSupport.park(this);
+            waiter = null;
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        }
+    }
+
+    @Override
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        E e = poll();
+        if (e != null) {
+            return e;
+        }
+
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (;;) {
+            long nanos = deadline - System.nanoTime();
+            if (nanos <= 0) {
+                return null;
+            }
+
+            waiter = Thread.currentThread();
+            e = poll();
+            if (e != null) {
+                waiter = null;
+                return e;
+            }
+
+            LockSupport.parkNanos(this, nanos);
+            waiter = null;
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+
+            e = poll();
+            if (e != null) {
+                return e;
+            }
+        }
+    }
+
+    @Override
+    public int remainingCapacity() {
+        return Integer.MAX_VALUE;
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c, int maxElements) {
+        if (c == null) {
+            throw new NullPointerException("c");
+        }
+        if (c == this) {
+            throw new IllegalArgumentException("c: " + c + " (expected: a collection other than this queue)");
+        }
+
+        int i = 0;
+        while (i < maxElements) {
+            E e = poll();
+            if (e == null) {
+                break;
+            }
+            c.add(e);
+            i ++;
+        }
+        return i;
+    }
+
+    @Override
+    public E poll() {
+        return queue.poll();
+    }
+
+    @Override
+    public E peek() {
+        return queue.peek();
+    }
+
+    @Override
+    public int size() {
+        return queue.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return queue.isEmpty();
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        return queue.remove(o);
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return queue.iterator();
+    }
+}
@@ -0,0 +1,390 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util.internal;
+
+import java.util.AbstractQueue;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * A lock-free concurrent {@link java.util.Queue} for the multiple-producer single-consumer pattern.
+ * <strong>It is only thread-safe as long as at most one thread at a time consumes from it.</strong>
+ * <p>
+ * The elements are stored in a linked list of fixed-size arrays (chunks).  A producer claims the next index with a
+ * single atomic increment and stores its element into the slot of that index, so that no node is allocated per
+ * element; a new chunk is only allocated once every {@code chunkSize} elements.  A consumer that finds a claimed
+ * slot which was not written yet spins until the producer completed its store.
+ * <p>
+ * {@link #addAll(Collection)} claims one range of indexes for all the elements, so that they are enqueued at once
+ * and never interleaved with the elements of other producers.
+ * <p>
+ * {@link #remove(Object)} may be called by any thread.  It replaces the element in its slot by a marker which the
+ * consumer skips.  The removed elements are counted separately, so that {@link #size()} and {@link #isEmpty()} do
+ * not count them even before the consumer passed their slots.
+ * {@link #iterator()} is not supported.
+ * <p>
+ * A consumed chunk is not reused but left to the garbage collector, so one chunk of garbage is produced every
+ * {@code chunkSize} elements.  A producer and {@link #remove(Object)} may still hold a reference to a chunk which
+ * the consumer passed already, and would not notice if it was linked again with other indexes.
+ */
+final class MpscChunkedArrayQueue<E> extends AbstractQueue<E> {
+
+    @SuppressWarnings("rawtypes")
+    private static final AtomicLongFieldUpdater<MpscChunkedArrayQueue> PRODUCER_INDEX_UPDATER;
+    @SuppressWarnings("rawtypes")
+    private static final AtomicLongFieldUpdater<MpscChunkedArrayQueue> CONSUMER_INDEX_UPDATER;
+    @SuppressWarnings("rawtypes")
+    private static final AtomicLongFieldUpdater<MpscChunkedArrayQueue> NUM_REMOVED_UPDATER;
+
+    // Stored into the slot of an element which was removed by remove(Object).
+    private static final Object REMOVED = new Object();
+
+    static {
+        @SuppressWarnings("rawtypes")
+        AtomicLongFieldUpdater<MpscChunkedArrayQueue> producerIndexUpdater =
+                PlatformDependent.newAtomicLongFieldUpdater(MpscChunkedArrayQueue.class, "producerIndex");
+        if (producerIndexUpdater == null) {
+            producerIndexUpdater = AtomicLongFieldUpdater.newUpdater(MpscChunkedArrayQueue.class, "producerIndex");
+        }
+        PRODUCER_INDEX_UPDATER = producerIndexUpdater;
+
+        @SuppressWarnings("rawtypes")
+        AtomicLongFieldUpdater<MpscChunkedArrayQueue> consumerIndexUpdater =
+                PlatformDependent.newAtomicLongFieldUpdater(MpscChunkedArrayQueue.class, "consumerIndex");
+        if (consumerIndexUpdater == null) {
+            consumerIndexUpdater = AtomicLongFieldUpdater.newUpdater(MpscChunkedArrayQueue.class, "consumerIndex");
+        }
+        CONSUMER_INDEX_UPDATER = consumerIndexUpdater;
+
+        @SuppressWarnings("rawtypes")
+        AtomicLongFieldUpdater<MpscChunkedArrayQueue> numRemovedUpdater =
+                PlatformDependent.newAtomicLongFieldUpdater(MpscChunkedArrayQueue.class, "numRemoved");
+        if (numRemovedUpdater == null) {
+            numRemovedUpdater = AtomicLongFieldUpdater.newUpdater(MpscChunkedArrayQueue.class, "numRemoved");
+        }
+        NUM_REMOVED_UPDATER = numRemovedUpdater;
+    }
+
+    private final int chunkMask;
+    private final long maxCapacity;
+
+    // Updated by PRODUCER_INDEX_UPDATER; the number of claimed slots.
+    @SuppressWarnings("UnusedDeclaration")
+    private volatile long producerIndex;
+    // Only a hint where producers start to look for the chunk of their slot. It never points past that chunk.
+    private volatile Chunk<E> producerChunk;
+
+    // Written by the consumer only, read by producers to check the capacity and by size().
+    private volatile long consumerIndex;
+    // Written by the consumer only, read by remove(Object) to find the first chunk which may hold elements.
+    private volatile Chunk<E> consumerChunk;
+
+    // Updated by NUM_REMOVED_UPDATER; the number of removed elements whose slots the consumer did not pass yet.
+    @SuppressWarnings("UnusedDeclaration")
+    private volatile long numRemoved;
+
+    /**
+     * Creates a new queue.
+     *
+     * @param chunkSize   the number of elements stored in a chunk, must be a power of two
+     * @param maxCapacity the maximal number of elements or {@link Integer#MAX_VALUE} if unbounded
+     */
+    MpscChunkedArrayQueue(int chunkSize, int maxCapacity) {
+        if (chunkSize <= 0 || (chunkSize & chunkSize - 1) != 0) {
+            throw new IllegalArgumentException("chunkSize: " + chunkSize + " (expected: a power of two)");
+        }
+        if (maxCapacity <= 0) {
+            throw new IllegalArgumentException("maxCapacity: " + maxCapacity + " (expected: > 0)");
+        }
+        chunkMask = chunkSize - 1;
+        this.maxCapacity = maxCapacity;
+
+        Chunk<E> chunk = new Chunk<E>(chunkSize, 0);
+        producerChunk = chunk;
+        consumerChunk = chunk;
+    }
+
+    @Override
+    public boolean offer(E e) {
+        if (e == null) {
+            throw new NullPointerException("e");
+        }
+
+        // Read the chunk before the index is claimed, so it can not be a chunk after the one of the claimed index.
+        Chunk<E> chunk = producerChunk;
+        long index;
+        if (maxCapacity == Integer.MAX_VALUE) {
+            index = PRODUCER_INDEX_UPDATER.getAndIncrement(this);
+        } else {
+            for (;;) {
+                index = producerIndex;
+                if (index - consumerIndex >= maxCapacity) {
+                    return false;
+                }
+                if (PRODUCER_INDEX_UPDATER.compareAndSet(this, index, index + 1)) {
+                    break;
+                }
+            }
+        }
+
+        long chunkIndex = index & ~chunkMask;
+        if (chunk.index != chunkIndex) {
+            chunk = producerChunk(chunk, chunkIndex);
+        }
+        chunk.lazySet((int) index & chunkMask, e);
+        return true;
+    }
+
+    /**
+     * Adds all the specified elements with a single atomic operation.
+     *
+     * @throws IllegalStateException if the queue is bounded and has no room for all the elements, in which case
+     *                               none of them was added
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean addAll(Collection<? extends E> c) {
+        if (c == null) {
+            throw new NullPointerException("c");
+        }
+        if (c == this) {
+            throw new IllegalArgumentException("c: " + c + " (expected: a collection other than this queue)");
+        }
+
+        Object[] elements = c.toArray();
+        int length = elements.length;
+        if (length == 0) {
+            return false;
+        }
+        for (Object e: elements) {
+            if (e == null) {
+                throw new NullPointerException("c contains null");
+            }
+        }
+
+        Chunk<E> chunk = producerChunk;
+        long index;
+        if (maxCapacity == Integer.MAX_VALUE) {
+            index = PRODUCER_INDEX_UPDATER.getAndAdd(this, length);
+        } else {
+            for (;;) {
+                index = producerIndex;
+                if (index + length - consumerIndex > maxCapacity) {
+                    throw new IllegalStateException("Queue full");
+                }
+                if (PRODUCER_INDEX_UPDATER.compareAndSet(this, index, index + length)) {
+                    break;
+                }
+            }
+        }
+
+        for (int i = 0; i < length; i ++, index ++) {
+            long chunkIndex = index & ~chunkMask;
+            if (chunk.index != chunkIndex) {
+                chunk = producerChunk(chunk, chunkIndex);
+            }
+            chunk.lazySet((int) index & chunkMask, (E) elements[i]);
+        }
+        return true;
+    }
+
+    private Chunk<E> producerChunk(Chunk<E> chunk, long chunkIndex) {
+        while (chunk.index != chunkIndex) {
+            Chunk<E> next = chunk.next;
+            if (next == null) {
+                next = new Chunk<E>(chunkMask + 1, chunk.index + chunkMask + 1);
+                if (!chunk.casNext(next)) {
+                    next = chunk.next;
+                }
+            }
+            chunk = next;
+        }
+
+        if (producerChunk.index < chunkIndex) {
+            producerChunk = chunk;
+        }
+        return chunk;
+    }
+
+    @Override
+    public E poll() {
+        for (;;) {
+            long index = consumerIndex;
+            Chunk<E> chunk = consumerChunk(index);
+            if (chunk == null) {
+                return null;
+            }
+
+            int offset = (int) index & chunkMask;
+            E e = chunk.get(offset);
+            if (e == null) {
+                if (index == producerIndex) {
+                    return null;
+                }
+                // The slot was claimed but the producer did not store the element yet.
+                do {
+                    e = chunk.get(offset);
+                } while (e == null);
+            }
+
+            // Clear the slot atomically, so the element can not be removed by remove(Object) once it was taken.
+            e = chunk.getAndSet(offset, null);
+            if (e != REMOVED) {
+                CONSUMER_INDEX_UPDATER.lazySet(this, index + 1);
+                return e;
+            }
+            skipRemoved(index);
+        }
+    }
+
+    @Override
+    public E peek() {
+        for (;;) {
+            long index = consumerIndex;
+            Chunk<E> chunk = consumerChunk(index);
+            if (chunk == null) {
+                return null;
+            }
+
+            int offset = (int) index & chunkMask;
+            E e = chunk.get(offset);
+            if (e == null) {
+                if (index == producerIndex) {
+                    return null;
+                }
+                do {
+                    e = chunk.get(offset);
+                } while (e == null);
+            }
+            if (e != REMOVED) {
+                return e;
+            }
+
+            // A removed element is never changed again, so it can be skipped right away.
+            chunk.lazySet(offset, null);
+            skipRemoved(index);
+        }
+    }
+
+    private void skipRemoved(long index) {
+        // Uncount the removed element before the consumer index passes its slot, so that size() may overestimate
+        // the number of elements for a moment but never underestimates it.
+        NUM_REMOVED_UPDATER.getAndDecrement(this);
+        CONSUMER_INDEX_UPDATER.lazySet(this, index + 1);
+    }
+
+    /**
+     * Returns the chunk which holds the slot of the specified consumer index, or {@code null} if the queue is empty
+     * and the chunk was not allocated yet.
+     */
+    private Chunk<E> consumerChunk(long index) {
+        Chunk<E> chunk = consumerChunk;
+        if (chunk.index + chunkMask < index) {
+            Chunk<E> next = chunk.next;
+            if (next == null) {
+                if (index == producerIndex) {
+                    return null;
+                }
+                // A producer claimed a slot of the next chunk but did not link the chunk yet.
+                do {
+                    next = chunk.next;
+                } while (next == null);
+            }
+            consumerChunk = chunk = next;
+        }
+        return chunk;
+    }
+
+    @Override
+    public int size() {
+        long size = size0();
+        return size > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size0() == 0;
+    }
+
+    private long size0() {
+        // Read the consumer index first, so the difference of the indexes can never be negative.  The number of
+        // removed elements may be decremented by the consumer before remove(Object) incremented it, so the result
+        // is clamped.
+        long consumerIndex = this.consumerIndex;
+        long numRemoved = this.numRemoved;
+        long size = producerIndex - consumerIndex - numRemoved;
+        return size < 0 ? 0 : size;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean remove(Object o) {
+        if (o == null) {
+            return false;
+        }
+
+        // Slots which were consumed already or not written yet are null, so all chunks from the one of the consumer
+        // on can be scanned as a whole.
+        for (Chunk<E> chunk = consumerChunk; chunk != null; chunk = chunk.next) {
+            for (int i = 0; i <= chunkMask; i ++) {
+                E e = chunk.get(i);
+                if (e != null && e != REMOVED && o.equals(e) && chunk.compareAndSet(i, e, (E) REMOVED)) {
+                    NUM_REMOVED_UPDATER.getAndIncrement(this);
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        throw new UnsupportedOperationException();
+    }
+
+    @SuppressWarnings("serial")
+    private static final class Chunk<E> extends AtomicReferenceArray<E> {
+
+        @SuppressWarnings("rawtypes")
+        private static final AtomicReferenceFieldUpdater<Chunk, Chunk> NEXT_UPDATER;
+
+        static {
+            @SuppressWarnings("rawtypes")
+            AtomicReferenceFieldUpdater<Chunk, Chunk> nextUpdater =
+                    PlatformDependent.newAtomicReferenceFieldUpdater(Chunk.class, "next");
+            if (nextUpdater == null) {
+                nextUpdater = AtomicReferenceFieldUpdater.newUpdater(Chunk.class, Chunk.class, "next");
+            }
+            NEXT_UPDATER = nextUpdater;
+        }
+
+        // The queue index stored in the first slot of this chunk.
+        final long index;
+        volatile Chunk<E> next;
+
+        Chunk(int size, long index) {
+            super(size);
+            this.index = index;
+        }
+
+        boolean casNext(Chunk<E> next) {
+            return NEXT_UPDATER.compareAndSet(this, null, next);
+        }
+    }
+}
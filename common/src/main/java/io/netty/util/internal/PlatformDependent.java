@@ -17,6 +17,7 @@ package io.netty.util.internal;
 
 import io.netty.util.CharsetUtil;
 import io.netty.util.internal.chmv8.ConcurrentHashMapV8;
+import io.netty.util.internal.chmv8.LongAdderV8;
 import io.netty.util.internal.logging.InternalLogger;
 import io.netty.util.internal.logging.InternalLoggerFactory;
 
@@ -35,9 +36,9 @@ import java.util.Map;
 import java.util.Queue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicLongFieldUpdater;
 import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 import java.util.regex.Matcher;
@@ -77,6 +78,8 @@ public final class PlatformDependent {
 
     private static final boolean HAS_JAVASSIST = hasJavassist0();
 
+    private static final int MPSC_CHUNK_SIZE = 1024;
+
     private static final File TMPDIR = tmpdir0();
 
     private static final int BIT_MODE = bitMode0();
@@ -246,6 +249,17 @@ public final class PlatformDependent {
         }
     }
 
+    /**
+     * Creates a new fastest {@link LongCounter} implementation for the current platform.
+     */
+    public static LongCounter newLongCounter() {
+        if (HAS_UNSAFE) {
+            return new LongAdderV8();
+        } else {
+            return new AtomicLongCounter();
+        }
+    }
+
     /**
      * Try to deallocate the specified direct {@link ByteBuffer}.  Please note this method does nothing if
      * the current platform does not support this operation or the specified buffer is not a direct buffer.
@@ -296,6 +310,13 @@ public final class PlatformDependent {
         return PlatformDependent0.getLong(address);
     }
 
+    /**
+     * Reads the 8 bytes starting at {@code index} of the specified array as a {@code long} in the native byte order.
+     */
+    public static long getLong(byte[] data, int index) {
+        return PlatformDependent0.getLong(data, ARRAY_BASE_OFFSET + index);
+    }
+
     public static void putOrderedObject(Object object, long address, Object value) {
         PlatformDependent0.putOrderedObject(object, address, value);
     }
@@ -383,12 +404,32 @@ public final class PlatformDependent {
      * Create a new {@link Queue} which is safe to use for multiple producers (different threads) and a single
      * consumer (one thread!).
      */
-    public static Queue<Runnable> newMpscQueue() {
-        if (hasUnsafe()) {
-            return new MpscLinkedQueue();
-        } else {
-            return new ConcurrentLinkedQueue<Runnable>();
+    public static <T> Queue<T> newMpscQueue() {
+        return new MpscChunkedArrayQueue<T>(MPSC_CHUNK_SIZE, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Create a new {@link Queue} which is safe to use for multiple producers (different threads) and a single
+     * consumer (one thread!) and holds at most {@code maxCapacity} elements.  {@link Queue#offer(Object)} returns
+     * {@code false} if the queue is full.
+     */
+    public static <T> Queue<T> newMpscQueue(int maxCapacity) {
+        if (maxCapacity <= 0) {
+            throw new IllegalArgumentException("maxCapacity: " + maxCapacity + " (expected: > 0)");
+        }
+        int chunkSize = MPSC_CHUNK_SIZE;
+        while (chunkSize >>> 1 >= maxCapacity) {
+            chunkSize >>>= 1;
         }
+        return new MpscChunkedArrayQueue<T>(chunkSize, maxCapacity);
+    }
+
+    /**
+     * Create a new unbounded {@link BlockingQueue} which is safe to use for multiple producers (different threads)
+     * and a single consumer (one thread!).
+     */
+    public static <T> BlockingQueue<T> newMpscBlockingQueue() {
+        return new MpscBlockingQueue<T>(PlatformDependent.<T>newMpscQueue());
     }
 
     private static boolean isAndroid0() {
@@ -806,4 +847,28 @@ public final class PlatformDependent {
     private PlatformDependent() {
         // only static method supported
     }
+
+    private static final class AtomicLongCounter extends AtomicLong implements LongCounter {
+        private static final long serialVersionUID = 4074772784610639305L;
+
+        @Override
+        public void add(long delta) {
+            addAndGet(delta);
+        }
+
+        @Override
+        public void increment() {
+            incrementAndGet();
+        }
+
+        @Override
+        public void decrement() {
+            decrementAndGet();
+        }
+
+        @Override
+        public long value() {
+            return get();
+        }
+    }
 }
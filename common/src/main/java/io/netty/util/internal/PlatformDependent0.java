@@ -255,6 +255,34 @@ final class PlatformDependent0 {
         }
     }
 
+    static byte getByte(byte[] data, long offset) {
+        return UNSAFE.getByte(data, offset);
+    }
+
+    static long getLong(byte[] data, long offset) {
+        if (UNALIGNED) {
+            return UNSAFE.getLong(data, offset);
+        } else if (BIG_ENDIAN) {
+            return (long) getByte(data, offset) << 56 |
+                  ((long) getByte(data, offset + 1) & 0xff) << 48 |
+                  ((long) getByte(data, offset + 2) & 0xff) << 40 |
+                  ((long) getByte(data, offset + 3) & 0xff) << 32 |
+                  ((long) getByte(data, offset + 4) & 0xff) << 24 |
+                  ((long) getByte(data, offset + 5) & 0xff) << 16 |
+                  ((long) getByte(data, offset + 6) & 0xff) <<  8 |
+                   (long) getByte(data, offset + 7) & 0xff;
+        } else {
+            return (long) getByte(data, offset + 7) << 56 |
+                  ((long) getByte(data, offset + 6) & 0xff) << 48 |
+                  ((long) getByte(data, offset + 5) & 0xff) << 40 |
+                  ((long) getByte(data, offset + 4) & 0xff) << 32 |
+                  ((long) getByte(data, offset + 3) & 0xff) << 24 |
+                  ((long) getByte(data, offset + 2) & 0xff) << 16 |
+                  ((long) getByte(data, offset + 1) & 0xff) <<  8 |
+                   (long) getByte(data, offset) & 0xff;
+        }
+    }
+
     static void putOrderedObject(Object object, long address, Object value) {
         UNSAFE.putOrderedObject(object, address, value);
     }
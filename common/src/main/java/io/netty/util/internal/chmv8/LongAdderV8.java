@@ -0,0 +1,30 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util.internal.chmv8;
+
+import io.netty.util.internal.LongCounter;
+
+/**
+ * {@link LongCounter} backed by a {@link LongAdder}.
+ */
+@SuppressWarnings("serial")
+public final class LongAdderV8 extends LongAdder implements LongCounter {
+
+    @Override
+    public long value() {
+        return longValue();
+    }
+}
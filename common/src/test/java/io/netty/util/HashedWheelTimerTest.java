@@ -17,8 +17,12 @@ package io.netty.util;
 
 import org.junit.Test;
 
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -123,4 +127,139 @@ public class HashedWheelTimerTest {
         Thread.sleep(3500);
         assertEquals(3, counter.get());
     }
+
+    @Test
+    public void testPendingTimeouts() throws InterruptedException {
+        final HashedWheelTimer timer = new HashedWheelTimer(10, TimeUnit.MILLISECONDS);
+        final CountDownLatch latch = new CountDownLatch(1);
+        TimerTask task = new TimerTask() {
+            @Override
+            public void run(Timeout timeout) throws Exception {
+                latch.countDown();
+            }
+        };
+
+        Timeout t1 = timer.newTimeout(task, 10, TimeUnit.MINUTES);
+        Timeout t2 = timer.newTimeout(task, 10, TimeUnit.MINUTES);
+        timer.newTimeout(task, 1, TimeUnit.MILLISECONDS);
+        assertEquals(3, timer.pendingTimeouts());
+
+        assertTrue(t1.cancel());
+        assertFalse(t1.cancel());
+        assertEquals(2, timer.pendingTimeouts());
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        // The worker thread decrements the count before it runs the task.
+        assertEquals(1, timer.pendingTimeouts());
+
+        assertEquals(1, timer.stop().size());
+        assertFalse(t2.isExpired());
+    }
+
+    @Test
+    public void testMaxPendingTimeouts() throws InterruptedException {
+        final HashedWheelTimer timer = new HashedWheelTimer(
+                Executors.defaultThreadFactory(), 10, TimeUnit.MILLISECONDS, 32, 2);
+        TimerTask task = new TimerTask() {
+            @Override
+            public void run(Timeout timeout) throws Exception {
+                // NOOP
+            }
+        };
+
+        Timeout t1 = timer.newTimeout(task, 10, TimeUnit.MINUTES);
+        timer.newTimeout(task, 10, TimeUnit.MINUTES);
+        try {
+            timer.newTimeout(task, 10, TimeUnit.MINUTES);
+            fail();
+        } catch (RejectedExecutionException e) {
+            // Expected
+        }
+        assertEquals(2, timer.pendingTimeouts());
+
+        // Cancelling makes room for another timeout.
+        assertTrue(t1.cancel());
+        timer.newTimeout(task, 10, TimeUnit.MINUTES);
+        assertEquals(2, timer.pendingTimeouts());
+        timer.stop();
+    }
+
+    @Test
+    public void testCancelledTimeoutsAreNotRun() throws InterruptedException {
+        final HashedWheelTimer timer = new HashedWheelTimer(10, TimeUnit.MILLISECONDS, 8);
+        final AtomicInteger counter = new AtomicInteger();
+        TimerTask task = new TimerTask() {
+            @Override
+            public void run(Timeout timeout) throws Exception {
+                counter.incrementAndGet();
+            }
+        };
+
+        for (int i = 0; i < 1000; i ++) {
+            Timeout timeout = timer.newTimeout(task, i % 50, TimeUnit.MILLISECONDS);
+            if (i % 2 == 0) {
+                assertTrue(timeout.cancel());
+            }
+        }
+
+        for (int i = 0; i < 100 && timer.pendingTimeouts() > 0; i ++) {
+            Thread.sleep(20);
+        }
+        assertEquals(0, timer.pendingTimeouts());
+        assertEquals(500, counter.get());
+        assertTrue(timer.stop().isEmpty());
+    }
+
+    @Test
+    public void testCancelledTimeoutIsExpired() {
+        final HashedWheelTimer timer = new HashedWheelTimer();
+        Timeout timeout = timer.newTimeout(new TimerTask() {
+            @Override
+            public void run(Timeout timeout) throws Exception {
+                fail("This should not have run");
+            }
+        }, 10, TimeUnit.MINUTES);
+        assertFalse(timeout.isExpired());
+        assertTrue(timeout.cancel());
+        assertTrue(timeout.isCancelled());
+        assertTrue(timeout.isExpired());
+        timer.stop();
+    }
+
+    @Test(timeout = 10000)
+    public void testNewTimeoutRacingStop() throws InterruptedException {
+        final TimerTask task = new TimerTask() {
+            @Override
+            public void run(Timeout timeout) throws Exception {
+                fail("This should not have run");
+            }
+        };
+        for (int i = 0; i < 20; i ++) {
+            final HashedWheelTimer timer = new HashedWheelTimer(1, TimeUnit.MILLISECONDS);
+            final Set<Timeout> scheduled = Collections.synchronizedSet(new HashSet<Timeout>());
+            final CountDownLatch started = new CountDownLatch(1);
+            Thread producer = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        for (;;) {
+                            scheduled.add(timer.newTimeout(task, 10, TimeUnit.MINUTES));
+                            started.countDown();
+                        }
+                    } catch (IllegalStateException e) {
+                        // Expected once the timer was stopped.
+                    }
+                }
+            };
+            producer.start();
+            started.await();
+
+            Set<Timeout> unprocessed = timer.stop();
+            producer.join();
+
+            // Every timeout which was handed out must be returned by stop() and no other one may be pending.
+            assertTrue(unprocessed.containsAll(scheduled));
+            assertEquals(scheduled.size(), timer.pendingTimeouts());
+        }
+    }
 }
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.util;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class RecyclerTest {
+
+    private static Recycler<HandledObject> newRecycler(int maxSharedCapacityPerThread) {
+        return newRecycler(256, maxSharedCapacityPerThread);
+    }
+
+    private static Recycler<HandledObject> newRecycler(int maxCapacityPerThread, int maxSharedCapacityPerThread) {
+        return new Recycler<HandledObject>(maxCapacityPerThread, maxSharedCapacityPerThread, 2) {
+            @Override
+            protected HandledObject newObject(Handle<HandledObject> handle) {
+                return new HandledObject(this, handle);
+            }
+        };
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testMultipleRecycle() {
+        Recycler<HandledObject> recycler = newRecycler(16384);
+        HandledObject object = recycler.get();
+        object.recycle();
+        object.recycle();
+    }
+
+    @Test
+    public void testRecycle() {
+        Recycler<HandledObject> recycler = newRecycler(16384);
+        HandledObject object = recycler.get();
+        object.recycle();
+        HandledObject object2 = recycler.get();
+        assertSame(object, object2);
+        object2.recycle();
+    }
+
+    @Test(timeout = 5000)
+    public void testRecycleAtDifferentThread() throws Exception {
+        Recycler<HandledObject> recycler = newRecycler(16384);
+        final HandledObject o = recycler.get();
+        final AtomicBoolean recycled = new AtomicBoolean();
+        Thread thread = new Thread() {
+            @Override
+            public void run() {
+                recycled.set(o.recycle());
+            }
+        };
+        thread.start();
+        thread.join();
+
+        assertTrue(recycled.get());
+        assertSame(o, recycler.get());
+    }
+
+    @Test(timeout = 5000)
+    public void testRecycleAtDifferentThreadBeyondSharedCapacity() throws Exception {
+        Recycler<HandledObject> recycler = newRecycler(0);
+        final HandledObject o = recycler.get();
+        final AtomicBoolean recycled = new AtomicBoolean(true);
+        Thread thread = new Thread() {
+            @Override
+            public void run() {
+                recycled.set(o.recycle());
+            }
+        };
+        thread.start();
+        thread.join();
+
+        assertFalse(recycled.get());
+        assertNotSame(o, recycler.get());
+    }
+
+    @Test(timeout = 5000)
+    public void testMultipleRecycleAtDifferentThread() throws Exception {
+        Recycler<HandledObject> recycler = newRecycler(16384);
+        final HandledObject o = recycler.get();
+        final AtomicReference<Throwable> cause = new AtomicReference<Throwable>();
+        Thread thread = new Thread() {
+            @Override
+            public void run() {
+                o.recycle();
+                try {
+                    o.recycle();
+                } catch (Throwable t) {
+                    cause.set(t);
+                }
+            }
+        };
+        thread.start();
+        thread.join();
+
+        assertTrue(cause.get() instanceof IllegalStateException);
+        assertSame(o, recycler.get());
+        assertNotSame(o, recycler.get());
+    }
+
+    @Test
+    public void testMaxCapacity() {
+        Recycler<HandledObject> recycler = newRecycler(300, 16384);
+        HandledObject[] objects = new HandledObject[400];
+        for (int i = 0; i < objects.length; i ++) {
+            objects[i] = recycler.get();
+        }
+
+        for (int i = 0; i < objects.length; i ++) {
+            assertEquals(i < 300, objects[i].recycle());
+        }
+
+        assertEquals(300, recycler.threadLocalCapacity());
+        assertEquals(300, recycler.threadLocalSize());
+    }
+
+    @Test
+    public void testZeroMaxCapacity() {
+        Recycler<HandledObject> recycler = newRecycler(0, 16384);
+        HandledObject object = recycler.get();
+        assertFalse(object.recycle());
+        assertNotSame(object, recycler.get());
+    }
+
+    static final class HandledObject {
+        private final Recycler<HandledObject> recycler;
+        private final Recycler.Handle<HandledObject> handle;
+
+        HandledObject(Recycler<HandledObject> recycler, Recycler.Handle<HandledObject> handle) {
+            this.recycler = recycler;
+            this.handle = handle;
+        }
+
+        boolean recycle() {
+            return recycler.recycle(this, handle);
+        }
+    }
+}
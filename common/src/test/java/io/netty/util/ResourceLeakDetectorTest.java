@@ -0,0 +1,128 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.util;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ResourceLeakDetectorTest {
+
+    private ResourceLeakDetector.Level oldLevel;
+
+    @Before
+    public void setUp() {
+        oldLevel = ResourceLeakDetector.getLevel();
+    }
+
+    @After
+    public void tearDown() {
+        ResourceLeakDetector.setLevel(oldLevel);
+    }
+
+    @Test
+    public void testCounters() throws Exception {
+        ResourceLeakDetector.setLevel(ResourceLeakDetector.Level.SIMPLE);
+        ResourceLeakDetector<Object> detector = new ResourceLeakDetector<Object>("Counters", 1, Long.MAX_VALUE);
+
+        ResourceLeak closed = detector.open(new Object());
+        assertNotNull(closed);
+        assertTrue(closed.close());
+        assertFalse(closed.close());
+
+        Object kept = new Object();
+        ResourceLeak active = detector.open(kept);
+        openLeak(detector);
+
+        assertEquals(3, detector.numTracked());
+        assertEquals(3, detector.numSampled());
+        assertEquals(2, detector.numActive());
+
+        // The leak is only detected once its referent is collected and another resource is sampled.
+        for (int i = 0; i < 100 && detector.numLeaked() == 0; i ++) {
+            System.gc();
+            Thread.sleep(10);
+            ResourceLeak leak = detector.open(new Object());
+            assertNotNull(leak);
+            leak.close();
+        }
+        assertEquals(1, detector.numLeaked());
+        assertEquals(1, detector.numActive());
+
+        assertTrue(active.close());
+        assertEquals(0, detector.numActive());
+        assertNotNull(kept);
+    }
+
+    private static void openLeak(ResourceLeakDetector<Object> detector) {
+        assertNotNull(detector.open(new Object()));
+    }
+
+    @Test
+    public void testSampling() {
+        ResourceLeakDetector.setLevel(ResourceLeakDetector.Level.SIMPLE);
+        ResourceLeakDetector<Object> detector = new ResourceLeakDetector<Object>("Sampling", 1000, Long.MAX_VALUE);
+        assertEquals(1000, detector.samplingInterval());
+
+        Object obj = new Object();
+        for (int i = 0; i < 100000; i ++) {
+            ResourceLeak leak = detector.open(obj);
+            if (leak != null) {
+                leak.close();
+            }
+        }
+        assertEquals(100000, detector.numTracked());
+        assertTrue(String.valueOf(detector.numSampled()), detector.numSampled() > 20);
+        assertTrue(String.valueOf(detector.numSampled()), detector.numSampled() < 500);
+
+        detector.setSamplingInterval(1);
+        assertNotNull(detector.open(obj));
+    }
+
+    @Test
+    public void testDisabled() {
+        ResourceLeakDetector.setLevel(ResourceLeakDetector.Level.DISABLED);
+        ResourceLeakDetector<Object> detector = new ResourceLeakDetector<Object>("Disabled", 1, Long.MAX_VALUE);
+        assertNull(detector.open(new Object()));
+        assertEquals(0, detector.numTracked());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidSamplingInterval() {
+        new ResourceLeakDetector<Object>("Invalid").setSamplingInterval(0);
+    }
+
+    @Test
+    public void testRecordsAreBounded() {
+        ResourceLeakDetector.setLevel(ResourceLeakDetector.Level.ADVANCED);
+        ResourceLeakDetector<Object> detector = new ResourceLeakDetector<Object>("Records", 1, Long.MAX_VALUE);
+        ResourceLeak leak = detector.open(new Object());
+        for (int i = 0; i < 1000; i ++) {
+            leak.record(i);
+        }
+        String records = leak.toString();
+        int count = 0;
+        for (int i = records.indexOf("Hint: "); i >= 0; i = records.indexOf("Hint: ", i + 1)) {
+            count ++;
+        }
+        assertTrue(records, count >= 1 && count <= 4);
+        assertTrue(records, records.contains("Recent access records: " + count));
+        leak.close();
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.util;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+public class ThreadDeathWatcherTest {
+
+    @Test(timeout = 10000)
+    public void testWatch() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(1);
+        final CountDownLatch run = new CountDownLatch(1);
+        final Thread t = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    latch.await();
+                } catch (InterruptedException ignore) {
+                    // Ignore
+                }
+            }
+        };
+        t.start();
+
+        ThreadDeathWatcher.watch(t, new Runnable() {
+            @Override
+            public void run() {
+                run.countDown();
+            }
+        });
+
+        // Let the thread die.
+        latch.countDown();
+        assertTrue(run.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test(timeout = 10000)
+    public void testUnwatch() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(1);
+        final AtomicBoolean run = new AtomicBoolean();
+        final Thread t = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    latch.await();
+                } catch (InterruptedException ignore) {
+                    // Ignore
+                }
+            }
+        };
+        t.start();
+
+        final Runnable task = new Runnable() {
+            @Override
+            public void run() {
+                run.set(true);
+            }
+        };
+        ThreadDeathWatcher.watch(t, task);
+        ThreadDeathWatcher.unwatch(t, task);
+
+        // Let the thread die and give the watcher enough time to notice.
+        latch.countDown();
+        t.join();
+        Thread.sleep(2000);
+
+        assertFalse(run.get());
+    }
+}
@@ -0,0 +1,248 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util.collection;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class IntObjectHashMapTest {
+
+    private static final class Value {
+        private final String name;
+
+        Value(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public int hashCode() {
+            return name.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Value && name.equals(((Value) obj).name);
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    private IntObjectHashMap<Value> map;
+
+    @Before
+    public void setup() {
+        map = new IntObjectHashMap<Value>();
+    }
+
+    @Test
+    public void putNewMappingShouldSucceed() {
+        Value v = new Value("v");
+        assertNull(map.put(1, v));
+        assertEquals(1, map.size());
+        assertTrue(map.containsKey(1));
+        assertTrue(map.containsValue(v));
+        assertEquals(v, map.get(1));
+    }
+
+    @Test
+    public void putShouldReplaceValue() {
+        Value v1 = new Value("v1");
+        assertNull(map.put(1, v1));
+
+        Value v2 = new Value("v2");
+        assertSame(v1, map.put(1, v2));
+        assertEquals(1, map.size());
+        assertSame(v2, map.get(1));
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void putNullValueShouldFail() {
+        map.put(1, null);
+    }
+
+    @Test
+    public void negativeAndZeroKeysShouldWork() {
+        Value v1 = new Value("v1");
+        Value v2 = new Value("v2");
+        Value v3 = new Value("v3");
+        map.put(0, v1);
+        map.put(-1, v2);
+        map.put(Integer.MIN_VALUE, v3);
+        assertSame(v1, map.get(0));
+        assertSame(v2, map.get(-1));
+        assertSame(v3, map.get(Integer.MIN_VALUE));
+        assertNull(map.get(1));
+    }
+
+    @Test
+    public void rehashShouldKeepAllMappings() {
+        for (int i = 0; i < 1000; i ++) {
+            map.put(i, new Value(Integer.toString(i)));
+        }
+        assertEquals(1000, map.size());
+        for (int i = 0; i < 1000; i ++) {
+            assertEquals(new Value(Integer.toString(i)), map.get(i));
+        }
+        assertNull(map.get(1000));
+    }
+
+    @Test
+    public void removeMissingValueShouldReturnNull() {
+        assertNull(map.remove(1));
+        assertEquals(0, map.size());
+    }
+
+    @Test
+    public void removeShouldKeepCollidingMappings() {
+        // Use a map that does not grow so all keys share a small table and so collide.
+        map = new IntObjectHashMap<Value>(64, 0.99f);
+        for (int i = 0; i < 63; i ++) {
+            map.put(i, new Value(Integer.toString(i)));
+        }
+        for (int i = 0; i < 63; i += 2) {
+            assertEquals(new Value(Integer.toString(i)), map.remove(i));
+        }
+        assertEquals(31, map.size());
+        for (int i = 0; i < 63; i ++) {
+            if (i % 2 == 0) {
+                assertNull(map.get(i));
+            } else {
+                assertEquals(new Value(Integer.toString(i)), map.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void randomOperationsShouldMatchHashMap() {
+        Map<Integer, Value> expected = new HashMap<Integer, Value>();
+        Random random = new Random(42);
+        for (int i = 0; i < 100000; i ++) {
+            int key = random.nextInt(512) - 256;
+            if (random.nextBoolean()) {
+                Value value = new Value(Integer.toString(i));
+                assertEquals(expected.put(key, value), map.put(key, value));
+            } else {
+                assertEquals(expected.remove(key), map.remove(key));
+            }
+            assertEquals(expected.size(), map.size());
+        }
+        for (int key = -256; key < 256; key ++) {
+            assertEquals(expected.get(key), map.get(key));
+            assertEquals(expected.containsKey(key), map.containsKey(key));
+        }
+    }
+
+    @Test
+    public void clearShouldRemoveAllMappings() {
+        map.put(1, new Value("v1"));
+        map.put(2, new Value("v2"));
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertNull(map.get(1));
+        assertNull(map.get(2));
+    }
+
+    @Test
+    public void putAllShouldCopyAllMappings() {
+        IntObjectHashMap<Value> other = new IntObjectHashMap<Value>();
+        for (int i = 0; i < 100; i ++) {
+            other.put(i, new Value(Integer.toString(i)));
+        }
+        map.put(0, new Value("replaced"));
+        map.putAll(other);
+        assertEquals(other, map);
+        assertEquals(other.hashCode(), map.hashCode());
+    }
+
+    @Test
+    public void keysAndValuesShouldReturnAllMappings() {
+        Value v1 = new Value("v1");
+        Value v2 = new Value("v2");
+        map.put(1, v1);
+        map.put(2, v2);
+
+        int[] keys = map.keys();
+        Arrays.sort(keys);
+        assertArrayEquals(new int[] { 1, 2 }, keys);
+
+        Set<Value> values = new HashSet<Value>(Arrays.asList(map.values(Value.class)));
+        assertEquals(new HashSet<Value>(Arrays.asList(v1, v2)), values);
+    }
+
+    @Test
+    public void iteratorShouldVisitAllEntries() {
+        Map<Integer, Value> expected = new HashMap<Integer, Value>();
+        for (int i = 0; i < 100; i ++) {
+            Value value = new Value(Integer.toString(i));
+            expected.put(i, value);
+            map.put(i, value);
+        }
+
+        Map<Integer, Value> found = new HashMap<Integer, Value>();
+        for (IntObjectMap.Entry<Value> entry: map.entries()) {
+            assertNull(found.put(entry.key(), entry.value()));
+        }
+        assertEquals(expected, found);
+    }
+
+    @Test
+    public void iteratorSetValueShouldReplaceValue() {
+        map.put(1, new Value("v1"));
+        Value v2 = new Value("v2");
+        for (IntObjectMap.Entry<Value> entry: map.entries()) {
+            entry.setValue(v2);
+        }
+        assertSame(v2, map.get(1));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void iteratorRemoveShouldFail() {
+        map.put(1, new Value("v1"));
+        Iterator<IntObjectMap.Entry<Value>> i = map.iterator();
+        i.next();
+        i.remove();
+    }
+
+    @Test
+    public void toStringShouldListEntries() {
+        assertEquals("{}", map.toString());
+        map.put(1, new Value("v1"));
+        assertEquals("{1=v1}", map.toString());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void zeroCapacityShouldFail() {
+        new IntObjectHashMap<Value>(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void fullLoadFactorShouldFail() {
+        new IntObjectHashMap<Value>(8, 1.0f);
+    }
+}
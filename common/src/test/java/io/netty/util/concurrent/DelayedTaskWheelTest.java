@@ -0,0 +1,141 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util.concurrent;
+
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.*;
+
+public class DelayedTaskWheelTest {
+
+    private static final long TICK = 100;
+
+    private static ScheduledFutureTask<Void> newTask(long deadlineNanos) {
+        return new ScheduledFutureTask<Void>(
+                ImmediateEventExecutor.INSTANCE, null, Executors.<Void>callable(new Runnable() {
+                    @Override
+                    public void run() {
+                        // NOOP
+                    }
+                }, null), deadlineNanos);
+    }
+
+    @Test
+    public void testExpireNotBeforeDeadline() {
+        DelayedTaskWheel wheel = new DelayedTaskWheel(TICK, 8, 0);
+        ScheduledFutureTask<Void> a = newTask(150);
+        ScheduledFutureTask<Void> b = newTask(200);
+        ScheduledFutureTask<Void> c = newTask(250);
+        wheel.add(a);
+        wheel.add(b);
+        wheel.add(c);
+        assertEquals(3, wheel.size());
+        assertEquals(TICK, wheel.nextTickNanos());
+
+        Queue<Runnable> expired = new ArrayDeque<Runnable>();
+        wheel.expire(199, expired);
+        assertTrue(expired.isEmpty());
+
+        wheel.expire(200, expired);
+        assertEquals(2, expired.size());
+        assertTrue(expired.contains(a));
+        assertTrue(expired.contains(b));
+        assertEquals(1, wheel.size());
+        assertEquals(300, wheel.nextTickNanos());
+
+        expired.clear();
+        wheel.expire(299, expired);
+        assertTrue(expired.isEmpty());
+        wheel.expire(300, expired);
+        assertSame(c, expired.poll());
+        assertTrue(wheel.isEmpty());
+    }
+
+    @Test
+    public void testMultipleRounds() {
+        DelayedTaskWheel wheel = new DelayedTaskWheel(TICK, 4, 0);
+        ScheduledFutureTask<Void> near = newTask(100);
+        // Same bucket as near, one and two rounds later.
+        ScheduledFutureTask<Void> far = newTask(500);
+        ScheduledFutureTask<Void> farther = newTask(900);
+        wheel.add(farther);
+        wheel.add(far);
+        wheel.add(near);
+
+        Queue<Runnable> expired = new ArrayDeque<Runnable>();
+        wheel.expire(100, expired);
+        assertSame(near, expired.poll());
+        assertNull(expired.poll());
+
+        // Advancing by more than a round must still visit every bucket.
+        wheel.expire(10000, expired);
+        assertEquals(2, expired.size());
+        assertTrue(wheel.isEmpty());
+    }
+
+    @Test
+    public void testPastDeadline() {
+        DelayedTaskWheel wheel = new DelayedTaskWheel(TICK, 8, 1000);
+        ScheduledFutureTask<Void> task = newTask(500);
+        wheel.add(task);
+
+        Queue<Runnable> expired = new ArrayDeque<Runnable>();
+        wheel.expire(1050, expired);
+        assertTrue(expired.isEmpty());
+        wheel.expire(1100, expired);
+        assertSame(task, expired.poll());
+    }
+
+    @Test
+    public void testCancelRemovesImmediately() {
+        DelayedTaskWheel wheel = new DelayedTaskWheel(TICK, 8, 0);
+        ScheduledFutureTask<Void> a = newTask(100);
+        ScheduledFutureTask<Void> b = newTask(100);
+        ScheduledFutureTask<Void> c = newTask(100);
+        wheel.add(a);
+        wheel.add(b);
+        wheel.add(c);
+
+        assertTrue(b.cancel(false));
+        assertEquals(2, wheel.size());
+        assertNull(b.wheel);
+        assertTrue(c.cancel(false));
+        assertEquals(1, wheel.size());
+
+        Queue<Runnable> expired = new ArrayDeque<Runnable>();
+        wheel.expire(100, expired);
+        assertSame(a, expired.poll());
+        assertNull(expired.poll());
+
+        // Cancelling an expired task must not touch the wheel.
+        assertTrue(a.cancel(false));
+        assertTrue(wheel.isEmpty());
+    }
+
+    @Test
+    public void testClear() {
+        DelayedTaskWheel wheel = new DelayedTaskWheel(TICK, 8, 0);
+        for (int i = 0; i < 20; i ++) {
+            wheel.add(newTask(i * 70));
+        }
+        assertEquals(20, wheel.clear().length);
+        assertTrue(wheel.isEmpty());
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util.concurrent;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class SingleThreadEventExecutorTest {
+
+    private static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private static final Runnable NOOP = new Runnable() {
+        @Override
+        public void run() {
+            // NOOP
+        }
+    };
+
+    @Test(timeout = 60000)
+    public void testSubmitDuringShutdown() throws Exception {
+        for (int i = 0; i < 1000; i ++) {
+            final EventExecutor executor = new DefaultEventExecutor();
+            final List<Future<?>> futures = new ArrayList<Future<?>>();
+            Thread submitter = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        // The executor keeps running tasks as long as new ones arrive, so stop at some point.
+                        for (int i = 0; i < 10000; i ++) {
+                            futures.add(executor.submit(NOOP));
+                        }
+                    } catch (RejectedExecutionException e) {
+                        // Expected once the executor was shut down.
+                    }
+                }
+            };
+            submitter.start();
+
+            assertTrue(executor.shutdownGracefully(0, 0, TimeUnit.SECONDS).await(10, TimeUnit.SECONDS));
+            submitter.join();
+
+            // A task which was not rejected must have been run before the executor terminated.
+            for (Future<?> future: futures) {
+                assertTrue(future.isSuccess());
+            }
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testScheduleUsesTimerWheel() throws Exception {
+        final TimerWheelExecutor executor = new TimerWheelExecutor();
+        try {
+            long start = System.nanoTime();
+            ScheduledFuture<?> coarse = executor.schedule(NOOP, 50, TimeUnit.MILLISECONDS);
+            // Less than one tick, so it is kept in the delayed task queue.
+            ScheduledFuture<?> fine = executor.schedule(NOOP, 5, TimeUnit.MILLISECONDS);
+            ScheduledFuture<?> periodic = executor.scheduleAtFixedRate(NOOP, 50, 50, TimeUnit.MILLISECONDS);
+            assertEquals(1, executor.wheelSize());
+
+            fine.sync();
+            coarse.sync();
+            assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+            assertEquals(0, executor.wheelSize());
+            assertTrue(periodic.cancel(false));
+        } finally {
+            executor.shutdownGracefully(0, 0, TimeUnit.SECONDS).sync();
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testCancelInEventLoopUnlinksWheelTask() throws Exception {
+        final TimerWheelExecutor executor = new TimerWheelExecutor();
+        try {
+            int size = executor.submit(new Callable<Integer>() {
+                @Override
+                public Integer call() {
+                    ScheduledFuture<?> future = executor.schedule(NOOP, 10, TimeUnit.SECONDS);
+                    assertEquals(1, executor.wheel.size());
+                    assertTrue(future.cancel(false));
+                    return executor.wheel.size();
+                }
+            }).get();
+            assertEquals(0, size);
+        } finally {
+            executor.shutdownGracefully(0, 0, TimeUnit.SECONDS).sync();
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testWakeUpForNextTick() throws Exception {
+        final TimerWheelExecutor executor = new TimerWheelExecutor();
+        try {
+            // Let the executor thread block in takeTask() first.
+            executor.submit(NOOP).sync();
+            Thread.sleep(100);
+
+            long start = System.nanoTime();
+            executor.schedule(NOOP, 50, TimeUnit.MILLISECONDS).sync();
+            // Without waking up for the next tick the task would only run with the next purge, one second later.
+            assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(500));
+        } finally {
+            executor.shutdownGracefully(0, 0, TimeUnit.SECONDS).sync();
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testShutdownCancelsWheelTasks() throws Exception {
+        final TimerWheelExecutor executor = new TimerWheelExecutor();
+        ScheduledFuture<?> future = executor.schedule(NOOP, 10, TimeUnit.SECONDS);
+        assertEquals(1, executor.wheelSize());
+
+        executor.shutdownGracefully(0, 0, TimeUnit.SECONDS).sync();
+        assertTrue(future.isCancelled());
+    }
+
+    private static final class TimerWheelExecutor extends SingleThreadEventExecutor {
+
+        final DelayedTaskWheel wheel;
+
+        TimerWheelExecutor() {
+            this(new DelayedTaskWheel(TICK_NANOS, 64, ScheduledFutureTask.nanoTime()));
+        }
+
+        private TimerWheelExecutor(DelayedTaskWheel wheel) {
+            super(null, new ThreadPerTaskExecutor(new DefaultThreadFactory(TimerWheelExecutor.class)), true, wheel);
+            this.wheel = wheel;
+        }
+
+        /**
+         * Returns the number of tasks in the wheel, after all the tasks submitted before were run.
+         */
+        int wheelSize() throws Exception {
+            return submit(new Callable<Integer>() {
+                @Override
+                public Integer call() {
+                    return wheel.size();
+                }
+            }).get();
+        }
+
+        @Override
+        protected void run() {
+            for (;;) {
+                Runnable task = takeTask();
+                if (task != null) {
+                    task.run();
+                    updateLastExecutionTime();
+                }
+
+                if (confirmShutdown()) {
+                    break;
+                }
+            }
+        }
+    }
+}
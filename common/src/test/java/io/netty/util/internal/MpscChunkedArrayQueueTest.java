@@ -0,0 +1,350 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util.internal;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class MpscChunkedArrayQueueTest {
+
+    @Test
+    public void testOrderAcrossChunks() {
+        Queue<Integer> queue = new MpscChunkedArrayQueue<Integer>(4, Integer.MAX_VALUE);
+        assertTrue(queue.isEmpty());
+        assertNull(queue.poll());
+        assertNull(queue.peek());
+
+        int next = 0;
+        for (int round = 0; round < 10; round ++) {
+            for (int i = 0; i < round; i ++) {
+                assertTrue(queue.offer(next + i));
+            }
+            assertEquals(round, queue.size());
+            for (int i = 0; i < round; i ++) {
+                assertEquals(Integer.valueOf(next), queue.peek());
+                assertEquals(Integer.valueOf(next ++), queue.poll());
+            }
+            assertTrue(queue.isEmpty());
+            assertNull(queue.poll());
+        }
+    }
+
+    @Test
+    public void testRemove() {
+        Queue<Integer> queue = new MpscChunkedArrayQueue<Integer>(4, Integer.MAX_VALUE);
+        for (int i = 0; i < 10; i ++) {
+            assertTrue(queue.offer(i));
+        }
+        assertEquals(Integer.valueOf(0), queue.poll());
+        assertFalse(queue.remove(0));
+        assertFalse(queue.remove(10));
+
+        // The head, elements in the middle of other chunks and the tail.
+        assertTrue(queue.remove(1));
+        assertTrue(queue.remove(5));
+        assertTrue(queue.remove(6));
+        assertTrue(queue.remove(9));
+        assertFalse(queue.remove(5));
+
+        assertEquals(Integer.valueOf(2), queue.peek());
+        assertEquals(Integer.valueOf(2), queue.poll());
+        assertEquals(Integer.valueOf(3), queue.poll());
+        assertEquals(Integer.valueOf(4), queue.poll());
+        assertEquals(Integer.valueOf(7), queue.peek());
+        assertEquals(Integer.valueOf(7), queue.poll());
+        assertEquals(Integer.valueOf(8), queue.poll());
+        assertNull(queue.peek());
+        assertNull(queue.poll());
+        assertTrue(queue.isEmpty());
+
+        // The removed slots must not hide elements which are added later.
+        assertTrue(queue.offer(11));
+        assertTrue(queue.remove(11));
+        assertTrue(queue.offer(12));
+        assertEquals(Integer.valueOf(12), queue.poll());
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void testSizeDoesNotCountRemoved() {
+        Queue<Integer> queue = new MpscChunkedArrayQueue<Integer>(4, Integer.MAX_VALUE);
+        for (int i = 0; i < 6; i ++) {
+            assertTrue(queue.offer(i));
+        }
+        assertTrue(queue.remove(0));
+        assertTrue(queue.remove(4));
+        assertEquals(4, queue.size());
+
+        assertTrue(queue.remove(1));
+        assertTrue(queue.remove(2));
+        assertTrue(queue.remove(3));
+        assertTrue(queue.remove(5));
+        // Only removed slots are left, which the consumer did not pass yet.
+        assertEquals(0, queue.size());
+        assertTrue(queue.isEmpty());
+
+        assertTrue(queue.offer(6));
+        assertEquals(1, queue.size());
+        assertFalse(queue.isEmpty());
+        assertEquals(Integer.valueOf(6), queue.poll());
+        assertEquals(0, queue.size());
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test(timeout = 30000)
+    public void testConcurrentRemove() throws Exception {
+        final Queue<Integer> queue = new MpscChunkedArrayQueue<Integer>(16, Integer.MAX_VALUE);
+        final int count = 100000;
+        final int[] removed = new int[1];
+        Thread producer = new Thread() {
+            @Override
+            public void run() {
+                for (int i = 0; i < count; i ++) {
+                    Integer e = i;
+                    queue.add(e);
+                    if (i % 3 == 0 && queue.remove(e)) {
+                        removed[0] ++;
+                    }
+                }
+            }
+        };
+        producer.start();
+
+        // Every element must be either removed or polled, but never both.
+        int polled = 0;
+        int last = -1;
+        while (producer.isAlive() || !queue.isEmpty()) {
+            Integer e = queue.poll();
+            if (e != null) {
+                assertTrue(e > last);
+                last = e;
+                polled ++;
+            }
+        }
+        producer.join();
+        assertEquals(count, polled + removed[0]);
+        assertEquals(0, queue.size());
+    }
+
+    @Test
+    public void testMaxCapacity() {
+        Queue<Integer> queue = PlatformDependent.newMpscQueue(3);
+        for (int round = 0; round < 5; round ++) {
+            assertTrue(queue.offer(1));
+            assertTrue(queue.offer(2));
+            assertTrue(queue.offer(3));
+            assertFalse(queue.offer(4));
+            assertEquals(3, queue.size());
+
+            assertEquals(Integer.valueOf(1), queue.poll());
+            assertTrue(queue.offer(4));
+            assertEquals(Integer.valueOf(2), queue.poll());
+            assertEquals(Integer.valueOf(3), queue.poll());
+            assertEquals(Integer.valueOf(4), queue.poll());
+            assertNull(queue.poll());
+        }
+    }
+
+    @Test
+    public void testAddAllAcrossChunks() {
+        Queue<Integer> queue = new MpscChunkedArrayQueue<Integer>(4, Integer.MAX_VALUE);
+        assertTrue(queue.offer(0));
+        assertFalse(queue.addAll(new ArrayList<Integer>()));
+
+        List<Integer> batch = new ArrayList<Integer>();
+        for (int i = 1; i <= 10; i ++) {
+            batch.add(i);
+        }
+        assertTrue(queue.addAll(batch));
+        assertEquals(11, queue.size());
+        for (int i = 0; i <= 10; i ++) {
+            assertEquals(Integer.valueOf(i), queue.poll());
+        }
+        assertNull(queue.poll());
+    }
+
+    @Test
+    public void testAddAllMaxCapacity() {
+        Queue<Integer> queue = PlatformDependent.newMpscQueue(3);
+        assertTrue(queue.offer(1));
+        List<Integer> batch = new ArrayList<Integer>();
+        batch.add(2);
+        batch.add(3);
+        batch.add(4);
+        try {
+            queue.addAll(batch);
+            fail();
+        } catch (IllegalStateException e) {
+            // Expected
+        }
+        // None of the elements must have been added.
+        assertEquals(1, queue.size());
+
+        batch.remove(2);
+        assertTrue(queue.addAll(batch));
+        assertEquals(Integer.valueOf(1), queue.poll());
+        assertEquals(Integer.valueOf(2), queue.poll());
+        assertEquals(Integer.valueOf(3), queue.poll());
+        assertNull(queue.poll());
+    }
+
+    @Test(timeout = 30000)
+    public void testConcurrentAddAllIsContiguous() throws Exception {
+        final int producers = 4;
+        final int batches = 10000;
+        final int batchSize = 7;
+        final Queue<long[]> queue = new MpscChunkedArrayQueue<long[]>(16, Integer.MAX_VALUE);
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int p = 0; p < producers; p ++) {
+            final int producer = p;
+            Thread t = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    List<long[]> batch = new ArrayList<long[]>(batchSize);
+                    for (int i = 0; i < batches * batchSize; i ++) {
+                        batch.add(new long[] { producer, i });
+                        if (batch.size() == batchSize) {
+                            queue.addAll(batch);
+                            batch.clear();
+                        }
+                    }
+                }
+            };
+            t.start();
+            threads.add(t);
+        }
+
+        start.countDown();
+        long[] expected = new long[producers];
+        int lastProducer = -1;
+        for (int received = 0; received < producers * batches * batchSize;) {
+            long[] e = queue.poll();
+            if (e == null) {
+                continue;
+            }
+            int producer = (int) e[0];
+            if (received % batchSize != 0) {
+                // The elements of a batch are never interleaved with the elements of another producer.
+                assertEquals(lastProducer, producer);
+            }
+            assertEquals(expected[producer] ++, e[1]);
+            lastProducer = producer;
+            received ++;
+        }
+        for (Thread t: threads) {
+            t.join();
+        }
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testOfferNull() {
+        PlatformDependent.newMpscQueue().offer(null);
+    }
+
+    @Test(timeout = 30000)
+    public void testConcurrentProducers() throws Exception {
+        final int producers = 4;
+        final int elements = 100000;
+        final Queue<long[]> queue = new MpscChunkedArrayQueue<long[]>(16, Integer.MAX_VALUE);
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int p = 0; p < producers; p ++) {
+            final int producer = p;
+            Thread t = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 0; i < elements; i ++) {
+                        queue.offer(new long[] { producer, i });
+                    }
+                }
+            };
+            t.start();
+            threads.add(t);
+        }
+
+        start.countDown();
+        long[] expected = new long[producers];
+        for (int received = 0; received < producers * elements;) {
+            long[] e = queue.poll();
+            if (e == null) {
+                continue;
+            }
+            // Elements of a single producer are received in the order they were offered.
+            assertEquals(expected[(int) e[0]] ++, e[1]);
+            received ++;
+        }
+        for (Thread t: threads) {
+            t.join();
+        }
+        assertTrue(queue.isEmpty());
+        assertNull(queue.poll());
+    }
+
+    @Test(timeout = 10000)
+    public void testBlockingTake() throws Exception {
+        final BlockingQueue<Integer> queue = PlatformDependent.newMpscBlockingQueue();
+        assertNull(queue.poll(10, TimeUnit.MILLISECONDS));
+
+        Thread producer = new Thread() {
+            @Override
+            public void run() {
+                for (int i = 0; i < 1000; i ++) {
+                    queue.offer(i);
+                    if (i % 100 == 0) {
+                        try {
+                            Thread.sleep(1);
+                        } catch (InterruptedException e) {
+                            return;
+                        }
+                    }
+                }
+            }
+        };
+        producer.start();
+
+        for (int i = 0; i < 1000; i ++) {
+            Integer e = i % 2 == 0 ? queue.take() : queue.poll(1, TimeUnit.SECONDS);
+            assertEquals(Integer.valueOf(i), e);
+        }
+        producer.join();
+    }
+
+    @Test(timeout = 10000, expected = InterruptedException.class)
+    public void testTakeInterrupted() throws Exception {
+        Thread.currentThread().interrupt();
+        PlatformDependent.newMpscBlockingQueue().take();
+    }
+}
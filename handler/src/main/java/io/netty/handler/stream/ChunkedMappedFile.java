@@ -0,0 +1,118 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.stream;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.FileRegion;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+
+/**
+ * A {@link ChunkedInput} that fetches data from a file chunk by chunk by mapping it into memory.  Each chunk is a
+ * read-only slice of the mapped file, so no data is copied into a buffer of its own, while the chunks can still pass
+ * through handlers such as {@code SslHandler} or a compression codec, which a {@link FileRegion} can not.
+ * <p>
+ * The file is unmapped once {@link #close()} was called and all chunks were released.
+ *
+ * @see Unpooled#mappedBuffer(FileChannel, long, int)
+ */
+public class ChunkedMappedFile implements ChunkedInput<ByteBuf> {
+
+    private final ByteBuf buffer;
+    private final int chunkSize;
+    private boolean closed;
+
+    /**
+     * Creates a new instance that fetches data from the specified file.
+     */
+    public ChunkedMappedFile(File in) throws IOException {
+        this(in, ChunkedStream.DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Creates a new instance that fetches data from the specified file.
+     *
+     * @param chunkSize the number of bytes to fetch on each
+     *                  {@link #readChunk(ChannelHandlerContext)} call
+     */
+    public ChunkedMappedFile(File in, int chunkSize) throws IOException {
+        this(Unpooled.mappedBuffer(in), chunkSize);
+    }
+
+    /**
+     * Creates a new instance that fetches data from the specified file.
+     *
+     * @param offset the offset of the file where the transfer begins
+     * @param length the number of bytes to transfer
+     * @param chunkSize the number of bytes to fetch on each
+     *                  {@link #readChunk(ChannelHandlerContext)} call
+     */
+    public ChunkedMappedFile(FileChannel in, long offset, int length, int chunkSize) throws IOException {
+        this(Unpooled.mappedBuffer(in, offset, length), chunkSize);
+    }
+
+    /**
+     * Creates a new instance that fetches the readable bytes of the specified buffer, usually one created by
+     * {@link Unpooled#mappedBuffer(File)}.  The new instance takes over one reference to the buffer, which is released
+     * by {@link #close()}.  To send a file which is kept mapped several times, pass
+     * {@code mapped.duplicate().retain()}.
+     *
+     * @param chunkSize the number of bytes to fetch on each
+     *                  {@link #readChunk(ChannelHandlerContext)} call
+     */
+    public ChunkedMappedFile(ByteBuf buffer, int chunkSize) {
+        if (buffer == null) {
+            throw new NullPointerException("buffer");
+        }
+        if (chunkSize <= 0) {
+            buffer.release();
+            throw new IllegalArgumentException(
+                    "chunkSize: " + chunkSize +
+                    " (expected: a positive integer)");
+        }
+
+        this.buffer = buffer;
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public boolean isEndOfInput() throws Exception {
+        return closed || !buffer.isReadable();
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (!closed) {
+            closed = true;
+            buffer.release();
+        }
+    }
+
+    @Override
+    public ByteBuf readChunk(ChannelHandlerContext ctx) throws Exception {
+        if (isEndOfInput()) {
+            return null;
+        }
+
+        // The chunk shares the reference count of the mapping, so that it stays mapped until the chunk is written.
+        int chunkSize = Math.min(this.chunkSize, buffer.readableBytes());
+        return buffer.readSlice(chunkSize).retain();
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.buffer;
+
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import org.openjdk.jmh.annotations.GenerateMicroBenchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * This class benchmarks concurrent allocations from a single {@link PoolArena} with the thread caches disabled, so
+ * that every allocation and release goes through the locks of the arena.
+ */
+@Threads(8)
+public class PoolArenaContentionBenchmark extends AbstractMicrobenchmark {
+
+    @State(Scope.Benchmark)
+    public static class SharedAllocator {
+        final PooledByteBufAllocator heapAllocator = new PooledByteBufAllocator(false, 1, 0, 8192, 11, 0, 0, 0);
+        final PooledByteBufAllocator directAllocator = new PooledByteBufAllocator(true, 0, 1, 8192, 11, 0, 0, 0);
+    }
+
+    @Param({ "00016", "00256", "01024", "04096", "16384" })
+    public int size;
+
+    @GenerateMicroBenchmark
+    public void pooledHeapAllocAndFree(SharedAllocator shared) {
+        ByteBuf buffer = shared.heapAllocator.heapBuffer(size);
+        buffer.release();
+    }
+
+    @GenerateMicroBenchmark
+    public void pooledDirectAllocAndFree(SharedAllocator shared) {
+        ByteBuf buffer = shared.directAllocator.directBuffer(size);
+        buffer.release();
+    }
+}
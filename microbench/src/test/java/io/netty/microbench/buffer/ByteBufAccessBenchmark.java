@@ -0,0 +1,109 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.microbench.buffer;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import org.openjdk.jmh.annotations.GenerateMicroBenchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * This class benchmarks the absolute get and set methods of the primitives on the different buffer implementations.
+ * When {@code sun.misc.Unsafe} is available, the direct buffers are {@code UnpooledUnsafeDirectByteBuf} and
+ * {@code PooledUnsafeDirectByteBuf}.
+ */
+public class ByteBufAccessBenchmark extends AbstractMicrobenchmark {
+
+    private static final int SIZE = 1024;
+
+    @Param({ "unpooledHeap", "unpooledDirect", "pooledHeap", "pooledDirect" })
+    public String bufferType;
+
+    private ByteBuf buffer;
+    private int index;
+
+    @Setup
+    public void setup() {
+        if ("unpooledHeap".equals(bufferType)) {
+            buffer = new UnpooledByteBufAllocator(false).heapBuffer(SIZE);
+        } else if ("unpooledDirect".equals(bufferType)) {
+            buffer = new UnpooledByteBufAllocator(true).directBuffer(SIZE);
+        } else if ("pooledHeap".equals(bufferType)) {
+            buffer = new PooledByteBufAllocator(false).heapBuffer(SIZE);
+        } else if ("pooledDirect".equals(bufferType)) {
+            buffer = new PooledByteBufAllocator(true).directBuffer(SIZE);
+        } else {
+            throw new IllegalArgumentException("bufferType: " + bufferType);
+        }
+        buffer.writeZero(SIZE);
+    }
+
+    @TearDown
+    public void teardown() {
+        buffer.release();
+    }
+
+    // Moves over the buffer in steps of 8 bytes, so that the access to any primitive stays within the bounds.
+    private int nextIndex() {
+        int index = this.index;
+        this.index = index + 8 & SIZE - 1;
+        return index;
+    }
+
+    @GenerateMicroBenchmark
+    public byte getByte() {
+        return buffer.getByte(nextIndex());
+    }
+
+    @GenerateMicroBenchmark
+    public ByteBuf setByte() {
+        return buffer.setByte(nextIndex(), 1);
+    }
+
+    @GenerateMicroBenchmark
+    public short getShort() {
+        return buffer.getShort(nextIndex());
+    }
+
+    @GenerateMicroBenchmark
+    public ByteBuf setShort() {
+        return buffer.setShort(nextIndex(), 1);
+    }
+
+    @GenerateMicroBenchmark
+    public int getInt() {
+        return buffer.getInt(nextIndex());
+    }
+
+    @GenerateMicroBenchmark
+    public ByteBuf setInt() {
+        return buffer.setInt(nextIndex(), 1);
+    }
+
+    @GenerateMicroBenchmark
+    public long getLong() {
+        return buffer.getLong(nextIndex());
+    }
+
+    @GenerateMicroBenchmark
+    public ByteBuf setLong() {
+        return buffer.setLong(nextIndex(), 1);
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.microbench.buffer;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import org.openjdk.jmh.annotations.GenerateMicroBenchmark;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * This class benchmarks allocating buffers on one thread and releasing them on another thread, as it happens when
+ * a buffer is handed over to a different {@link Thread} for processing.
+ */
+public class ByteBufAllocatorCrossThreadBenchmark extends AbstractMicrobenchmark {
+
+    private static final ByteBufAllocator pooledHeapAllocator = new PooledByteBufAllocator(false);
+    private static final ByteBufAllocator pooledDirectAllocator = new PooledByteBufAllocator(true);
+
+    @State(Scope.Group)
+    public static class Handoff {
+        private final Queue<ByteBuf> queue = new ArrayBlockingQueue<ByteBuf>(1024);
+
+        void offer(ByteBuf buffer) {
+            // Never block, as the other thread of the group may have finished the iteration already.
+            if (!queue.offer(buffer)) {
+                buffer.release();
+            }
+        }
+
+        void releaseNext() {
+            ByteBuf buffer = queue.poll();
+            if (buffer != null) {
+                buffer.release();
+            }
+        }
+
+        @TearDown(Level.Iteration)
+        public void releaseAll() {
+            for (;;) {
+                ByteBuf buffer = queue.poll();
+                if (buffer == null) {
+                    break;
+                }
+                buffer.release();
+            }
+        }
+    }
+
+    @Param({ "00256", "01024", "04096", "16384", "65536" })
+    public int size;
+
+    @GenerateMicroBenchmark
+    @Group("pooledHeap")
+    @GroupThreads(1)
+    public void pooledHeapAlloc(Handoff handoff) {
+        handoff.offer(pooledHeapAllocator.heapBuffer(size));
+    }
+
+    @GenerateMicroBenchmark
+    @Group("pooledHeap")
+    @GroupThreads(1)
+    public void pooledHeapFree(Handoff handoff) {
+        handoff.releaseNext();
+    }
+
+    @GenerateMicroBenchmark
+    @Group("pooledDirect")
+    @GroupThreads(1)
+    public void pooledDirectAlloc(Handoff handoff) {
+        handoff.offer(pooledDirectAllocator.directBuffer(size));
+    }
+
+    @GenerateMicroBenchmark
+    @Group("pooledDirect")
+    @GroupThreads(1)
+    public void pooledDirectFree(Handoff handoff) {
+        handoff.releaseNext();
+    }
+}
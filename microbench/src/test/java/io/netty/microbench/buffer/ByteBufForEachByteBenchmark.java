@@ -0,0 +1,86 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.microbench.buffer;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufProcessor;
+import io.netty.buffer.Unpooled;
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import org.openjdk.jmh.annotations.GenerateMicroBenchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * This class benchmarks scanning a whole buffer with {@link ByteBuf#forEachByte(ByteBufProcessor)}, compared to a
+ * loop of {@link ByteBuf#getByte(int)} calls.
+ */
+public class ByteBufForEachByteBenchmark extends AbstractMicrobenchmark {
+
+    @Param({ "heap", "direct" })
+    public String bufferType;
+
+    @Param({ "00064", "01024", "08192", "65536" })
+    public int size;
+
+    private ByteBuf buffer;
+
+    @Setup
+    public void setup() {
+        if ("heap".equals(bufferType)) {
+            buffer = Unpooled.buffer(size);
+        } else {
+            buffer = Unpooled.directBuffer(size);
+        }
+
+        // No byte is a CR or LF, so that the whole buffer is scanned.
+        for (int i = 0; i < size; i ++) {
+            buffer.writeByte('a' + i % 26);
+        }
+    }
+
+    @TearDown
+    public void teardown() {
+        buffer.release();
+    }
+
+    @GenerateMicroBenchmark
+    public int forEachByteFindCrlf() {
+        return buffer.forEachByte(ByteBufProcessor.FIND_CRLF);
+    }
+
+    @GenerateMicroBenchmark
+    public int forEachByteDescFindCrlf() {
+        return buffer.forEachByteDesc(ByteBufProcessor.FIND_CRLF);
+    }
+
+    @GenerateMicroBenchmark
+    public int forEachByteFindNul() {
+        return buffer.forEachByte(ByteBufProcessor.FIND_NUL);
+    }
+
+    @GenerateMicroBenchmark
+    public int getByteLoopFindCrlf() {
+        ByteBuf buffer = this.buffer;
+        for (int i = buffer.readerIndex(); i < buffer.writerIndex(); i ++) {
+            byte value = buffer.getByte(i);
+            if (value == '\r' || value == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.microbench.buffer;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufProcessor;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import io.netty.util.CharsetUtil;
+import org.openjdk.jmh.annotations.GenerateMicroBenchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * This class benchmarks the word-at-a-time searches behind {@link ByteBuf#forEachByte(ByteBufProcessor)} with the
+ * {@code FIND_*} processors and {@link ByteBufUtil#indexOf(ByteBuf, ByteBuf)} on the payloads the line and delimiter
+ * based decoders see, compared to searching one byte at a time.
+ */
+public class ByteBufSearchBenchmark extends AbstractMicrobenchmark {
+
+    private static final String HTTP_REQUEST =
+            "GET /some/path/to/a/resource.html?query=string&with=some&more=parameters HTTP/1.1\r\n" +
+            "Host: www.example.com\r\n" +
+            "User-Agent: Mozilla/5.0 (X11; Linux x86_64; rv:29.0) Gecko/20100101 Firefox/29.0\r\n" +
+            "Accept: text/html,application/xhtml+xml,application/xml;q=0.9,*/*;q=0.8\r\n" +
+            "Accept-Language: en-US,en;q=0.5\r\n" +
+            "Accept-Encoding: gzip, deflate\r\n" +
+            "Cookie: JSESSIONID=0123456789ABCDEF0123456789ABCDEF; theme=dark; tracking=a8f5f167f44f49\r\n" +
+            "Connection: keep-alive\r\n" +
+            "Cache-Control: max-age=0\r\n" +
+            "\r\n";
+
+    private static final String TEXT_LINE =
+            "2014-05-12 10:15:32,123 INFO  [nioEventLoopGroup-3-1] LoggingHandler - [id: 0x4a6c2f1d] RECEIVED\n";
+
+    private static final String MULTIPART_PART =
+            "--AaB03xAaB03xAaB03x\r\n" +
+            "Content-Disposition: form-data; name=\"file\"; filename=\"file.bin\"\r\n" +
+            "Content-Type: application/octet-stream\r\n" +
+            "\r\n";
+
+    private static final ByteBufProcessor FIND_LF_BYTE_BY_BYTE = new ByteBufProcessor() {
+        @Override
+        public boolean process(byte value) throws Exception {
+            return value != '\n';
+        }
+    };
+
+    @Param({ "heap", "direct", "pooledHeap", "pooledDirect" })
+    public String bufferType;
+
+    @Param({ "http", "text" })
+    public String payload;
+
+    private ByteBuf lines;
+    private ByteBuf multipart;
+    private ByteBuf boundary;
+
+    @Setup
+    public void setup() {
+        lines = newBuffer(8192);
+        String line = "http".equals(payload) ? HTTP_REQUEST : TEXT_LINE;
+        while (lines.writableBytes() >= line.length()) {
+            lines.writeBytes(line.getBytes(CharsetUtil.US_ASCII));
+        }
+
+        // The end of a part's content followed by the next boundary, as seen by a multipart or delimiter based
+        // decoder.
+        String next = "\r\n" + MULTIPART_PART;
+        multipart = newBuffer(8192 + next.length());
+        while (multipart.writableBytes() > next.length()) {
+            multipart.writeByte('a' + multipart.writerIndex() % 26);
+        }
+        multipart.writeBytes(next.getBytes(CharsetUtil.US_ASCII));
+        boundary = Unpooled.copiedBuffer("\r\n--AaB03xAaB03xAaB03x", CharsetUtil.US_ASCII);
+    }
+
+    private ByteBuf newBuffer(int capacity) {
+        if ("heap".equals(bufferType)) {
+            return Unpooled.buffer(capacity);
+        }
+        if ("direct".equals(bufferType)) {
+            return Unpooled.directBuffer(capacity);
+        }
+        if ("pooledHeap".equals(bufferType)) {
+            return PooledByteBufAllocator.DEFAULT.heapBuffer(capacity);
+        }
+        return PooledByteBufAllocator.DEFAULT.directBuffer(capacity);
+    }
+
+    @TearDown
+    public void teardown() {
+        lines.release();
+        multipart.release();
+        boundary.release();
+    }
+
+    @GenerateMicroBenchmark
+    public int findLines() {
+        return findLines(ByteBufProcessor.FIND_LF);
+    }
+
+    @GenerateMicroBenchmark
+    public int findLinesByteByByte() {
+        return findLines(FIND_LF_BYTE_BY_BYTE);
+    }
+
+    private int findLines(ByteBufProcessor processor) {
+        ByteBuf lines = this.lines;
+        int writerIndex = lines.writerIndex();
+        int count = 0;
+        int i = lines.readerIndex();
+        while (i < writerIndex) {
+            int lf = lines.forEachByte(i, writerIndex - i, processor);
+            if (lf < 0) {
+                break;
+            }
+            count ++;
+            i = lf + 1;
+        }
+        return count;
+    }
+
+    @GenerateMicroBenchmark
+    public int indexOfBoundary() {
+        return ByteBufUtil.indexOf(boundary, multipart);
+    }
+
+    @GenerateMicroBenchmark
+    public int indexOfBoundaryByteByByte() {
+        ByteBuf haystack = multipart;
+        ByteBuf needle = boundary;
+        int needleLength = needle.readableBytes();
+        int last = haystack.writerIndex() - needleLength;
+        for (int i = haystack.readerIndex(); i <= last; i ++) {
+            int j = 0;
+            while (j < needleLength && haystack.getByte(i + j) == needle.getByte(j)) {
+                j ++;
+            }
+            if (j == needleLength) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
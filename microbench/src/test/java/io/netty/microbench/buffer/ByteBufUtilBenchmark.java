@@ -0,0 +1,116 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.microbench.buffer;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import org.openjdk.jmh.annotations.GenerateMicroBenchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.nio.ByteOrder;
+import java.util.Random;
+
+/**
+ * This class benchmarks the comparison and search methods of {@link ByteBufUtil} on heap and direct buffers.  With
+ * {@code mixed}, a heap buffer is compared to direct ones, and with {@code swapped}, a direct buffer is compared to
+ * little-endian direct ones.
+ */
+public class ByteBufUtilBenchmark extends AbstractMicrobenchmark {
+
+    @Param({ "heap", "direct", "mixed", "swapped" })
+    public String bufferType;
+
+    @Param({ "00008", "00064", "01024", "08192" })
+    public int size;
+
+    private ByteBuf buffer;
+    private ByteBuf equalBuffer;
+    private ByteBuf lastByteDifferentBuffer;
+
+    @Setup
+    public void setup() {
+        // The content never contains 0, so that indexOf() scans the whole buffer.
+        byte[] content = new byte[size];
+        Random random = new Random(0);
+        for (int i = 0; i < size; i ++) {
+            content[i] = (byte) (random.nextInt(255) + 1);
+        }
+
+        buffer = newBuffer(content, true);
+        equalBuffer = newBuffer(content, false);
+        content[size - 1] ++;
+        lastByteDifferentBuffer = newBuffer(content, false);
+    }
+
+    private ByteBuf newBuffer(byte[] content, boolean first) {
+        ByteBuf buffer;
+        if ("heap".equals(bufferType) || "mixed".equals(bufferType) && first) {
+            buffer = Unpooled.buffer(content.length);
+        } else {
+            buffer = Unpooled.directBuffer(content.length);
+            if ("swapped".equals(bufferType) && !first) {
+                buffer = buffer.order(ByteOrder.LITTLE_ENDIAN);
+            }
+        }
+        return buffer.writeBytes(content);
+    }
+
+    @TearDown
+    public void teardown() {
+        buffer.release();
+        equalBuffer.release();
+        lastByteDifferentBuffer.release();
+    }
+
+    @GenerateMicroBenchmark
+    public int hashCodeOfBuffer() {
+        return ByteBufUtil.hashCode(buffer);
+    }
+
+    @GenerateMicroBenchmark
+    public boolean equalsEqual() {
+        return ByteBufUtil.equals(buffer, equalBuffer);
+    }
+
+    @GenerateMicroBenchmark
+    public boolean equalsLastByteDifferent() {
+        return ByteBufUtil.equals(buffer, lastByteDifferentBuffer);
+    }
+
+    @GenerateMicroBenchmark
+    public int compareEqual() {
+        return ByteBufUtil.compare(buffer, equalBuffer);
+    }
+
+    @GenerateMicroBenchmark
+    public int compareLastByteDifferent() {
+        return ByteBufUtil.compare(buffer, lastByteDifferentBuffer);
+    }
+
+    @GenerateMicroBenchmark
+    public int indexOfNotFound() {
+        return ByteBufUtil.indexOf(buffer, 0, size, (byte) 0);
+    }
+
+    @GenerateMicroBenchmark
+    public int indexOfNotFoundDesc() {
+        return ByteBufUtil.indexOf(buffer, size, 0, (byte) 0);
+    }
+}
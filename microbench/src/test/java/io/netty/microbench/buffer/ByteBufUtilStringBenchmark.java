@@ -0,0 +1,145 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.microbench.buffer;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import io.netty.util.CharsetUtil;
+import org.openjdk.jmh.annotations.GenerateMicroBenchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+
+/**
+ * This class benchmarks {@link ByteBufUtil#writeUtf8(ByteBuf, CharSequence)},
+ * {@link ByteBufUtil#writeAscii(ByteBuf, CharSequence)} and {@link ByteBuf#toString(java.nio.charset.Charset)}
+ * against encoding and decoding with a {@link CharsetEncoder} and a {@link CharsetDecoder}, as
+ * {@link ByteBufUtil#encodeString(io.netty.buffer.ByteBufAllocator, CharBuffer, java.nio.charset.Charset)} did.
+ */
+public class ByteBufUtilStringBenchmark extends AbstractMicrobenchmark {
+
+    @Param({ "heap", "direct" })
+    public String bufferType;
+
+    @Param({ "ascii", "latin", "cjk" })
+    public String content;
+
+    @Param({ "00016", "00256", "04096" })
+    public int length;
+
+    private String string;
+    private ByteBuf buffer;
+    private ByteBuf utf8Buffer;
+
+    @Setup
+    public void setup() {
+        char first;
+        if ("ascii".equals(content)) {
+            first = 'a';
+        } else if ("latin".equals(content)) {
+            first = '\u00e0';
+        } else {
+            first = '\u4e00';
+        }
+
+        StringBuilder buf = new StringBuilder(length);
+        for (int i = 0; i < length; i ++) {
+            buf.append((char) (first + i % 26));
+        }
+        string = buf.toString();
+
+        PooledByteBufAllocator alloc = PooledByteBufAllocator.DEFAULT;
+        if ("heap".equals(bufferType)) {
+            buffer = alloc.heapBuffer(length * 3);
+            utf8Buffer = alloc.heapBuffer(length * 3);
+        } else {
+            buffer = alloc.directBuffer(length * 3);
+            utf8Buffer = alloc.directBuffer(length * 3);
+        }
+        utf8Buffer.writeBytes(string.getBytes(CharsetUtil.UTF_8));
+    }
+
+    @TearDown
+    public void teardown() {
+        buffer.release();
+        utf8Buffer.release();
+    }
+
+    @GenerateMicroBenchmark
+    public int writeUtf8() {
+        buffer.clear();
+        return ByteBufUtil.writeUtf8(buffer, string);
+    }
+
+    @GenerateMicroBenchmark
+    public int writeAscii() {
+        buffer.clear();
+        return ByteBufUtil.writeAscii(buffer, string);
+    }
+
+    @GenerateMicroBenchmark
+    public ByteBuf writeGetBytesUtf8() {
+        buffer.clear();
+        return buffer.writeBytes(string.getBytes(CharsetUtil.UTF_8));
+    }
+
+    @GenerateMicroBenchmark
+    public ByteBuf writeCharsetEncoderUtf8() throws CharacterCodingException {
+        buffer.clear();
+        CharsetEncoder encoder = CharsetUtil.getEncoder(CharsetUtil.UTF_8);
+        ByteBuffer dst = buffer.internalNioBuffer(0, buffer.capacity());
+        int pos = dst.position();
+        CoderResult cr = encoder.encode(CharBuffer.wrap(string), dst, true);
+        if (!cr.isUnderflow()) {
+            cr.throwException();
+        }
+        cr = encoder.flush(dst);
+        if (!cr.isUnderflow()) {
+            cr.throwException();
+        }
+        return buffer.writerIndex(dst.position() - pos);
+    }
+
+    @GenerateMicroBenchmark
+    public String toStringUtf8() {
+        return utf8Buffer.toString(CharsetUtil.UTF_8);
+    }
+
+    @GenerateMicroBenchmark
+    public String charsetDecoderUtf8() throws CharacterCodingException {
+        CharsetDecoder decoder = CharsetUtil.getDecoder(CharsetUtil.UTF_8);
+        ByteBuffer src = utf8Buffer.nioBuffer();
+        CharBuffer dst = CharBuffer.allocate((int) ((double) src.remaining() * decoder.maxCharsPerByte()));
+        CoderResult cr = decoder.decode(src, dst, true);
+        if (!cr.isUnderflow()) {
+            cr.throwException();
+        }
+        cr = decoder.flush(dst);
+        if (!cr.isUnderflow()) {
+            cr.throwException();
+        }
+        return dst.flip().toString();
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.microbench.buffer;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import org.openjdk.jmh.annotations.GenerateMicroBenchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+/**
+ * This class benchmarks the random access and the conversion to NIO buffers of {@link CompositeByteBuf}s with
+ * different numbers of components.
+ */
+public class CompositeByteBufBenchmark extends AbstractMicrobenchmark {
+
+    private static final int COMPONENT_SIZE = 64;
+    private static final int NUM_INDEXES = 1024;
+
+    @Param({ "1", "16", "256", "1024" })
+    public int numComponents;
+
+    private CompositeByteBuf composite;
+    private final int[] indexes = new int[NUM_INDEXES];
+    private int nextIndex;
+
+    @Setup
+    public void setup() {
+        composite = Unpooled.compositeBuffer(numComponents);
+        for (int i = 0; i < numComponents; i ++) {
+            ByteBuf component = Unpooled.buffer(COMPONENT_SIZE);
+            component.writeZero(COMPONENT_SIZE);
+            composite.addComponent(component);
+        }
+        composite.writerIndex(composite.capacity());
+
+        // Leave room for the longest primitive, so that getLong() may span two components.
+        Random random = new Random(0);
+        for (int i = 0; i < NUM_INDEXES; i ++) {
+            indexes[i] = random.nextInt(composite.capacity() - 7);
+        }
+    }
+
+    @TearDown
+    public void teardown() {
+        composite.release();
+    }
+
+    private int nextIndex() {
+        return indexes[nextIndex ++ & NUM_INDEXES - 1];
+    }
+
+    @GenerateMicroBenchmark
+    public byte getByteRandom() {
+        return composite.getByte(nextIndex());
+    }
+
+    @GenerateMicroBenchmark
+    public int getIntRandom() {
+        return composite.getInt(nextIndex());
+    }
+
+    @GenerateMicroBenchmark
+    public long getLongRandom() {
+        return composite.getLong(nextIndex());
+    }
+
+    @GenerateMicroBenchmark
+    public CompositeByteBuf setByteRandom() {
+        return composite.setByte(nextIndex(), 1);
+    }
+
+    @GenerateMicroBenchmark
+    public ByteBuffer[] nioBuffers() {
+        return composite.nioBuffers();
+    }
+
+    @GenerateMicroBenchmark
+    public ByteBuffer[] nioBuffersRandomRange() {
+        int index = nextIndex();
+        return composite.nioBuffers(index, composite.capacity() - index);
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.microbench.buffer;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.SwappedByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import org.openjdk.jmh.annotations.GenerateMicroBenchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.nio.ByteOrder;
+
+/**
+ * This class benchmarks the overhead of accessing a buffer through the {@link SwappedByteBuf} returned by
+ * {@link ByteBuf#order(ByteOrder)}, compared to the same access in big endian order.
+ */
+public class SwappedByteBufBenchmark extends AbstractMicrobenchmark {
+
+    private static final int SIZE = 1024;
+
+    @Param({ "heap", "direct" })
+    public String bufferType;
+
+    private ByteBuf buffer;
+    private ByteBuf swappedBuffer;
+    private int index;
+
+    @Setup
+    public void setup() {
+        if ("heap".equals(bufferType)) {
+            buffer = Unpooled.buffer(SIZE);
+        } else {
+            buffer = Unpooled.directBuffer(SIZE);
+        }
+        buffer.writeZero(SIZE);
+        swappedBuffer = buffer.order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    @TearDown
+    public void teardown() {
+        buffer.release();
+    }
+
+    private int nextIndex() {
+        int index = this.index;
+        this.index = index + 8 & SIZE - 1;
+        return index;
+    }
+
+    @GenerateMicroBenchmark
+    public int getInt() {
+        return buffer.getInt(nextIndex());
+    }
+
+    @GenerateMicroBenchmark
+    public int getIntSwapped() {
+        return swappedBuffer.getInt(nextIndex());
+    }
+
+    @GenerateMicroBenchmark
+    public ByteBuf setInt() {
+        return buffer.setInt(nextIndex(), 1);
+    }
+
+    @GenerateMicroBenchmark
+    public ByteBuf setIntSwapped() {
+        return swappedBuffer.setInt(nextIndex(), 1);
+    }
+
+    @GenerateMicroBenchmark
+    public long getLong() {
+        return buffer.getLong(nextIndex());
+    }
+
+    @GenerateMicroBenchmark
+    public long getLongSwapped() {
+        return swappedBuffer.getLong(nextIndex());
+    }
+
+    @GenerateMicroBenchmark
+    public ByteBuf setLong() {
+        return buffer.setLong(nextIndex(), 1);
+    }
+
+    @GenerateMicroBenchmark
+    public ByteBuf setLongSwapped() {
+        return swappedBuffer.setLong(nextIndex(), 1);
+    }
+
+    @GenerateMicroBenchmark
+    public ByteBuf writeAndReadIntSwapped() {
+        swappedBuffer.clear();
+        for (int i = 0; i < SIZE / 4; i ++) {
+            swappedBuffer.writeInt(i);
+        }
+        for (int i = 0; i < SIZE / 4; i ++) {
+            swappedBuffer.readInt();
+        }
+        return swappedBuffer;
+    }
+}
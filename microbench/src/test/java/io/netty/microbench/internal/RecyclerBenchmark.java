@@ -0,0 +1,78 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.microbench.internal;
+
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import io.netty.util.Recycler;
+import org.openjdk.jmh.annotations.GenerateMicroBenchmark;
+
+/**
+ * This class benchmarks getting and recycling an object through {@link Recycler} against plain allocation.
+ */
+public class RecyclerBenchmark extends AbstractMicrobenchmark {
+
+    private static final Recycler<DummyObject> RECYCLER = new Recycler<DummyObject>() {
+        @Override
+        protected DummyObject newObject(Handle<DummyObject> handle) {
+            return new DummyObject(handle);
+        }
+    };
+
+    private final DummyObject[] objects = new DummyObject[16];
+
+    @GenerateMicroBenchmark
+    public DummyObject plainNew() {
+        return new DummyObject(null);
+    }
+
+    @GenerateMicroBenchmark
+    public DummyObject recyclerGetAndRecycle() {
+        DummyObject o = RECYCLER.get();
+        o.recycle();
+        return o;
+    }
+
+    @GenerateMicroBenchmark
+    public DummyObject recyclerGetAndRecycleBatch() {
+        DummyObject[] objects = this.objects;
+        DummyObject o = null;
+        for (int i = 0; i < objects.length; i ++) {
+            objects[i] = o = RECYCLER.get();
+        }
+        for (int i = 0; i < objects.length; i ++) {
+            objects[i].recycle();
+            objects[i] = null;
+        }
+        return o;
+    }
+
+    static final class DummyObject {
+        private final Recycler.Handle<DummyObject> handle;
+        // Gives the object a realistic footprint, similar to a small pooled buffer or message.
+        long field1;
+        long field2;
+        long field3;
+        long field4;
+
+        DummyObject(Recycler.Handle<DummyObject> handle) {
+            this.handle = handle;
+        }
+
+        void recycle() {
+            RECYCLER.recycle(this, handle);
+        }
+    }
+}
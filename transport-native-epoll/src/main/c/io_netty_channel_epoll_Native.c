@@ -26,13 +26,40 @@
 #include <sys/socket.h>
 #include <unistd.h>
 #include <arpa/inet.h>
+#include <net/if.h>
 #include <fcntl.h>
 #include "io_netty_channel_epoll_Native.h"
 
 
+// SO_REUSEPORT is only defined by the headers of linux 3.9+, but the option value is the same on older kernels
+// which support it via backports, so define it if missing. If the kernel does not support it setsockopt(...) fails.
+#ifndef SO_REUSEPORT
+#define SO_REUSEPORT 15
+#endif
+
+// splice(...) and its flags are only declared if _GNU_SOURCE is defined.
+extern ssize_t splice(int fdIn, loff_t *offIn, int fdOut, loff_t *offOut, size_t len, unsigned int flags);
+#ifndef SPLICE_F_MOVE
+#define SPLICE_F_MOVE 1
+#endif
+#ifndef SPLICE_F_NONBLOCK
+#define SPLICE_F_NONBLOCK 2
+#endif
+
 // optional
 extern int accept4(int sockFd, struct sockaddr *addr, socklen_t *addrlen, int flags) __attribute__((weak));
 
+// Same layout as struct mmsghdr, which is only declared by glibc 2.12+ if _GNU_SOURCE is defined.
+struct netty_mmsghdr {
+    struct msghdr msg_hdr;
+    unsigned int msg_len;
+};
+
+// optional, sendmmsg(...) needs linux 3.0+ and glibc 2.14+, recvmmsg(...) linux 2.6.33+ and glibc 2.12+
+extern int sendmmsg(int sockFd, struct netty_mmsghdr *msgvec, unsigned int vlen, int flags) __attribute__((weak));
+extern int recvmmsg(int sockFd, struct netty_mmsghdr *msgvec, unsigned int vlen, int flags,
+                    struct timespec *timeout) __attribute__((weak));
+
 // Those are initialized in the init(...) method and cached for performance reasons
 jmethodID updatePosId = NULL;
 jmethodID posId = NULL;
@@ -46,6 +73,12 @@ jfieldID fileDescriptorFieldId = NULL;
 jfieldID readerIndexFieldId = NULL;
 jfieldID writerIndexFieldId = NULL;
 jfieldID memoryAddressFieldId = NULL;
+jfieldID packetMemoryAddressFieldId = NULL;
+jfieldID packetCountFieldId = NULL;
+jfieldID packetAddressFieldId = NULL;
+jfieldID packetAddressLenFieldId = NULL;
+jfieldID packetScopeIdFieldId = NULL;
+jfieldID packetPortFieldId = NULL;
 jmethodID inetSocketAddrMethodId = NULL;
 jclass runtimeExceptionClass = NULL;
 jclass ioExceptionClass = NULL;
@@ -81,9 +114,15 @@ char *exceptionMessage(char *msg, int error) {
     return result;
 }
 
-jint epollCtl(JNIEnv * env, jint efd, int op, jint fd, jint flags, jint id) {
-    uint32_t events = EPOLLET;
+jint epollCtl(JNIEnv * env, jint efd, int op, jint fd, jint flags) {
+    uint32_t events = 0;
 
+    if (flags & EPOLL_ET) {
+        events |= EPOLLET;
+    }
+    if (flags & EPOLL_ONESHOT) {
+        events |= EPOLLONESHOT;
+    }
     if (flags & EPOLL_ACCEPT) {
         events |= EPOLLIN;
     }
@@ -96,8 +135,8 @@ jint epollCtl(JNIEnv * env, jint efd, int op, jint fd, jint flags, jint id) {
 
     struct epoll_event ev = {
         .events = events,
-        // encode the id into the events
-        .data.u64 = (((uint64_t) id) << 32L)
+        // encode the fd into the events
+        .data.u64 = (((uint64_t) fd) << 32L)
     };
 
     return epoll_ctl(efd, op, fd, &ev);
@@ -143,6 +182,7 @@ jobject createInetSocketAddress(JNIEnv * env, struct sockaddr_storage addr) {
 void init_sockaddr(JNIEnv * env, jbyteArray address, jint scopeId, jint jport, struct sockaddr_storage * addr) {
     uint16_t port = htons((uint16_t) jport);
     jbyte* addressBytes = (*env)->GetByteArrayElements(env, address, 0);
+    memset(addr, 0, sizeof(struct sockaddr_storage));
     if (socketType == AF_INET6) {
         struct sockaddr_in6* ip6addr = (struct sockaddr_in6 *) addr;
         ip6addr->sin6_family = AF_INET6;
@@ -174,6 +214,59 @@ static int socket_type() {
         return AF_INET6;
     }
 }
+
+// Stores the address of the given sockaddr into a NativeDatagramPacket, ipv4 addresses as ipv4 mapped ipv6 address.
+void setPacketAddress(JNIEnv * env, jobject packet, struct sockaddr_storage * addr) {
+    jbyteArray address = (jbyteArray) (*env)->GetObjectField(env, packet, packetAddressFieldId);
+    jint scopeId;
+    jint port;
+    if (addr->ss_family == AF_INET) {
+        static const jbyte ipv4MappedPrefix[] = { 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, (jbyte) 0xff, (jbyte) 0xff };
+        struct sockaddr_in* s = (struct sockaddr_in *) addr;
+        (*env)->SetByteArrayRegion(env, address, 0, 12, ipv4MappedPrefix);
+        (*env)->SetByteArrayRegion(env, address, 12, 4, (jbyte *) &s->sin_addr.s_addr);
+        scopeId = 0;
+        port = ntohs(s->sin_port);
+    } else {
+        struct sockaddr_in6* s = (struct sockaddr_in6 *) addr;
+        (*env)->SetByteArrayRegion(env, address, 0, 16, (jbyte *) &s->sin6_addr.s6_addr);
+        scopeId = (jint) s->sin6_scope_id;
+        port = ntohs(s->sin6_port);
+    }
+    (*env)->SetIntField(env, packet, packetAddressLenFieldId, 16);
+    (*env)->SetIntField(env, packet, packetScopeIdFieldId, scopeId);
+    (*env)->SetIntField(env, packet, packetPortFieldId, port);
+    (*env)->DeleteLocalRef(env, address);
+}
+
+// Initializes the sockaddr from the address of a NativeDatagramPacket and returns its length, or 0 if the packet has
+// no address.
+socklen_t packetAddress(JNIEnv * env, jobject packet, struct sockaddr_storage * addr) {
+    if ((*env)->GetIntField(env, packet, packetAddressLenFieldId) == 0) {
+        return 0;
+    }
+    jbyteArray address = (jbyteArray) (*env)->GetObjectField(env, packet, packetAddressFieldId);
+    jint scopeId = (*env)->GetIntField(env, packet, packetScopeIdFieldId);
+    jint port = (*env)->GetIntField(env, packet, packetPortFieldId);
+    init_sockaddr(env, address, scopeId, port, addr);
+    (*env)->DeleteLocalRef(env, address);
+    return sizeof(struct sockaddr_storage);
+}
+
+// Initializes the sockaddr from the raw bytes of an ipv4 or ipv6 address.
+void init_raw_sockaddr(JNIEnv * env, jbyteArray address, struct sockaddr_storage * addr) {
+    memset(addr, 0, sizeof(struct sockaddr_storage));
+    jsize len = (*env)->GetArrayLength(env, address);
+    if (len == 4) {
+        struct sockaddr_in* ipaddr = (struct sockaddr_in *) addr;
+        ipaddr->sin_family = AF_INET;
+        (*env)->GetByteArrayRegion(env, address, 0, 4, (jbyte *) &ipaddr->sin_addr.s_addr);
+    } else {
+        struct sockaddr_in6* ip6addr = (struct sockaddr_in6 *) addr;
+        ip6addr->sin6_family = AF_INET6;
+        (*env)->GetByteArrayRegion(env, address, 0, 16, (jbyte *) &ip6addr->sin6_addr.s6_addr);
+    }
+}
 // util methods end
 
 jint JNI_OnLoad(JavaVM* vm, void* reserved) {
@@ -346,6 +439,43 @@ jint JNI_OnLoad(JavaVM* vm, void* reserved) {
             // pending exception...
             return JNI_ERR;
         }
+
+        jclass nativeDatagramPacketClass =
+                (*env)->FindClass(env, "io/netty/channel/epoll/NativeDatagramPacketArray$NativeDatagramPacket");
+        if (nativeDatagramPacketClass == NULL) {
+             // pending exception...
+            return JNI_ERR;
+        }
+        packetMemoryAddressFieldId = (*env)->GetFieldID(env, nativeDatagramPacketClass, "memoryAddress", "J");
+        if (packetMemoryAddressFieldId == NULL) {
+            // pending exception...
+            return JNI_ERR;
+        }
+        packetCountFieldId = (*env)->GetFieldID(env, nativeDatagramPacketClass, "count", "I");
+        if (packetCountFieldId == NULL) {
+            // pending exception...
+            return JNI_ERR;
+        }
+        packetAddressFieldId = (*env)->GetFieldID(env, nativeDatagramPacketClass, "address", "[B");
+        if (packetAddressFieldId == NULL) {
+            // pending exception...
+            return JNI_ERR;
+        }
+        packetAddressLenFieldId = (*env)->GetFieldID(env, nativeDatagramPacketClass, "addressLen", "I");
+        if (packetAddressLenFieldId == NULL) {
+            // pending exception...
+            return JNI_ERR;
+        }
+        packetScopeIdFieldId = (*env)->GetFieldID(env, nativeDatagramPacketClass, "scopeId", "I");
+        if (packetScopeIdFieldId == NULL) {
+            // pending exception...
+            return JNI_ERR;
+        }
+        packetPortFieldId = (*env)->GetFieldID(env, nativeDatagramPacketClass, "port", "I");
+        if (packetPortFieldId == NULL) {
+            // pending exception...
+            return JNI_ERR;
+        }
         return JNI_VERSION_1_6;
     }
 }
@@ -437,7 +567,7 @@ JNIEXPORT jint JNICALL Java_io_netty_channel_epoll_Native_epollWait(JNIEnv * env
     }
     int i;
     for (i = 0; i < ready; i++) {
-        // store the ready ops and id
+        // store the ready ops and fd
         elements[i] = (jlong) ev[i].data.u64;
         if (ev[i].events & EPOLLIN) {
             elements[i] |= EPOLL_READ;
@@ -462,15 +592,15 @@ JNIEXPORT jint JNICALL Java_io_netty_channel_epoll_Native_epollWait(JNIEnv * env
     return ready;
 }
 
-JNIEXPORT void JNICALL Java_io_netty_channel_epoll_Native_epollCtlAdd(JNIEnv * env, jclass clazz, jint efd, jint fd, jint flags, jint id) {
-    if (epollCtl(env, efd, EPOLL_CTL_ADD, fd, flags, id) < 0) {
+JNIEXPORT void JNICALL Java_io_netty_channel_epoll_Native_epollCtlAdd(JNIEnv * env, jclass clazz, jint efd, jint fd, jint flags) {
+    if (epollCtl(env, efd, EPOLL_CTL_ADD, fd, flags) < 0) {
         int err = errno;
         throwRuntimeException(env, exceptionMessage("Error during calling epoll_ctl(...): ", err));
     }
 }
 
-JNIEXPORT void JNICALL Java_io_netty_channel_epoll_Native_epollCtlMod(JNIEnv * env, jclass clazz, jint efd, jint fd, jint flags, jint id) {
-    if (epollCtl(env, efd, EPOLL_CTL_MOD, fd, flags, id) < 0) {
+JNIEXPORT void JNICALL Java_io_netty_channel_epoll_Native_epollCtlMod(JNIEnv * env, jclass clazz, jint efd, jint fd, jint flags) {
+    if (epollCtl(env, efd, EPOLL_CTL_MOD, fd, flags) < 0) {
         int err = errno;
         throwRuntimeException(env, exceptionMessage("Error during calling epoll_ctl(...): ", err));
     }
@@ -672,6 +802,194 @@ JNIEXPORT jint JNICALL Java_io_netty_channel_epoll_Native_readAddress(JNIEnv * e
     return read0(env, clazz, fd, (void*) address, pos, limit);
 }
 
+JNIEXPORT jint JNICALL Java_io_netty_channel_epoll_Native_sendTo(JNIEnv * env, jclass clazz, jint fd, jobject jbuffer, jint pos, jint limit, jobject packet) {
+    void *buffer = (*env)->GetDirectBufferAddress(env, jbuffer);
+    if (buffer == NULL) {
+        throwRuntimeException(env, "Unable to access address of buffer");
+        return -1;
+    }
+
+    struct sockaddr_storage addr;
+    socklen_t addrLen = packetAddress(env, packet, &addr);
+    ssize_t res;
+    int err;
+    do {
+        res = sendto(fd, buffer + pos, (size_t) (limit - pos), 0,
+                     addrLen == 0 ? NULL : (struct sockaddr *) &addr, addrLen);
+        // keep on writing if it was interrupted
+    } while (res == -1 && ((err = errno) == EINTR));
+
+    if (res < 0) {
+        // network stack saturated... try again later
+        if (err == EAGAIN || err == EWOULDBLOCK) {
+            return 0;
+        }
+        if (err == EBADF) {
+            throwClosedChannelException(env);
+            return -1;
+        }
+        throwIOException(env, exceptionMessage("Error while sendto(...): ", err));
+        return -1;
+    }
+    return 1;
+}
+
+JNIEXPORT jint JNICALL Java_io_netty_channel_epoll_Native_recvFrom(JNIEnv * env, jclass clazz, jint fd, jobject jbuffer, jint pos, jint limit, jobject packet) {
+    void *buffer = (*env)->GetDirectBufferAddress(env, jbuffer);
+    if (buffer == NULL) {
+        throwRuntimeException(env, "Unable to access address of buffer");
+        return -1;
+    }
+
+    struct sockaddr_storage addr;
+    socklen_t addrLen;
+    ssize_t res;
+    int err;
+    do {
+        addrLen = sizeof(addr);
+        res = recvfrom(fd, buffer + pos, (size_t) (limit - pos), 0, (struct sockaddr *) &addr, &addrLen);
+        // Keep on reading if we was interrupted
+    } while (res == -1 && ((err = errno) == EINTR));
+
+    if (res < 0) {
+        if (err == EAGAIN || err == EWOULDBLOCK) {
+            // Nothing left to read
+            return 0;
+        }
+        if (err == EBADF) {
+            throwClosedChannelException(env);
+            return -1;
+        }
+        throwIOException(env, exceptionMessage("Error while recvfrom(...): ", err));
+        return -1;
+    }
+
+    (*env)->SetIntField(env, packet, packetCountFieldId, (jint) res);
+    setPacketAddress(env, packet, &addr);
+    return 1;
+}
+
+JNIEXPORT jint JNICALL Java_io_netty_channel_epoll_Native_sendmmsg(JNIEnv * env, jclass clazz, jint fd, jobjectArray packets, jint offset, jint len) {
+    struct netty_mmsghdr msg[len];
+    struct iovec iov[len];
+    struct sockaddr_storage addr[len];
+    memset(msg, 0, sizeof(msg));
+
+    int i;
+    for (i = 0; i < len; i++) {
+        jobject packet = (*env)->GetObjectArrayElement(env, packets, i + offset);
+        iov[i].iov_base = (void *) (*env)->GetLongField(env, packet, packetMemoryAddressFieldId);
+        iov[i].iov_len = (size_t) (*env)->GetIntField(env, packet, packetCountFieldId);
+        socklen_t addrLen = packetAddress(env, packet, &addr[i]);
+        msg[i].msg_hdr.msg_name = addrLen == 0 ? NULL : &addr[i];
+        msg[i].msg_hdr.msg_namelen = addrLen;
+        msg[i].msg_hdr.msg_iov = &iov[i];
+        msg[i].msg_hdr.msg_iovlen = 1;
+        (*env)->DeleteLocalRef(env, packet);
+    }
+
+    int res;
+    int err = 0;
+    if (sendmmsg) {
+        do {
+            res = sendmmsg(fd, msg, len, 0);
+            // keep on writing if it was interrupted
+        } while (res == -1 && ((err = errno) == EINTR));
+    } else {
+        // sendmmsg(...) is not present so send one message after the other.
+        for (res = 0; res < len; res++) {
+            ssize_t sent;
+            do {
+                sent = sendmsg(fd, &msg[res].msg_hdr, 0);
+            } while (sent == -1 && ((err = errno) == EINTR));
+            if (sent == -1) {
+                break;
+            }
+        }
+        if (res == 0) {
+            res = -1;
+        }
+    }
+
+    if (res < 0) {
+        // network stack saturated... try again later
+        if (err == EAGAIN || err == EWOULDBLOCK) {
+            return 0;
+        }
+        if (err == EBADF) {
+            throwClosedChannelException(env);
+            return -1;
+        }
+        throwIOException(env, exceptionMessage("Error while sendmmsg(...): ", err));
+        return -1;
+    }
+    return (jint) res;
+}
+
+JNIEXPORT jint JNICALL Java_io_netty_channel_epoll_Native_recvmmsg(JNIEnv * env, jclass clazz, jint fd, jobjectArray packets, jint offset, jint len) {
+    struct netty_mmsghdr msg[len];
+    struct iovec iov[len];
+    struct sockaddr_storage addr[len];
+    memset(msg, 0, sizeof(msg));
+
+    int i;
+    for (i = 0; i < len; i++) {
+        jobject packet = (*env)->GetObjectArrayElement(env, packets, i + offset);
+        iov[i].iov_base = (void *) (*env)->GetLongField(env, packet, packetMemoryAddressFieldId);
+        iov[i].iov_len = (size_t) (*env)->GetIntField(env, packet, packetCountFieldId);
+        msg[i].msg_hdr.msg_name = &addr[i];
+        msg[i].msg_hdr.msg_namelen = sizeof(addr[i]);
+        msg[i].msg_hdr.msg_iov = &iov[i];
+        msg[i].msg_hdr.msg_iovlen = 1;
+        (*env)->DeleteLocalRef(env, packet);
+    }
+
+    int res;
+    int err = 0;
+    if (recvmmsg) {
+        do {
+            res = recvmmsg(fd, msg, len, 0, NULL);
+            // Keep on reading if we was interrupted
+        } while (res == -1 && ((err = errno) == EINTR));
+    } else {
+        // recvmmsg(...) is not present so receive one message after the other.
+        for (res = 0; res < len; res++) {
+            ssize_t received;
+            do {
+                received = recvmsg(fd, &msg[res].msg_hdr, 0);
+            } while (received == -1 && ((err = errno) == EINTR));
+            if (received == -1) {
+                break;
+            }
+            msg[res].msg_len = (unsigned int) received;
+        }
+        if (res == 0) {
+            res = -1;
+        }
+    }
+
+    if (res < 0) {
+        if (err == EAGAIN || err == EWOULDBLOCK) {
+            // Nothing left to read
+            return 0;
+        }
+        if (err == EBADF) {
+            throwClosedChannelException(env);
+            return -1;
+        }
+        throwIOException(env, exceptionMessage("Error while recvmmsg(...): ", err));
+        return -1;
+    }
+
+    for (i = 0; i < res; i++) {
+        jobject packet = (*env)->GetObjectArrayElement(env, packets, i + offset);
+        (*env)->SetIntField(env, packet, packetCountFieldId, (jint) msg[i].msg_len);
+        setPacketAddress(env, packet, &addr[i]);
+        (*env)->DeleteLocalRef(env, packet);
+    }
+    return (jint) res;
+}
+
 JNIEXPORT void JNICALL Java_io_netty_channel_epoll_Native_close(JNIEnv * env, jclass clazz, jint fd) {
    if (close(fd) < 0) {
       throwIOException(env, "Error closing file descriptor");
@@ -692,9 +1010,9 @@ JNIEXPORT void JNICALL Java_io_netty_channel_epoll_Native_shutdown(JNIEnv * env,
     }
 }
 
-JNIEXPORT jint JNICALL Java_io_netty_channel_epoll_Native_socket(JNIEnv * env, jclass clazz) {
+jint socket0(JNIEnv * env, jclass clazz, int type) {
     // TODO: Maybe also respect -Djava.net.preferIPv4Stack=true
-    int fd = socket(socketType, SOCK_STREAM | SOCK_NONBLOCK, 0);
+    int fd = socket(socketType, type | SOCK_NONBLOCK, 0);
     if (fd == -1) {
         int err = errno;
         throwIOException(env, exceptionMessage("Error creating socket: ", err));
@@ -711,6 +1029,14 @@ JNIEXPORT jint JNICALL Java_io_netty_channel_epoll_Native_socket(JNIEnv * env, j
     return fd;
 }
 
+JNIEXPORT jint JNICALL Java_io_netty_channel_epoll_Native_socketStreamFd(JNIEnv * env, jclass clazz) {
+    return socket0(env, clazz, SOCK_STREAM);
+}
+
+JNIEXPORT jint JNICALL Java_io_netty_channel_epoll_Native_socketDgramFd(JNIEnv * env, jclass clazz) {
+    return socket0(env, clazz, SOCK_DGRAM);
+}
+
 JNIEXPORT void JNICALL Java_io_netty_channel_epoll_Native_bind(JNIEnv * env, jclass clazz, jint fd, jbyteArray address, jint scopeId, jint port) {
     struct sockaddr_storage addr;
     init_sockaddr(env, address, scopeId, port, &addr);
@@ -774,6 +1100,23 @@ JNIEXPORT jboolean JNICALL Java_io_netty_channel_epoll_Native_finishConnect(JNIE
     }
 }
 
+JNIEXPORT void JNICALL Java_io_netty_channel_epoll_Native_disconnect(JNIEnv * env, jclass clazz, jint fd) {
+    // connecting to an address of the family AF_UNSPEC dissolves the association of a datagram socket
+    struct sockaddr addr;
+    memset(&addr, 0, sizeof(addr));
+    addr.sa_family = AF_UNSPEC;
+
+    int res;
+    int err;
+    do {
+        res = connect(fd, &addr, sizeof(addr));
+    } while (res == -1 && ((err = errno) == EINTR));
+
+    if (res < 0) {
+        throwIOException(env, exceptionMessage("Error during disconnect(...): ", err));
+    }
+}
+
 JNIEXPORT jint JNICALL Java_io_netty_channel_epoll_Native_accept(JNIEnv * env, jclass clazz, jint fd) {
     jint socketFd;
     int err;
@@ -848,6 +1191,51 @@ JNIEXPORT jlong JNICALL Java_io_netty_channel_epoll_Native_sendfile(JNIEnv *env,
     return res;
 }
 
+JNIEXPORT jlong JNICALL Java_io_netty_channel_epoll_Native_pipe(JNIEnv * env, jclass clazz) {
+    int fd[2];
+    // Both ends are only used with SPLICE_F_NONBLOCK, so there is no need to make them non-blocking.
+    if (pipe(fd) == -1) {
+        throwIOException(env, exceptionMessage("Error during pipe(...): ", errno));
+        return -1;
+    }
+    return (((jlong) fd[0]) << 32) | (fd[1] & 0xFFFFFFFFL);
+}
+
+JNIEXPORT jint JNICALL Java_io_netty_channel_epoll_Native_splice(JNIEnv * env, jclass clazz, jint fd, jlong offIn, jint fdOut, jlong offOut, jint len) {
+    loff_t off_in = (loff_t) offIn;
+    loff_t off_out = (loff_t) offOut;
+    ssize_t res;
+    int err;
+    do {
+        res = splice(fd, offIn >= 0 ? &off_in : NULL, fdOut, offOut >= 0 ? &off_out : NULL, (size_t) len,
+                     SPLICE_F_NONBLOCK | SPLICE_F_MOVE);
+        // Keep on splicing if we was interrupted
+    } while (res == -1 && ((err = errno) == EINTR));
+
+    if (res < 0) {
+        if (err == EAGAIN || err == EWOULDBLOCK) {
+            // Nothing left to read or no space left to write
+            return 0;
+        }
+        if (err == EBADF) {
+            throwClosedChannelException(env);
+            return -1;
+        }
+        throwIOException(env, exceptionMessage("Error during splice(...): ", err));
+        return -1;
+    }
+
+    if (res == 0) {
+        // end-of-stream
+        return -1;
+    }
+    return (jint) res;
+}
+
+JNIEXPORT jint JNICALL Java_io_netty_channel_epoll_Native_getFd(JNIEnv * env, jclass clazz, jobject fileDescriptor) {
+    return (*env)->GetIntField(env, fileDescriptor, fdFieldId);
+}
+
 JNIEXPORT jobject JNICALL Java_io_netty_channel_epoll_Native_remoteAddress(JNIEnv * env, jclass clazz, jint fd) {
     socklen_t len;
     struct sockaddr_storage addr;
@@ -870,10 +1258,63 @@ JNIEXPORT jobject JNICALL Java_io_netty_channel_epoll_Native_localAddress(JNIEnv
     return createInetSocketAddress(env, addr);
 }
 
+void setMulticastMembership(JNIEnv * env, jint fd, int groupOptName, int sourceOptName, jbyteArray group, jstring interfaceName, jbyteArray source) {
+    const char *name = (*env)->GetStringUTFChars(env, interfaceName, NULL);
+    if (name == NULL) {
+        // pending exception...
+        return;
+    }
+    unsigned int interfaceIndex = if_nametoindex(name);
+    (*env)->ReleaseStringUTFChars(env, interfaceName, name);
+    if (interfaceIndex == 0) {
+        int err = errno;
+        throwIOException(env, exceptionMessage("Error during if_nametoindex(...): ", err));
+        return;
+    }
+
+    // the protocol independent options need the level of the group, not the one of the socket
+    int level = (*env)->GetArrayLength(env, group) == 4 ? IPPROTO_IP : IPPROTO_IPV6;
+    int res;
+    if (source == NULL) {
+        struct group_req req;
+        memset(&req, 0, sizeof(req));
+        req.gr_interface = interfaceIndex;
+        init_raw_sockaddr(env, group, &req.gr_group);
+        res = setsockopt(fd, level, groupOptName, &req, sizeof(req));
+    } else {
+        struct group_source_req req;
+        memset(&req, 0, sizeof(req));
+        req.gsr_interface = interfaceIndex;
+        init_raw_sockaddr(env, group, &req.gsr_group);
+        init_raw_sockaddr(env, source, &req.gsr_source);
+        res = setsockopt(fd, level, sourceOptName, &req, sizeof(req));
+    }
+    if (res < 0) {
+        int err = errno;
+        throwIOException(env, exceptionMessage("Error during setsockopt(...): ", err));
+    }
+}
+
+JNIEXPORT void JNICALL Java_io_netty_channel_epoll_Native_joinGroup(JNIEnv * env, jclass clazz, jint fd, jbyteArray group, jstring interfaceName, jbyteArray source) {
+    setMulticastMembership(env, fd, MCAST_JOIN_GROUP, MCAST_JOIN_SOURCE_GROUP, group, interfaceName, source);
+}
+
+JNIEXPORT void JNICALL Java_io_netty_channel_epoll_Native_leaveGroup(JNIEnv * env, jclass clazz, jint fd, jbyteArray group, jstring interfaceName, jbyteArray source) {
+    setMulticastMembership(env, fd, MCAST_LEAVE_GROUP, MCAST_LEAVE_SOURCE_GROUP, group, interfaceName, source);
+}
+
+JNIEXPORT void JNICALL Java_io_netty_channel_epoll_Native_blockSource(JNIEnv * env, jclass clazz, jint fd, jbyteArray group, jstring interfaceName, jbyteArray source) {
+    setMulticastMembership(env, fd, MCAST_BLOCK_SOURCE, MCAST_BLOCK_SOURCE, group, interfaceName, source);
+}
+
 JNIEXPORT void JNICALL Java_io_netty_channel_epoll_Native_setReuseAddress(JNIEnv * env, jclass clazz, jint fd, jint optval) {
     setOption(env, fd, SOL_SOCKET, SO_REUSEADDR, &optval, sizeof(optval));
 }
 
+JNIEXPORT void JNICALL Java_io_netty_channel_epoll_Native_setReusePort(JNIEnv * env, jclass clazz, jint fd, jint optval) {
+    setOption(env, fd, SOL_SOCKET, SO_REUSEPORT, &optval, sizeof(optval));
+}
+
 JNIEXPORT void JNICALL Java_io_netty_channel_epoll_Native_setTcpNoDelay(JNIEnv *env, jclass clazz, jint fd, jint optval) {
     setOption(env, fd, IPPROTO_TCP, TCP_NODELAY, &optval, sizeof(optval));
 }
@@ -894,11 +1335,11 @@ JNIEXPORT void JNICALL Java_io_netty_channel_epoll_Native_setTcpCork(JNIEnv *env
     setOption(env, fd, SOL_TCP, TCP_CORK, &optval, sizeof(optval));
 }
 
-JNIEXPORT void JNICALL Java_io_netty_channel_epoll_Native_setSoLinger(JNIEnv *env, jclass clazz, jint fd, jint optval) {
+JNIEXPORT void JNICALL Java_io_netty_channel_epoll_Native_setTrafficClass(JNIEnv *env, jclass clazz, jint fd, jint optval) {
     setOption(env, fd, IPPROTO_IP, IP_TOS, &optval, sizeof(optval));
 }
 
-JNIEXPORT void JNICALL Java_io_netty_channel_epoll_Native_setTrafficClass(JNIEnv *env, jclass clazz, jint fd, jint optval) {
+JNIEXPORT void JNICALL Java_io_netty_channel_epoll_Native_setSoLinger(JNIEnv *env, jclass clazz, jint fd, jint optval) {
     struct linger solinger;
     if (optval < 0) {
         solinger.l_onoff = 0;
@@ -910,7 +1351,46 @@ JNIEXPORT void JNICALL Java_io_netty_channel_epoll_Native_setTrafficClass(JNIEnv
     setOption(env, fd, SOL_SOCKET, SO_LINGER, &solinger, sizeof(solinger));
 }
 
-JNIEXPORT jint JNICALL Java_io_netty_channel_epoll_Native_isReuseAddresss(JNIEnv *env, jclass clazz, jint fd) {
+JNIEXPORT void JNICALL Java_io_netty_channel_epoll_Native_setBroadcast(JNIEnv *env, jclass clazz, jint fd, jint optval) {
+    setOption(env, fd, SOL_SOCKET, SO_BROADCAST, &optval, sizeof(optval));
+}
+
+JNIEXPORT void JNICALL Java_io_netty_channel_epoll_Native_setMulticastLoop(JNIEnv *env, jclass clazz, jint fd, jint optval) {
+    // set the option for ipv4 and ipv6 traffic, as an ipv6 socket may send both
+    if (setOption(env, fd, IPPROTO_IP, IP_MULTICAST_LOOP, &optval, sizeof(optval)) == 0 && socketType == AF_INET6) {
+        setOption(env, fd, IPPROTO_IPV6, IPV6_MULTICAST_LOOP, &optval, sizeof(optval));
+    }
+}
+
+JNIEXPORT void JNICALL Java_io_netty_channel_epoll_Native_setMulticastTtl(JNIEnv *env, jclass clazz, jint fd, jint optval) {
+    if (setOption(env, fd, IPPROTO_IP, IP_MULTICAST_TTL, &optval, sizeof(optval)) == 0 && socketType == AF_INET6) {
+        setOption(env, fd, IPPROTO_IPV6, IPV6_MULTICAST_HOPS, &optval, sizeof(optval));
+    }
+}
+
+JNIEXPORT void JNICALL Java_io_netty_channel_epoll_Native_setMulticastInterface(JNIEnv *env, jclass clazz, jint fd, jstring interfaceName) {
+    const char *name = (*env)->GetStringUTFChars(env, interfaceName, NULL);
+    if (name == NULL) {
+        // pending exception...
+        return;
+    }
+    int interfaceIndex = (int) if_nametoindex(name);
+    (*env)->ReleaseStringUTFChars(env, interfaceName, name);
+    if (interfaceIndex == 0) {
+        int err = errno;
+        throwRuntimeException(env, exceptionMessage("Error during if_nametoindex(...): ", err));
+        return;
+    }
+
+    struct ip_mreqn mreqn;
+    memset(&mreqn, 0, sizeof(mreqn));
+    mreqn.imr_ifindex = interfaceIndex;
+    if (setOption(env, fd, IPPROTO_IP, IP_MULTICAST_IF, &mreqn, sizeof(mreqn)) == 0 && socketType == AF_INET6) {
+        setOption(env, fd, IPPROTO_IPV6, IPV6_MULTICAST_IF, &interfaceIndex, sizeof(interfaceIndex));
+    }
+}
+
+JNIEXPORT jint JNICALL Java_io_netty_channel_epoll_Native_isReuseAddress(JNIEnv *env, jclass clazz, jint fd) {
     int optval;
     if (getOption(env, fd, SOL_SOCKET, SO_REUSEADDR, &optval, sizeof(optval)) == -1) {
         return -1;
@@ -918,6 +1398,14 @@ JNIEXPORT jint JNICALL Java_io_netty_channel_epoll_Native_isReuseAddresss(JNIEnv
     return optval;
 }
 
+JNIEXPORT jint JNICALL Java_io_netty_channel_epoll_Native_isReusePort(JNIEnv *env, jclass clazz, jint fd) {
+    int optval;
+    if (getOption(env, fd, SOL_SOCKET, SO_REUSEPORT, &optval, sizeof(optval)) == -1) {
+        return -1;
+    }
+    return optval;
+}
+
 JNIEXPORT jint JNICALL Java_io_netty_channel_epoll_Native_isTcpNoDelay(JNIEnv *env, jclass clazz, jint fd) {
     int optval;
     if (getOption(env, fd, IPPROTO_TCP, TCP_NODELAY, &optval, sizeof(optval)) == -1) {
@@ -962,6 +1450,30 @@ JNIEXPORT jint JNICALL Java_io_netty_channel_epoll_Native_getSoLinger(JNIEnv *en
     }
 }
 
+JNIEXPORT jint JNICALL Java_io_netty_channel_epoll_Native_isBroadcast(JNIEnv *env, jclass clazz, jint fd) {
+    int optval;
+    if (getOption(env, fd, SOL_SOCKET, SO_BROADCAST, &optval, sizeof(optval)) == -1) {
+        return -1;
+    }
+    return optval;
+}
+
+JNIEXPORT jint JNICALL Java_io_netty_channel_epoll_Native_isMulticastLoop(JNIEnv *env, jclass clazz, jint fd) {
+    int optval;
+    if (getOption(env, fd, IPPROTO_IP, IP_MULTICAST_LOOP, &optval, sizeof(optval)) == -1) {
+        return -1;
+    }
+    return optval;
+}
+
+JNIEXPORT jint JNICALL Java_io_netty_channel_epoll_Native_getMulticastTtl(JNIEnv *env, jclass clazz, jint fd) {
+    int optval;
+    if (getOption(env, fd, IPPROTO_IP, IP_MULTICAST_TTL, &optval, sizeof(optval)) == -1) {
+        return -1;
+    }
+    return optval;
+}
+
 JNIEXPORT jint JNICALL Java_io_netty_channel_epoll_Native_getTrafficClass(JNIEnv *env, jclass clazz, jint fd) {
     int optval;
     if (getOption(env, fd, IPPROTO_IP, IP_TOS, &optval, sizeof(optval)) == -1) {
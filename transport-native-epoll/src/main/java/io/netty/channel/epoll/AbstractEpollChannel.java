@@ -30,10 +30,10 @@ abstract class AbstractEpollChannel extends AbstractChannel {
     protected int flags;
     protected volatile boolean active;
     volatile int fd;
-    int id;
+    private volatile EpollMode epollMode = EpollMode.EDGE_TRIGGERED;
 
     AbstractEpollChannel(EventLoop eventLoop, int flag) {
-        this(null, eventLoop, socketFd(), flag, false);
+        this(null, eventLoop, socketStreamFd(), flag, false);
     }
 
     AbstractEpollChannel(Channel parent, EventLoop eventLoop, int fd, int flag, boolean active) {
@@ -44,9 +44,17 @@ abstract class AbstractEpollChannel extends AbstractChannel {
         this.active = active;
     }
 
-    private static int socketFd() {
+    private static int socketStreamFd() {
         try {
-            return Native.socket();
+            return Native.socketStreamFd();
+        } catch (IOException e) {
+            throw new ChannelException(e);
+        }
+    }
+
+    static int socketDgramFd() {
+        try {
+            return Native.socketDgramFd();
         } catch (IOException e) {
             throw new ChannelException(e);
         }
@@ -106,6 +114,10 @@ abstract class AbstractEpollChannel extends AbstractChannel {
 
     @Override
     protected void doBeginRead() throws Exception {
+        setEpollIn();
+    }
+
+    protected final void setEpollIn() {
         if ((flags & readFlag) == 0) {
             flags |= readFlag;
             ((EpollEventLoop) eventLoop()).modify(this);
@@ -119,6 +131,69 @@ abstract class AbstractEpollChannel extends AbstractChannel {
         }
     }
 
+    /**
+     * Returns the {@link EpollMode} in which this channel is registered with epoll.
+     */
+    final EpollMode epollMode() {
+        return epollMode;
+    }
+
+    /**
+     * Set the {@link EpollMode} in which this channel is registered with epoll.  If the channel is registered already
+     * the registration is modified by the {@link EventLoop}.
+     */
+    final void epollMode(EpollMode epollMode) {
+        if (epollMode == null) {
+            throw new NullPointerException("epollMode");
+        }
+        if (this.epollMode == epollMode) {
+            return;
+        }
+        this.epollMode = epollMode;
+
+        if (isRegistered()) {
+            EventLoop loop = eventLoop();
+            if (loop.inEventLoop()) {
+                modifyEpollMode();
+            } else {
+                loop.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        modifyEpollMode();
+                    }
+                });
+            }
+        }
+    }
+
+    private void modifyEpollMode() {
+        if (isOpen() && isRegistered()) {
+            ((EpollEventLoop) eventLoop()).modify(this);
+        }
+    }
+
+    /**
+     * Returns the flags to register this channel with epoll, which are the events it is interested in and the
+     * {@link EpollMode}.
+     */
+    final int epollFlags() {
+        return flags | epollMode.flags;
+    }
+
+    protected final void setEpollOut() {
+        if ((flags & Native.EPOLLOUT) == 0) {
+            flags |= Native.EPOLLOUT;
+            ((EpollEventLoop) eventLoop()).modify(this);
+        }
+    }
+
+    protected final void clearEpollOut() {
+        if ((flags & Native.EPOLLOUT) != 0) {
+            flags &= ~Native.EPOLLOUT;
+            ((EpollEventLoop) eventLoop()).modify(this);
+        }
+    }
+
     @Override
     protected void doRegister() throws Exception {
         EpollEventLoop loop = (EpollEventLoop) eventLoop();
@@ -130,12 +205,36 @@ abstract class AbstractEpollChannel extends AbstractChannel {
 
     protected abstract class AbstractEpollUnsafe extends AbstractUnsafe {
         protected boolean readPending;
+        private boolean epollInReadyPending;
+        private final Runnable epollInReadyTask = new Runnable() {
+            @Override
+            public void run() {
+                epollInReadyPending = false;
+                // Only continue if the channel still wants to read, e.g. auto read may have been disabled meanwhile.
+                if (isOpen() && (flags & readFlag) != 0) {
+                    epollInReady();
+                }
+            }
+        };
 
         /**
          * Called once EPOLLIN event is ready to be processed
          */
         abstract void epollInReady();
 
+        /**
+         * Called by {@link #epollInReady()} if it stopped because the budget of
+         * {@link io.netty.channel.ChannelConfig#getMaxMessagesPerRead()} reads was used up, although there may be more
+         * to read.  With {@link EpollMode#EDGE_TRIGGERED} epoll does not notify about it again, so this schedules
+         * {@link #epollInReady()} to continue once the other ready channels of the {@link EventLoop} were served.
+         */
+        final void readBudgetExhausted() {
+            if (epollMode == EpollMode.EDGE_TRIGGERED && !epollInReadyPending) {
+                epollInReadyPending = true;
+                eventLoop().execute(epollInReadyTask);
+            }
+        }
+
         /**
          * Called once EPOLLRDHUP event is ready to be processed
          */
@@ -21,6 +21,8 @@ public final class EpollChannelOption {
     private static final Class<EpollChannelOption> T = EpollChannelOption.class;
 
     public static final ChannelOption<Boolean> TCP_CORK = ChannelOption.valueOf(T, "TCP_CORK");
+    public static final ChannelOption<Boolean> SO_REUSEPORT = ChannelOption.valueOf(T, "SO_REUSEPORT");
+    public static final ChannelOption<EpollMode> EPOLL_MODE = ChannelOption.valueOf(T, "EPOLL_MODE");
 
     private EpollChannelOption() { }
 
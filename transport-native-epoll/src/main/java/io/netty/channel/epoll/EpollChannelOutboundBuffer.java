@@ -88,7 +88,8 @@ final class EpollChannelOutboundBuffer extends ChannelOutboundBuffer {
         Object m;
         int unflushed = unflushed();
         int flushed = flushed();
-        while (flushed != unflushed && (m = buffer[flushed].msg()) != null) {
+        // Stop at IOV_MAX as writev(...) fails with EINVAL for more buffers, the rest is written by the next call.
+        while (flushed != unflushed && addressCount < Native.IOV_MAX && (m = buffer[flushed].msg()) != null) {
             if (!(m instanceof ByteBuf)) {
                 this.addressCount = 0;
                 this.addressSize = 0;
@@ -0,0 +1,587 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.epoll;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.channel.AddressedEnvelope;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelMetadata;
+import io.netty.channel.ChannelOutboundBuffer;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.EventLoop;
+import io.netty.channel.RecvByteBufAllocator;
+import io.netty.channel.epoll.NativeDatagramPacketArray.NativeDatagramPacket;
+import io.netty.channel.socket.DatagramChannel;
+import io.netty.channel.socket.DatagramPacket;
+import io.netty.util.internal.PlatformDependent;
+import io.netty.util.internal.StringUtil;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.NetworkInterface;
+import java.net.SocketAddress;
+import java.net.SocketException;
+import java.nio.ByteBuffer;
+import java.nio.channels.UnresolvedAddressException;
+
+/**
+ * {@link DatagramChannel} implementation that uses linux EPOLL Edge-Triggered Mode for
+ * maximal performance.  Datagrams are received with {@code recvmmsg(...)} and sent with {@code sendmmsg(...)}, so
+ * up to {@link io.netty.channel.ChannelConfig#getMaxMessagesPerRead()} datagrams are received and all flushed
+ * datagrams are sent with a single system call.  The mode can be changed with
+ * {@link EpollChannelOption#EPOLL_MODE}.
+ */
+public final class EpollDatagramChannel extends AbstractEpollChannel implements DatagramChannel {
+    private static final ChannelMetadata METADATA = new ChannelMetadata(true);
+
+    private final EpollDatagramChannelConfig config;
+    private volatile InetSocketAddress local;
+    private volatile InetSocketAddress remote;
+    private volatile boolean connected;
+
+    public EpollDatagramChannel(EventLoop loop) {
+        super(null, loop, socketDgramFd(), Native.EPOLLIN, false);
+        config = new EpollDatagramChannelConfig(this);
+    }
+
+    @Override
+    public InetSocketAddress remoteAddress() {
+        return (InetSocketAddress) super.remoteAddress();
+    }
+
+    @Override
+    public InetSocketAddress localAddress() {
+        return (InetSocketAddress) super.localAddress();
+    }
+
+    @Override
+    public ChannelMetadata metadata() {
+        return METADATA;
+    }
+
+    @Override
+    public boolean isActive() {
+        return fd != -1 && (config.getActiveOnOpen() && isRegistered() || active);
+    }
+
+    @Override
+    public boolean isConnected() {
+        return connected;
+    }
+
+    @Override
+    public ChannelFuture joinGroup(InetAddress multicastAddress) {
+        return joinGroup(multicastAddress, newPromise());
+    }
+
+    @Override
+    public ChannelFuture joinGroup(InetAddress multicastAddress, ChannelPromise promise) {
+        try {
+            return joinGroup(
+                    multicastAddress,
+                    NetworkInterface.getByInetAddress(localAddress().getAddress()),
+                    null, promise);
+        } catch (SocketException e) {
+            promise.setFailure(e);
+        }
+        return promise;
+    }
+
+    @Override
+    public ChannelFuture joinGroup(
+            InetSocketAddress multicastAddress, NetworkInterface networkInterface) {
+        return joinGroup(multicastAddress, networkInterface, newPromise());
+    }
+
+    @Override
+    public ChannelFuture joinGroup(
+            InetSocketAddress multicastAddress, NetworkInterface networkInterface,
+            ChannelPromise promise) {
+        return joinGroup(multicastAddress.getAddress(), networkInterface, null, promise);
+    }
+
+    @Override
+    public ChannelFuture joinGroup(
+            InetAddress multicastAddress, NetworkInterface networkInterface, InetAddress source) {
+        return joinGroup(multicastAddress, networkInterface, source, newPromise());
+    }
+
+    @Override
+    public ChannelFuture joinGroup(
+            InetAddress multicastAddress, NetworkInterface networkInterface,
+            InetAddress source, ChannelPromise promise) {
+
+        if (multicastAddress == null) {
+            throw new NullPointerException("multicastAddress");
+        }
+
+        if (networkInterface == null) {
+            throw new NullPointerException("networkInterface");
+        }
+
+        try {
+            Native.joinGroup(fd, multicastAddress.getAddress(), networkInterface.getName(),
+                    source == null ? null : source.getAddress());
+            promise.setSuccess();
+        } catch (Throwable e) {
+            promise.setFailure(e);
+        }
+        return promise;
+    }
+
+    @Override
+    public ChannelFuture leaveGroup(InetAddress multicastAddress) {
+        return leaveGroup(multicastAddress, newPromise());
+    }
+
+    @Override
+    public ChannelFuture leaveGroup(InetAddress multicastAddress, ChannelPromise promise) {
+        try {
+            return leaveGroup(
+                    multicastAddress, NetworkInterface.getByInetAddress(localAddress().getAddress()), null, promise);
+        } catch (SocketException e) {
+            promise.setFailure(e);
+        }
+        return promise;
+    }
+
+    @Override
+    public ChannelFuture leaveGroup(
+            InetSocketAddress multicastAddress, NetworkInterface networkInterface) {
+        return leaveGroup(multicastAddress, networkInterface, newPromise());
+    }
+
+    @Override
+    public ChannelFuture leaveGroup(
+            InetSocketAddress multicastAddress,
+            NetworkInterface networkInterface, ChannelPromise promise) {
+        return leaveGroup(multicastAddress.getAddress(), networkInterface, null, promise);
+    }
+
+    @Override
+    public ChannelFuture leaveGroup(
+            InetAddress multicastAddress, NetworkInterface networkInterface, InetAddress source) {
+        return leaveGroup(multicastAddress, networkInterface, source, newPromise());
+    }
+
+    @Override
+    public ChannelFuture leaveGroup(
+            InetAddress multicastAddress, NetworkInterface networkInterface, InetAddress source,
+            ChannelPromise promise) {
+        if (multicastAddress == null) {
+            throw new NullPointerException("multicastAddress");
+        }
+        if (networkInterface == null) {
+            throw new NullPointerException("networkInterface");
+        }
+
+        try {
+            Native.leaveGroup(fd, multicastAddress.getAddress(), networkInterface.getName(),
+                    source == null ? null : source.getAddress());
+            promise.setSuccess();
+        } catch (Throwable e) {
+            promise.setFailure(e);
+        }
+        return promise;
+    }
+
+    /**
+     * Block the given sourceToBlock address for the given multicastAddress on the given networkInterface
+     */
+    @Override
+    public ChannelFuture block(
+            InetAddress multicastAddress, NetworkInterface networkInterface,
+            InetAddress sourceToBlock) {
+        return block(multicastAddress, networkInterface, sourceToBlock, newPromise());
+    }
+
+    /**
+     * Block the given sourceToBlock address for the given multicastAddress on the given networkInterface
+     */
+    @Override
+    public ChannelFuture block(
+            InetAddress multicastAddress, NetworkInterface networkInterface,
+            InetAddress sourceToBlock, ChannelPromise promise) {
+        if (multicastAddress == null) {
+            throw new NullPointerException("multicastAddress");
+        }
+        if (sourceToBlock == null) {
+            throw new NullPointerException("sourceToBlock");
+        }
+
+        if (networkInterface == null) {
+            throw new NullPointerException("networkInterface");
+        }
+
+        try {
+            Native.blockSource(fd, multicastAddress.getAddress(), networkInterface.getName(),
+                    sourceToBlock.getAddress());
+            promise.setSuccess();
+        } catch (Throwable e) {
+            promise.setFailure(e);
+        }
+        return promise;
+    }
+
+    /**
+     * Block the given sourceToBlock address for the given multicastAddress
+     */
+    @Override
+    public ChannelFuture block(InetAddress multicastAddress, InetAddress sourceToBlock) {
+        return block(multicastAddress, sourceToBlock, newPromise());
+    }
+
+    /**
+     * Block the given sourceToBlock address for the given multicastAddress
+     */
+    @Override
+    public ChannelFuture block(
+            InetAddress multicastAddress, InetAddress sourceToBlock, ChannelPromise promise) {
+        try {
+            return block(
+                    multicastAddress,
+                    NetworkInterface.getByInetAddress(localAddress().getAddress()),
+                    sourceToBlock, promise);
+        } catch (SocketException e) {
+            promise.setFailure(e);
+        }
+        return promise;
+    }
+
+    @Override
+    protected AbstractEpollUnsafe newUnsafe() {
+        return new EpollDatagramChannelUnsafe();
+    }
+
+    @Override
+    protected InetSocketAddress localAddress0() {
+        return local;
+    }
+
+    @Override
+    protected InetSocketAddress remoteAddress0() {
+        return remote;
+    }
+
+    @Override
+    protected void doBind(SocketAddress localAddress) throws Exception {
+        InetSocketAddress addr = (InetSocketAddress) localAddress;
+        Native.bind(fd, addr.getAddress(), addr.getPort());
+        // Ask the kernel for the address, as the port may have been chosen by it.
+        local = Native.localAddress(fd);
+        active = true;
+    }
+
+    @Override
+    protected void doWrite(ChannelOutboundBuffer in) throws Exception {
+        for (;;) {
+            final int msgCount = in.size();
+
+            if (msgCount == 0) {
+                // Wrote all messages.
+                clearEpollOut();
+                break;
+            }
+
+            // Send all the datagrams at once if there is more than one and we can access their memory addresses.
+            if (msgCount > 1 && PlatformDependent.hasUnsafe()) {
+                NativeDatagramPacketArray array = ((EpollDatagramChannelOutboundBuffer) in).packets();
+                int cnt = array.count();
+                if (cnt > 1) {
+                    int sent = Native.sendmmsg(fd, array.packets(), 0, cnt);
+                    for (int i = 0; i < sent; i ++) {
+                        in.remove();
+                    }
+                    if (sent < cnt) {
+                        // The socket send buffer is full, so wait until we are notified that we can write again.
+                        setEpollOut();
+                        break;
+                    }
+
+                    // We do not break the loop here even if the outbound buffer was flushed completely,
+                    // because a user might have triggered another write and flush when we notify his or her
+                    // listeners.
+                    continue;
+                }
+            }
+
+            Object msg = in.current();
+            boolean done;
+            try {
+                done = doWriteMessage(msg, (EpollDatagramChannelOutboundBuffer) in);
+            } catch (UnresolvedAddressException e) {
+                // Only fail this datagram and not all the others which were flushed.
+                in.remove(e);
+                continue;
+            }
+            if (done) {
+                in.remove();
+            } else {
+                setEpollOut();
+                break;
+            }
+        }
+    }
+
+    private boolean doWriteMessage(Object msg, EpollDatagramChannelOutboundBuffer in) throws Exception {
+        final ByteBuf data;
+        final InetSocketAddress remoteAddress;
+        if (msg instanceof AddressedEnvelope) {
+            @SuppressWarnings("unchecked")
+            AddressedEnvelope<Object, InetSocketAddress> envelope = (AddressedEnvelope<Object, InetSocketAddress>) msg;
+            if (!(envelope.content() instanceof ByteBuf)) {
+                throw new UnsupportedOperationException(
+                        "unsupported message type: " + StringUtil.simpleClassName(msg));
+            }
+            data = (ByteBuf) envelope.content();
+            remoteAddress = envelope.recipient();
+        } else if (msg instanceof ByteBuf) {
+            data = (ByteBuf) msg;
+            remoteAddress = null;
+        } else {
+            throw new UnsupportedOperationException("unsupported message type: " + StringUtil.simpleClassName(msg));
+        }
+
+        if (remoteAddress != null && remoteAddress.isUnresolved()) {
+            throw new UnresolvedAddressException();
+        }
+
+        final int dataLen = data.readableBytes();
+        if (dataLen == 0) {
+            return true;
+        }
+
+        NativeDatagramPacketArray array = in.packets();
+        if (data.hasMemoryAddress()) {
+            array.clear();
+            array.add(data, remoteAddress);
+            return Native.sendmmsg(fd, array.packets(), 0, 1) > 0;
+        }
+
+        // No memory address, so fallback to use a ByteBuffer and pass the address only.
+        NativeDatagramPacket packet = array.packets()[0];
+        packet.init(0, 0, remoteAddress);
+        if (data.isDirect() && data.nioBufferCount() == 1) {
+            ByteBuffer nioData = data.internalNioBuffer(data.readerIndex(), dataLen);
+            return Native.sendTo(fd, nioData, nioData.position(), nioData.limit(), packet) > 0;
+        }
+
+        // The content could not be converted to a direct buffer in beforeAdd(...), so copy it now.
+        ByteBuf direct = alloc().directBuffer(dataLen);
+        try {
+            direct.writeBytes(data, data.readerIndex(), dataLen);
+            ByteBuffer nioData = direct.internalNioBuffer(0, dataLen);
+            return Native.sendTo(fd, nioData, nioData.position(), nioData.limit(), packet) > 0;
+        } finally {
+            direct.release();
+        }
+    }
+
+    @Override
+    public EpollDatagramChannelConfig config() {
+        return config;
+    }
+
+    @Override
+    protected void doDisconnect() throws Exception {
+        Native.disconnect(fd);
+        connected = false;
+        remote = null;
+        invalidateRemoteAddress();
+    }
+
+    @Override
+    protected void doClose() throws Exception {
+        super.doClose();
+        connected = false;
+    }
+
+    @Override
+    protected ChannelOutboundBuffer newOutboundBuffer() {
+        return EpollDatagramChannelOutboundBuffer.newInstance(this);
+    }
+
+    final class EpollDatagramChannelUnsafe extends AbstractEpollUnsafe {
+        // Separate from the packets of the outbound buffer, as a handler may write while we fire the read packets.
+        private final NativeDatagramPacketArray readPackets = new NativeDatagramPacketArray();
+        private final ByteBuf[] readBufs = new ByteBuf[NativeDatagramPacketArray.CAPACITY];
+        private RecvByteBufAllocator.Handle allocHandle;
+
+        @Override
+        public void connect(SocketAddress remote, SocketAddress local, ChannelPromise channelPromise) {
+            if (!channelPromise.setUncancellable() || !ensureOpen(channelPromise)) {
+                return;
+            }
+
+            boolean success = false;
+            try {
+                try {
+                    boolean wasActive = isActive();
+                    InetSocketAddress remoteAddress = (InetSocketAddress) remote;
+                    if (local != null) {
+                        doBind(local);
+                    }
+
+                    // Connecting a datagram socket only sets the default peer, so it completes at once.
+                    Native.connect(fd, remoteAddress.getAddress(), remoteAddress.getPort());
+                    EpollDatagramChannel.this.remote = remoteAddress;
+                    EpollDatagramChannel.this.local = Native.localAddress(fd);
+                    connected = true;
+                    active = true;
+                    success = true;
+
+                    channelPromise.trySuccess();
+                    if (!wasActive && isActive()) {
+                        pipeline().fireChannelActive();
+                    }
+                } finally {
+                    if (!success) {
+                        doClose();
+                    }
+                }
+            } catch (Throwable cause) {
+                channelPromise.tryFailure(cause);
+                closeIfClosed();
+            }
+        }
+
+        @Override
+        void epollInReady() {
+            assert eventLoop().inEventLoop();
+            final EpollDatagramChannelConfig config = config();
+            final ChannelPipeline pipeline = pipeline();
+            final ByteBufAllocator allocator = config.getAllocator();
+            RecvByteBufAllocator.Handle allocHandle = this.allocHandle;
+            if (allocHandle == null) {
+                this.allocHandle = allocHandle = config.getRecvByteBufAllocator().newHandle();
+            }
+
+            final NativeDatagramPacket[] packets = readPackets.packets();
+            final ByteBuf[] bufs = readBufs;
+            final int maxMessagesPerRead = config.getMaxMessagesPerRead();
+            final int batchSize = Math.min(maxMessagesPerRead, bufs.length);
+            final InetSocketAddress localAddress = EpollDatagramChannel.this.localAddress();
+            int count = 0;
+            int messages = 0;
+            Throwable exception = null;
+            try {
+                try {
+                    for (;;) {
+                        // we use direct buffers here as the native implementations only be able
+                        // to handle direct buffers.
+                        int received;
+                        ByteBuf byteBuf = allocator.directBuffer(allocHandle.guess());
+                        bufs[0] = byteBuf;
+                        count = 1;
+                        if (byteBuf.hasMemoryAddress()) {
+                            packets[0].init(byteBuf.memoryAddress() + byteBuf.writerIndex(),
+                                    byteBuf.writableBytes(), null);
+                            while (count < batchSize) {
+                                byteBuf = allocator.directBuffer(allocHandle.guess());
+                                if (!byteBuf.hasMemoryAddress()) {
+                                    byteBuf.release();
+                                    break;
+                                }
+                                bufs[count] = byteBuf;
+                                packets[count ++].init(byteBuf.memoryAddress() + byteBuf.writerIndex(),
+                                        byteBuf.writableBytes(), null);
+                            }
+                            received = Native.recvmmsg(fd, packets, 0, count);
+                        } else {
+                            ByteBuffer nioData = byteBuf.internalNioBuffer(
+                                    byteBuf.writerIndex(), byteBuf.writableBytes());
+                            received = Native.recvFrom(fd, nioData, nioData.position(), nioData.limit(), packets[0]);
+                        }
+
+                        for (int i = 0; i < received; i ++) {
+                            byteBuf = bufs[i];
+                            bufs[i] = null;
+                            NativeDatagramPacket packet = packets[i];
+                            int readBytes = packet.count();
+                            byteBuf.writerIndex(byteBuf.writerIndex() + readBytes);
+                            allocHandle.record(readBytes);
+
+                            readPending = false;
+                            pipeline.fireChannelRead(new DatagramPacket(byteBuf, localAddress, packet.sender()));
+                        }
+                        releaseReadBufs(received, count);
+                        if (received < count || !isOpen()) {
+                            // Received less datagrams than asked for, which means we drained the socket, or a
+                            // handler closed the channel.
+                            count = 0;
+                            break;
+                        }
+                        count = 0;
+                        messages += received;
+                        if (messages >= maxMessagesPerRead) {
+                            // Give the other channels of the loop a chance to read, and continue later.
+                            readBudgetExhausted();
+                            break;
+                        }
+                    }
+                } catch (Throwable t) {
+                    exception = t;
+                } finally {
+                    releaseReadBufs(0, count);
+                }
+                pipeline.fireChannelReadComplete();
+
+                if (exception != null) {
+                    pipeline.fireExceptionCaught(exception);
+                    if (exception instanceof IOException) {
+                        close(voidPromise());
+                    } else {
+                        // trigger a read again as there may be something left to read and because of epoll ET we
+                        // will not get notified again until we read everything from the socket
+                        eventLoop().execute(new Runnable() {
+                            @Override
+                            public void run() {
+                                epollInReady();
+                            }
+                        });
+                    }
+                }
+            } finally {
+                // Check if there is a readPending which was not processed yet.
+                // This could be for two reasons:
+                // * The user called Channel.read() or ChannelHandlerContext.read() in channelRead(...) method
+                // * The user called Channel.read() or ChannelHandlerContext.read() in channelReadComplete(...) method
+                //
+                // See https://github.com/netty/netty/issues/2254
+                if (!config.isAutoRead() && !readPending) {
+                    clearEpollIn();
+                }
+            }
+        }
+
+        /**
+         * Release the buffers which were allocated but not used to receive a datagram.
+         */
+        private void releaseReadBufs(int from, int to) {
+            final ByteBuf[] bufs = readBufs;
+            for (int i = from; i < to; i ++) {
+                ByteBuf buf = bufs[i];
+                if (buf != null) {
+                    bufs[i] = null;
+                    buf.release();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.epoll;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.AddressedEnvelope;
+import io.netty.channel.ChannelOutboundBuffer;
+import io.netty.channel.DefaultAddressedEnvelope;
+import io.netty.channel.socket.DatagramPacket;
+import io.netty.util.Recycler;
+import io.netty.util.internal.PlatformDependent;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+
+/**
+ * Special {@link ChannelOutboundBuffer} for {@link EpollDatagramChannel} which allows to obtain the flushed datagrams
+ * as {@link NativeDatagramPacketArray} and so send them with a single {@code sendmmsg(...)} call.
+ */
+final class EpollDatagramChannelOutboundBuffer extends ChannelOutboundBuffer {
+    private static final Recycler<EpollDatagramChannelOutboundBuffer> RECYCLER =
+            new Recycler<EpollDatagramChannelOutboundBuffer>() {
+                @Override
+                protected EpollDatagramChannelOutboundBuffer newObject(
+                        Handle<EpollDatagramChannelOutboundBuffer> handle) {
+                    return new EpollDatagramChannelOutboundBuffer(handle);
+                }
+            };
+
+    private final NativeDatagramPacketArray packets = new NativeDatagramPacketArray();
+
+    /**
+     * Get a new instance of this {@link EpollDatagramChannelOutboundBuffer} and attach it the given
+     * {@link EpollDatagramChannel}.
+     */
+    static EpollDatagramChannelOutboundBuffer newInstance(EpollDatagramChannel channel) {
+        EpollDatagramChannelOutboundBuffer buffer = RECYCLER.get();
+        buffer.channel = channel;
+        return buffer;
+    }
+
+    private EpollDatagramChannelOutboundBuffer(Recycler.Handle<EpollDatagramChannelOutboundBuffer> handle) {
+        super(handle);
+    }
+
+    /**
+     * Convert the content of the messages to direct {@link ByteBuf}s, so the native code can operate on their memory
+     * address directly or at least on a single direct {@link java.nio.ByteBuffer}.
+     */
+    @Override
+    protected Object beforeAdd(Object msg) {
+        if (msg instanceof DatagramPacket) {
+            DatagramPacket packet = (DatagramPacket) msg;
+            ByteBuf content = packet.content();
+            if (needsCopy(content)) {
+                return new DatagramPacket(copyToDirectByteBuf(content), packet.recipient(), packet.sender());
+            }
+        } else if (msg instanceof AddressedEnvelope) {
+            @SuppressWarnings("unchecked")
+            AddressedEnvelope<Object, SocketAddress> envelope = (AddressedEnvelope<Object, SocketAddress>) msg;
+            if (envelope.content() instanceof ByteBuf) {
+                ByteBuf content = (ByteBuf) envelope.content();
+                if (needsCopy(content)) {
+                    return new DefaultAddressedEnvelope<ByteBuf, SocketAddress>(
+                            copyToDirectByteBuf(content), envelope.recipient(), envelope.sender());
+                }
+            }
+        } else if (msg instanceof ByteBuf) {
+            ByteBuf buf = (ByteBuf) msg;
+            if (needsCopy(buf)) {
+                return copyToDirectByteBuf(buf);
+            }
+        }
+        return msg;
+    }
+
+    private static boolean needsCopy(ByteBuf buf) {
+        if (PlatformDependent.hasUnsafe()) {
+            return !buf.hasMemoryAddress();
+        }
+        return !buf.isDirect() || buf.nioBufferCount() != 1;
+    }
+
+    /**
+     * Returns the flushed messages as {@link NativeDatagramPacketArray}.  Only the messages at the start of the
+     * buffer which are {@link ByteBuf}s or {@link AddressedEnvelope}s of a {@link ByteBuf} with a memory address and
+     * readable bytes are added, so the first {@link NativeDatagramPacketArray#count()} packets belong to the first
+     * messages, one by one.
+     * <p>
+     * Note that the returned array is reused and thus should not escape
+     * {@link io.netty.channel.AbstractChannel#doWrite(ChannelOutboundBuffer)}.
+     * Refer to {@link EpollDatagramChannel#doWrite(ChannelOutboundBuffer)} for an example.
+     * </p>
+     */
+    NativeDatagramPacketArray packets() {
+        NativeDatagramPacketArray packets = this.packets;
+        packets.clear();
+        final Entry[] buffer = entries();
+        final int mask = buffer.length - 1;
+        Object m;
+        int unflushed = unflushed();
+        int flushed = flushed();
+        while (flushed != unflushed && (m = buffer[flushed].msg()) != null) {
+            ByteBuf content;
+            InetSocketAddress recipient;
+            if (m instanceof AddressedEnvelope) {
+                AddressedEnvelope<?, ?> envelope = (AddressedEnvelope<?, ?>) m;
+                if (!(envelope.content() instanceof ByteBuf) || !(envelope.recipient() instanceof InetSocketAddress)) {
+                    break;
+                }
+                content = (ByteBuf) envelope.content();
+                recipient = (InetSocketAddress) envelope.recipient();
+            } else if (m instanceof ByteBuf) {
+                content = (ByteBuf) m;
+                recipient = null;
+            } else {
+                break;
+            }
+
+            if (!packets.add(content, recipient)) {
+                break;
+            }
+            flushed = flushed + 1 & mask;
+        }
+        return packets;
+    }
+}
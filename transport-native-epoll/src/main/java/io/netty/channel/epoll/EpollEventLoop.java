@@ -19,15 +19,13 @@ import io.netty.channel.EventLoop;
 import io.netty.channel.EventLoopGroup;
 import io.netty.channel.SingleThreadEventLoop;
 import io.netty.channel.epoll.AbstractEpollChannel.AbstractEpollUnsafe;
+import io.netty.util.collection.IntObjectHashMap;
+import io.netty.util.collection.IntObjectMap;
 import io.netty.util.internal.PlatformDependent;
 import io.netty.util.internal.logging.InternalLogger;
 import io.netty.util.internal.logging.InternalLoggerFactory;
 
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.HashMap;
-import java.util.Map;
 import java.util.Queue;
 import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
@@ -50,12 +48,10 @@ final class EpollEventLoop extends SingleThreadEventLoop {
 
     private final int epollFd;
     private final int eventFd;
-    private final Map<Integer, AbstractEpollChannel> ids = new HashMap<Integer, AbstractEpollChannel>();
+    private final IntObjectMap<AbstractEpollChannel> channels = new IntObjectHashMap<AbstractEpollChannel>(4096);
     private final long[] events;
 
-    private int id;
     private int oldWakenUp;
-    private boolean overflown;
 
     @SuppressWarnings("unused")
     private volatile int wakenUp;
@@ -70,7 +66,7 @@ final class EpollEventLoop extends SingleThreadEventLoop {
         try {
             this.epollFd = epollFd = Native.epollCreate();
             this.eventFd = eventFd = Native.eventFd();
-            Native.epollCtlAdd(epollFd, eventFd, Native.EPOLLIN, 0);
+            Native.epollCtlAdd(epollFd, eventFd, Native.EPOLLIN | Native.EPOLLET);
             success = true;
         } finally {
             if (!success) {
@@ -92,27 +88,6 @@ final class EpollEventLoop extends SingleThreadEventLoop {
         }
     }
 
-    private int nextId() {
-        int id = this.id;
-        if (id == Integer.MAX_VALUE) {
-            overflown = true;
-            id = 0;
-        }
-        if (overflown) {
-            // the ids had an overflow before so we need to make sure the id is not in use atm before assign
-            // it.
-            for (;;) {
-                if (!ids.containsKey(++id)) {
-                    this.id = id;
-                    break;
-                }
-            }
-        } else {
-            this.id = ++id;
-        }
-        return id;
-    }
-
     @Override
     protected void wakeup(boolean inEventLoop) {
         if (!inEventLoop && WAKEN_UP_UPDATER.compareAndSet(this, 0, 1)) {
@@ -126,10 +101,9 @@ final class EpollEventLoop extends SingleThreadEventLoop {
      */
     void add(AbstractEpollChannel ch) {
         assert inEventLoop();
-        int id = nextId();
-        Native.epollCtlAdd(epollFd, ch.fd, ch.flags, id);
-        ch.id = id;
-        ids.put(id, ch);
+        int fd = ch.fd;
+        Native.epollCtlAdd(epollFd, fd, ch.epollFlags());
+        channels.put(fd, ch);
     }
 
     /**
@@ -137,7 +111,7 @@ final class EpollEventLoop extends SingleThreadEventLoop {
      */
     void modify(AbstractEpollChannel ch) {
         assert inEventLoop();
-        Native.epollCtlMod(epollFd, ch.fd, ch.flags, ch.id);
+        Native.epollCtlMod(epollFd, ch.fd, ch.epollFlags());
     }
 
     /**
@@ -145,7 +119,7 @@ final class EpollEventLoop extends SingleThreadEventLoop {
      */
     void remove(AbstractEpollChannel ch) {
         assert inEventLoop();
-        if (ids.remove(ch.id) != null && ch.isOpen()) {
+        if (channels.remove(ch.fd) != null && ch.isOpen()) {
             // Remove the epoll. This is only needed if it's still open as otherwise it will be automatically
             // removed once the file-descriptor is closed.
             Native.epollCtlDel(epollFd, ch.fd);
@@ -290,11 +264,8 @@ final class EpollEventLoop extends SingleThreadEventLoop {
 
     private void closeAll() {
         Native.epollWait(epollFd, events, 0);
-        Collection<AbstractEpollChannel> channels = new ArrayList<AbstractEpollChannel>(ids.size());
-
-        for (AbstractEpollChannel ch: ids.values()) {
-            channels.add(ch);
-        }
+        // Take a snapshot as closing a channel removes it from the map.
+        AbstractEpollChannel[] channels = this.channels.values(AbstractEpollChannel.class);
 
         for (AbstractEpollChannel ch: channels) {
             ch.unsafe().close(ch.unsafe().voidPromise());
@@ -305,8 +276,8 @@ final class EpollEventLoop extends SingleThreadEventLoop {
         for (int i = 0; i < ready; i ++) {
             final long ev = events[i];
 
-            int id = (int) (ev >> 32L);
-            if (id == 0) {
+            int fd = (int) (ev >> 32L);
+            if (fd == eventFd) {
                 // consume wakeup event
                 Native.eventFdRead(eventFd);
             } else {
@@ -314,7 +285,7 @@ final class EpollEventLoop extends SingleThreadEventLoop {
                 boolean write = (ev & Native.EPOLLOUT) != 0;
                 boolean close = (ev & Native.EPOLLRDHUP) != 0;
 
-                AbstractEpollChannel ch = ids.get(id);
+                AbstractEpollChannel ch = channels.get(fd);
                 if (ch != null) {
                     AbstractEpollUnsafe unsafe = (AbstractEpollUnsafe) ch.unsafe();
                     if (write && ch.isOpen()) {
@@ -328,6 +299,10 @@ final class EpollEventLoop extends SingleThreadEventLoop {
                     if (close && ch.isOpen()) {
                         unsafe.epollRdHupReady();
                     }
+                    if (ch.epollMode() == EpollMode.ONE_SHOT && ch.isOpen() && channels.get(fd) == ch) {
+                        // Re-arm the file descriptor as epoll disabled it after reporting the event.
+                        modify(ch);
+                    }
                 }
             }
         }
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.epoll;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelConfig;
+
+/**
+ * The mode in which an epoll {@link Channel} is registered with epoll, which can be changed via
+ * {@link EpollChannelOption#EPOLL_MODE}.
+ * <p>
+ * Whatever the mode, a {@link Channel} reads at most {@link ChannelConfig#getMaxMessagesPerRead()} times per wakeup
+ * of its {@link EpollEventLoopGroup} thread, so a single busy {@link Channel} can not starve the others which are
+ * served by the same thread.
+ * </p>
+ */
+public enum EpollMode {
+
+    /**
+     * Use {@code EPOLLET}, so epoll only notifies once something new is ready.  If there is still something left to
+     * read once the read budget is used up, the {@link Channel} schedules itself to continue reading after the other
+     * ready {@link Channel}s were served.  This is the default.
+     */
+    EDGE_TRIGGERED(Native.EPOLLET),
+
+    /**
+     * Do not use {@code EPOLLET}, so epoll keeps notifying as long as something is ready.  This needs no extra task
+     * to continue reading, but epoll reports every busy {@link Channel} again on each wakeup.
+     */
+    LEVEL_TRIGGERED(0),
+
+    /**
+     * Use {@code EPOLLONESHOT}, so epoll notifies once and then disables the file descriptor until it is re-armed
+     * after the event was processed.  Apart from this it behaves like {@link #LEVEL_TRIGGERED}, so whatever is still
+     * ready is reported again after the re-arm.
+     */
+    ONE_SHOT(Native.EPOLLONESHOT);
+
+    final int flags;
+
+    EpollMode(int flags) {
+        this.flags = flags;
+    }
+}
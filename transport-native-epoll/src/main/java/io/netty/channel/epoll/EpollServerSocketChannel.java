@@ -28,7 +28,7 @@ import java.net.SocketAddress;
 
 /**
  * {@link ServerSocketChannel} implementation that uses linux EPOLL Edge-Triggered Mode for
- * maximal performance.
+ * maximal performance.  The mode can be changed with {@link EpollChannelOption#EPOLL_MODE}.
  */
 public final class EpollServerSocketChannel extends AbstractEpollChannel implements ServerSocketChannel {
 
@@ -98,10 +98,16 @@ public final class EpollServerSocketChannel extends AbstractEpollChannel impleme
         void epollInReady() {
             assert eventLoop().inEventLoop();
             final ChannelPipeline pipeline = pipeline();
+            final int maxMessagesPerRead = config.getMaxMessagesPerRead();
             Throwable exception = null;
             try {
                 try {
-                    for (;;) {
+                    for (int messages = 0;; messages ++) {
+                        if (messages == maxMessagesPerRead) {
+                            // Give the other channels of the loop a chance to read, and continue later.
+                            readBudgetExhausted();
+                            break;
+                        }
                         int socketFd = Native.accept(fd);
                         if (socketFd == -1) {
                             // this means everything was handled for now
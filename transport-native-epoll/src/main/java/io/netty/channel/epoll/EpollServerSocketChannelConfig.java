@@ -42,7 +42,8 @@ final class EpollServerSocketChannelConfig extends DefaultChannelConfig
 
     @Override
     public Map<ChannelOption<?>, Object> getOptions() {
-        return getOptions(super.getOptions(), SO_RCVBUF, SO_REUSEADDR, SO_BACKLOG);
+        return getOptions(super.getOptions(), SO_RCVBUF, SO_REUSEADDR, SO_BACKLOG, EpollChannelOption.SO_REUSEPORT,
+                EpollChannelOption.EPOLL_MODE);
     }
 
     @SuppressWarnings("unchecked")
@@ -57,6 +58,12 @@ final class EpollServerSocketChannelConfig extends DefaultChannelConfig
         if (option == SO_BACKLOG) {
             return (T) Integer.valueOf(getBacklog());
         }
+        if (option == EpollChannelOption.SO_REUSEPORT) {
+            return (T) Boolean.valueOf(isReusePort());
+        }
+        if (option == EpollChannelOption.EPOLL_MODE) {
+            return (T) getEpollMode();
+        }
 
         return super.getOption(option);
     }
@@ -71,6 +78,10 @@ final class EpollServerSocketChannelConfig extends DefaultChannelConfig
             setReuseAddress((Boolean) value);
         } else if (option == SO_BACKLOG) {
             setBacklog((Integer) value);
+        } else if (option == EpollChannelOption.SO_REUSEPORT) {
+            setReusePort((Boolean) value);
+        } else if (option == EpollChannelOption.EPOLL_MODE) {
+            setEpollMode((EpollMode) value);
         } else {
             return super.setOption(option, value);
         }
@@ -89,6 +100,41 @@ final class EpollServerSocketChannelConfig extends DefaultChannelConfig
         return this;
     }
 
+    /**
+     * Returns {@code true} if the SO_REUSEPORT option is set.
+     */
+    public boolean isReusePort() {
+        return Native.isReusePort(channel.fd) == 1;
+    }
+
+    /**
+     * Set the SO_REUSEPORT option on the underlying Channel. This will allow to bind multiple
+     * {@link EpollServerSocketChannel}s to the same port and so accept connections with multiple threads.
+     *
+     * Be aware this method needs be called before {@link EpollServerSocketChannel#bind(java.net.SocketAddress)} to have
+     * any affect.
+     */
+    public EpollServerSocketChannelConfig setReusePort(boolean reusePort) {
+        Native.setReusePort(channel.fd, reusePort ? 1 : 0);
+        return this;
+    }
+
+    /**
+     * Returns the {@link EpollMode} in which the channel is registered with epoll.
+     */
+    public EpollMode getEpollMode() {
+        return channel.epollMode();
+    }
+
+    /**
+     * Set the {@link EpollMode} in which the channel is registered with epoll.  The default is
+     * {@link EpollMode#EDGE_TRIGGERED}.
+     */
+    public EpollServerSocketChannelConfig setEpollMode(EpollMode mode) {
+        channel.epollMode(mode);
+        return this;
+    }
+
     @Override
     public int getReceiveBufferSize() {
         return Native.getReceiveBufferSize(channel.fd);
@@ -37,17 +37,21 @@ import io.netty.channel.socket.nio.NioSocketChannelOutboundBuffer;
 import io.netty.util.internal.PlatformDependent;
 import io.netty.util.internal.StringUtil;
 
+import java.io.FileDescriptor;
 import java.io.IOException;
 import java.net.ConnectException;
 import java.net.InetSocketAddress;
 import java.net.SocketAddress;
 import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.util.ArrayDeque;
+import java.util.Queue;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 
 /**
  * {@link SocketChannel} implementation that uses linux EPOLL Edge-Triggered Mode for
- * maximal performance.
+ * maximal performance.  The mode can be changed with {@link EpollChannelOption#EPOLL_MODE}.
  */
 public final class EpollSocketChannel extends AbstractEpollChannel implements SocketChannel {
 
@@ -64,6 +68,9 @@ public final class EpollSocketChannel extends AbstractEpollChannel implements So
     private volatile boolean inputShutdown;
     private volatile boolean outputShutdown;
 
+    // Only accessed from the EventLoop.
+    private Queue<SpliceInTask> spliceQueue;
+
     EpollSocketChannel(Channel parent, EventLoop eventLoop, int fd) {
         super(parent, eventLoop, fd, Native.EPOLLIN, true);
         config = new EpollSocketChannelConfig(this);
@@ -95,20 +102,6 @@ public final class EpollSocketChannel extends AbstractEpollChannel implements So
         Native.bind(fd, localAddress.getAddress(), localAddress.getPort());
     }
 
-    private void setEpollOut() {
-        if ((flags & Native.EPOLLOUT) == 0) {
-            flags |= Native.EPOLLOUT;
-            ((EpollEventLoop) eventLoop()).modify(this);
-        }
-    }
-
-    private void clearEpollOut() {
-        if ((flags & Native.EPOLLOUT) != 0) {
-            flags &= ~Native.EPOLLOUT;
-            ((EpollEventLoop) eventLoop()).modify(this);
-        }
-    }
-
     /**
      * Write bytes form the given {@link ByteBuf} to the underlying {@link java.nio.channels.Channel}.
      * @param buf           the {@link ByteBuf} from which the bytes should be written
@@ -135,7 +128,10 @@ public final class EpollSocketChannel extends AbstractEpollChannel implements So
         return localFlushedAmount;
     }
 
-    private void writeBytesMultiple(
+    /**
+     * Write the given buffers with a gathering write and return {@code true} if all of them were written.
+     */
+    private boolean writeBytesMultiple(
             EpollChannelOutboundBuffer in, int msgCount, AddressEntry[] nioBuffers) throws IOException {
 
         int nioBufferCnt = in.addressCount();
@@ -166,15 +162,26 @@ public final class EpollSocketChannel extends AbstractEpollChannel implements So
                     break;
                 }
             }
-        } else {
-            // Release all buffers
-            for (int i = msgCount; i > 0; i --) {
-                in.remove();
+            return false;
+        }
+
+        // Release all written buffers, which may not be all pending buffers if there were more than IOV_MAX.
+        for (int i = msgCount; i > 0; i --) {
+            final ByteBuf buf = (ByteBuf) in.current();
+            final int readableBytes = buf.writerIndex() - buf.readerIndex();
+            if (readableBytes > localWrittenBytes) {
+                break;
             }
+            localWrittenBytes -= readableBytes;
+            in.remove();
         }
+        return true;
     }
 
-    private void writeBytesMultiple(
+    /**
+     * Write the given buffers with a gathering write and return {@code true} if all of them were written.
+     */
+    private boolean writeBytesMultiple(
             NioSocketChannelOutboundBuffer in, int msgCount, ByteBuffer[] nioBuffers) throws IOException {
 
         int nioBufferCnt = in.nioBufferCount();
@@ -205,12 +212,14 @@ public final class EpollSocketChannel extends AbstractEpollChannel implements So
                     break;
                 }
             }
-        } else {
-            // Release all buffers
-            for (int i = msgCount; i > 0; i --) {
-                in.remove();
-            }
+            return false;
+        }
+
+        // Release all buffers
+        for (int i = msgCount; i > 0; i --) {
+            in.remove();
         }
+        return true;
     }
 
     /**
@@ -244,7 +253,10 @@ public final class EpollSocketChannel extends AbstractEpollChannel implements So
                     // Ensure the pending writes are made of memoryaddresses only.
                     AddressEntry[] addresses = epollIn.memoryAddresses();
                     if (addresses != null) {
-                        writeBytesMultiple(epollIn, msgCount, addresses);
+                        if (!writeBytesMultiple(epollIn, msgCount, addresses)) {
+                            // The socket can not take more now, wait for EPOLLOUT.
+                            break;
+                        }
 
                         // We do not break the loop here even if the outbound buffer was flushed completely,
                         // because a user might have triggered another write and flush when we notify his or her
@@ -256,7 +268,10 @@ public final class EpollSocketChannel extends AbstractEpollChannel implements So
                     // Ensure the pending writes are made of memoryaddresses only.
                     ByteBuffer[] buffers = nioIn.nioBuffers();
                     if (buffers != null) {
-                        writeBytesMultiple(nioIn, msgCount, buffers);
+                        if (!writeBytesMultiple(nioIn, msgCount, buffers)) {
+                            // The socket can not take more now, wait for EPOLLOUT.
+                            break;
+                        }
 
                         // We do not break the loop here even if the outbound buffer was flushed completely,
                         // because a user might have triggered another write and flush when we notify his or her
@@ -302,6 +317,12 @@ public final class EpollSocketChannel extends AbstractEpollChannel implements So
                 if (region.transfered() >= region.count()) {
                     in.remove();
                 }
+            } else if (msg instanceof SpliceOutTask) {
+                if (!((SpliceOutTask) msg).spliceOut(fd, in)) {
+                    setEpollOut();
+                    break;
+                }
+                in.remove();
             } else {
                 throw new UnsupportedOperationException("unsupported message type: " + StringUtil.simpleClassName(msg));
             }
@@ -355,6 +376,153 @@ public final class EpollSocketChannel extends AbstractEpollChannel implements So
         return (ServerSocketChannel) super.parent();
     }
 
+    /**
+     * Splice {@code len} bytes from this {@link EpollSocketChannel} to the given {@link EpollSocketChannel}.
+     *
+     * @see #spliceTo(EpollSocketChannel, int, ChannelPromise)
+     */
+    public ChannelFuture spliceTo(EpollSocketChannel ch, int len) {
+        return spliceTo(ch, len, newPromise());
+    }
+
+    /**
+     * Splice {@code len} bytes from this {@link EpollSocketChannel} to the given {@link EpollSocketChannel}.  The
+     * bytes are moved through a pipe in the kernel and so are never copied into the JVM, and are not seen by the
+     * {@link ChannelPipeline} of either {@link Channel}.  The {@link ChannelPromise} is notified once all of the bytes
+     * were written to the target.
+     * <p>
+     * While the target can not take more bytes, this {@link EpollSocketChannel} stops reading until it did.  Bytes
+     * are spliced in the order the {@code spliceTo(...)} calls were made and before anything is read into a
+     * {@link ByteBuf} again, so {@link ChannelOption#AUTO_READ} should usually be disabled before, as bytes which
+     * were read into a {@link ByteBuf} already are not spliced.
+     * </p>
+     * Both {@link EpollSocketChannel}s must use the same {@link EventLoop}.
+     */
+    public ChannelFuture spliceTo(EpollSocketChannel ch, int len, ChannelPromise promise) {
+        if (ch == null) {
+            throw new NullPointerException("ch");
+        }
+        if (ch.eventLoop() != eventLoop()) {
+            throw new IllegalArgumentException("ch must use the same EventLoop");
+        }
+        checkSpliceLength(len);
+        if (promise == null) {
+            throw new NullPointerException("promise");
+        }
+        addSpliceTask(new SpliceChannelTask(ch, len, promise));
+        return promise;
+    }
+
+    /**
+     * Splice {@code len} bytes from this {@link EpollSocketChannel} to the file with the given {@link FileDescriptor}.
+     *
+     * @see #spliceTo(FileDescriptor, long, int, ChannelPromise)
+     */
+    public ChannelFuture spliceTo(FileDescriptor fd, long offset, int len) {
+        return spliceTo(fd, offset, len, newPromise());
+    }
+
+    /**
+     * Splice {@code len} bytes from this {@link EpollSocketChannel} to the file with the given {@link FileDescriptor},
+     * starting at the given {@code offset} in the file.  The bytes are moved through a pipe in the kernel and so are
+     * never copied into the JVM.  The {@link ChannelPromise} is notified once all of the bytes were written to the
+     * file.
+     *
+     * @see #spliceTo(EpollSocketChannel, int, ChannelPromise)
+     */
+    public ChannelFuture spliceTo(FileDescriptor fd, long offset, int len, ChannelPromise promise) {
+        if (fd == null) {
+            throw new NullPointerException("fd");
+        }
+        if (offset < 0) {
+            throw new IllegalArgumentException("offset: " + offset + " (expected: >= 0)");
+        }
+        checkSpliceLength(len);
+        if (promise == null) {
+            throw new NullPointerException("promise");
+        }
+        addSpliceTask(new SpliceFdTask(Native.getFd(fd), offset, len, promise));
+        return promise;
+    }
+
+    private static void checkSpliceLength(int len) {
+        if (len <= 0) {
+            throw new IllegalArgumentException("len: " + len + " (expected: > 0)");
+        }
+    }
+
+    private void addSpliceTask(final SpliceInTask task) {
+        EventLoop loop = eventLoop();
+        if (loop.inEventLoop()) {
+            addSpliceTask0(task);
+        } else {
+            loop.execute(new Runnable() {
+                @Override
+                public void run() {
+                    addSpliceTask0(task);
+                }
+            });
+        }
+    }
+
+    private void addSpliceTask0(SpliceInTask task) {
+        if (!isOpen() || inputShutdown) {
+            task.fail(new ClosedChannelException());
+            return;
+        }
+        if (spliceQueue == null) {
+            spliceQueue = new ArrayDeque<SpliceInTask>();
+        }
+        spliceQueue.add(task);
+
+        if (isRegistered()) {
+            // Read even if auto read is disabled, as the splicing asked for the data.
+            setEpollIn();
+            if (isActive()) {
+                // Splice what is ready to read already, as because of epoll ET we will not get notified for it.
+                ((EpollSocketUnsafe) unsafe()).epollInReady();
+            }
+        }
+    }
+
+    /**
+     * Resume the splicing after the target of a {@link SpliceChannelTask} took what was spliced so far.
+     */
+    private void resumeSplice() {
+        eventLoop().execute(new Runnable() {
+            @Override
+            public void run() {
+                if (isActive()) {
+                    setEpollIn();
+                    ((EpollSocketUnsafe) unsafe()).epollInReady();
+                }
+            }
+        });
+    }
+
+    @Override
+    protected void doClose() throws Exception {
+        try {
+            super.doClose();
+        } finally {
+            failSpliceTasks();
+        }
+    }
+
+    private void failSpliceTasks() {
+        Queue<SpliceInTask> spliceQueue = this.spliceQueue;
+        if (spliceQueue != null) {
+            ClosedChannelException cause = new ClosedChannelException();
+            for (;;) {
+                SpliceInTask task = spliceQueue.poll();
+                if (task == null) {
+                    break;
+                }
+                task.fail(cause);
+            }
+        }
+    }
+
     final class EpollSocketUnsafe extends AbstractEpollUnsafe {
         private RecvByteBufAllocator.Handle allocHandle;
 
@@ -578,6 +746,31 @@ public final class EpollSocketChannel extends AbstractEpollChannel implements So
             return localReadAmount;
         }
 
+        /**
+         * Splice what is ready to read for the pending {@link SpliceInTask}s and return {@code true} if all of them
+         * are done.
+         */
+        private boolean spliceIn() {
+            for (;;) {
+                SpliceInTask task = spliceQueue.peek();
+                if (task == null) {
+                    return true;
+                }
+                if (!task.spliceIn()) {
+                    return false;
+                }
+                spliceQueue.remove();
+                if (task.eof) {
+                    // The remote peer shut down its output, so shut down the input or close the channel as a read
+                    // would do.  Nothing more can be spliced, so fail this and all the other pending tasks.
+                    closeOnRead(pipeline());
+                    task.fail(new ClosedChannelException());
+                    failSpliceTasks();
+                    return false;
+                }
+            }
+        }
+
         @Override
         void epollRdHupReady() {
             if (isActive()) {
@@ -590,6 +783,18 @@ public final class EpollSocketChannel extends AbstractEpollChannel implements So
         @Override
         void epollInReady() {
             final ChannelConfig config = config();
+            if (spliceQueue != null && !spliceQueue.isEmpty()) {
+                if (!spliceIn()) {
+                    // Continue once there is more to read or the target of the splicing took what was spliced.
+                    return;
+                }
+                if (!config.isAutoRead() && !readPending) {
+                    // Only the splicing asked for the data, so leave the rest in the socket.
+                    clearEpollIn();
+                    return;
+                }
+            }
+
             final ChannelPipeline pipeline = pipeline();
             final ByteBufAllocator allocator = config.getAllocator();
             RecvByteBufAllocator.Handle allocHandle = this.allocHandle;
@@ -597,11 +802,13 @@ public final class EpollSocketChannel extends AbstractEpollChannel implements So
                 this.allocHandle = allocHandle = config.getRecvByteBufAllocator().newHandle();
             }
 
+            final int maxMessagesPerRead = config.getMaxMessagesPerRead();
             ByteBuf byteBuf = null;
             boolean close = false;
             try {
                 int byteBufCapacity = allocHandle.guess();
                 int totalReadAmount = 0;
+                int messages = 0;
                 for (;;) {
                     // we use a direct buffer here as the native implementations only be able
                     // to handle direct buffers.
@@ -632,6 +839,11 @@ public final class EpollSocketChannel extends AbstractEpollChannel implements So
                         // which might mean we drained the recv buffer completely.
                         break;
                     }
+                    if (++ messages == maxMessagesPerRead) {
+                        // Give the other channels of the loop a chance to read, and continue later.
+                        readBudgetExhausted();
+                        break;
+                    }
                 }
                 pipeline.fireChannelReadComplete();
                 allocHandle.record(totalReadAmount);
@@ -666,6 +878,230 @@ public final class EpollSocketChannel extends AbstractEpollChannel implements So
         }
     }
 
+    /**
+     * Splices the bytes which are read from this {@link EpollSocketChannel} into a pipe and from there to a target.
+     */
+    private abstract class SpliceInTask {
+        final ChannelPromise promise;
+        int len;
+        int pipeIn = -1;
+        int pipeOut = -1;
+        // Set if the end of the stream was reached before len bytes were spliced.
+        boolean eof;
+
+        SpliceInTask(int len, ChannelPromise promise) {
+            this.len = len;
+            this.promise = promise;
+        }
+
+        /**
+         * Splice what is ready to read and return {@code true} if this task is done and so must be removed.
+         */
+        abstract boolean spliceIn();
+
+        final void fail(Throwable cause) {
+            promise.tryFailure(cause);
+            releasePipe();
+        }
+
+        final void openPipe() throws IOException {
+            if (pipeOut == -1) {
+                long pipe = Native.pipe();
+                pipeIn = (int) (pipe >>> 32);
+                pipeOut = (int) pipe;
+            }
+        }
+
+        /**
+         * Close the pipe if it is not used anymore.
+         */
+        void releasePipe() {
+            if (pipeOut != -1) {
+                closePipeFd(pipeIn);
+                closePipeFd(pipeOut);
+                pipeIn = -1;
+                pipeOut = -1;
+            }
+        }
+
+        private void closePipeFd(int fd) {
+            try {
+                Native.close(fd);
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+    }
+
+    /**
+     * Splices to another {@link EpollSocketChannel} by writing a {@link SpliceOutTask} for every chunk of bytes which
+     * was spliced into the pipe, so the pipe is emptied in the right order with all other writes of the target.
+     */
+    private final class SpliceChannelTask extends SpliceInTask implements ChannelFutureListener {
+        private final EpollSocketChannel target;
+        // The write of the last spliced chunk.  Only one is pending at a time, as the pipe can not take more anyway.
+        private ChannelFuture pendingOut;
+        private boolean suspended;
+
+        SpliceChannelTask(EpollSocketChannel target, int len, ChannelPromise promise) {
+            super(len, promise);
+            this.target = target;
+        }
+
+        @Override
+        boolean spliceIn() {
+            try {
+                openPipe();
+                for (;;) {
+                    if (promise.isDone()) {
+                        // Failed, also because a write to the target failed, or cancelled.
+                        releasePipe();
+                        return true;
+                    }
+                    if (pendingOut != null && !pendingOut.isDone()) {
+                        // The target did not take everything from the pipe yet, so stop reading until it did.  Also
+                        // stop listening for EPOLLIN, as otherwise a level-triggered epoll keeps reporting it.
+                        suspended = true;
+                        clearEpollIn();
+                        return false;
+                    }
+                    int splicedIn = Native.splice(fd, -1, pipeOut, -1, len);
+                    if (splicedIn == 0) {
+                        return false;
+                    }
+                    if (splicedIn < 0) {
+                        eof = true;
+                        return true;
+                    }
+                    len -= splicedIn;
+
+                    ChannelPromise outPromise = target.newPromise();
+                    pendingOut = outPromise;
+                    outPromise.addListener(this);
+                    // Use the Unsafe as the spliced bytes must not pass the ChannelPipeline of the target.
+                    target.unsafe().write(new SpliceOutTask(pipeIn, splicedIn), outPromise);
+                    target.unsafe().flush();
+                    if (len == 0) {
+                        // All spliced in, the promise is notified once the target took the rest from the pipe.
+                        return true;
+                    }
+                }
+            } catch (Throwable cause) {
+                fail(cause);
+                return true;
+            }
+        }
+
+        @Override
+        public void operationComplete(ChannelFuture future) throws Exception {
+            if (!future.isSuccess()) {
+                promise.tryFailure(future.cause());
+            } else if (len == 0) {
+                promise.trySuccess();
+            }
+            releasePipe();
+
+            if (suspended) {
+                suspended = false;
+                resumeSplice();
+            }
+        }
+
+        @Override
+        void releasePipe() {
+            // The pipe is still needed until the target took the bytes of the pending write.
+            if (promise.isDone() && (pendingOut == null || pendingOut.isDone())) {
+                super.releasePipe();
+            }
+        }
+    }
+
+    /**
+     * Splices to a file by moving every chunk of bytes from the pipe to the file right away.
+     */
+    private final class SpliceFdTask extends SpliceInTask {
+        private final int fdOut;
+        private long offset;
+
+        SpliceFdTask(int fdOut, long offset, int len, ChannelPromise promise) {
+            super(len, promise);
+            this.fdOut = fdOut;
+            this.offset = offset;
+        }
+
+        @Override
+        boolean spliceIn() {
+            if (promise.isDone()) {
+                // Cancelled.
+                releasePipe();
+                return true;
+            }
+            try {
+                openPipe();
+                for (;;) {
+                    int splicedIn = Native.splice(fd, -1, pipeOut, -1, len);
+                    if (splicedIn == 0) {
+                        return false;
+                    }
+                    if (splicedIn < 0) {
+                        eof = true;
+                        return true;
+                    }
+                    len -= splicedIn;
+
+                    do {
+                        int splicedOut = Native.splice(pipeIn, -1, fdOut, offset, splicedIn);
+                        if (splicedOut <= 0) {
+                            throw new IOException("Unable to splice to the file without blocking");
+                        }
+                        offset += splicedOut;
+                        splicedIn -= splicedOut;
+                    } while (splicedIn > 0);
+
+                    if (len == 0) {
+                        promise.trySuccess();
+                        releasePipe();
+                        return true;
+                    }
+                }
+            } catch (Throwable cause) {
+                fail(cause);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Written to the target of a {@link SpliceChannelTask} to splice a chunk of bytes from the pipe to its socket.
+     */
+    private static final class SpliceOutTask {
+        private final int pipeIn;
+        private int len;
+
+        SpliceOutTask(int pipeIn, int len) {
+            this.pipeIn = pipeIn;
+            this.len = len;
+        }
+
+        /**
+         * Splice the bytes to the given socket and return {@code true} if all were spliced.
+         */
+        boolean spliceOut(int fd, ChannelOutboundBuffer in) throws IOException {
+            while (len > 0) {
+                int splicedOut = Native.splice(pipeIn, -1, fd, -1, len);
+                if (splicedOut == 0) {
+                    return false;
+                }
+                if (splicedOut < 0) {
+                    throw new IOException("Pipe closed before all bytes were spliced");
+                }
+                len -= splicedOut;
+                in.progress(splicedOut);
+            }
+            return true;
+        }
+    }
+
     @Override
     protected ChannelOutboundBuffer newOutboundBuffer() {
         if (PlatformDependent.hasUnsafe()) {
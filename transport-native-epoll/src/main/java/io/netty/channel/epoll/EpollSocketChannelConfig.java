@@ -40,6 +40,8 @@ public final class EpollSocketChannelConfig extends DefaultChannelConfig
         super(channel);
 
         this.channel = channel;
+        // Read up to 16 times per wakeup like the NIO transport, so a busy channel can not starve the others.
+        setMaxMessagesPerRead(16);
         if (PlatformDependent.canEnableTcpNoDelayByDefault()) {
             setTcpNoDelay(true);
         }
@@ -50,7 +52,7 @@ public final class EpollSocketChannelConfig extends DefaultChannelConfig
         return getOptions(
                 super.getOptions(),
                 SO_RCVBUF, SO_SNDBUF, TCP_NODELAY, SO_KEEPALIVE, SO_REUSEADDR, SO_LINGER, IP_TOS,
-                ALLOW_HALF_CLOSURE, EpollChannelOption.TCP_CORK);
+                ALLOW_HALF_CLOSURE, EpollChannelOption.TCP_CORK, EpollChannelOption.EPOLL_MODE);
     }
 
     @SuppressWarnings("unchecked")
@@ -83,6 +85,9 @@ public final class EpollSocketChannelConfig extends DefaultChannelConfig
         if (option == EpollChannelOption.TCP_CORK) {
             return (T) Boolean.valueOf(isTcpCork());
         }
+        if (option == EpollChannelOption.EPOLL_MODE) {
+            return (T) getEpollMode();
+        }
         return super.getOption(option);
     }
 
@@ -108,6 +113,8 @@ public final class EpollSocketChannelConfig extends DefaultChannelConfig
             setAllowHalfClosure((Boolean) value);
         } else if (option == EpollChannelOption.TCP_CORK) {
             setTcpCork((Boolean) value);
+        } else if (option == EpollChannelOption.EPOLL_MODE) {
+            setEpollMode((EpollMode) value);
         } else {
             return super.setOption(option, value);
         }
@@ -201,6 +208,22 @@ public final class EpollSocketChannelConfig extends DefaultChannelConfig
         return this;
     }
 
+    /**
+     * Returns the {@link EpollMode} in which the channel is registered with epoll.
+     */
+    public EpollMode getEpollMode() {
+        return channel.epollMode();
+    }
+
+    /**
+     * Set the {@link EpollMode} in which the channel is registered with epoll.  The default is
+     * {@link EpollMode#EDGE_TRIGGERED}.
+     */
+    public EpollSocketChannelConfig setEpollMode(EpollMode mode) {
+        channel.epollMode(mode);
+        return this;
+    }
+
     @Override
     public EpollSocketChannelConfig setTrafficClass(int trafficClass) {
         Native.setTrafficClass(channel.fd, trafficClass);
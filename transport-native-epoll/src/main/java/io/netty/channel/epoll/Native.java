@@ -18,8 +18,10 @@ package io.netty.channel.epoll;
 
 import io.netty.channel.DefaultFileRegion;
 import io.netty.channel.epoll.EpollChannelOutboundBuffer.AddressEntry;
+import io.netty.channel.epoll.NativeDatagramPacketArray.NativeDatagramPacket;
 import io.netty.util.internal.NativeLibraryLoader;
 
+import java.io.FileDescriptor;
 import java.io.IOException;
 import java.net.Inet6Address;
 import java.net.InetAddress;
@@ -33,7 +35,7 @@ import java.util.Locale;
  * <strong>Internal usage only!</strong>
  */
 final class Native {
-    private static final byte[] IPV4_MAPPED_IPV6_PREFIX = {
+    static final byte[] IPV4_MAPPED_IPV6_PREFIX = {
             0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, (byte) 0xff, (byte) 0xff };
 
     static {
@@ -49,14 +51,19 @@ final class Native {
     public static final int EPOLLOUT = 0x02;
     public static final int EPOLLACCEPT = 0x04;
     public static final int EPOLLRDHUP = 0x08;
+    public static final int EPOLLET = 0x10;
+    public static final int EPOLLONESHOT = 0x20;
+
+    // The max number of buffers which can be passed to writev(...), which is the same as UIO_MAXIOV on linux.
+    static final int IOV_MAX = 1024;
 
     public static native int eventFd();
     public static native void eventFdWrite(int fd, long value);
     public static native void eventFdRead(int fd);
     public static native int epollCreate();
     public static native int epollWait(int efd, long[] events, int timeout);
-    public static native void epollCtlAdd(int efd, final int fd, final int flags, final int id);
-    public static native void epollCtlMod(int efd, final int fd, final int flags, final int id);
+    public static native void epollCtlAdd(int efd, final int fd, final int flags);
+    public static native void epollCtlMod(int efd, final int fd, final int flags);
     public static native void epollCtlDel(int efd, final int fd);
 
     // File-descriptor operations
@@ -74,8 +81,38 @@ final class Native {
 
     public static native long sendfile(int dest, DefaultFileRegion src, long offset, long length) throws IOException;
 
+    // Pipe and splice operations
+    /**
+     * Creates a new pipe and returns the fd of its read end in the upper and the fd of its write end in the lower 32
+     * bits.
+     */
+    public static native long pipe() throws IOException;
+
+    /**
+     * Moves up to {@code len} bytes from {@code fd} to {@code fdOut} via {@code splice(...)}, of which one must be a
+     * pipe. An offset of {@code -1} means the current position of a file or no offset at all for a socket or pipe.
+     * Returns {@code 0} if nothing could be moved without blocking and {@code -1} on end-of-stream.
+     */
+    public static native int splice(int fd, long offIn, int fdOut, long offOut, int len) throws IOException;
+
+    /**
+     * Returns the fd of the given {@link FileDescriptor}.
+     */
+    public static native int getFd(FileDescriptor fileDescriptor);
+
+    // Datagram operations, the address of the peer is passed in and out by the NativeDatagramPacket
+    public static native int sendTo(int fd, ByteBuffer buf, int pos, int limit, NativeDatagramPacket packet)
+            throws IOException;
+    public static native int recvFrom(int fd, ByteBuffer buf, int pos, int limit, NativeDatagramPacket packet)
+            throws IOException;
+    public static native int sendmmsg(int fd, NativeDatagramPacket[] packets, int offset, int len)
+            throws IOException;
+    public static native int recvmmsg(int fd, NativeDatagramPacket[] packets, int offset, int len)
+            throws IOException;
+
     // socket operations
-    public static native int socket() throws IOException;
+    public static native int socketStreamFd() throws IOException;
+    public static native int socketDgramFd() throws IOException;
     public static void bind(int fd, InetAddress addr, int port) throws IOException {
         byte[] address;
         int scopeId;
@@ -90,7 +127,7 @@ final class Native {
         bind(fd, address, scopeId, port);
     }
 
-    private static byte[] ipv4MappedIpv6Address(byte[] ipv4) {
+    static byte[] ipv4MappedIpv6Address(byte[] ipv4) {
         byte[] address = new byte[16];
         System.arraycopy(IPV4_MAPPED_IPV6_PREFIX, 0, address, 0, IPV4_MAPPED_IPV6_PREFIX.length);
         System.arraycopy(ipv4, 0, address, 12, ipv4.length);
@@ -114,30 +151,48 @@ final class Native {
     }
     public static native boolean connect(int fd, byte[] address, int scopeId, int port) throws IOException;
     public static native boolean finishConnect(int fd) throws IOException;
+    public static native void disconnect(int fd) throws IOException;
 
     public static native InetSocketAddress remoteAddress(int fd);
     public static native InetSocketAddress localAddress(int fd);
     public static native int accept(int fd) throws IOException;
     public static native void shutdown(int fd, boolean read, boolean write) throws IOException;
 
+    // Multicast operations, source is null if the membership is not source-specific
+    public static native void joinGroup(int fd, byte[] group, String interfaceName, byte[] source)
+            throws IOException;
+    public static native void leaveGroup(int fd, byte[] group, String interfaceName, byte[] source)
+            throws IOException;
+    public static native void blockSource(int fd, byte[] group, String interfaceName, byte[] source)
+            throws IOException;
+
     // Socket option operations
     public static native int getReceiveBufferSize(int fd);
     public static native int getSendBufferSize(int fd);
     public static native int isKeepAlive(int fd);
     public static native int isReuseAddress(int fd);
+    public static native int isReusePort(int fd);
     public static native int isTcpNoDelay(int fd);
     public static native int isTcpCork(int fd);
     public static native int getSoLinger(int fd);
     public static native int getTrafficClass(int fd);
+    public static native int isBroadcast(int fd);
+    public static native int isMulticastLoop(int fd);
+    public static native int getMulticastTtl(int fd);
 
     public static native void setKeepAlive(int fd, int keepAlive);
     public static native void setReceiveBufferSize(int fd, int receiveBufferSize);
     public static native void setReuseAddress(int fd, int reuseAddress);
+    public static native void setReusePort(int fd, int reusePort);
     public static native void setSendBufferSize(int fd, int sendBufferSize);
     public static native void setTcpNoDelay(int fd, int tcpNoDelay);
     public static native void setTcpCork(int fd, int tcpCork);
     public static native void setSoLinger(int fd, int soLinger);
     public static native void setTrafficClass(int fd, int tcpNoDelay);
+    public static native void setBroadcast(int fd, int broadcast);
+    public static native void setMulticastLoop(int fd, int multicastLoop);
+    public static native void setMulticastTtl(int fd, int multicastTtl);
+    public static native void setMulticastInterface(int fd, String interfaceName);
 
     private Native() {
         // utility
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.epoll;
+
+import io.netty.buffer.ByteBuf;
+
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+
+/**
+ * A fixed number of {@link NativeDatagramPacket}s which are sent or received with a single {@code sendmmsg(...)} or
+ * {@code recvmmsg(...)} call.
+ */
+final class NativeDatagramPacketArray {
+
+    // The native code keeps the message headers of all packets on the stack, so do not make this too big.
+    static final int CAPACITY = 64;
+
+    private final NativeDatagramPacket[] packets = new NativeDatagramPacket[CAPACITY];
+    private int count;
+
+    NativeDatagramPacketArray() {
+        for (int i = 0; i < packets.length; i ++) {
+            packets[i] = new NativeDatagramPacket();
+        }
+    }
+
+    /**
+     * Try to add the readable bytes of the given {@link ByteBuf} as the next packet.  Returns {@code false} if the
+     * array is full, if the {@link ByteBuf} has no memory address or nothing to send, or if the recipient is
+     * unresolved.
+     */
+    boolean add(ByteBuf content, InetSocketAddress recipient) {
+        if (count == packets.length || !content.hasMemoryAddress()) {
+            return false;
+        }
+        if (recipient != null && recipient.isUnresolved()) {
+            return false;
+        }
+        int readableBytes = content.readableBytes();
+        if (readableBytes == 0) {
+            return false;
+        }
+        packets[count ++].init(content.memoryAddress() + content.readerIndex(), readableBytes, recipient);
+        return true;
+    }
+
+    /**
+     * Return the number of packets which were added since the last {@link #clear()}.
+     */
+    int count() {
+        return count;
+    }
+
+    void clear() {
+        count = 0;
+    }
+
+    /**
+     * Returns all the packets, of which the first {@link #count()} were added.
+     * <p>
+     * Note that the returned array is reused and thus should not escape the current read or write operation.
+     */
+    NativeDatagramPacket[] packets() {
+        return packets;
+    }
+
+    /**
+     * Used to pass the data and the address of a datagram to and from the native code.
+     */
+    static final class NativeDatagramPacket {
+        // These fields will be accessed via JNI directly so be carefully when touch them!
+        private long memoryAddress;
+        private int count;
+
+        // The address is always stored as ipv6 address, an ipv4 address as ipv4 mapped ipv6 address.
+        private final byte[] address = new byte[16];
+        // 0 if the packet has no address, which means it is sent to the peer a connected socket is connected to.
+        private int addressLen;
+        private int scopeId;
+        private int port;
+
+        /**
+         * Init this packet with the memory region to send or receive into, and the address to send to which may be
+         * {@code null}.
+         */
+        void init(long memoryAddress, int count, InetSocketAddress recipient) {
+            this.memoryAddress = memoryAddress;
+            this.count = count;
+
+            if (recipient == null) {
+                addressLen = 0;
+                scopeId = 0;
+                port = 0;
+                return;
+            }
+
+            InetAddress addr = recipient.getAddress();
+            if (addr instanceof Inet6Address) {
+                System.arraycopy(addr.getAddress(), 0, address, 0, address.length);
+                scopeId = ((Inet6Address) addr).getScopeId();
+            } else {
+                // convert to ipv4 mapped ipv6 address;
+                System.arraycopy(Native.IPV4_MAPPED_IPV6_PREFIX, 0, address, 0, Native.IPV4_MAPPED_IPV6_PREFIX.length);
+                System.arraycopy(addr.getAddress(), 0, address, Native.IPV4_MAPPED_IPV6_PREFIX.length, 4);
+                scopeId = 0;
+            }
+            addressLen = address.length;
+            port = recipient.getPort();
+        }
+
+        /**
+         * Returns the number of bytes which were received into this packet.
+         */
+        int count() {
+            return count;
+        }
+
+        /**
+         * Returns the address a received packet was sent from.
+         */
+        InetSocketAddress sender() throws UnknownHostException {
+            if (addressLen == 0) {
+                return null;
+            }
+            InetAddress addr;
+            if (scopeId == 0) {
+                // Returns an Inet4Address for an ipv4 mapped ipv6 address.
+                addr = InetAddress.getByAddress(address);
+            } else {
+                addr = Inet6Address.getByAddress(null, address, scopeId);
+            }
+            return new InetSocketAddress(addr, port);
+        }
+    }
+}
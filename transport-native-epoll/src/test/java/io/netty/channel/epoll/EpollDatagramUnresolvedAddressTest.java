@@ -0,0 +1,93 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.epoll;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelHandlerAdapter;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.socket.DatagramPacket;
+import io.netty.testsuite.util.TestUtils;
+import io.netty.util.NetUtil;
+import io.netty.util.ReferenceCountUtil;
+import org.junit.AfterClass;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.nio.channels.UnresolvedAddressException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class EpollDatagramUnresolvedAddressTest {
+
+    private static final EventLoopGroup GROUP = new EpollEventLoopGroup(1);
+
+    @AfterClass
+    public static void destroy() {
+        GROUP.shutdownGracefully();
+    }
+
+    @Test(timeout = 10000)
+    public void testUnresolvedRecipientOnlyFailsItsWrite() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(4);
+        InetSocketAddress address = new InetSocketAddress(NetUtil.LOCALHOST, TestUtils.getFreePort());
+        Channel receiver = new Bootstrap()
+                .group(GROUP)
+                .channel(EpollDatagramChannel.class)
+                .handler(new ChannelHandlerAdapter() {
+                    @Override
+                    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+                        ReferenceCountUtil.release(msg);
+                        latch.countDown();
+                    }
+                })
+                .bind(address).sync().channel();
+        Channel sender = new Bootstrap()
+                .group(GROUP)
+                .channel(EpollDatagramChannel.class)
+                .handler(new ChannelHandlerAdapter())
+                .bind(new InetSocketAddress(NetUtil.LOCALHOST, 0)).sync().channel();
+
+        try {
+            InetSocketAddress unresolved = InetSocketAddress.createUnresolved("netty.invalid", address.getPort());
+            // Direct buffers, so the datagrams are sent as a batch.
+            ChannelFuture f1 = sender.write(newPacket(address));
+            ChannelFuture f2 = sender.write(newPacket(address));
+            ChannelFuture f3 = sender.write(newPacket(unresolved));
+            ChannelFuture f4 = sender.write(newPacket(address));
+            ChannelFuture f5 = sender.writeAndFlush(newPacket(address));
+
+            assertTrue(f1.sync().isSuccess());
+            assertTrue(f2.sync().isSuccess());
+            assertTrue(f3.await().cause() instanceof UnresolvedAddressException);
+            assertTrue(f4.sync().isSuccess());
+            assertTrue(f5.sync().isSuccess());
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } finally {
+            sender.close().sync();
+            receiver.close().sync();
+        }
+    }
+
+    private static DatagramPacket newPacket(InetSocketAddress recipient) {
+        return new DatagramPacket(Unpooled.directBuffer().writeInt(1), recipient);
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.epoll;
+
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler.Sharable;
+import io.netty.channel.ChannelHandlerAdapter;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.FixedRecvByteBufAllocator;
+import io.netty.testsuite.util.TestUtils;
+import io.netty.util.NetUtil;
+import org.junit.AfterClass;
+import org.junit.Test;
+
+import java.io.DataInputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class EpollModeTest {
+
+    private static final byte[] DATA = new byte[1024 * 1024];
+
+    private static final EventLoopGroup GROUP = new EpollEventLoopGroup(1);
+
+    static {
+        new Random().nextBytes(DATA);
+    }
+
+    @AfterClass
+    public static void destroy() {
+        GROUP.shutdownGracefully();
+    }
+
+    @Test(timeout = 10000)
+    public void testEpollModeOption() throws Exception {
+        InetSocketAddress address = new InetSocketAddress(NetUtil.LOCALHOST, TestUtils.getFreePort());
+        Channel channel = new ServerBootstrap()
+                .group(GROUP)
+                .channel(EpollServerSocketChannel.class)
+                .childHandler(new ChannelHandlerAdapter())
+                .bind(address).sync().channel();
+        try {
+            assertEquals(EpollMode.EDGE_TRIGGERED, channel.config().getOption(EpollChannelOption.EPOLL_MODE));
+            for (EpollMode mode: EpollMode.values()) {
+                assertTrue(channel.config().setOption(EpollChannelOption.EPOLL_MODE, mode));
+                assertEquals(mode, channel.config().getOption(EpollChannelOption.EPOLL_MODE));
+                assertEquals(mode, channel.config().getOptions().get(EpollChannelOption.EPOLL_MODE));
+            }
+
+            // The server must still accept after its registration was modified.
+            Socket socket = new Socket();
+            try {
+                socket.connect(address, 5000);
+            } finally {
+                socket.close();
+            }
+        } finally {
+            channel.close().sync();
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void testEchoEdgeTriggered() throws Throwable {
+        testEcho(EpollMode.EDGE_TRIGGERED);
+    }
+
+    @Test(timeout = 30000)
+    public void testEchoLevelTriggered() throws Throwable {
+        testEcho(EpollMode.LEVEL_TRIGGERED);
+    }
+
+    @Test(timeout = 30000)
+    public void testEchoOneShot() throws Throwable {
+        testEcho(EpollMode.ONE_SHOT);
+    }
+
+    private static void testEcho(EpollMode mode) throws Throwable {
+        // Only read once per wakeup into small buffers, so the read budget is used up all the time and what is left
+        // in the socket must be read after the next wakeup.
+        EchoHandler handler = new EchoHandler(mode);
+        InetSocketAddress address = new InetSocketAddress(NetUtil.LOCALHOST, TestUtils.getFreePort());
+        Channel channel = new ServerBootstrap()
+                .group(GROUP)
+                .channel(EpollServerSocketChannel.class)
+                .childOption(ChannelOption.MAX_MESSAGES_PER_READ, 1)
+                .childOption(ChannelOption.RCVBUF_ALLOCATOR, new FixedRecvByteBufAllocator(1024))
+                .childHandler(handler)
+                .bind(address).sync().channel();
+
+        Socket socket = new Socket();
+        try {
+            socket.connect(address);
+            final OutputStream out = socket.getOutputStream();
+            final AtomicReference<Throwable> writeError = new AtomicReference<Throwable>();
+            Thread writer = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        out.write(DATA);
+                        out.flush();
+                    } catch (Throwable t) {
+                        writeError.set(t);
+                    }
+                }
+            };
+            writer.start();
+
+            byte[] received = new byte[DATA.length];
+            new DataInputStream(socket.getInputStream()).readFully(received);
+            writer.join();
+
+            assertNull(writeError.get());
+            assertNull(handler.error);
+            assertArrayEquals(DATA, received);
+            assertEquals(1, handler.maxReadsPerWakeup);
+        } finally {
+            socket.close();
+            channel.close().sync();
+        }
+    }
+
+    @Sharable
+    private static final class EchoHandler extends ChannelHandlerAdapter {
+        private final EpollMode mode;
+        // Written by the EventLoop and read by the test once everything was echoed.
+        volatile Throwable error;
+        volatile int maxReadsPerWakeup;
+        private int reads;
+
+        EchoHandler(EpollMode mode) {
+            this.mode = mode;
+        }
+
+        @Override
+        public void channelActive(ChannelHandlerContext ctx) throws Exception {
+            // Change the mode of the registered channel.
+            ctx.channel().config().setOption(EpollChannelOption.EPOLL_MODE, mode);
+        }
+
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+            if (++ reads > maxReadsPerWakeup) {
+                maxReadsPerWakeup = reads;
+            }
+            ctx.write(msg);
+        }
+
+        @Override
+        public void channelReadComplete(ChannelHandlerContext ctx) throws Exception {
+            reads = 0;
+            ctx.flush();
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
+            error = cause;
+            ctx.close();
+        }
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.epoll;
+
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandler.Sharable;
+import io.netty.channel.ChannelHandlerAdapter;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.group.ChannelGroupFuture;
+import io.netty.testsuite.util.TestUtils;
+import io.netty.util.NetUtil;
+import org.junit.AfterClass;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class EpollReusePortTest {
+
+    private static final int ACCEPTORS = 4;
+    private static final int CONNECTIONS = 400;
+
+    private static final EventLoopGroup BOSS_GROUP = new EpollEventLoopGroup(ACCEPTORS);
+    private static final EventLoopGroup WORKER_GROUP = new EpollEventLoopGroup(2);
+
+    @AfterClass
+    public static void destroy() {
+        BOSS_GROUP.shutdownGracefully();
+        WORKER_GROUP.shutdownGracefully();
+    }
+
+    @Test(timeout = 10000)
+    public void testReusePortOption() throws Exception {
+        InetSocketAddress address = new InetSocketAddress(NetUtil.LOCALHOST, TestUtils.getFreePort());
+        Channel channel = newServerBootstrap(new ChannelHandlerAdapter())
+                .option(EpollChannelOption.SO_REUSEPORT, true)
+                .bind(address).sync().channel();
+        try {
+            assertTrue(channel.config().getOption(EpollChannelOption.SO_REUSEPORT));
+            assertTrue(channel.config().getOptions().containsKey(EpollChannelOption.SO_REUSEPORT));
+        } finally {
+            channel.close().sync();
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testBindAllFailsWithoutReusePort() throws Exception {
+        InetSocketAddress address = new InetSocketAddress(NetUtil.LOCALHOST, TestUtils.getFreePort());
+        ChannelGroupFuture future = newServerBootstrap(new ChannelHandlerAdapter()).bindAll(address).await();
+        try {
+            assertFalse(future.isSuccess());
+            assertTrue(future.isPartialSuccess());
+            assertTrue(future.cause().iterator().hasNext());
+        } finally {
+            future.group().close().sync();
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void testBindAllSpreadsAccepts() throws Exception {
+        AcceptCounter counter = new AcceptCounter(CONNECTIONS);
+        InetSocketAddress address = new InetSocketAddress(NetUtil.LOCALHOST, TestUtils.getFreePort());
+        ChannelGroupFuture future = newServerBootstrap(counter)
+                .option(EpollChannelOption.SO_REUSEPORT, true)
+                .bindAll(address).sync();
+
+        try {
+            assertEquals(ACCEPTORS, future.group().size());
+
+            for (int i = 0; i < CONNECTIONS; i ++) {
+                Socket socket = new Socket();
+                try {
+                    socket.connect(address, 5000);
+                } finally {
+                    socket.close();
+                }
+            }
+            assertTrue(counter.latch.await(10, TimeUnit.SECONDS));
+
+            // How the connections are spread depends on the hash the kernel uses, so only check that they were not
+            // all accepted by the same server channel.
+            assertTrue(counter.accepted.size() > 1);
+            int accepted = 0;
+            for (Map.Entry<Channel, AtomicInteger> e: counter.accepted.entrySet()) {
+                assertTrue(future.group().contains(e.getKey()));
+                accepted += e.getValue().get();
+            }
+            assertEquals(CONNECTIONS, accepted);
+        } finally {
+            future.group().close().sync();
+        }
+    }
+
+    private static ServerBootstrap newServerBootstrap(ChannelHandler childHandler) {
+        return new ServerBootstrap()
+                .group(BOSS_GROUP, WORKER_GROUP)
+                .channel(EpollServerSocketChannel.class)
+                .childHandler(childHandler);
+    }
+
+    /**
+     * Counts the accepted connections per {@link io.netty.channel.ServerChannel} and closes them.
+     */
+    @Sharable
+    private static final class AcceptCounter extends ChannelHandlerAdapter {
+        final ConcurrentMap<Channel, AtomicInteger> accepted = new ConcurrentHashMap<Channel, AtomicInteger>();
+        final CountDownLatch latch;
+
+        AcceptCounter(int connections) {
+            latch = new CountDownLatch(connections);
+        }
+
+        @Override
+        public void channelActive(ChannelHandlerContext ctx) throws Exception {
+            Channel parent = ctx.channel().parent();
+            AtomicInteger count = accepted.get(parent);
+            if (count == null) {
+                AtomicInteger newCount = new AtomicInteger();
+                count = accepted.putIfAbsent(parent, newCount);
+                if (count == null) {
+                    count = newCount;
+                }
+            }
+            count.incrementAndGet();
+            ctx.close();
+            latch.countDown();
+        }
+    }
+}
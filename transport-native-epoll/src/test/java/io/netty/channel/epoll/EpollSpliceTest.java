@@ -0,0 +1,320 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.epoll;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandler.Sharable;
+import io.netty.channel.ChannelHandlerAdapter;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.testsuite.util.TestUtils;
+import io.netty.util.NetUtil;
+import org.junit.AfterClass;
+import org.junit.Test;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.Random;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class EpollSpliceTest {
+
+    private static final int DATA_SIZE = 4 * 1024 * 1024;
+    private static final byte[] DATA = new byte[DATA_SIZE];
+
+    private static final EventLoopGroup GROUP = new EpollEventLoopGroup(1);
+
+    static {
+        new Random().nextBytes(DATA);
+    }
+
+    @AfterClass
+    public static void destroy() {
+        GROUP.shutdownGracefully();
+    }
+
+    @Test(timeout = 30000)
+    public void testSpliceToChannel() throws Throwable {
+        // A plain echo server as backend of the proxy.
+        InetSocketAddress backendAddress = new InetSocketAddress(NetUtil.LOCALHOST, TestUtils.getFreePort());
+        Channel backend = new ServerBootstrap()
+                .group(GROUP)
+                .channel(EpollServerSocketChannel.class)
+                .childHandler(new EchoHandler())
+                .bind(backendAddress).sync().channel();
+
+        // The proxy splices from the client to the backend and back without reading anything into a ByteBuf.
+        final BlockingQueue<ChannelFuture> spliceFutures = new LinkedBlockingQueue<ChannelFuture>();
+        final AtomicReference<Throwable> proxyError = new AtomicReference<Throwable>();
+        InetSocketAddress proxyAddress = new InetSocketAddress(NetUtil.LOCALHOST, TestUtils.getFreePort());
+        Channel proxy = new ServerBootstrap()
+                .group(GROUP)
+                .channel(EpollServerSocketChannel.class)
+                .childOption(ChannelOption.AUTO_READ, false)
+                .childHandler(new ProxyHandler(backendAddress, spliceFutures, proxyError))
+                .bind(proxyAddress).sync().channel();
+
+        Socket socket = new Socket();
+        try {
+            socket.connect(proxyAddress);
+            // Wait until the splicing is set up as everything which is read before would not be spliced.
+            ChannelFuture clientToBackend = spliceFutures.poll(10, TimeUnit.SECONDS);
+            ChannelFuture backendToClient = spliceFutures.poll(10, TimeUnit.SECONDS);
+            assertNotNull(clientToBackend);
+            assertNotNull(backendToClient);
+
+            final OutputStream out = socket.getOutputStream();
+            final AtomicReference<Throwable> writeError = new AtomicReference<Throwable>();
+            Thread writer = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        out.write(DATA);
+                        out.flush();
+                    } catch (Throwable t) {
+                        writeError.set(t);
+                    }
+                }
+            };
+            writer.start();
+
+            // Do not read for a while, so the proxy can not write everything to the client and needs to stop reading.
+            Thread.sleep(500);
+
+            byte[] received = new byte[DATA_SIZE];
+            new DataInputStream(socket.getInputStream()).readFully(received);
+            writer.join();
+
+            assertNull(writeError.get());
+            assertNull(proxyError.get());
+            assertArrayEquals(DATA, received);
+            clientToBackend.sync();
+            backendToClient.sync();
+        } finally {
+            socket.close();
+            proxy.close().sync();
+            backend.close().sync();
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void testSpliceToFile() throws Throwable {
+        File file = File.createTempFile("netty-splice", null);
+        file.deleteOnExit();
+        final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+
+        final BlockingQueue<ChannelFuture> spliceFutures = new LinkedBlockingQueue<ChannelFuture>();
+        InetSocketAddress address = new InetSocketAddress(NetUtil.LOCALHOST, TestUtils.getFreePort());
+        Channel server = new ServerBootstrap()
+                .group(GROUP)
+                .channel(EpollServerSocketChannel.class)
+                .childOption(ChannelOption.AUTO_READ, false)
+                .childHandler(new ChannelHandlerAdapter() {
+                    @Override
+                    public void channelActive(ChannelHandlerContext ctx) throws Exception {
+                        // Leave the first byte of the file untouched.
+                        spliceFutures.add(((EpollSocketChannel) ctx.channel()).spliceTo(raf.getFD(), 1, DATA_SIZE));
+                    }
+                })
+                .bind(address).sync().channel();
+
+        Socket socket = new Socket();
+        try {
+            socket.connect(address);
+            ChannelFuture future = spliceFutures.poll(10, TimeUnit.SECONDS);
+            assertNotNull(future);
+
+            socket.getOutputStream().write(DATA);
+            future.sync();
+
+            assertEquals(DATA_SIZE + 1, raf.length());
+            byte[] written = new byte[DATA_SIZE];
+            raf.seek(1);
+            raf.readFully(written);
+            assertArrayEquals(DATA, written);
+        } finally {
+            socket.close();
+            server.close().sync();
+            raf.close();
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testSpliceFailsWhenClosed() throws Throwable {
+        final BlockingQueue<ChannelFuture> spliceFutures = new LinkedBlockingQueue<ChannelFuture>();
+        InetSocketAddress address = new InetSocketAddress(NetUtil.LOCALHOST, TestUtils.getFreePort());
+        Channel server = new ServerBootstrap()
+                .group(GROUP)
+                .channel(EpollServerSocketChannel.class)
+                .childOption(ChannelOption.AUTO_READ, false)
+                .childHandler(new ChannelHandlerAdapter() {
+                    @Override
+                    public void channelActive(ChannelHandlerContext ctx) throws Exception {
+                        EpollSocketChannel ch = (EpollSocketChannel) ctx.channel();
+                        spliceFutures.add(ch.spliceTo(ch, DATA_SIZE));
+                    }
+                })
+                .bind(address).sync().channel();
+
+        Socket socket = new Socket();
+        try {
+            socket.connect(address);
+            ChannelFuture future = spliceFutures.poll(10, TimeUnit.SECONDS);
+            assertNotNull(future);
+
+            socket.getOutputStream().write(DATA, 0, 1024);
+            // The peer closes before everything was spliced.
+            socket.close();
+            assertFalse(future.await().isSuccess());
+        } finally {
+            socket.close();
+            server.close().sync();
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testSpliceEofClosesChannel() throws Throwable {
+        testSpliceEof(false);
+    }
+
+    @Test(timeout = 10000)
+    public void testSpliceEofShutsDownInput() throws Throwable {
+        testSpliceEof(true);
+    }
+
+    private static void testSpliceEof(boolean allowHalfClosure) throws Throwable {
+        File file = File.createTempFile("netty-splice", null);
+        file.deleteOnExit();
+        final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+
+        final BlockingQueue<ChannelFuture> spliceFutures = new LinkedBlockingQueue<ChannelFuture>();
+        InetSocketAddress address = new InetSocketAddress(NetUtil.LOCALHOST, TestUtils.getFreePort());
+        Channel server = new ServerBootstrap()
+                .group(GROUP)
+                .channel(EpollServerSocketChannel.class)
+                .childOption(ChannelOption.AUTO_READ, false)
+                .childOption(ChannelOption.ALLOW_HALF_CLOSURE, allowHalfClosure)
+                .childHandler(new ChannelHandlerAdapter() {
+                    @Override
+                    public void channelActive(ChannelHandlerContext ctx) throws Exception {
+                        spliceFutures.add(((EpollSocketChannel) ctx.channel()).spliceTo(raf.getFD(), 0, DATA_SIZE));
+                    }
+                })
+                .bind(address).sync().channel();
+
+        Socket socket = new Socket();
+        try {
+            socket.connect(address);
+            ChannelFuture future = spliceFutures.poll(10, TimeUnit.SECONDS);
+            assertNotNull(future);
+
+            socket.getOutputStream().write(DATA, 0, 1024);
+            // The peer shuts down its output before everything was spliced.
+            socket.shutdownOutput();
+            assertFalse(future.await().isSuccess());
+
+            EpollSocketChannel ch = (EpollSocketChannel) future.channel();
+            if (allowHalfClosure) {
+                assertTrue(ch.isOpen());
+                assertTrue(ch.isInputShutdown());
+            } else {
+                ch.closeFuture().sync();
+            }
+        } finally {
+            socket.close();
+            server.close().sync();
+            raf.close();
+        }
+    }
+
+    @Sharable
+    private static final class EchoHandler extends ChannelHandlerAdapter {
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+            ctx.write(msg);
+        }
+
+        @Override
+        public void channelReadComplete(ChannelHandlerContext ctx) throws Exception {
+            ctx.flush();
+        }
+    }
+
+    @Sharable
+    private static final class ProxyHandler extends ChannelHandlerAdapter {
+        private final InetSocketAddress backendAddress;
+        private final BlockingQueue<ChannelFuture> spliceFutures;
+        private final AtomicReference<Throwable> error;
+
+        ProxyHandler(InetSocketAddress backendAddress, BlockingQueue<ChannelFuture> spliceFutures,
+                     AtomicReference<Throwable> error) {
+            this.backendAddress = backendAddress;
+            this.spliceFutures = spliceFutures;
+            this.error = error;
+        }
+
+        @Override
+        public void channelActive(ChannelHandlerContext ctx) throws Exception {
+            final EpollSocketChannel inbound = (EpollSocketChannel) ctx.channel();
+            new Bootstrap()
+                    .group(inbound.eventLoop())
+                    .channel(EpollSocketChannel.class)
+                    .option(ChannelOption.AUTO_READ, false)
+                    .handler(new ChannelHandlerAdapter() {
+                        @Override
+                        public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+                            ((ByteBuf) msg).release();
+                            error.set(new IOException("read data which should have been spliced"));
+                        }
+                    })
+                    .connect(backendAddress).addListener(new ChannelFutureListener() {
+                        @Override
+                        public void operationComplete(ChannelFuture future) throws Exception {
+                            if (!future.isSuccess()) {
+                                error.set(future.cause());
+                                inbound.close();
+                                return;
+                            }
+                            EpollSocketChannel outbound = (EpollSocketChannel) future.channel();
+                            spliceFutures.add(inbound.spliceTo(outbound, DATA_SIZE));
+                            spliceFutures.add(outbound.spliceTo(inbound, DATA_SIZE));
+                        }
+                    });
+        }
+
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+            ((ByteBuf) msg).release();
+            error.set(new IOException("read data which should have been spliced"));
+        }
+    }
+}
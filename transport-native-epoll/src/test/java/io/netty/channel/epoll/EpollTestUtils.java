@@ -40,6 +40,21 @@ final class EpollTestUtils {
         });
     }
 
+    static List<TestsuitePermutation.BootstrapComboFactory<Bootstrap, Bootstrap>> newDatagramFactories() {
+        return Collections.<TestsuitePermutation.BootstrapComboFactory<Bootstrap, Bootstrap>>singletonList(
+                new TestsuitePermutation.BootstrapComboFactory<Bootstrap, Bootstrap>() {
+            @Override
+            public Bootstrap newServerInstance() {
+                return new Bootstrap().group(GROUP).channel(EpollDatagramChannel.class);
+            }
+
+            @Override
+            public Bootstrap newClientInstance() {
+                return newServerInstance();
+            }
+        });
+    }
+
     private EpollTestUtils() {
         // utility class
     }
@@ -23,6 +23,7 @@ import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.ChannelPromise;
 import io.netty.channel.DefaultChannelPromise;
+import io.netty.channel.EventLoop;
 import io.netty.channel.EventLoopGroup;
 import io.netty.channel.VoidChannel;
 import io.netty.util.AttributeKey;
@@ -230,8 +231,16 @@ public abstract class AbstractBootstrap<B extends AbstractBootstrap<B, C>, C ext
         return doBind(localAddress);
     }
 
-    private ChannelFuture doBind(final SocketAddress localAddress) {
-        final ChannelFuture regFuture = initAndRegister();
+    private ChannelFuture doBind(SocketAddress localAddress) {
+        return doBind(null, localAddress);
+    }
+
+    /**
+     * Create a new {@link Channel} which is registered with the given {@link EventLoop}, or with the next one of the
+     * {@link EventLoopGroup} if {@code null}, and bind it.
+     */
+    final ChannelFuture doBind(EventLoop eventLoop, final SocketAddress localAddress) {
+        final ChannelFuture regFuture = initAndRegister(eventLoop);
         final Channel channel = regFuture.channel();
         if (regFuture.cause() != null) {
             return regFuture;
@@ -255,12 +264,17 @@ public abstract class AbstractBootstrap<B extends AbstractBootstrap<B, C>, C ext
         return promise;
     }
 
-    abstract Channel createChannel();
+    abstract Channel createChannel(EventLoop eventLoop);
 
     final ChannelFuture initAndRegister() {
+        return initAndRegister(null);
+    }
+
+    private ChannelFuture initAndRegister(EventLoop eventLoop) {
         Channel channel;
         try {
-            channel = createChannel();
+            // Pick the EventLoop in here, as next() may fail as well. (e.g. ThreadPerChannelEventLoopGroup)
+            channel = createChannel(eventLoop != null ? eventLoop : group().next());
         } catch (Throwable t) {
             return VoidChannel.INSTANCE.newFailedFuture(t);
         }
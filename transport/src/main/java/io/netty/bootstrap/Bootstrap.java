@@ -94,8 +94,7 @@ public final class Bootstrap extends AbstractBootstrap<Bootstrap, Channel> {
     }
 
     @Override
-    Channel createChannel() {
-        EventLoop eventLoop = group().next();
+    Channel createChannel(EventLoop eventLoop) {
         return channelFactory().newChannel(eventLoop);
     }
 
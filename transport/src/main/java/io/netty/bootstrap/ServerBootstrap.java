@@ -18,6 +18,8 @@ package io.netty.bootstrap;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelConfig;
 import io.netty.channel.ChannelException;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerAdapter;
 import io.netty.channel.ChannelHandlerContext;
@@ -27,15 +29,29 @@ import io.netty.channel.ChannelPipeline;
 import io.netty.channel.EventLoop;
 import io.netty.channel.EventLoopGroup;
 import io.netty.channel.ServerChannel;
+import io.netty.channel.group.ChannelGroup;
+import io.netty.channel.group.ChannelGroupException;
+import io.netty.channel.group.ChannelGroupFuture;
+import io.netty.channel.group.DefaultChannelGroup;
 import io.netty.channel.socket.SocketChannel;
 import io.netty.util.AttributeKey;
+import io.netty.util.concurrent.DefaultPromise;
 import io.netty.util.concurrent.EventExecutorGroup;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.GenericFutureListener;
+import io.netty.util.concurrent.GlobalEventExecutor;
 import io.netty.util.internal.StringUtil;
 import io.netty.util.internal.logging.InternalLogger;
 import io.netty.util.internal.logging.InternalLoggerFactory;
 
 import java.lang.reflect.Constructor;
+import java.net.SocketAddress;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.concurrent.TimeUnit;
@@ -101,8 +117,7 @@ public final class ServerBootstrap extends AbstractBootstrap<ServerBootstrap, Se
     }
 
     @Override
-    Channel createChannel() {
-        EventLoop eventLoop = group().next();
+    Channel createChannel(EventLoop eventLoop) {
         return channelFactory().newChannel(eventLoop, childGroup);
     }
 
@@ -191,6 +206,49 @@ public final class ServerBootstrap extends AbstractBootstrap<ServerBootstrap, Se
         return childGroup;
     }
 
+    /**
+     * Create a new {@link ServerChannel} for each {@link EventLoop} of the parent {@link EventLoopGroup} and bind all
+     * of them to the configured local address.
+     *
+     * @see #bindAll(SocketAddress)
+     */
+    public ChannelGroupFuture bindAll() {
+        SocketAddress localAddress = localAddress();
+        if (localAddress == null) {
+            throw new IllegalStateException("localAddress not set");
+        }
+        return bindAll(localAddress);
+    }
+
+    /**
+     * Create a new {@link ServerChannel} for each {@link EventLoop} of the parent {@link EventLoopGroup} and bind all
+     * of them to the given {@link SocketAddress}, so the connections are accepted by all of the {@link EventLoop}s
+     * instead of only one.
+     * <p>
+     * This only works with a transport which allows to bind multiple {@link ServerChannel}s to the same address and
+     * which spreads the connections across them, like the native epoll transport with the
+     * {@code EpollChannelOption.SO_REUSEPORT} option set via {@link #option(ChannelOption, Object)}.
+     * The returned {@link ChannelGroupFuture#group()} contains the bound {@link ServerChannel}s and so can be used to
+     * close all of them.
+     */
+    public ChannelGroupFuture bindAll(SocketAddress localAddress) {
+        validate();
+        if (localAddress == null) {
+            throw new NullPointerException("localAddress");
+        }
+
+        ChannelGroup channels = new DefaultChannelGroup(GlobalEventExecutor.INSTANCE);
+        List<ChannelFuture> futures = new ArrayList<ChannelFuture>();
+        for (EventLoop eventLoop: group().<EventLoop>children()) {
+            ChannelFuture future = doBind(eventLoop, localAddress);
+            if (future.cause() == null) {
+                channels.add(future.channel());
+            }
+            futures.add(future);
+        }
+        return new BindAllFuture(channels, futures);
+    }
+
     @Override
     void init(Channel channel) throws Exception {
         final Map<ChannelOption<?>, Object> options = options();
@@ -383,4 +441,148 @@ public final class ServerBootstrap extends AbstractBootstrap<ServerBootstrap, Se
             return StringUtil.simpleClassName(clazz) + ".class";
         }
     }
+
+    /**
+     * The {@link ChannelGroupFuture} returned by {@link #bindAll(SocketAddress)}, which is notified once all the
+     * bind operations are complete.
+     */
+    private static final class BindAllFuture extends DefaultPromise<Void> implements ChannelGroupFuture {
+
+        private final ChannelGroup group;
+        // A List as all the futures of the Channels which could not be created belong to VoidChannel.INSTANCE.
+        private final List<ChannelFuture> futures;
+        private int successCount;
+        private int failureCount;
+
+        BindAllFuture(ChannelGroup group, List<ChannelFuture> futures) {
+            super(GlobalEventExecutor.INSTANCE);
+            this.group = group;
+            this.futures = Collections.unmodifiableList(futures);
+
+            if (futures.isEmpty()) {
+                setSuccess(null);
+                return;
+            }
+
+            ChannelFutureListener childListener = new ChannelFutureListener() {
+                @Override
+                public void operationComplete(ChannelFuture future) throws Exception {
+                    childComplete(future.isSuccess());
+                }
+            };
+            for (ChannelFuture f: futures) {
+                f.addListener(childListener);
+            }
+        }
+
+        private void childComplete(boolean success) {
+            boolean done;
+            synchronized (this) {
+                if (success) {
+                    successCount ++;
+                } else {
+                    failureCount ++;
+                }
+                done = successCount + failureCount == futures.size();
+            }
+            if (!done) {
+                return;
+            }
+
+            List<Entry<Channel, Throwable>> failed = new ArrayList<Entry<Channel, Throwable>>();
+            for (ChannelFuture f: futures) {
+                if (!f.isSuccess()) {
+                    failed.add(new SimpleImmutableEntry<Channel, Throwable>(f.channel(), f.cause()));
+                }
+            }
+            if (failed.isEmpty()) {
+                setSuccess(null);
+            } else {
+                setFailure(new ChannelGroupException(failed));
+            }
+        }
+
+        @Override
+        public ChannelGroup group() {
+            return group;
+        }
+
+        @Override
+        public ChannelFuture find(Channel channel) {
+            for (ChannelFuture f: futures) {
+                if (f.channel() == channel) {
+                    return f;
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public Iterator<ChannelFuture> iterator() {
+            return futures.iterator();
+        }
+
+        @Override
+        public synchronized boolean isPartialSuccess() {
+            return successCount != 0 && successCount != futures.size();
+        }
+
+        @Override
+        public synchronized boolean isPartialFailure() {
+            return failureCount != 0 && failureCount != futures.size();
+        }
+
+        @Override
+        public ChannelGroupException cause() {
+            return (ChannelGroupException) super.cause();
+        }
+
+        @Override
+        public BindAllFuture addListener(GenericFutureListener<? extends Future<? super Void>> listener) {
+            super.addListener(listener);
+            return this;
+        }
+
+        @Override
+        public BindAllFuture addListeners(GenericFutureListener<? extends Future<? super Void>>... listeners) {
+            super.addListeners(listeners);
+            return this;
+        }
+
+        @Override
+        public BindAllFuture removeListener(GenericFutureListener<? extends Future<? super Void>> listener) {
+            super.removeListener(listener);
+            return this;
+        }
+
+        @Override
+        public BindAllFuture removeListeners(GenericFutureListener<? extends Future<? super Void>>... listeners) {
+            super.removeListeners(listeners);
+            return this;
+        }
+
+        @Override
+        public BindAllFuture await() throws InterruptedException {
+            super.await();
+            return this;
+        }
+
+        @Override
+        public BindAllFuture awaitUninterruptibly() {
+            super.awaitUninterruptibly();
+            return this;
+        }
+
+        @Override
+        public BindAllFuture syncUninterruptibly() {
+            super.syncUninterruptibly();
+            return this;
+        }
+
+        @Override
+        public BindAllFuture sync() throws InterruptedException {
+            super.sync();
+            return this;
+        }
+    }
 }
@@ -127,6 +127,73 @@ public class SingleThreadEventLoopTest {
         }
     }
 
+    @Test
+    public void executeAllA() throws Exception {
+        testExecuteAll(loopA);
+    }
+
+    @Test
+    public void executeAllB() throws Exception {
+        testExecuteAll(loopB);
+    }
+
+    private static void testExecuteAll(EventExecutor loop) throws InterruptedException {
+        final int tasks = 100;
+        final List<Integer> executed = new ArrayList<Integer>();
+        final CountDownLatch latch = new CountDownLatch(tasks);
+        List<Runnable> batch = new ArrayList<Runnable>();
+        for (int i = 0; i < tasks; i ++) {
+            final int id = i;
+            batch.add(new Runnable() {
+                @Override
+                public void run() {
+                    executed.add(id);
+                    latch.countDown();
+                }
+            });
+        }
+
+        loop.executeAll(batch);
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        for (int i = 0; i < tasks; i ++) {
+            assertEquals(Integer.valueOf(i), executed.get(i));
+        }
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    public void executeAllAfterShutdown() {
+        loopA.shutdown();
+        List<Runnable> batch = new ArrayList<Runnable>();
+        batch.add(NOOP);
+        try {
+            loopA.executeAll(batch);
+            fail("Tasks must be rejected after shutdown() is called.");
+        } catch (RejectedExecutionException e) {
+            // Expected
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void lazyExecuteDoesNotWakeUp() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(2);
+        Runnable task = new Runnable() {
+            @Override
+            public void run() {
+                latch.countDown();
+            }
+        };
+        loopB.lazyExecute(task);
+        loopB.lazyExecute(task);
+
+        // The tasks run once the event loop wakes up by itself.
+        latch.await();
+        assertEquals(0, loopB.wakeups.get());
+
+        loopB.execute(NOOP);
+        assertEquals(1, loopB.wakeups.get());
+    }
+
     @Test
     public void scheduleTaskA() throws Exception {
         testScheduleTask(loopA);
@@ -468,6 +535,8 @@ public class SingleThreadEventLoopTest {
 
     private static class SingleThreadEventLoopB extends SingleThreadEventLoop {
 
+        final AtomicInteger wakeups = new AtomicInteger();
+
         SingleThreadEventLoopB() {
             super(null, Executors.defaultThreadFactory(), false);
         }
@@ -491,6 +560,7 @@ public class SingleThreadEventLoopTest {
 
         @Override
         protected void wakeup(boolean inEventLoop) {
+            wakeups.incrementAndGet();
             interruptThread();
         }
     }